@@ -0,0 +1,34 @@
+package com.project.one.exceptions;
+
+/**
+ * This class is a custom exception indicating a durable store could not be
+ * read or written. It is unchecked so that the boolean service methods keep
+ * their signatures while still refusing to report a failed write as a success.
+ *
+ * @see RuntimeException
+ * @author Ben
+ */
+public class PersistenceException extends RuntimeException {
+
+	private static final long serialVersionUID = 7307118468021435092L;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param errorMessage The error message describing the error.
+	 */
+	public PersistenceException(final String errorMessage) {
+		super(errorMessage);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param errorMessage The error message describing the error.
+	 * @param cause        The underlying cause of the error.
+	 */
+	public PersistenceException(final String errorMessage, final Throwable cause) {
+		super(errorMessage, cause);
+	}
+
+}
@@ -0,0 +1,707 @@
+package com.project.one.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This class is a page-based B+tree index in a file, keyed by a timestamp in
+ * epoch milliseconds and an id. It holds only keys; the id points into the
+ * primary store. Pages are read through a bounded BufferPool, so a range scan
+ * reads the pages on the path to its first key and then only the leaves it
+ * covers, which are linked in key order.
+ *
+ * Keys have a fixed length: the timestamp, then a length byte and up to
+ * maxIdLength UTF-16 characters of the id. Deleted keys are removed from their
+ * leaf but pages are never merged; rebuild packs the tree again.
+ *
+ * The index is not crash-safe on its own. The header records whether the file
+ * was closed cleanly, and an index that was not must be rebuilt from the
+ * primary store before it is used; it is opened empty in that case.
+ *
+ * @see BufferPool
+ * @author Ben
+ */
+public class BPlusTree implements Closeable {
+
+	/**
+	 * The size of a page in bytes.
+	 */
+	public static int PAGE_SIZE = 4096;
+	/**
+	 * The default number of pages kept in the buffer pool.
+	 */
+	public static int DEFAULT_POOL_PAGES = 1024;
+
+	private static final int MAGIC = 0x42505431;
+	private static final int HEADER_LENGTH = Integer.BYTES * 5 + 1;
+	private static final int NODE_HEADER_LENGTH = 1 + Short.BYTES + Integer.BYTES;
+	private static final int MIN_POOL_PAGES = 16;
+	private static final byte LEAF = 1;
+	private static final byte INTERNAL = 2;
+	private static final int NO_PAGE = -1;
+
+	private final FileChannel channel;
+	private final int maxIdLength;
+	private final int keyLength;
+	private final int leafCapacity;
+	private final int internalCapacity;
+	private final BufferPool pool;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final boolean closedCleanly;
+	private int root;
+	private int pageCount;
+
+	/**
+	 * Constructor. Opens or creates an index file.
+	 *
+	 * @param path        The index file.
+	 * @param maxIdLength The maximum number of characters in an id.
+	 * @param poolPages   The number of pages kept in the buffer pool.
+	 * @throws IOException Exception indicating the index could not be opened.
+	 */
+	public BPlusTree(final Path path, final int maxIdLength, final int poolPages) throws IOException {
+		this.maxIdLength = maxIdLength;
+		this.keyLength = Long.BYTES + 1 + maxIdLength * Character.BYTES;
+		this.leafCapacity = (PAGE_SIZE - NODE_HEADER_LENGTH) / this.keyLength;
+		this.internalCapacity = (PAGE_SIZE - NODE_HEADER_LENGTH) / (this.keyLength + Integer.BYTES);
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			boolean clean = false;
+			if (this.channel.size() >= HEADER_LENGTH) {
+				final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+				this.channel.read(header, 0);
+				header.flip();
+				if (header.getInt() != MAGIC || header.getInt() != PAGE_SIZE) {
+					throw new IOException(String.format("%s is not a B+tree index.", path));
+				}
+				if (header.getInt() != maxIdLength) {
+					throw new IOException(String.format("%s was created with a different id length.", path));
+				}
+				this.root = header.getInt();
+				this.pageCount = header.getInt();
+				clean = header.get() == 1;
+			}
+			this.closedCleanly = clean;
+			this.pool = new BufferPool(this.channel, PAGE_SIZE, Math.max(MIN_POOL_PAGES, poolPages));
+			if (!clean) {
+				reset();
+			}
+			// Until close, a crash must leave the index marked for a rebuild.
+			writeHeader(false);
+			this.channel.force(true);
+		} catch (IOException | RuntimeException e) {
+			this.channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Checks whether the index was closed cleanly the last time it was used. An
+	 * index that was not, including a new one, is empty and must be rebuilt.
+	 *
+	 * @return Returns true if the index holds the keys it had when it was closed.
+	 */
+	public boolean wasClosedCleanly() {
+		return this.closedCleanly;
+	}
+
+	/**
+	 * Adds a key.
+	 *
+	 * @param millis The timestamp in epoch milliseconds.
+	 * @param id     The id.
+	 * @return Returns false if the key was already in the index.
+	 * @throws IOException Exception indicating a page could not be read.
+	 */
+	public boolean insert(final long millis, final String id) throws IOException {
+		checkId(id);
+		this.lock.writeLock().lock();
+		try {
+			if (contains(findLeaf(millis, id), millis, id)) {
+				return false;
+			}
+			final Split split = insert(this.root, millis, id);
+			if (split != null) {
+				final int newRoot = newNode(INTERNAL);
+				final ByteBuffer node = this.pool.pin(newRoot);
+				node.putInt(3, this.root);
+				insertEntry(node, split);
+				this.pool.unpin(newRoot, true);
+				this.root = newRoot;
+			}
+			return true;
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes a key.
+	 *
+	 * @param millis The timestamp in epoch milliseconds.
+	 * @param id     The id.
+	 * @return Returns false if the key was not in the index.
+	 * @throws IOException Exception indicating a page could not be read.
+	 */
+	public boolean delete(final long millis, final String id) throws IOException {
+		this.lock.writeLock().lock();
+		try {
+			final int page = findLeaf(millis, id);
+			final ByteBuffer node = this.pool.pin(page);
+			boolean dirty = false;
+			try {
+				final int count = count(node);
+				final int position = lowerBound(node, millis, id);
+				if (position == count || compare(node, leafOffset(position), millis, id) != 0) {
+					return false;
+				}
+				System.arraycopy(node.array(), leafOffset(position + 1), node.array(), leafOffset(position),
+						(count - position - 1) * this.keyLength);
+				setCount(node, count - 1);
+				dirty = true;
+				return true;
+			} finally {
+				this.pool.unpin(page, dirty);
+			}
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Moves an id from one timestamp to another under one acquisition of the
+	 * write lock, so a concurrent range scan finds it at one timestamp or the
+	 * other, never at neither.
+	 *
+	 * @param previousMillis The timestamp the id was indexed at.
+	 * @param millis         The new timestamp.
+	 * @param id             The id.
+	 * @return Returns false if the id was not indexed at the previous timestamp.
+	 * @throws IOException Exception indicating a page could not be read.
+	 */
+	public boolean move(final long previousMillis, final long millis, final String id) throws IOException {
+		checkId(id);
+		this.lock.writeLock().lock();
+		try {
+			if (previousMillis == millis) {
+				return contains(findLeaf(millis, id), millis, id);
+			}
+			final boolean deleted = delete(previousMillis, id);
+			insert(millis, id);
+			return deleted;
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Checks whether a key is in the index.
+	 *
+	 * @param millis The timestamp in epoch milliseconds.
+	 * @param id     The id.
+	 * @return Returns true if the key is in the index.
+	 * @throws IOException Exception indicating a page could not be read.
+	 */
+	public boolean contains(final long millis, final String id) throws IOException {
+		this.lock.readLock().lock();
+		try {
+			return contains(findLeaf(millis, id), millis, id);
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Finds the ids of the keys with a timestamp in a range, in key order.
+	 *
+	 * @param fromMillis The start of the range, inclusive.
+	 * @param toMillis   The end of the range, exclusive.
+	 * @return Returns the ids ordered by timestamp and then id.
+	 * @throws IOException Exception indicating a page could not be read.
+	 */
+	public List<String> range(final long fromMillis, final long toMillis) throws IOException {
+		final List<String> ids = new ArrayList<>();
+		if (fromMillis >= toMillis) {
+			return ids;
+		}
+		this.lock.readLock().lock();
+		try {
+			int page = findLeaf(fromMillis, "");
+			boolean first = true;
+			while (page != NO_PAGE) {
+				final ByteBuffer node = this.pool.pin(page);
+				final int next;
+				try {
+					final int count = count(node);
+					for (int i = first ? lowerBound(node, fromMillis, "") : 0; i < count; i++) {
+						if (node.getLong(leafOffset(i)) >= toMillis) {
+							return ids;
+						}
+						ids.add(readId(node, leafOffset(i)));
+					}
+					next = link(node);
+				} finally {
+					this.pool.unpin(page, false);
+				}
+				first = false;
+				page = next;
+			}
+			return ids;
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Replaces the contents of the index by packing the given keys into full
+	 * leaves and building the inner levels over them.
+	 *
+	 * @param keys The keys as timestamp and id pairs, sorted by timestamp and then
+	 *             id, without duplicates.
+	 * @throws IOException Exception indicating a page could not be written.
+	 */
+	public void rebuild(final Iterator<Map.Entry<Long, String>> keys) throws IOException {
+		this.lock.writeLock().lock();
+		try {
+			reset();
+			List<Integer> pages = new ArrayList<>();
+			List<Long> firstMillis = new ArrayList<>();
+			List<String> firstIds = new ArrayList<>();
+			int page = this.root;
+			ByteBuffer node = this.pool.pin(page);
+			try {
+				Long previousMillis = null;
+				String previousId = null;
+				while (keys.hasNext()) {
+					final Map.Entry<Long, String> key = keys.next();
+					checkId(key.getValue());
+					if (previousMillis != null && compareKeys(previousMillis, previousId, key.getKey(),
+							key.getValue()) >= 0) {
+						throw new IllegalArgumentException("The keys must be sorted without duplicates.");
+					}
+					int count = count(node);
+					if (count == this.leafCapacity) {
+						final int next = newNode(LEAF);
+						node.putInt(3, next);
+						this.pool.unpin(page, true);
+						page = next;
+						node = this.pool.pin(page);
+						count = 0;
+					}
+					if (count == 0) {
+						pages.add(page);
+						firstMillis.add(key.getKey());
+						firstIds.add(key.getValue());
+					}
+					writeKey(node, leafOffset(count), key.getKey(), key.getValue());
+					setCount(node, count + 1);
+					previousMillis = key.getKey();
+					previousId = key.getValue();
+				}
+			} finally {
+				this.pool.unpin(page, true);
+			}
+			while (pages.size() > 1) {
+				final List<Integer> parents = new ArrayList<>();
+				final List<Long> parentMillis = new ArrayList<>();
+				final List<String> parentIds = new ArrayList<>();
+				for (int first = 0; first < pages.size(); first += this.internalCapacity + 1) {
+					final int parent = newNode(INTERNAL);
+					final ByteBuffer parentNode = this.pool.pin(parent);
+					parentNode.putInt(3, pages.get(first));
+					final int last = Math.min(pages.size(), first + this.internalCapacity + 1);
+					for (int child = first + 1; child < last; child++) {
+						final int offset = internalOffset(child - first - 1);
+						writeKey(parentNode, offset, firstMillis.get(child), firstIds.get(child));
+						parentNode.putInt(offset + this.keyLength, pages.get(child));
+					}
+					setCount(parentNode, last - first - 1);
+					this.pool.unpin(parent, true);
+					parents.add(parent);
+					parentMillis.add(firstMillis.get(first));
+					parentIds.add(firstIds.get(first));
+				}
+				pages = parents;
+				firstMillis = parentMillis;
+				firstIds = parentIds;
+			}
+			if (!pages.isEmpty()) {
+				this.root = pages.get(0);
+			}
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Writes every changed page to the file and forces it to disk. The index is
+	 * still marked for a rebuild until it is closed.
+	 *
+	 * @throws IOException Exception indicating a page could not be written.
+	 */
+	public void flush() throws IOException {
+		this.lock.writeLock().lock();
+		try {
+			this.pool.flush();
+			writeHeader(false);
+			this.channel.force(true);
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the number of pages read from the file since the index was opened.
+	 *
+	 * @return Returns the number of page reads.
+	 */
+	public long getPageReads() {
+		return this.pool.getReads();
+	}
+
+	/**
+	 * Writes every changed page, marks the index as closed cleanly and closes the
+	 * file.
+	 *
+	 * @throws IOException Exception indicating the index could not be written.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.lock.writeLock().lock();
+		try {
+			if (!this.channel.isOpen()) {
+				return;
+			}
+			this.pool.flush();
+			this.channel.force(true);
+			writeHeader(true);
+			this.channel.force(true);
+			this.channel.close();
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds a key below a page.
+	 *
+	 * @param page   The page number.
+	 * @param millis The timestamp in epoch milliseconds.
+	 * @param id     The id.
+	 * @return Returns the key and page to add to the parent if the page was split,
+	 *         or null.
+	 * @throws IOException Exception indicating a page could not be read.
+	 */
+	private Split insert(final int page, final long millis, final String id) throws IOException {
+		final ByteBuffer node = this.pool.pin(page);
+		boolean dirty = false;
+		try {
+			if (node.get(0) == LEAF) {
+				dirty = true;
+				return insertIntoLeaf(node, millis, id);
+			}
+			final Split split = insert(child(node, upperBound(node, millis, id)), millis, id);
+			if (split == null) {
+				return null;
+			}
+			dirty = true;
+			return insertIntoInternal(node, split);
+		} finally {
+			this.pool.unpin(page, dirty);
+		}
+	}
+
+	private Split insertIntoLeaf(final ByteBuffer node, final long millis, final String id) throws IOException {
+		final int count = count(node);
+		if (count < this.leafCapacity) {
+			insertKey(node, lowerBound(node, millis, id), millis, id);
+			return null;
+		}
+		final int rightPage = newNode(LEAF);
+		final ByteBuffer right = this.pool.pin(rightPage);
+		try {
+			final int half = count / 2;
+			System.arraycopy(node.array(), leafOffset(half), right.array(), leafOffset(0),
+					(count - half) * this.keyLength);
+			setCount(right, count - half);
+			setCount(node, half);
+			right.putInt(3, link(node));
+			node.putInt(3, rightPage);
+			final ByteBuffer target = compare(right, leafOffset(0), millis, id) > 0 ? node : right;
+			insertKey(target, lowerBound(target, millis, id), millis, id);
+			return new Split(right.getLong(leafOffset(0)), readId(right, leafOffset(0)), rightPage);
+		} finally {
+			this.pool.unpin(rightPage, true);
+		}
+	}
+
+	private Split insertIntoInternal(final ByteBuffer node, final Split split) throws IOException {
+		final int count = count(node);
+		if (count < this.internalCapacity) {
+			insertEntry(node, split);
+			return null;
+		}
+		final int rightPage = newNode(INTERNAL);
+		final ByteBuffer right = this.pool.pin(rightPage);
+		try {
+			// The middle key moves up; the child to its right becomes the leftmost child of the new page.
+			final int middle = count / 2;
+			final long upMillis = node.getLong(internalOffset(middle));
+			final String upId = readId(node, internalOffset(middle));
+			right.putInt(3, node.getInt(internalOffset(middle) + this.keyLength));
+			System.arraycopy(node.array(), internalOffset(middle + 1), right.array(), internalOffset(0),
+					(count - middle - 1) * (this.keyLength + Integer.BYTES));
+			setCount(right, count - middle - 1);
+			setCount(node, middle);
+			insertEntry(compareKeys(split.millis, split.id, upMillis, upId) < 0 ? node : right, split);
+			return new Split(upMillis, upId, rightPage);
+		} finally {
+			this.pool.unpin(rightPage, true);
+		}
+	}
+
+	private void insertKey(final ByteBuffer node, final int position, final long millis, final String id) {
+		final int count = count(node);
+		System.arraycopy(node.array(), leafOffset(position), node.array(), leafOffset(position + 1),
+				(count - position) * this.keyLength);
+		writeKey(node, leafOffset(position), millis, id);
+		setCount(node, count + 1);
+	}
+
+	private void insertEntry(final ByteBuffer node, final Split split) {
+		final int count = count(node);
+		final int position = upperBound(node, split.millis, split.id);
+		final int entryLength = this.keyLength + Integer.BYTES;
+		System.arraycopy(node.array(), internalOffset(position), node.array(), internalOffset(position + 1),
+				(count - position) * entryLength);
+		writeKey(node, internalOffset(position), split.millis, split.id);
+		node.putInt(internalOffset(position) + this.keyLength, split.page);
+		setCount(node, count + 1);
+	}
+
+	/**
+	 * Finds the leaf that holds a key, or would hold it.
+	 *
+	 * @param millis The timestamp in epoch milliseconds.
+	 * @param id     The id.
+	 * @return Returns the page number of the leaf.
+	 * @throws IOException Exception indicating a page could not be read.
+	 */
+	private int findLeaf(final long millis, final String id) throws IOException {
+		int page = this.root;
+		while (true) {
+			final ByteBuffer node = this.pool.pin(page);
+			final int next;
+			try {
+				if (node.get(0) == LEAF) {
+					return page;
+				}
+				next = child(node, upperBound(node, millis, id));
+			} finally {
+				this.pool.unpin(page, false);
+			}
+			page = next;
+		}
+	}
+
+	private boolean contains(final int leaf, final long millis, final String id) throws IOException {
+		final ByteBuffer node = this.pool.pin(leaf);
+		try {
+			final int position = lowerBound(node, millis, id);
+			return position < count(node) && compare(node, leafOffset(position), millis, id) == 0;
+		} finally {
+			this.pool.unpin(leaf, false);
+		}
+	}
+
+	/**
+	 * Drops every key, leaving an empty leaf as the root.
+	 *
+	 * @throws IOException Exception indicating the file could not be truncated.
+	 */
+	private void reset() throws IOException {
+		this.pool.clear();
+		this.channel.truncate(PAGE_SIZE);
+		this.pageCount = 1;
+		this.root = newNode(LEAF);
+	}
+
+	/**
+	 * Allocates an empty node at the end of the file.
+	 *
+	 * @param type LEAF or INTERNAL.
+	 * @return Returns the page number of the node.
+	 */
+	private int newNode(final byte type) {
+		final int page = this.pageCount++;
+		final ByteBuffer node = this.pool.pinNew(page);
+		node.put(0, type);
+		setCount(node, 0);
+		node.putInt(3, NO_PAGE);
+		this.pool.unpin(page, true);
+		return page;
+	}
+
+	private void writeHeader(final boolean clean) throws IOException {
+		final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+		header.putInt(MAGIC);
+		header.putInt(PAGE_SIZE);
+		header.putInt(this.maxIdLength);
+		header.putInt(this.root);
+		header.putInt(this.pageCount);
+		header.put((byte) (clean ? 1 : 0));
+		header.flip();
+		long position = 0;
+		while (header.hasRemaining()) {
+			position += this.channel.write(header, position);
+		}
+	}
+
+	private void checkId(final String id) {
+		if (id.length() > this.maxIdLength) {
+			throw new IllegalArgumentException(String.format("The id must not exceed %s characters.", this.maxIdLength));
+		}
+	}
+
+	/**
+	 * Finds the first key of a node that is not less than the given key.
+	 *
+	 * @param node   The node.
+	 * @param millis The timestamp in epoch milliseconds.
+	 * @param id     The id.
+	 * @return Returns the position of the key, or the key count if there is none.
+	 */
+	private int lowerBound(final ByteBuffer node, final long millis, final String id) {
+		int low = 0;
+		int high = count(node);
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			if (compare(node, offset(node, middle), millis, id) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Finds the first key of a node that is greater than the given key. In an
+	 * inner node this is also the position of the child that covers the key.
+	 *
+	 * @param node   The node.
+	 * @param millis The timestamp in epoch milliseconds.
+	 * @param id     The id.
+	 * @return Returns the position of the key, or the key count if there is none.
+	 */
+	private int upperBound(final ByteBuffer node, final long millis, final String id) {
+		int low = 0;
+		int high = count(node);
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			if (compare(node, offset(node, middle), millis, id) <= 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private int compare(final ByteBuffer node, final int offset, final long millis, final String id) {
+		return compareKeys(node.getLong(offset), readId(node, offset), millis, id);
+	}
+
+	private static int compareKeys(final long millis, final String id, final long otherMillis,
+			final String otherId) {
+		final int comparison = Long.compare(millis, otherMillis);
+		return comparison != 0 ? comparison : id.compareTo(otherId);
+	}
+
+	private void writeKey(final ByteBuffer node, final int offset, final long millis, final String id) {
+		node.putLong(offset, millis);
+		node.put(offset + Long.BYTES, (byte) id.length());
+		for (int i = 0; i < this.maxIdLength; i++) {
+			node.putChar(offset + Long.BYTES + 1 + i * Character.BYTES, i < id.length() ? id.charAt(i) : 0);
+		}
+	}
+
+	private String readId(final ByteBuffer node, final int offset) {
+		final char[] id = new char[node.get(offset + Long.BYTES)];
+		for (int i = 0; i < id.length; i++) {
+			id[i] = node.getChar(offset + Long.BYTES + 1 + i * Character.BYTES);
+		}
+		return new String(id);
+	}
+
+	private int offset(final ByteBuffer node, final int position) {
+		return node.get(0) == LEAF ? leafOffset(position) : internalOffset(position);
+	}
+
+	private int leafOffset(final int position) {
+		return NODE_HEADER_LENGTH + position * this.keyLength;
+	}
+
+	private int internalOffset(final int position) {
+		return NODE_HEADER_LENGTH + position * (this.keyLength + Integer.BYTES);
+	}
+
+	/**
+	 * Gets a child of an inner node. Child 0 is stored in the node header and
+	 * child i after key i - 1.
+	 *
+	 * @param node     The inner node.
+	 * @param position The position of the child.
+	 * @return Returns the page number of the child.
+	 */
+	private int child(final ByteBuffer node, final int position) {
+		return position == 0 ? link(node) : node.getInt(internalOffset(position - 1) + this.keyLength);
+	}
+
+	/**
+	 * Gets the link of a node: the next leaf of a leaf, or the leftmost child of an
+	 * inner node.
+	 *
+	 * @param node The node.
+	 * @return Returns the page number of the link, or NO_PAGE.
+	 */
+	private static int link(final ByteBuffer node) {
+		return node.getInt(3);
+	}
+
+	private static int count(final ByteBuffer node) {
+		return node.getShort(1) & 0xFFFF;
+	}
+
+	private static void setCount(final ByteBuffer node, final int count) {
+		node.putShort(1, (short) count);
+	}
+
+	/**
+	 * The separator key and new page produced by splitting a page.
+	 */
+	private static class Split {
+
+		private final long millis;
+		private final String id;
+		private final int page;
+
+		private Split(final long millis, final String id, final int page) {
+			this.millis = millis;
+			this.id = id;
+			this.page = page;
+		}
+	}
+
+}
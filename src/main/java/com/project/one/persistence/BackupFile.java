@@ -0,0 +1,376 @@
+package com.project.one.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+/**
+ * This class writes and restores backup files of a service map.
+ *
+ * A backup file starts with a header naming the ChangeTracker run that wrote
+ * it and the range of changes it covers, followed by chunks of records and a
+ * trailer. A full backup holds every record; an incremental backup holds only
+ * the records put or deleted since the backup it is based on. Each chunk is
+ * checksummed on its own and names every key at most once per file, so the
+ * chunks of one file can be read and applied in any order, in parallel.
+ *
+ * Backups are written to a temporary file and renamed when complete, so a
+ * backup file is either whole or missing.
+ *
+ * @see ChangeTracker
+ * @author Ben
+ */
+public class BackupFile {
+
+	/**
+	 * The number of record bytes collected before a chunk is written.
+	 */
+	public static int CHUNK_BYTES = 256 * 1024;
+
+	static final byte PUT_RECORD = 1;
+	static final byte DELETE_RECORD = 2;
+
+	private static final int MAGIC = 0x42414B31;
+	private static final int HEADER_LENGTH = Integer.BYTES * 2 + Long.BYTES * 3;
+	private static final int CHUNK_HEADER_LENGTH = Integer.BYTES * 3;
+	private static final int TRAILER_LENGTH = Integer.BYTES * 2 + Long.BYTES;
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	private final long epoch;
+	private final long baseStamp;
+	private final long endStamp;
+
+	private BackupFile(final long epoch, final long baseStamp, final long endStamp) {
+		this.epoch = epoch;
+		this.baseStamp = baseStamp;
+		this.endStamp = endStamp;
+	}
+
+	/**
+	 * Reads and checks the header of a backup file.
+	 *
+	 * @param path The backup file.
+	 * @return Returns the header.
+	 * @throws IOException Exception indicating the file is not a backup or is
+	 *                     damaged.
+	 */
+	public static BackupFile readHeader(final Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final ByteBuffer header = read(channel, 0, HEADER_LENGTH, path);
+			if (header.getInt() != MAGIC) {
+				throw new IOException(String.format("%s is not a backup file.", path));
+			}
+			final long epoch = header.getLong();
+			final long baseStamp = header.getLong();
+			final long endStamp = header.getLong();
+			if (header.getInt() != checksum(header, 0, HEADER_LENGTH - Integer.BYTES)) {
+				throw new IOException(String.format("The header of %s is damaged.", path));
+			}
+			return new BackupFile(epoch, baseStamp, endStamp);
+		}
+	}
+
+	/**
+	 * Gets the id of the ChangeTracker run that wrote the backup. Stamps are only
+	 * comparable between backups of the same run.
+	 *
+	 * @return Returns the run id.
+	 */
+	public long getEpoch() {
+		return this.epoch;
+	}
+
+	/**
+	 * Gets the last change an incremental backup is based on.
+	 *
+	 * @return Returns the stamp of the base backup, or -1 for a full backup.
+	 */
+	public long getBaseStamp() {
+		return this.baseStamp;
+	}
+
+	/**
+	 * Gets the last change the backup includes.
+	 *
+	 * @return Returns the stamp the backup was taken at.
+	 */
+	public long getEndStamp() {
+		return this.endStamp;
+	}
+
+	/**
+	 * Checks whether the backup only holds the changes since another backup.
+	 *
+	 * @return Returns true for an incremental backup.
+	 */
+	public boolean isIncremental() {
+		return this.baseStamp >= 0;
+	}
+
+	/**
+	 * Restores a full backup followed by the incremental backups taken after it
+	 * into a map. The chunks of each file are applied in parallel; the files are
+	 * applied one after another.
+	 *
+	 * @param <V>     The type of the stored values.
+	 * @param backups The full backup, then each incremental backup in the order
+	 *                they were taken.
+	 * @param map     The map to restore into, which must allow concurrent
+	 *                writers.
+	 * @param codec   Converts the values to and from bytes.
+	 * @param threads The number of chunks applied at once.
+	 * @throws IOException Exception indicating a file is damaged or the backups
+	 *                     do not form a chain.
+	 */
+	public static <V> void restore(final List<Path> backups, final Map<String, V> map, final RecordCodec<V> codec,
+			final int threads) throws IOException {
+		BackupFile previous = null;
+		for (final Path backup : backups) {
+			final BackupFile header = readHeader(backup);
+			if (previous == null ? header.isIncremental()
+					: header.epoch != previous.epoch || header.baseStamp != previous.endStamp) {
+				throw new IOException(String.format("%s does not follow the backup before it.", backup));
+			}
+			previous = header;
+		}
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+			final Thread thread = new Thread(runnable, "backup-restore");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			for (final Path backup : backups) {
+				restoreFile(backup, map, codec, executor);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Applies every chunk of one backup file.
+	 */
+	private static <V> void restoreFile(final Path path, final Map<String, V> map, final RecordCodec<V> codec,
+			final ExecutorService executor) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final List<Future<?>> chunks = new ArrayList<>();
+			long position = HEADER_LENGTH;
+			int chunkCount = 0;
+			long recordCount = 0;
+			while (true) {
+				final ByteBuffer chunkHeader = read(channel, position, CHUNK_HEADER_LENGTH, path);
+				final int records = chunkHeader.getInt();
+				if (records == 0) {
+					break;
+				}
+				final int length = chunkHeader.getInt();
+				final int checksum = chunkHeader.getInt();
+				if (records < 0 || length < 0 || position + CHUNK_HEADER_LENGTH + length > channel.size()) {
+					throw new IOException(String.format("A chunk header of %s is damaged.", path));
+				}
+				final long payloadPosition = position + CHUNK_HEADER_LENGTH;
+				chunks.add(executor.submit(() -> {
+					final ByteBuffer payload = read(channel, payloadPosition, length, path);
+					if (checksum(payload, 0, length) != checksum) {
+						throw new IOException(String.format("A chunk of %s is damaged.", path));
+					}
+					apply(payload.array(), records, map, codec);
+					return null;
+				}));
+				position = payloadPosition + length;
+				chunkCount++;
+				recordCount += records;
+			}
+			final ByteBuffer trailer = read(channel, position, TRAILER_LENGTH, path);
+			trailer.getInt();
+			if (trailer.getInt() != chunkCount || trailer.getLong() != recordCount) {
+				throw new IOException(String.format("The trailer of %s does not match its chunks.", path));
+			}
+			for (final Future<?> chunk : chunks) {
+				try {
+					chunk.get();
+				} catch (ExecutionException e) {
+					final Throwable cause = e.getCause();
+					throw cause instanceof IOException ? (IOException) cause
+							: new IOException(String.format("A chunk of %s could not be applied.", path), cause);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while restoring a backup.", e);
+				}
+			}
+		}
+	}
+
+	private static <V> void apply(final byte[] payload, final int records, final Map<String, V> map,
+			final RecordCodec<V> codec) throws IOException {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+			for (int i = 0; i < records; i++) {
+				final byte type = in.readByte();
+				final String key = in.readUTF();
+				if (type == PUT_RECORD) {
+					map.put(key, codec.decode(key, in));
+				} else if (type == DELETE_RECORD) {
+					map.remove(key);
+				} else {
+					throw new IOException(String.format("Unknown backup record type %s.", type));
+				}
+			}
+		}
+	}
+
+	private static ByteBuffer read(final FileChannel channel, final long position, final int length,
+			final Path path) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException(String.format("%s ends before its trailer.", path));
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private static int checksum(final ByteBuffer buffer, final int offset, final int length) {
+		final CRC32 crc = new CRC32();
+		crc.update(buffer.array(), offset, length);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * This class streams records into a new backup file, one chunk at a time.
+	 */
+	static class Writer implements Closeable {
+
+		private final Path path;
+		private final Path temporary;
+		private final FileOutputStream file;
+		private final DataOutputStream out;
+		private final ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+		private final DataOutputStream record = new DataOutputStream(this.chunk);
+		private int chunkRecords;
+		private int chunkCount;
+		private long recordCount;
+		private boolean committed;
+
+		/**
+		 * Constructor. Writes the header to a temporary file next to the backup.
+		 *
+		 * @param path      The backup file.
+		 * @param epoch     The id of the ChangeTracker run.
+		 * @param baseStamp The stamp of the base backup, or -1 for a full backup.
+		 * @param endStamp  The stamp the backup is taken at.
+		 * @throws IOException Exception indicating the file could not be created.
+		 */
+		Writer(final Path path, final long epoch, final long baseStamp, final long endStamp) throws IOException {
+			this.path = path;
+			this.temporary = path.resolveSibling(path.getFileName() + TEMPORARY_SUFFIX);
+			this.file = new FileOutputStream(this.temporary.toFile());
+			this.out = new DataOutputStream(new BufferedOutputStream(this.file));
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+			header.putInt(MAGIC).putLong(epoch).putLong(baseStamp).putLong(endStamp);
+			header.putInt(checksum(header, 0, header.position()));
+			this.out.write(header.array());
+		}
+
+		/**
+		 * Adds a record holding the encoded value of a key.
+		 *
+		 * @param key   The key.
+		 * @param value The value encoded by the RecordCodec.
+		 * @throws IOException Exception indicating the file could not be written.
+		 */
+		void put(final String key, final byte[] value) throws IOException {
+			this.record.writeByte(PUT_RECORD);
+			this.record.writeUTF(key);
+			this.record.write(value);
+			added();
+		}
+
+		/**
+		 * Adds a record removing a key.
+		 *
+		 * @param key The key.
+		 * @throws IOException Exception indicating the file could not be written.
+		 */
+		void delete(final String key) throws IOException {
+			this.record.writeByte(DELETE_RECORD);
+			this.record.writeUTF(key);
+			added();
+		}
+
+		/**
+		 * Writes the last chunk and the trailer, forces the file to disk and moves
+		 * it into place.
+		 *
+		 * @throws IOException Exception indicating the file could not be written.
+		 */
+		void commit() throws IOException {
+			writeChunk();
+			this.out.writeInt(0);
+			this.out.writeInt(this.chunkCount);
+			this.out.writeLong(this.recordCount);
+			this.out.flush();
+			this.file.getFD().sync();
+			this.out.close();
+			Files.move(this.temporary, this.path, StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+			this.committed = true;
+		}
+
+		/**
+		 * Closes the file, deleting it if it was not committed.
+		 *
+		 * @throws IOException Exception indicating the file could not be closed.
+		 */
+		@Override
+		public void close() throws IOException {
+			if (!this.committed) {
+				this.out.close();
+				Files.deleteIfExists(this.temporary);
+			}
+		}
+
+		private void added() throws IOException {
+			this.chunkRecords++;
+			this.recordCount++;
+			if (this.chunk.size() >= CHUNK_BYTES) {
+				writeChunk();
+			}
+		}
+
+		private void writeChunk() throws IOException {
+			if (this.chunkRecords == 0) {
+				return;
+			}
+			final byte[] payload = this.chunk.toByteArray();
+			this.out.writeInt(this.chunkRecords);
+			this.out.writeInt(payload.length);
+			this.out.writeInt(checksum(ByteBuffer.wrap(payload), 0, payload.length));
+			this.out.write(payload);
+			this.chunk.reset();
+			this.chunkRecords = 0;
+			this.chunkCount++;
+		}
+	}
+
+}
@@ -0,0 +1,50 @@
+package com.project.one.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * This interface writes values to, and reads them from, a ByteBuffer in a
+ * compact binary format. Every record starts with a format version byte so
+ * that a reader can tell which layout follows; string fields are written with
+ * BinaryFields.
+ *
+ * Values are encoded straight into the caller's buffer and decoded straight
+ * out of it, so a record can be written to or read from a mapped file or a
+ * network buffer without an intermediate byte array.
+ *
+ * @param <V> The type of the encoded values.
+ * @see BinaryFields
+ * @author Ben
+ */
+public interface BinaryCodec<V> {
+
+	/**
+	 * Writes a value at the position of the buffer and advances the position
+	 * past it.
+	 *
+	 * @param value  The value to write.
+	 * @param buffer The buffer to write to, with at least getMaxLength bytes
+	 *               remaining.
+	 */
+	void encode(V value, ByteBuffer buffer);
+
+	/**
+	 * Reads a value written by encode at the position of the buffer and advances
+	 * the position past it.
+	 *
+	 * @param buffer The buffer to read from.
+	 * @return Returns the value.
+	 * @throws IOException Exception indicating the record has an unknown version
+	 *                     or does not hold a valid value.
+	 */
+	V decode(ByteBuffer buffer) throws IOException;
+
+	/**
+	 * Gets the largest number of bytes encode can write for one value.
+	 *
+	 * @return Returns the maximum encoded length in bytes.
+	 */
+	int getMaxLength();
+
+}
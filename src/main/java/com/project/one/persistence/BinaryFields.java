@@ -0,0 +1,146 @@
+package com.project.one.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class reads and writes the length-prefixed string fields used by the
+ * BinaryCodec implementations.
+ *
+ * A string is written as an unsigned length byte followed by its bytes. A
+ * string whose characters all fit in Latin-1 is written with one byte per
+ * character; any other string is written as UTF-8. putString returns which of
+ * the two it used, and a record keeps one flag bit per string field so that
+ * getString can be told how to read it back.
+ *
+ * @see BinaryCodec
+ * @author Ben
+ */
+public class BinaryFields {
+
+	/**
+	 * The largest number of bytes a string field may take, set by the length
+	 * byte.
+	 */
+	public static final int MAX_FIELD_BYTES = 255;
+
+	private static final int UTF8_BYTES_PER_CHAR = 3;
+
+	/**
+	 * Gets the largest number of bytes putString can write for a string.
+	 *
+	 * @param maxCharLength The maximum number of characters in the string.
+	 * @return Returns the length byte plus the UTF-8 worst case.
+	 */
+	public static int maxLength(final int maxCharLength) {
+		return 1 + Math.min(MAX_FIELD_BYTES, maxCharLength * UTF8_BYTES_PER_CHAR);
+	}
+
+	/**
+	 * Writes a string field at the position of the buffer.
+	 *
+	 * @param buffer The buffer to write to.
+	 * @param value  The string.
+	 * @return Returns true if the string was written as UTF-8, or false if it was
+	 *         written as Latin-1.
+	 * @throws IllegalArgumentException Exception indicating the string takes more
+	 *                                  than MAX_FIELD_BYTES bytes.
+	 */
+	public static boolean putString(final ByteBuffer buffer, final String value) {
+		final int length = value.length();
+		boolean latin1 = length <= MAX_FIELD_BYTES;
+		for (int i = 0; i < length && latin1; i++) {
+			latin1 = value.charAt(i) <= 0xFF;
+		}
+		if (latin1) {
+			buffer.put((byte) length);
+			for (int i = 0; i < length; i++) {
+				buffer.put((byte) value.charAt(i));
+			}
+			return false;
+		}
+		final int lengthPosition = buffer.position();
+		buffer.put((byte) 0);
+		for (int i = 0; i < length; i++) {
+			final char c = value.charAt(i);
+			if (c < 0x80) {
+				buffer.put((byte) c);
+			} else if (c < 0x800) {
+				buffer.put((byte) (0xC0 | c >> 6));
+				buffer.put((byte) (0x80 | c & 0x3F));
+			} else if (Character.isHighSurrogate(c) && i + 1 < length
+					&& Character.isLowSurrogate(value.charAt(i + 1))) {
+				final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+				buffer.put((byte) (0xF0 | codePoint >> 18));
+				buffer.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+				buffer.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+				buffer.put((byte) (0x80 | codePoint & 0x3F));
+			} else if (Character.isSurrogate(c)) {
+				// An unpaired surrogate has no UTF-8 form; String.getBytes writes '?' too.
+				buffer.put((byte) '?');
+			} else {
+				buffer.put((byte) (0xE0 | c >> 12));
+				buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+				buffer.put((byte) (0x80 | c & 0x3F));
+			}
+		}
+		final int encodedLength = buffer.position() - lengthPosition - 1;
+		if (encodedLength > MAX_FIELD_BYTES) {
+			buffer.position(lengthPosition);
+			throw new IllegalArgumentException(
+					String.format("The field must not exceed %s bytes.", MAX_FIELD_BYTES));
+		}
+		buffer.put(lengthPosition, (byte) encodedLength);
+		return true;
+	}
+
+	/**
+	 * Reads a string field written by putString at the position of the buffer.
+	 * A heap buffer is decoded in place, without copying the bytes first.
+	 *
+	 * @param buffer The buffer to read from.
+	 * @param utf8   Whether putString wrote the field as UTF-8.
+	 * @return Returns the string.
+	 * @throws IOException Exception indicating the buffer ends inside the field.
+	 */
+	public static String getString(final ByteBuffer buffer, final boolean utf8) throws IOException {
+		if (!buffer.hasRemaining()) {
+			throw new IOException("The record ends before a field.");
+		}
+		final int length = buffer.get() & 0xFF;
+		if (buffer.remaining() < length) {
+			throw new IOException("The record ends inside a field.");
+		}
+		final Charset charset = utf8 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1;
+		final String value;
+		if (buffer.hasArray()) {
+			value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, charset);
+			buffer.position(buffer.position() + length);
+		} else {
+			final byte[] bytes = new byte[length];
+			buffer.get(bytes);
+			value = new String(bytes, charset);
+		}
+		return value;
+	}
+
+	/**
+	 * Reads and checks the version byte at the start of a record.
+	 *
+	 * @param buffer  The buffer to read from.
+	 * @param version The only version the caller can read.
+	 * @throws IOException Exception indicating the record has another version.
+	 */
+	public static void checkVersion(final ByteBuffer buffer, final byte version) throws IOException {
+		if (!buffer.hasRemaining()) {
+			throw new IOException("The record is empty.");
+		}
+		final byte stored = buffer.get();
+		if (stored != version) {
+			throw new IOException(String.format("Record version %d cannot be read; expected %d.", stored, version));
+		}
+	}
+
+}
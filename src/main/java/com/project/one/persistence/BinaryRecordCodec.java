@@ -0,0 +1,63 @@
+package com.project.one.persistence;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.Function;
+
+/**
+ * This class is a RecordCodec that stores each value in the format of a
+ * BinaryCodec, so the journals, snapshots, backups and storage engines all
+ * hold the same versioned records. Each record is written as its length in an
+ * int followed by the bytes of the BinaryCodec, which start with the format
+ * version byte.
+ *
+ * The BinaryCodec records hold the key as well, so decode checks that a record
+ * holds the key it was stored under.
+ *
+ * @param <V> The type of the stored values.
+ * @see BinaryCodec
+ * @see RecordCodec
+ * @author Ben
+ */
+public class BinaryRecordCodec<V> implements RecordCodec<V> {
+
+	private final BinaryCodec<V> codec;
+	private final Function<V, String> key;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param codec The BinaryCodec the records are written with.
+	 * @param key   Gets the key a value is stored under.
+	 */
+	public BinaryRecordCodec(final BinaryCodec<V> codec, final Function<V, String> key) {
+		this.codec = codec;
+		this.key = key;
+	}
+
+	@Override
+	public void encode(final V value, final DataOutput out) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(this.codec.getMaxLength());
+		this.codec.encode(value, buffer);
+		out.writeInt(buffer.position());
+		out.write(buffer.array(), 0, buffer.position());
+	}
+
+	@Override
+	public V decode(final String key, final DataInput in) throws IOException {
+		final int length = in.readInt();
+		if (length <= 0 || length > this.codec.getMaxLength()) {
+			throw new IOException(String.format("The record of %s has an invalid length %d.", key, length));
+		}
+		final byte[] record = new byte[length];
+		in.readFully(record);
+		final V value = this.codec.decode(ByteBuffer.wrap(record));
+		if (!key.equals(this.key.apply(value))) {
+			throw new IOException(String.format("The record stored under %s holds %s.", key, this.key.apply(value)));
+		}
+		return value;
+	}
+
+}
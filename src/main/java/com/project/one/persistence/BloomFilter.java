@@ -0,0 +1,120 @@
+package com.project.one.persistence;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * This class is a Bloom filter over String keys. A negative answer is always
+ * right, so a SortedTable can skip reading from disk for keys it does not hold.
+ *
+ * @see SortedTable
+ * @author Ben
+ */
+class BloomFilter {
+
+	/**
+	 * The number of bits per expected key, which gives about a 1% false positive
+	 * rate with the matching number of hash functions.
+	 */
+	static int BITS_PER_KEY = 10;
+
+	private final long[] bits;
+	private final int hashCount;
+
+	/**
+	 * Constructor. Sizes an empty filter for an expected number of keys.
+	 *
+	 * @param expectedKeys The expected number of keys.
+	 */
+	BloomFilter(final int expectedKeys) {
+		this.bits = new long[Math.max(1, (expectedKeys * BITS_PER_KEY + Long.SIZE - 1) / Long.SIZE)];
+		this.hashCount = Math.max(1, (int) Math.round(BITS_PER_KEY * Math.log(2)));
+	}
+
+	private BloomFilter(final long[] bits, final int hashCount) {
+		this.bits = bits;
+		this.hashCount = hashCount;
+	}
+
+	/**
+	 * Adds a key.
+	 *
+	 * @param key The key.
+	 */
+	void add(final String key) {
+		final long bitCount = (long) this.bits.length * Long.SIZE;
+		final int first = key.hashCode();
+		final int second = secondHash(key);
+		for (int i = 0; i < this.hashCount; i++) {
+			final long bit = Math.floorMod(first + (long) i * second, bitCount);
+			this.bits[(int) (bit >>> 6)] |= 1L << bit;
+		}
+	}
+
+	/**
+	 * Checks whether a key may have been added.
+	 *
+	 * @param key The key.
+	 * @return Returns false if the key was definitely not added.
+	 */
+	boolean mightContain(final String key) {
+		final long bitCount = (long) this.bits.length * Long.SIZE;
+		final int first = key.hashCode();
+		final int second = secondHash(key);
+		for (int i = 0; i < this.hashCount; i++) {
+			final long bit = Math.floorMod(first + (long) i * second, bitCount);
+			if ((this.bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Writes the filter.
+	 *
+	 * @param out The output to write to.
+	 * @throws IOException Exception indicating the filter could not be written.
+	 */
+	void write(final DataOutput out) throws IOException {
+		out.writeInt(this.hashCount);
+		out.writeInt(this.bits.length);
+		for (final long word : this.bits) {
+			out.writeLong(word);
+		}
+	}
+
+	/**
+	 * Reads a filter written by write.
+	 *
+	 * @param in The input to read from.
+	 * @return Returns the filter.
+	 * @throws IOException Exception indicating the filter could not be read.
+	 */
+	static BloomFilter read(final DataInput in) throws IOException {
+		final int hashCount = in.readInt();
+		final long[] bits = new long[in.readInt()];
+		for (int i = 0; i < bits.length; i++) {
+			bits[i] = in.readLong();
+		}
+		return new BloomFilter(bits, hashCount);
+	}
+
+	/**
+	 * A 32-bit FNV-1a hash of the key, forced odd so that it never repeats a bit
+	 * position before every hash function has been used.
+	 *
+	 * @param key The key.
+	 * @return Returns the second hash of the key.
+	 */
+	private static int secondHash(final String key) {
+		int hash = 0x811C9DC5;
+		for (int i = 0; i < key.length(); i++) {
+			hash ^= key.charAt(i);
+			hash *= 0x01000193;
+		}
+		return hash | 1;
+	}
+
+}
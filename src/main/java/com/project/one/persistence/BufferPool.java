@@ -0,0 +1,194 @@
+package com.project.one.persistence;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class caches fixed-size pages of a file in a bounded number of frames.
+ *
+ * A page is pinned while it is being used and unpinned afterwards, marking it
+ * dirty if it was changed. When the pool is full, the least recently used
+ * unpinned page is evicted, and written back first if it is dirty. Pinned pages
+ * are never evicted, so a caller always sees the one copy of a page; if every
+ * frame is pinned the pool grows past its capacity until pages are unpinned.
+ *
+ * @see BPlusTree
+ * @author Ben
+ */
+class BufferPool {
+
+	private final FileChannel channel;
+	private final int pageSize;
+	private final int capacity;
+	// Access order, so iteration starts at the least recently used page.
+	private final LinkedHashMap<Integer, Frame> frames = new LinkedHashMap<>(16, 0.75f, true);
+	private long reads;
+	private long writes;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param channel  The file holding the pages.
+	 * @param pageSize The size of a page in bytes.
+	 * @param capacity The number of pages to cache.
+	 */
+	BufferPool(final FileChannel channel, final int pageSize, final int capacity) {
+		this.channel = channel;
+		this.pageSize = pageSize;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Pins a page, reading it from the file if it is not cached.
+	 *
+	 * @param page The page number.
+	 * @return Returns the page contents, which stay valid until the page is
+	 *         unpinned.
+	 * @throws IOException Exception indicating the page could not be read.
+	 */
+	synchronized ByteBuffer pin(final int page) throws IOException {
+		Frame frame = this.frames.get(page);
+		if (frame == null) {
+			evict();
+			final ByteBuffer data = ByteBuffer.allocate(this.pageSize);
+			long position = (long) page * this.pageSize;
+			while (data.hasRemaining()) {
+				final int read = this.channel.read(data, position);
+				if (read < 0) {
+					throw new EOFException(String.format("Page %d is past the end of the file.", page));
+				}
+				position += read;
+			}
+			this.reads++;
+			frame = new Frame(page, data);
+			this.frames.put(page, frame);
+		}
+		frame.pins++;
+		return frame.data;
+	}
+
+	/**
+	 * Pins a page that is not in the file yet. Its contents start zeroed and it is
+	 * written out when it is evicted or flushed.
+	 *
+	 * @param page The page number.
+	 * @return Returns the page contents.
+	 */
+	synchronized ByteBuffer pinNew(final int page) {
+		evict();
+		final Frame frame = new Frame(page, ByteBuffer.allocate(this.pageSize));
+		frame.dirty = true;
+		frame.pins = 1;
+		this.frames.put(page, frame);
+		return frame.data;
+	}
+
+	/**
+	 * Unpins a page.
+	 *
+	 * @param page  The page number.
+	 * @param dirty Whether the page was changed while it was pinned.
+	 */
+	synchronized void unpin(final int page, final boolean dirty) {
+		final Frame frame = this.frames.get(page);
+		frame.pins--;
+		frame.dirty |= dirty;
+	}
+
+	/**
+	 * Writes every dirty page to the file. The file is not forced to disk.
+	 *
+	 * @throws IOException Exception indicating a page could not be written.
+	 */
+	synchronized void flush() throws IOException {
+		for (final Frame frame : this.frames.values()) {
+			if (frame.dirty) {
+				write(frame);
+			}
+		}
+	}
+
+	/**
+	 * Drops every cached page without writing it.
+	 */
+	synchronized void clear() {
+		this.frames.clear();
+	}
+
+	/**
+	 * Gets the number of pages read from the file.
+	 *
+	 * @return Returns the number of page reads.
+	 */
+	synchronized long getReads() {
+		return this.reads;
+	}
+
+	/**
+	 * Gets the number of pages written to the file.
+	 *
+	 * @return Returns the number of page writes.
+	 */
+	synchronized long getWrites() {
+		return this.writes;
+	}
+
+	/**
+	 * Makes room for one more page by evicting the least recently used unpinned
+	 * page, if the pool is full.
+	 */
+	private void evict() {
+		if (this.frames.size() < this.capacity) {
+			return;
+		}
+		final Iterator<Map.Entry<Integer, Frame>> entries = this.frames.entrySet().iterator();
+		while (entries.hasNext()) {
+			final Frame frame = entries.next().getValue();
+			if (frame.pins == 0) {
+				if (frame.dirty) {
+					try {
+						write(frame);
+					} catch (IOException e) {
+						// Keep the page cached; the next flush reports the failure.
+						continue;
+					}
+				}
+				entries.remove();
+				return;
+			}
+		}
+	}
+
+	private void write(final Frame frame) throws IOException {
+		final ByteBuffer data = frame.data.duplicate();
+		data.clear();
+		long position = (long) frame.page * this.pageSize;
+		while (data.hasRemaining()) {
+			position += this.channel.write(data, position);
+		}
+		frame.dirty = false;
+		this.writes++;
+	}
+
+	/**
+	 * A cached page.
+	 */
+	private static class Frame {
+
+		private final int page;
+		private final ByteBuffer data;
+		private int pins;
+		private boolean dirty;
+
+		private Frame(final int page, final ByteBuffer data) {
+			this.page = page;
+			this.data = data;
+		}
+	}
+
+}
@@ -0,0 +1,309 @@
+package com.project.one.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import com.project.one.exceptions.PersistenceException;
+
+/**
+ * This class stamps every change to a service map so that backups of the map
+ * can be streamed while writers carry on, and so that an incremental backup
+ * can hold only the records changed since an earlier one.
+ *
+ * Every put or delete gets the next stamp, and the stamp of the last change to
+ * each key is remembered. A backup is taken at the stamp current when it
+ * starts. The backup walks the map and writes each record as it finds it,
+ * without copying the map first. A writer about to change a record the backup
+ * has not reached yet first hands the backup the record as it was when the
+ * backup started, so the backup file holds the map exactly as it was at its
+ * stamp. Only the records changed while a backup runs are copied, and the
+ * backup remembers the keys it has written until it ends.
+ *
+ * Callers must call beforeChange before changing a key and changed afterwards,
+ * both while holding the write lock given to the constructor, the same lock
+ * the backup takes briefly to fix its stamp.
+ *
+ * Stamps only count changes made since the tracker was created. Every backup
+ * names the tracker run that wrote it, and an incremental backup can only be
+ * based on a backup of the same run, taken no earlier than the last full
+ * backup. So stamps are only kept once a full backup has started, and a full
+ * backup drops the stamps of the changes it holds. The stamps are also ordered,
+ * so an incremental backup walks only the changes made since its base.
+ *
+ * Once keepVersions is called, every change is also handed to a
+ * VersionHistory, so that snapshots of the map can be read while writers carry
+ * on.
+ *
+ * @param <V> The type of the stored values.
+ * @see BackupFile
+ * @see VersionHistory
+ * @author Ben
+ */
+public class ChangeTracker<V> {
+
+	// Marks a key the running backup has already written.
+	private static final Object WRITTEN = new Object();
+
+	private final Map<String, V> map;
+	private final RecordCodec<V> codec;
+	private final Object writeLock;
+	private final long epoch = UUID.randomUUID().getMostSignificantBits();
+	// The stamp of the last change to each key, and the key of each such stamp.
+	private final Map<String, Long> stamps = new ConcurrentHashMap<>();
+	private final NavigableMap<Long, String> keys = new ConcurrentSkipListMap<>();
+	private volatile long stamp;
+	// The end stamp of the last full backup, or -1 while there is none.
+	private volatile long floor = -1;
+	private volatile boolean tracking;
+	private volatile Backup running;
+	private volatile VersionHistory<V> versions;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param map       The map whose changes are tracked.
+	 * @param codec     Converts the values to and from bytes.
+	 * @param writeLock The lock writers hold while they change the map.
+	 */
+	public ChangeTracker(final Map<String, V> map, final RecordCodec<V> codec, final Object writeLock) {
+		this.map = map;
+		this.codec = codec;
+		this.writeLock = writeLock;
+	}
+
+	/**
+	 * Lets a running backup keep the current value of a key before it is put or
+	 * deleted. Must be called while holding the write lock.
+	 *
+	 * @param key The key about to change.
+	 */
+	public void beforeChange(final String key) {
+		final Backup backup = this.running;
+		if (backup != null) {
+			backup.preserve(key);
+		}
+		final VersionHistory<V> history = this.versions;
+		if (history != null) {
+			history.beforeChange(key);
+		}
+	}
+
+	/**
+	 * Stamps a key that was put or deleted. Must be called while holding the
+	 * write lock.
+	 *
+	 * @param key The key that changed.
+	 */
+	public void changed(final String key) {
+		final long next = this.stamp + 1;
+		if (this.tracking) {
+			final Long previous = this.stamps.put(key, next);
+			if (previous != null) {
+				this.keys.remove(previous);
+			}
+			this.keys.put(next, key);
+		}
+		this.stamp = next;
+		final VersionHistory<V> history = this.versions;
+		if (history != null) {
+			history.changed(key);
+		}
+	}
+
+	/**
+	 * Starts handing every change to a VersionHistory published with a clock,
+	 * unless one is kept already. Must be called while holding the write lock.
+	 *
+	 * @param clock The clock the versions are published with.
+	 * @return Returns the history of the map.
+	 * @throws IllegalArgumentException Exception indicating the versions are
+	 *                                  already published with another clock.
+	 */
+	public VersionHistory<V> keepVersions(final VersionClock clock) {
+		if (this.versions == null) {
+			this.versions = new VersionHistory<>(this.map, clock);
+		} else if (this.versions.getClock() != clock) {
+			throw new IllegalArgumentException("The versions are already published with another clock.");
+		}
+		return this.versions;
+	}
+
+	/**
+	 * Streams a backup of the map into a file. Writers are only held up while the
+	 * backup fixes its stamp and when they change a record it has not reached.
+	 * One backup runs at a time.
+	 *
+	 * @param backupFile     The backup file, replaced if it exists.
+	 * @param previousBackup The backup an incremental backup is based on, or null
+	 *                       for a full backup.
+	 * @throws IOException Exception indicating the backup could not be written,
+	 *                     or the previous backup was not taken by this tracker
+	 *                     since its last full backup.
+	 */
+	public synchronized void backup(final Path backupFile, final Path previousBackup) throws IOException {
+		long baseStamp = -1;
+		if (previousBackup != null) {
+			final BackupFile previous = BackupFile.readHeader(previousBackup);
+			if (previous.getEpoch() != this.epoch) {
+				throw new IOException(String.format(
+						"%s was taken before the service was last started; take a full backup.", previousBackup));
+			}
+			baseStamp = previous.getEndStamp();
+			if (baseStamp < this.floor) {
+				throw new IOException(String.format(
+						"%s was taken before the last full backup; take a full backup.", previousBackup));
+			}
+		}
+		final Backup backup;
+		synchronized (this.writeLock) {
+			backup = new Backup(baseStamp, this.stamp);
+			this.running = backup;
+			this.tracking = true;
+		}
+		try (BackupFile.Writer writer = new BackupFile.Writer(backupFile, this.epoch, baseStamp, backup.endStamp)) {
+			// Keys changed since the base backup all have stamps; a full backup needs
+			// the keys loaded before the tracker existed too.
+			final Iterable<String> keys = baseStamp < 0 ? this.map.keySet()
+					: this.keys.tailMap(baseStamp, false).values();
+			for (final String key : keys) {
+				backup.write(key, writer);
+			}
+			// Keys deleted before the walk reached them were preserved by the writers.
+			for (final String key : new ArrayList<>(backup.states.keySet())) {
+				backup.write(key, writer);
+			}
+			writer.commit();
+		} finally {
+			this.running = null;
+		}
+		if (baseStamp < 0) {
+			prune(backup.endStamp);
+		}
+	}
+
+	/**
+	 * Drops the stamps of the changes a full backup holds, since every later
+	 * incremental backup is based on it or on a backup after it.
+	 *
+	 * @param endStamp The end stamp of the full backup.
+	 */
+	private void prune(final long endStamp) {
+		this.floor = Math.max(this.floor, endStamp);
+		final NavigableMap<Long, String> covered = this.keys.headMap(endStamp, true);
+		for (final Map.Entry<Long, String> entry : covered.entrySet()) {
+			// A writer may have stamped the key again since.
+			this.stamps.remove(entry.getValue(), entry.getKey());
+		}
+		covered.clear();
+	}
+
+	/**
+	 * Gets the number of keys whose last change is remembered.
+	 *
+	 * @return Returns the number of keys.
+	 */
+	int getStampedKeyCount() {
+		return this.stamps.size();
+	}
+
+	private byte[] encode(final V value) {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			this.codec.encode(value, out);
+		} catch (IOException e) {
+			throw new PersistenceException("The value could not be encoded.", e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * A backup in progress.
+	 */
+	private final class Backup {
+
+		private final long baseStamp;
+		private final long endStamp;
+		// Each key maps to WRITTEN or to the Preimage a writer kept for it.
+		private final Map<String, Object> states = new ConcurrentHashMap<>();
+
+		private Backup(final long baseStamp, final long endStamp) {
+			this.baseStamp = baseStamp;
+			this.endStamp = endStamp;
+		}
+
+		/**
+		 * Keeps the value of a key as of the backup stamp, unless the backup has
+		 * written the key already.
+		 *
+		 * @param key The key about to change.
+		 */
+		private void preserve(final String key) {
+			this.states.computeIfAbsent(key, this::current);
+		}
+
+		/**
+		 * Writes a key as of the backup stamp, unless it was written already or has
+		 * not changed since the base backup.
+		 *
+		 * @param key    The key.
+		 * @param writer The backup file.
+		 * @throws IOException Exception indicating the file could not be written.
+		 */
+		private void write(final String key, final BackupFile.Writer writer) throws IOException {
+			final Preimage[] found = new Preimage[1];
+			// Marking the key in the same step keeps writers from changing it between
+			// the read and the mark.
+			this.states.compute(key, (k, state) -> {
+				if (state != WRITTEN) {
+					found[0] = state == null ? current(k) : (Preimage) state;
+				}
+				return WRITTEN;
+			});
+			final Preimage preimage = found[0];
+			if (preimage == null) {
+				return;
+			}
+			if (this.baseStamp < 0) {
+				if (preimage.value != null) {
+					writer.put(key, preimage.value);
+				}
+			} else if (preimage.stamp > this.baseStamp) {
+				if (preimage.value != null) {
+					writer.put(key, preimage.value);
+				} else {
+					writer.delete(key);
+				}
+			}
+		}
+
+		private Preimage current(final String key) {
+			final V value = ChangeTracker.this.map.get(key);
+			return new Preimage(ChangeTracker.this.stamps.getOrDefault(key, 0L),
+					value == null ? null : encode(value));
+		}
+	}
+
+	/**
+	 * The stamp and encoded value of a key as of the backup stamp.
+	 */
+	private static final class Preimage {
+
+		private final long stamp;
+		// Null when the key did not exist.
+		private final byte[] value;
+
+		private Preimage(final long stamp, final byte[] value) {
+			this.stamp = stamp;
+			this.value = value;
+		}
+	}
+
+}
@@ -0,0 +1,99 @@
+package com.project.one.persistence;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class is a singleton that checkpoints every registered Journal on a
+ * background thread, so that the logs of the services stay short and startup
+ * only replays the changes made since the last checkpoint.
+ *
+ * @see Journal
+ * @author Ben
+ */
+public class Checkpointer {
+
+	/**
+	 * The time between two checkpoints of the same Journal in milliseconds. It is
+	 * read when the background thread starts.
+	 */
+	public static long CHECKPOINT_INTERVAL_MILLIS = 60000;
+
+	private static Checkpointer instance = new Checkpointer();
+
+	private final Set<Journal<?>> journals = ConcurrentHashMap.newKeySet();
+	private ScheduledExecutorService executor;
+	private volatile Exception lastFailure;
+
+	/**
+	 * Private Constructor.
+	 */
+	private Checkpointer() {
+	}
+
+	/**
+	 * Gets the only instance of Checkpointer.
+	 *
+	 * @return Returns the only instance of Checkpointer.
+	 */
+	public static Checkpointer getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Adds a Journal to be checkpointed, starting the background thread if it is
+	 * not running yet.
+	 *
+	 * @param journal The Journal to checkpoint.
+	 */
+	public synchronized void register(final Journal<?> journal) {
+		this.journals.add(journal);
+		if (this.executor == null) {
+			this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				final Thread thread = new Thread(runnable, "checkpointer");
+				thread.setDaemon(true);
+				return thread;
+			});
+			this.executor.scheduleWithFixedDelay(this::checkpointAll, CHECKPOINT_INTERVAL_MILLIS,
+					CHECKPOINT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Stops checkpointing a Journal.
+	 *
+	 * @param journal The Journal to stop checkpointing.
+	 */
+	public void unregister(final Journal<?> journal) {
+		this.journals.remove(journal);
+	}
+
+	/**
+	 * Checkpoints every registered Journal now. A failure does not stop the other
+	 * Journals from being checkpointed; it is kept for getLastFailure.
+	 */
+	public void checkpointAll() {
+		for (final Journal<?> journal : this.journals) {
+			try {
+				journal.checkpoint();
+			} catch (final IOException | RuntimeException e) {
+				// Keep the background thread alive for the next checkpoint.
+				this.lastFailure = e;
+			}
+		}
+	}
+
+	/**
+	 * Gets the most recent checkpoint failure.
+	 *
+	 * @return Returns the most recent failure, or null if there was none.
+	 */
+	public Exception getLastFailure() {
+		return this.lastFailure;
+	}
+
+}
@@ -0,0 +1,121 @@
+package com.project.one.persistence;
+
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class counts records per calendar day so that the number of records on
+ * each of the next few days can be read without looking at the records. Each
+ * day holds a LongAdder in a ConcurrentSkipListMap ordered by day, so finding
+ * the counter of a day costs O(log d) for d days with records, and reading a
+ * range of days only walks the counters in that range.
+ *
+ * A LongAdder spreads concurrent increments over striped cells, so writers
+ * counting records on the same busy day do not contend on one value. Counters
+ * are never removed, even when they drop to zero, so an increment can never
+ * land in a counter that was just dropped.
+ *
+ * Moving a record to another day counts it on the new day before uncounting it
+ * on the old one, so a concurrent read may count it on both days for a moment,
+ * but never on neither.
+ *
+ * @author Ben
+ */
+public class DayCounter {
+
+	private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+	private final TimeZone zone;
+	private final ConcurrentSkipListMap<Long, LongAdder> days = new ConcurrentSkipListMap<>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param zone The time zone the days start and end in.
+	 */
+	public DayCounter(final TimeZone zone) {
+		this.zone = zone;
+	}
+
+	/**
+	 * Counts a record on the day of a timestamp.
+	 *
+	 * @param time The timestamp, in milliseconds.
+	 */
+	public void add(final long time) {
+		counter(day(time)).increment();
+	}
+
+	/**
+	 * Uncounts a record on the day of a timestamp.
+	 *
+	 * @param time The timestamp the record was counted at.
+	 */
+	public void remove(final long time) {
+		counter(day(time)).decrement();
+	}
+
+	/**
+	 * Moves a record from the day of one timestamp to the day of another.
+	 *
+	 * @param previousTime The timestamp the record was counted at.
+	 * @param time         The new timestamp.
+	 */
+	public void move(final long previousTime, final long time) {
+		final long previousDay = day(previousTime);
+		final long day = day(time);
+		if (previousDay != day) {
+			counter(day).increment();
+			counter(previousDay).decrement();
+		}
+	}
+
+	/**
+	 * Gets the number of records on each of a number of days.
+	 *
+	 * @param from Any time on the first day.
+	 * @param days The number of days.
+	 * @return Returns one count per day, starting with the day of from.
+	 */
+	public long[] counts(final long from, final int days) {
+		if (days < 0) {
+			throw new IllegalArgumentException("The number of days cannot be negative.");
+		}
+		final long first = day(from);
+		final long[] counts = new long[days];
+		for (final Map.Entry<Long, LongAdder> day : this.days.subMap(first, first + days).entrySet()) {
+			counts[(int) (day.getKey() - first)] = day.getValue().sum();
+		}
+		return counts;
+	}
+
+	/**
+	 * Gets the number of records on the day of a timestamp.
+	 *
+	 * @param time Any time on the day.
+	 * @return Returns the count.
+	 */
+	public long count(final long time) {
+		final LongAdder counter = this.days.get(day(time));
+		return counter == null ? 0 : counter.sum();
+	}
+
+	/**
+	 * Gets the number of the day a timestamp falls on, counting from the first
+	 * of January 1970 in the time zone of this counter.
+	 *
+	 * @param time The timestamp, in milliseconds.
+	 * @return Returns the day number.
+	 */
+	public long day(final long time) {
+		return Math.floorDiv(time + this.zone.getOffset(time), DAY_MILLIS);
+	}
+
+	private LongAdder counter(final long day) {
+		final LongAdder counter = this.days.get(day);
+		return counter != null ? counter : this.days.computeIfAbsent(day, d -> new LongAdder());
+	}
+
+}
@@ -0,0 +1,251 @@
+package com.project.one.persistence;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class keeps a busy bitmap per calendar so that the earliest time free in
+ * every one of a set of calendars can be found without looking at their
+ * records. Time is cut into slots of SLOT_MILLIS, and a slot is busy in a
+ * calendar while any record of the calendar overlaps it, so a free time found
+ * here always starts and ends on a slot boundary.
+ *
+ * Each calendar keeps its bitmap in pages of PAGE_SLOTS slots, two days of nine
+ * whole words, so the pages of every calendar line up word for word. A query
+ * ORs the busy words of the calendars over the window it searches, which is
+ * the same as ANDing their free words, and then looks for a long enough run of
+ * free slots with word-wide bit scans. A query over c calendars and w words
+ * costs O(c * w), independent of the number of records.
+ *
+ * Every slot also keeps the number of records making it busy, so removing one
+ * of two overlapping records leaves the slot busy. A record longer than
+ * MAX_MARKED_SLOTS is only marked over its first MAX_MARKED_SLOTS, which keeps
+ * the cost of a change bounded. Changes are synchronized and
+ * the busy words are AtomicLongArray elements, so lookups never block. A
+ * lookup running during a change may see it half made; callers that need an
+ * exact answer check it against the records.
+ *
+ * @see IntervalTree
+ * @author Ben
+ */
+public class FreeBusyIndex {
+
+	/**
+	 * The length of a slot, in milliseconds.
+	 */
+	public static final long SLOT_MILLIS = 5 * 60 * 1000;
+
+	/**
+	 * The number of slots in a page of a bitmap: two days of five-minute slots,
+	 * which is a whole number of words.
+	 */
+	public static final int PAGE_SLOTS = 2 * 24 * 12;
+
+	/**
+	 * The most slots a single record is marked busy over: a year.
+	 */
+	public static final int MAX_MARKED_SLOTS = 366 * 24 * 12;
+
+	private static final int PAGE_WORDS = PAGE_SLOTS / Long.SIZE;
+
+	private final Map<String, Map<Long, Page>> calendars = new ConcurrentHashMap<>();
+	private final Map<String, Booking> bookings = new ConcurrentHashMap<>();
+
+	/**
+	 * Marks the time of a record busy in its calendar, replacing the time and
+	 * calendar it was marked under before.
+	 *
+	 * @param key      The record key.
+	 * @param calendar The calendar, or null to leave the record out of every
+	 *                 calendar.
+	 * @param start    The start of the time, inclusive.
+	 * @param end      The end of the time, exclusive.
+	 */
+	public synchronized void put(final String key, final String calendar, final long start, final long end) {
+		final Booking previous = calendar == null ? this.bookings.remove(key)
+				: this.bookings.put(key, new Booking(calendar, start, end));
+		if (calendar != null) {
+			mark(calendar, start, end, 1);
+		}
+		if (previous != null) {
+			mark(previous.calendar, previous.start, previous.end, -1);
+		}
+	}
+
+	/**
+	 * Frees the time of a record.
+	 *
+	 * @param key The record key.
+	 */
+	public synchronized void remove(final String key) {
+		final Booking previous = this.bookings.remove(key);
+		if (previous != null) {
+			mark(previous.calendar, previous.start, previous.end, -1);
+		}
+	}
+
+	/**
+	 * Finds the earliest time of a given length that is free in every one of a
+	 * set of calendars.
+	 *
+	 * @param calendars The calendars.
+	 * @param from      The earliest start; the search starts at the first slot
+	 *                  boundary at or after it.
+	 * @param to        The latest end of the time.
+	 * @param duration  The length of the time, in milliseconds.
+	 * @return Returns the start of the free time, or Long.MIN_VALUE if there is
+	 *         none before to.
+	 */
+	public long findFree(final Collection<String> calendars, final long from, final long to, final long duration) {
+		final long firstSlot = slotsUpTo(from);
+		final long endSlot = Math.floorDiv(to, SLOT_MILLIS);
+		final long needed = Math.max(1, slotsUpTo(duration));
+		if (endSlot - firstSlot < needed) {
+			return Long.MIN_VALUE;
+		}
+		final long firstPage = Math.floorDiv(firstSlot, PAGE_SLOTS);
+		final long lastPage = Math.floorDiv(endSlot - 1, PAGE_SLOTS);
+		if (lastPage - firstPage >= Integer.MAX_VALUE / PAGE_SLOTS) {
+			throw new IllegalArgumentException("The search window is too long.");
+		}
+		final long[] busy = new long[(int) (lastPage - firstPage + 1) * PAGE_WORDS];
+		for (final String calendar : calendars) {
+			final Map<Long, Page> pages = this.calendars.get(calendar);
+			if (pages == null) {
+				continue;
+			}
+			for (long page = firstPage; page <= lastPage; page++) {
+				final Page words = pages.get(page);
+				if (words != null) {
+					final int offset = (int) (page - firstPage) * PAGE_WORDS;
+					for (int word = 0; word < PAGE_WORDS; word++) {
+						busy[offset + word] |= words.busy.get(word);
+					}
+				}
+			}
+		}
+		final int base = (int) (firstSlot - firstPage * PAGE_SLOTS);
+		final int limit = (int) (endSlot - firstPage * PAGE_SLOTS);
+		int slot = nextFree(busy, base, limit);
+		while (slot >= 0 && slot + needed <= limit) {
+			final int taken = nextBusy(busy, slot, (int) (slot + needed));
+			if (taken < 0) {
+				return (firstPage * PAGE_SLOTS + slot) * SLOT_MILLIS;
+			}
+			slot = nextFree(busy, taken, limit);
+		}
+		return Long.MIN_VALUE;
+	}
+
+	/**
+	 * Gets the number of records marked in any calendar.
+	 *
+	 * @return Returns the number of records.
+	 */
+	public int size() {
+		return this.bookings.size();
+	}
+
+	private void mark(final String calendar, final long start, final long end, final int change) {
+		final long firstSlot = Math.floorDiv(start, SLOT_MILLIS);
+		final long lastSlot = Math.floorDiv(end - 1, SLOT_MILLIS);
+		final long endSlot = Math.min(firstSlot + MAX_MARKED_SLOTS, Math.max(firstSlot, lastSlot) + 1);
+		final Map<Long, Page> pages = this.calendars.computeIfAbsent(calendar, c -> new ConcurrentHashMap<>());
+		for (long slot = firstSlot; slot < endSlot; slot++) {
+			final long pageNumber = Math.floorDiv(slot, PAGE_SLOTS);
+			final Page page = pages.computeIfAbsent(pageNumber, p -> new Page());
+			final int index = (int) (slot - pageNumber * PAGE_SLOTS);
+			page.counts[index] += change;
+			page.marks += change;
+			final long bit = 1L << (index & 63);
+			final long word = page.busy.get(index >>> 6);
+			page.busy.set(index >>> 6, page.counts[index] > 0 ? word | bit : word & ~bit);
+			if (page.marks == 0) {
+				pages.remove(pageNumber);
+			}
+		}
+		if (pages.isEmpty()) {
+			this.calendars.remove(calendar);
+		}
+	}
+
+	/**
+	 * Rounds a time up to a whole number of slots without overflowing.
+	 *
+	 * @param millis The time, in milliseconds.
+	 * @return Returns the number of slots.
+	 */
+	private static long slotsUpTo(final long millis) {
+		return Math.floorDiv(millis, SLOT_MILLIS) + (Math.floorMod(millis, SLOT_MILLIS) == 0 ? 0 : 1);
+	}
+
+	/**
+	 * Finds the first free slot in a range.
+	 *
+	 * @param busy  The busy words.
+	 * @param from  The first slot, inclusive.
+	 * @param limit The last slot, exclusive.
+	 * @return Returns the slot, or -1 if every slot is busy.
+	 */
+	private static int nextFree(final long[] busy, final int from, final int limit) {
+		for (int index = from; index < limit;) {
+			final long free = ~busy[index >>> 6] & -1L << (index & 63);
+			if (free != 0) {
+				final int slot = (index & ~63) + Long.numberOfTrailingZeros(free);
+				return slot < limit ? slot : -1;
+			}
+			index = (index & ~63) + 64;
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the first busy slot in a range.
+	 *
+	 * @param busy  The busy words.
+	 * @param from  The first slot, inclusive.
+	 * @param limit The last slot, exclusive.
+	 * @return Returns the slot, or -1 if every slot is free.
+	 */
+	private static int nextBusy(final long[] busy, final int from, final int limit) {
+		for (int index = from; index < limit;) {
+			final long taken = busy[index >>> 6] & -1L << (index & 63);
+			if (taken != 0) {
+				final int slot = (index & ~63) + Long.numberOfTrailingZeros(taken);
+				return slot < limit ? slot : -1;
+			}
+			index = (index & ~63) + 64;
+		}
+		return -1;
+	}
+
+	/**
+	 * The busy words of one page of a calendar, the number of records making
+	 * each slot busy, and their total, so an empty page can be dropped.
+	 */
+	private static final class Page {
+
+		private final AtomicLongArray busy = new AtomicLongArray(PAGE_WORDS);
+		private final int[] counts = new int[PAGE_SLOTS];
+		private int marks;
+	}
+
+	/**
+	 * The calendar and time a record was marked under.
+	 */
+	private static final class Booking {
+
+		private final String calendar;
+		private final long start;
+		private final long end;
+
+		private Booking(final String calendar, final long start, final long end) {
+			this.calendar = calendar;
+			this.start = start;
+			this.end = end;
+		}
+	}
+
+}
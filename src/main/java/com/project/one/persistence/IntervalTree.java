@@ -0,0 +1,274 @@
+package com.project.one.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * This class indexes record keys by a time interval so that the records whose
+ * interval overlaps a query interval can be found without looking at every
+ * record. Intervals are half-open: an interval from start to end includes start
+ * but not end, so two intervals that only touch do not overlap.
+ *
+ * The intervals are kept in an AVL tree ordered by start and then key. Every
+ * node also holds the latest end in its subtree, so a query skips each subtree
+ * that ends before the query starts, and stops going right once the starts
+ * pass the end of the query. A lookup costs O(log n + k) for k overlaps, and an
+ * add, remove or move costs O(log n).
+ *
+ * Changes are made under the write lock of a StampedLock and lookups under its
+ * read lock, so a lookup never sees a tree halfway through a rotation. Moving a
+ * key to a new interval is one change, so a lookup never sees the key at both
+ * its old and its new interval, or at neither.
+ *
+ * @see TimeIndex
+ * @author Ben
+ */
+public class IntervalTree {
+
+	private final StampedLock lock = new StampedLock();
+	private Node root;
+	private int size;
+
+	/**
+	 * Indexes a record key at an interval, replacing the end of the interval if
+	 * the key is already indexed at that start.
+	 *
+	 * @param start The start of the interval, inclusive.
+	 * @param end   The end of the interval, exclusive.
+	 * @param key   The record key.
+	 */
+	public void add(final long start, final long end, final String key) {
+		final long stamp = this.lock.writeLock();
+		try {
+			this.root = insert(this.root, start, end, key);
+		} finally {
+			this.lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Removes a record key from an interval.
+	 *
+	 * @param start The start of the interval the key was indexed at.
+	 * @param key   The record key.
+	 */
+	public void remove(final long start, final String key) {
+		final long stamp = this.lock.writeLock();
+		try {
+			this.root = delete(this.root, start, key);
+		} finally {
+			this.lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Moves a record key from one interval to another in one atomic step.
+	 *
+	 * @param previousStart The start of the interval the key was indexed at.
+	 * @param start         The start of the new interval, inclusive.
+	 * @param end           The end of the new interval, exclusive.
+	 * @param key           The record key.
+	 */
+	public void move(final long previousStart, final long start, final long end, final String key) {
+		final long stamp = this.lock.writeLock();
+		try {
+			this.root = insert(delete(this.root, previousStart, key), start, end, key);
+		} finally {
+			this.lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Gets the keys of the intervals that overlap a query interval, ordered by
+	 * start and then key.
+	 *
+	 * @param from  The start of the query interval, inclusive.
+	 * @param to    The end of the query interval, exclusive.
+	 * @param limit The maximum number of keys to return.
+	 * @return Returns the record keys.
+	 */
+	public List<String> findOverlapping(final long from, final long to, final int limit) {
+		final List<String> keys = new ArrayList<>();
+		if (from >= to || limit <= 0) {
+			return keys;
+		}
+		final long stamp = this.lock.readLock();
+		try {
+			collect(this.root, from, to, limit, keys);
+		} finally {
+			this.lock.unlockRead(stamp);
+		}
+		return keys;
+	}
+
+	/**
+	 * Checks whether any interval overlaps a query interval.
+	 *
+	 * @param from The start of the query interval, inclusive.
+	 * @param to   The end of the query interval, exclusive.
+	 * @return Returns true if at least one interval overlaps it.
+	 */
+	public boolean overlapsAny(final long from, final long to) {
+		return !findOverlapping(from, to, 1).isEmpty();
+	}
+
+	/**
+	 * Gets the number of indexed record keys.
+	 *
+	 * @return Returns the number of intervals.
+	 */
+	public int size() {
+		final long stamp = this.lock.readLock();
+		try {
+			return this.size;
+		} finally {
+			this.lock.unlockRead(stamp);
+		}
+	}
+
+	private static void collect(final Node node, final long from, final long to, final int limit,
+			final List<String> keys) {
+		// No interval in this subtree ends after the query starts.
+		if (node == null || node.maxEnd <= from || keys.size() >= limit) {
+			return;
+		}
+		collect(node.left, from, to, limit, keys);
+		if (node.start >= to) {
+			return;
+		}
+		if (node.end > from && keys.size() < limit) {
+			keys.add(node.key);
+		}
+		collect(node.right, from, to, limit, keys);
+	}
+
+	private Node insert(final Node node, final long start, final long end, final String key) {
+		if (node == null) {
+			this.size++;
+			return new Node(start, end, key);
+		}
+		final int order = node.compareTo(start, key);
+		if (order > 0) {
+			node.left = insert(node.left, start, end, key);
+		} else if (order < 0) {
+			node.right = insert(node.right, start, end, key);
+		} else {
+			node.end = end;
+		}
+		return balance(node);
+	}
+
+	private Node delete(final Node node, final long start, final String key) {
+		if (node == null) {
+			return null;
+		}
+		final int order = node.compareTo(start, key);
+		if (order > 0) {
+			node.left = delete(node.left, start, key);
+			return balance(node);
+		} else if (order < 0) {
+			node.right = delete(node.right, start, key);
+			return balance(node);
+		}
+		this.size--;
+		if (node.left == null) {
+			return node.right;
+		} else if (node.right == null) {
+			return node.left;
+		}
+		Node successor = node.right;
+		while (successor.left != null) {
+			successor = successor.left;
+		}
+		successor.right = deleteFirst(node.right);
+		successor.left = node.left;
+		return balance(successor);
+	}
+
+	private static Node deleteFirst(final Node node) {
+		if (node.left == null) {
+			return node.right;
+		}
+		node.left = deleteFirst(node.left);
+		return balance(node);
+	}
+
+	private static Node balance(final Node node) {
+		update(node);
+		final int skew = height(node.left) - height(node.right);
+		if (skew > 1) {
+			if (height(node.left.left) < height(node.left.right)) {
+				node.left = rotateLeft(node.left);
+			}
+			return rotateRight(node);
+		} else if (skew < -1) {
+			if (height(node.right.right) < height(node.right.left)) {
+				node.right = rotateRight(node.right);
+			}
+			return rotateLeft(node);
+		}
+		return node;
+	}
+
+	private static Node rotateLeft(final Node node) {
+		final Node right = node.right;
+		node.right = right.left;
+		right.left = node;
+		update(node);
+		update(right);
+		return right;
+	}
+
+	private static Node rotateRight(final Node node) {
+		final Node left = node.left;
+		node.left = left.right;
+		left.right = node;
+		update(node);
+		update(left);
+		return left;
+	}
+
+	private static void update(final Node node) {
+		node.height = 1 + Math.max(height(node.left), height(node.right));
+		long maxEnd = node.end;
+		if (node.left != null) {
+			maxEnd = Math.max(maxEnd, node.left.maxEnd);
+		}
+		if (node.right != null) {
+			maxEnd = Math.max(maxEnd, node.right.maxEnd);
+		}
+		node.maxEnd = maxEnd;
+	}
+
+	private static int height(final Node node) {
+		return node == null ? 0 : node.height;
+	}
+
+	/**
+	 * One interval and the latest end in the subtree below it.
+	 */
+	private static final class Node {
+
+		private final long start;
+		private final String key;
+		private long end;
+		private long maxEnd;
+		private int height = 1;
+		private Node left;
+		private Node right;
+
+		private Node(final long start, final long end, final String key) {
+			this.start = start;
+			this.end = end;
+			this.key = key;
+			this.maxEnd = end;
+		}
+
+		private int compareTo(final long otherStart, final String otherKey) {
+			final int order = Long.compare(this.start, otherStart);
+			return order != 0 ? order : this.key.compareTo(otherKey);
+		}
+	}
+
+}
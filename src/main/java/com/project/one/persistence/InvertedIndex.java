@@ -0,0 +1,626 @@
+package com.project.one.persistence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * This class indexes record keys by the words of a text field so that the
+ * records containing some words can be found without reading every record.
+ * Words are runs of letters and digits, and matching ignores case.
+ *
+ * Each record key gets a document number, and each word maps to a posting
+ * list of the numbers of the records that contain it, in ascending order. A
+ * posting list is cut into blocks of up to BLOCK_SIZE numbers. Each block
+ * stores the gaps between its numbers as variable-length integers, most of
+ * which fit in one byte, with the count of the word in the record folded into
+ * the same bytes. The blocks of a word are kept in a ConcurrentSkipListMap by
+ * their first number, so a lookup can skip to the block holding a number, and
+ * a change only rewrites one block.
+ *
+ * findAll returns the records containing every word of a query and findAny
+ * the records containing any of them. Both rank the matches by the words they
+ * contain, rare words counting for more than common ones, and return the best
+ * few. findAll walks the posting lists together and skips blocks that cannot
+ * match.
+ *
+ * Lookups never block. Changes must be made by one thread at a time. A change
+ * adds a record under its new words before removing it from its old ones, so a
+ * concurrent lookup may see a record under both for a moment, but never under
+ * neither; callers that need an exact answer check the matches against the
+ * records.
+ *
+ * @author Ben
+ */
+public class InvertedIndex {
+
+	/**
+	 * The most document numbers a block holds.
+	 */
+	public static final int BLOCK_SIZE = 128;
+
+	private static final int NO_MORE = Integer.MAX_VALUE;
+	private static final int PAGE_BITS = 16;
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+	private final Map<String, Postings> words = new ConcurrentHashMap<>();
+	private final Map<String, Integer> documents = new ConcurrentHashMap<>();
+	// Maps each document number to its record key, a page of numbers at a time.
+	private volatile String[][] keys = new String[0][];
+	private int nextDocument;
+
+	/**
+	 * Indexes a record key under the words of a text.
+	 *
+	 * @param key  The record key.
+	 * @param text The text field.
+	 */
+	public void add(final String key, final String text) {
+		final int document = this.nextDocument++;
+		final int page = document >>> PAGE_BITS;
+		if (page >= this.keys.length) {
+			final String[][] grown = Arrays.copyOf(this.keys, page + 1);
+			grown[page] = new String[PAGE_SIZE];
+			this.keys = grown;
+		}
+		this.keys[page][document & (PAGE_SIZE - 1)] = key;
+		this.documents.put(key, document);
+		for (final Map.Entry<String, Integer> word : wordCounts(text).entrySet()) {
+			this.words.computeIfAbsent(word.getKey(), w -> new Postings()).put(document, word.getValue());
+		}
+	}
+
+	/**
+	 * Removes a record key from under the words of a text.
+	 *
+	 * @param key  The record key.
+	 * @param text The text field the key was indexed under.
+	 */
+	public void remove(final String key, final String text) {
+		final Integer document = this.documents.remove(key);
+		if (document == null) {
+			return;
+		}
+		for (final String word : wordCounts(text).keySet()) {
+			removeWord(word, document);
+		}
+		this.keys[document >>> PAGE_BITS][document & (PAGE_SIZE - 1)] = null;
+	}
+
+	/**
+	 * Moves a record key from under the words of one text to under the words of
+	 * another.
+	 *
+	 * @param key          The record key.
+	 * @param previousText The text field the key was indexed under.
+	 * @param text         The new text field.
+	 */
+	public void replace(final String key, final String previousText, final String text) {
+		final Integer document = this.documents.get(key);
+		if (document == null) {
+			add(key, text);
+			return;
+		}
+		final Map<String, Integer> previousCounts = wordCounts(previousText);
+		final Map<String, Integer> counts = wordCounts(text);
+		for (final Map.Entry<String, Integer> word : counts.entrySet()) {
+			if (!word.getValue().equals(previousCounts.get(word.getKey()))) {
+				this.words.computeIfAbsent(word.getKey(), w -> new Postings()).put(document, word.getValue());
+			}
+		}
+		for (final String word : previousCounts.keySet()) {
+			if (!counts.containsKey(word)) {
+				removeWord(word, document);
+			}
+		}
+	}
+
+	/**
+	 * Gets the keys of the best matching records that contain every word of a
+	 * query.
+	 *
+	 * @param query The words to find.
+	 * @param limit The maximum number of keys to return.
+	 * @return Returns the matching record keys, best match first.
+	 */
+	public List<String> findAll(final String query, final int limit) {
+		final Cursor[] cursors = cursors(query);
+		if (cursors.length == 0 || Arrays.asList(cursors).contains(null) || limit <= 0) {
+			return new ArrayList<>();
+		}
+		// Leading with the rarest word keeps the other lists to a few block skips.
+		Arrays.sort(cursors, Comparator.comparingInt(cursor -> cursor.postings.count));
+		final TopHits hits = new TopHits(limit);
+		int document = cursors[0].seek(0);
+		while (document != NO_MORE) {
+			int next = document;
+			for (int i = 1; i < cursors.length && next == document; i++) {
+				next = cursors[i].seek(document);
+			}
+			if (next == document) {
+				double score = 0;
+				for (final Cursor cursor : cursors) {
+					score += cursor.score();
+				}
+				hits.offer(document, score);
+				next = document + 1;
+			}
+			document = cursors[0].seek(next);
+		}
+		return hits.keys();
+	}
+
+	/**
+	 * Gets the keys of the best matching records that contain any word of a
+	 * query.
+	 *
+	 * @param query The words to find.
+	 * @param limit The maximum number of keys to return.
+	 * @return Returns the matching record keys, best match first.
+	 */
+	public List<String> findAny(final String query, final int limit) {
+		final List<Cursor> cursors = new ArrayList<>();
+		for (final Cursor cursor : cursors(query)) {
+			if (cursor != null) {
+				cursors.add(cursor);
+			}
+		}
+		if (cursors.isEmpty() || limit <= 0) {
+			return new ArrayList<>();
+		}
+		final TopHits hits = new TopHits(limit);
+		int document = NO_MORE;
+		for (final Cursor cursor : cursors) {
+			document = Math.min(document, cursor.seek(0));
+		}
+		while (document != NO_MORE) {
+			double score = 0;
+			int next = NO_MORE;
+			for (final Cursor cursor : cursors) {
+				if (cursor.document == document) {
+					score += cursor.score();
+					cursor.seek(document + 1);
+				}
+				next = Math.min(next, cursor.document);
+			}
+			hits.offer(document, score);
+			document = next;
+		}
+		return hits.keys();
+	}
+
+	/**
+	 * Gets the number of indexed record keys.
+	 *
+	 * @return Returns the number of records.
+	 */
+	public int size() {
+		return this.documents.size();
+	}
+
+	/**
+	 * Gets the number of distinct indexed words.
+	 *
+	 * @return Returns the number of words.
+	 */
+	public int wordCount() {
+		return this.words.size();
+	}
+
+	/**
+	 * Checks whether a text contains every word of a query, matching the way the
+	 * index does.
+	 *
+	 * @param text  The text.
+	 * @param query The words.
+	 * @return Returns true if the text contains every word.
+	 */
+	public static boolean containsAll(final String text, final String query) {
+		return wordCounts(text).keySet().containsAll(wordCounts(query).keySet());
+	}
+
+	/**
+	 * Checks whether a text contains any word of a query, matching the way the
+	 * index does.
+	 *
+	 * @param text  The text.
+	 * @param query The words.
+	 * @return Returns true if the text contains a word of the query.
+	 */
+	public static boolean containsAny(final String text, final String query) {
+		final Map<String, Integer> counts = wordCounts(text);
+		for (final String word : wordCounts(query).keySet()) {
+			if (counts.containsKey(word)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Splits a text into lower-cased words and counts each one.
+	 *
+	 * @param text The text.
+	 * @return Returns each word and its count, in the order they first appear.
+	 */
+	private static Map<String, Integer> wordCounts(final String text) {
+		final Map<String, Integer> counts = new LinkedHashMap<>();
+		int start = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			if (i < text.length() && Character.isLetterOrDigit(text.charAt(i))) {
+				if (start < 0) {
+					start = i;
+				}
+			} else if (start >= 0) {
+				counts.merge(text.substring(start, i).toLowerCase(Locale.ROOT), 1, Integer::sum);
+				start = -1;
+			}
+		}
+		return counts;
+	}
+
+	private void removeWord(final String word, final int document) {
+		final Postings postings = this.words.get(word);
+		if (postings != null && postings.remove(document) && postings.count == 0) {
+			this.words.remove(word, postings);
+		}
+	}
+
+	/**
+	 * Opens a cursor on the posting list of each word of a query.
+	 *
+	 * @param query The words.
+	 * @return Returns a cursor for each distinct word, null for a word that is not
+	 *         indexed.
+	 */
+	private Cursor[] cursors(final String query) {
+		final Map<String, Integer> counts = wordCounts(query);
+		final Cursor[] cursors = new Cursor[counts.size()];
+		final int records = Math.max(1, size());
+		int i = 0;
+		for (final String word : counts.keySet()) {
+			final Postings postings = this.words.get(word);
+			if (postings != null) {
+				cursors[i] = new Cursor(postings, Math.log(1 + (double) records / Math.max(1, postings.count)));
+			}
+			i++;
+		}
+		return cursors;
+	}
+
+	private String key(final int document) {
+		final String[][] pages = this.keys;
+		final int page = document >>> PAGE_BITS;
+		return page < pages.length ? pages[page][document & (PAGE_SIZE - 1)] : null;
+	}
+
+	/**
+	 * The posting list of a word.
+	 */
+	private static final class Postings {
+
+		// Maps the first document number of each block to the block.
+		private final ConcurrentSkipListMap<Integer, Block> blocks = new ConcurrentSkipListMap<>();
+		private volatile int count;
+
+		/**
+		 * Adds a document number, or changes the count of the word in it.
+		 *
+		 * @param document The document number.
+		 * @param times    The number of times the word appears in the record.
+		 */
+		private void put(final int document, final int times) {
+			Map.Entry<Integer, Block> entry = this.blocks.floorEntry(document);
+			if (entry == null) {
+				entry = this.blocks.firstEntry();
+			}
+			if (entry == null) {
+				this.blocks.put(document, Block.encode(new int[] { document }, new int[] { times }, 0, 1));
+				this.count++;
+				return;
+			}
+			final Block block = entry.getValue();
+			// New records get the highest numbers, so most adds land past the last block.
+			if (document > block.last) {
+				if (block.size < BLOCK_SIZE) {
+					this.blocks.put(entry.getKey(), block.append(document, times));
+				} else {
+					this.blocks.put(document, Block.encode(new int[] { document }, new int[] { times }, 0, 1));
+				}
+				this.count++;
+				return;
+			}
+			final int[] documents = new int[BLOCK_SIZE + 1];
+			final int[] counts = new int[BLOCK_SIZE + 1];
+			int size = block.decode(documents, counts);
+			int position = Arrays.binarySearch(documents, 0, size, document);
+			if (position >= 0) {
+				if (counts[position] == times) {
+					return;
+				}
+				counts[position] = times;
+			} else {
+				position = -position - 1;
+				System.arraycopy(documents, position, documents, position + 1, size - position);
+				System.arraycopy(counts, position, counts, position + 1, size - position);
+				documents[position] = document;
+				counts[position] = times;
+				size++;
+				this.count++;
+			}
+			if (size > BLOCK_SIZE) {
+				final int half = size / 2;
+				// The second half goes in first, so a concurrent lookup sees every number.
+				this.blocks.put(documents[half], Block.encode(documents, counts, half, size));
+				size = half;
+			}
+			replace(entry.getKey(), Block.encode(documents, counts, 0, size));
+		}
+
+		/**
+		 * Removes a document number.
+		 *
+		 * @param document The document number.
+		 * @return Returns true if the number was in the list.
+		 */
+		private boolean remove(final int document) {
+			final Map.Entry<Integer, Block> entry = this.blocks.floorEntry(document);
+			if (entry == null || document > entry.getValue().last) {
+				return false;
+			}
+			final int[] documents = new int[BLOCK_SIZE];
+			final int[] counts = new int[BLOCK_SIZE];
+			final int size = entry.getValue().decode(documents, counts);
+			final int position = Arrays.binarySearch(documents, 0, size, document);
+			if (position < 0) {
+				return false;
+			}
+			if (size == 1) {
+				this.blocks.remove(entry.getKey());
+			} else {
+				System.arraycopy(documents, position + 1, documents, position, size - position - 1);
+				System.arraycopy(counts, position + 1, counts, position, size - position - 1);
+				replace(entry.getKey(), Block.encode(documents, counts, 0, size - 1));
+			}
+			this.count--;
+			return true;
+		}
+
+		/**
+		 * Stores a block in place of the block under a key, adding it before removing
+		 * the old one when its first number differs.
+		 *
+		 * @param key   The key of the block being replaced.
+		 * @param block The new block.
+		 */
+		private void replace(final int key, final Block block) {
+			this.blocks.put(block.first, block);
+			if (block.first != key) {
+				this.blocks.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * An immutable, compressed run of document numbers.
+	 */
+	private static final class Block {
+
+		private final int first;
+		private final int last;
+		private final int size;
+		// For each number the gap from the previous one, shifted left one bit with
+		// the low bit set when the word count follows; the first gap is from first.
+		private final byte[] bytes;
+
+		private Block(final int first, final int last, final int size, final byte[] bytes) {
+			this.first = first;
+			this.last = last;
+			this.size = size;
+			this.bytes = bytes;
+		}
+
+		private static Block encode(final int[] documents, final int[] counts, final int from, final int to) {
+			final byte[] buffer = new byte[(to - from) * 10];
+			int length = 0;
+			int previous = documents[from];
+			for (int i = from; i < to; i++) {
+				length = writeEntry(buffer, length, documents[i] - previous, counts[i]);
+				previous = documents[i];
+			}
+			return new Block(documents[from], documents[to - 1], to - from, Arrays.copyOf(buffer, length));
+		}
+
+		private Block append(final int document, final int times) {
+			final byte[] buffer = Arrays.copyOf(this.bytes, this.bytes.length + 10);
+			final int length = writeEntry(buffer, this.bytes.length, document - this.last, times);
+			return new Block(this.first, document, this.size + 1, Arrays.copyOf(buffer, length));
+		}
+
+		/**
+		 * Decodes the block.
+		 *
+		 * @param documents Receives the document numbers.
+		 * @param counts    Receives the word counts.
+		 * @return Returns the number of entries.
+		 */
+		private int decode(final int[] documents, final int[] counts) {
+			int offset = 0;
+			int document = this.first;
+			for (int i = 0; i < this.size; i++) {
+				long value = 0;
+				int shift = 0;
+				byte b;
+				do {
+					b = this.bytes[offset++];
+					value |= (long) (b & 0x7F) << shift;
+					shift += 7;
+				} while (b < 0);
+				document += (int) (value >>> 1);
+				int times = 1;
+				if ((value & 1) != 0) {
+					times = 0;
+					shift = 0;
+					do {
+						b = this.bytes[offset++];
+						times |= (b & 0x7F) << shift;
+						shift += 7;
+					} while (b < 0);
+				}
+				documents[i] = document;
+				counts[i] = times;
+			}
+			return this.size;
+		}
+
+		private static int writeEntry(final byte[] buffer, final int offset, final int gap, final int times) {
+			int length = writeVarint(buffer, offset, ((long) gap << 1) | (times > 1 ? 1 : 0));
+			if (times > 1) {
+				length = writeVarint(buffer, length, times);
+			}
+			return length;
+		}
+
+		private static int writeVarint(final byte[] buffer, final int offset, final long value) {
+			int length = offset;
+			long remaining = value;
+			while (remaining >= 0x80) {
+				buffer[length++] = (byte) (remaining | 0x80);
+				remaining >>>= 7;
+			}
+			buffer[length++] = (byte) remaining;
+			return length;
+		}
+	}
+
+	/**
+	 * Walks a posting list in ascending order, decoding one block at a time.
+	 */
+	private static final class Cursor {
+
+		private final Postings postings;
+		private final double weight;
+		private final int[] documents = new int[BLOCK_SIZE];
+		private final int[] counts = new int[BLOCK_SIZE];
+		private int size;
+		private int position;
+		private int document = -1;
+
+		private Cursor(final Postings postings, final double weight) {
+			this.postings = postings;
+			this.weight = weight;
+		}
+
+		/**
+		 * Moves to the first document number at or after a target.
+		 *
+		 * @param target The target number.
+		 * @return Returns the number, or NO_MORE past the end of the list.
+		 */
+		private int seek(final int target) {
+			if (target <= this.document) {
+				return this.document;
+			}
+			if (target == NO_MORE) {
+				return this.document = NO_MORE;
+			}
+			while (this.position < this.size && this.documents[this.position] < target) {
+				this.position++;
+			}
+			if (this.position < this.size) {
+				return this.document = this.documents[this.position];
+			}
+			// A block replaced since it was decoded may hold new numbers, so the
+			// block that would hold the target is read again.
+			Map.Entry<Integer, Block> entry = this.postings.blocks.floorEntry(target);
+			if (entry == null) {
+				entry = this.postings.blocks.firstEntry();
+			}
+			while (entry != null) {
+				this.size = entry.getValue().decode(this.documents, this.counts);
+				this.position = 0;
+				while (this.position < this.size && this.documents[this.position] < target) {
+					this.position++;
+				}
+				if (this.position < this.size) {
+					return this.document = this.documents[this.position];
+				}
+				entry = this.postings.blocks.higherEntry(entry.getKey());
+			}
+			this.size = 0;
+			this.position = 0;
+			return this.document = NO_MORE;
+		}
+
+		/**
+		 * Scores the current document for this word. The count saturates, so a word
+		 * repeated in a record adds less each time.
+		 *
+		 * @return Returns the score.
+		 */
+		private double score() {
+			final int times = this.counts[this.position];
+			return this.weight * times / (times + 1.0);
+		}
+	}
+
+	/**
+	 * Keeps the best scoring document numbers seen so far.
+	 */
+	private final class TopHits {
+
+		private final int limit;
+		// The worst hit kept is at the head; ties favor older records.
+		private final PriorityQueue<Hit> hits = new PriorityQueue<>(
+				Comparator.comparingDouble((final Hit hit) -> hit.score).thenComparingInt(hit -> -hit.document));
+
+		private TopHits(final int limit) {
+			this.limit = limit;
+		}
+
+		private void offer(final int document, final double score) {
+			if (this.hits.size() < this.limit) {
+				this.hits.add(new Hit(document, score));
+			} else if (score > this.hits.peek().score) {
+				this.hits.poll();
+				this.hits.add(new Hit(document, score));
+			}
+		}
+
+		private List<String> keys() {
+			final List<Hit> best = new ArrayList<>(this.hits);
+			best.sort(Comparator.comparingDouble((final Hit hit) -> -hit.score).thenComparingInt(hit -> hit.document));
+			final List<String> keys = new ArrayList<>();
+			for (final Hit hit : best) {
+				final String key = key(hit.document);
+				// Skips a record removed since its number was read.
+				if (key != null) {
+					keys.add(key);
+				}
+			}
+			return keys;
+		}
+	}
+
+	/**
+	 * A matching document number and its score.
+	 */
+	private static final class Hit {
+
+		private final int document;
+		private final double score;
+
+		private Hit(final int document, final double score) {
+			this.document = document;
+			this.score = score;
+		}
+	}
+
+}
@@ -0,0 +1,286 @@
+package com.project.one.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.project.one.exceptions.PersistenceException;
+
+/**
+ * This class is a Map kept in one table of a JDBC database, with a key column
+ * and a column holding the value encoded by a RecordCodec.
+ *
+ * putAll writes its entries in one transaction with batched statements of
+ * BATCH_SIZE rows, so a bulk load costs one round trip per batch instead of one
+ * per row. A put is the same write with a single row. Rows are replaced by a
+ * delete followed by an insert, which every database supports, rather than a
+ * dialect-specific upsert.
+ *
+ * The values returned by get are decoded copies; a changed value must be put
+ * back to be stored. The map shares one connection, so its methods are
+ * synchronized.
+ *
+ * @param <V> The type of the stored values.
+ * @see JdbcStorageProvider
+ * @author Ben
+ */
+class JdbcMap<V> extends AbstractMap<String, V> implements Closeable {
+
+	/**
+	 * The number of rows sent to the database in one batch.
+	 */
+	static int BATCH_SIZE = 500;
+
+	private static final int MAX_KEY_LENGTH = 255;
+
+	private final Connection connection;
+	private final String table;
+	private final RecordCodec<V> codec;
+
+	/**
+	 * Constructor. Creates the table if it does not exist. The map takes over the
+	 * connection and closes it when the map is closed.
+	 *
+	 * @param connection The database connection.
+	 * @param table      The table name, made of letters, digits and underscores.
+	 * @param codec      Converts the values to and from bytes.
+	 * @throws SQLException Exception indicating the table could not be created.
+	 */
+	JdbcMap(final Connection connection, final String table, final RecordCodec<V> codec) throws SQLException {
+		if (!table.matches("[A-Za-z_][A-Za-z0-9_]*")) {
+			connection.close();
+			throw new IllegalArgumentException(String.format("%s is not a valid table name.", table));
+		}
+		this.connection = connection;
+		this.table = table;
+		this.codec = codec;
+		try {
+			if (!tableExists()) {
+				try (Statement statement = connection.createStatement()) {
+					statement.executeUpdate(String.format(
+							"CREATE TABLE %s (record_key VARCHAR(%d) PRIMARY KEY, record_value BLOB NOT NULL)", table,
+							MAX_KEY_LENGTH));
+				}
+			}
+			connection.setAutoCommit(false);
+		} catch (SQLException e) {
+			connection.close();
+			throw e;
+		}
+	}
+
+	@Override
+	public synchronized V get(final Object key) {
+		if (!(key instanceof String)) {
+			return null;
+		}
+		try (PreparedStatement select = this.connection
+				.prepareStatement(String.format("SELECT record_value FROM %s WHERE record_key = ?", this.table))) {
+			select.setString(1, (String) key);
+			try (ResultSet result = select.executeQuery()) {
+				return result.next() ? decode((String) key, result.getBytes(1)) : null;
+			}
+		} catch (SQLException e) {
+			throw new PersistenceException(String.format("%s could not be read from %s.", key, this.table), e);
+		}
+	}
+
+	@Override
+	public synchronized boolean containsKey(final Object key) {
+		if (!(key instanceof String)) {
+			return false;
+		}
+		try (PreparedStatement select = this.connection
+				.prepareStatement(String.format("SELECT 1 FROM %s WHERE record_key = ?", this.table))) {
+			select.setString(1, (String) key);
+			try (ResultSet result = select.executeQuery()) {
+				return result.next();
+			}
+		} catch (SQLException e) {
+			throw new PersistenceException(String.format("%s could not be read from %s.", key, this.table), e);
+		}
+	}
+
+	@Override
+	public synchronized V put(final String key, final V value) {
+		final V previous = get(key);
+		putAll(Collections.singletonMap(key, value));
+		return previous;
+	}
+
+	/**
+	 * Writes every entry in one transaction, using batches of BATCH_SIZE rows.
+	 */
+	@Override
+	public synchronized void putAll(final Map<? extends String, ? extends V> entries) {
+		try (PreparedStatement delete = this.connection
+				.prepareStatement(String.format("DELETE FROM %s WHERE record_key = ?", this.table));
+				PreparedStatement insert = this.connection.prepareStatement(
+						String.format("INSERT INTO %s (record_key, record_value) VALUES (?, ?)", this.table))) {
+			int batched = 0;
+			for (final Map.Entry<? extends String, ? extends V> entry : entries.entrySet()) {
+				delete.setString(1, entry.getKey());
+				delete.addBatch();
+				insert.setString(1, entry.getKey());
+				insert.setBytes(2, encode(entry.getValue()));
+				insert.addBatch();
+				if (++batched == BATCH_SIZE) {
+					delete.executeBatch();
+					insert.executeBatch();
+					batched = 0;
+				}
+			}
+			if (batched > 0) {
+				delete.executeBatch();
+				insert.executeBatch();
+			}
+			this.connection.commit();
+		} catch (SQLException e) {
+			rollback();
+			throw new PersistenceException(String.format("The records could not be written to %s.", this.table), e);
+		}
+	}
+
+	@Override
+	public synchronized V remove(final Object key) {
+		final V previous = get(key);
+		if (previous == null) {
+			return null;
+		}
+		try (PreparedStatement delete = this.connection
+				.prepareStatement(String.format("DELETE FROM %s WHERE record_key = ?", this.table))) {
+			delete.setString(1, (String) key);
+			delete.executeUpdate();
+			this.connection.commit();
+		} catch (SQLException e) {
+			rollback();
+			throw new PersistenceException(String.format("%s could not be removed from %s.", key, this.table), e);
+		}
+		return previous;
+	}
+
+	@Override
+	public synchronized int size() {
+		try (Statement statement = this.connection.createStatement();
+				ResultSet result = statement.executeQuery(String.format("SELECT COUNT(*) FROM %s", this.table))) {
+			result.next();
+			return result.getInt(1);
+		} catch (SQLException e) {
+			throw new PersistenceException(String.format("The rows of %s could not be counted.", this.table), e);
+		}
+	}
+
+	@Override
+	public synchronized void clear() {
+		try (Statement statement = this.connection.createStatement()) {
+			statement.executeUpdate(String.format("DELETE FROM %s", this.table));
+			this.connection.commit();
+		} catch (SQLException e) {
+			rollback();
+			throw new PersistenceException(String.format("%s could not be cleared.", this.table), e);
+		}
+	}
+
+	/**
+	 * Reads every row into a snapshot, ordered by key. Changes made through the
+	 * snapshot are not written back.
+	 */
+	@Override
+	public synchronized Set<Map.Entry<String, V>> entrySet() {
+		final List<Map.Entry<String, V>> entries = new ArrayList<>();
+		try (Statement statement = this.connection.createStatement();
+				ResultSet result = statement.executeQuery(String
+						.format("SELECT record_key, record_value FROM %s ORDER BY record_key", this.table))) {
+			while (result.next()) {
+				final String key = result.getString(1);
+				entries.add(new AbstractMap.SimpleImmutableEntry<>(key, decode(key, result.getBytes(2))));
+			}
+		} catch (SQLException e) {
+			throw new PersistenceException(String.format("The rows of %s could not be read.", this.table), e);
+		}
+		return new AbstractSet<>() {
+
+			@Override
+			public Iterator<Map.Entry<String, V>> iterator() {
+				return Collections.unmodifiableList(entries).iterator();
+			}
+
+			@Override
+			public int size() {
+				return entries.size();
+			}
+		};
+	}
+
+	/**
+	 * Closes the connection.
+	 *
+	 * @throws IOException Exception indicating the connection could not be
+	 *                     closed.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			this.connection.close();
+		} catch (SQLException e) {
+			throw new IOException(String.format("The connection for %s could not be closed.", this.table), e);
+		}
+	}
+
+	private boolean tableExists() throws SQLException {
+		final DatabaseMetaData metaData = this.connection.getMetaData();
+		// Databases differ in the case they store unquoted names in.
+		for (final String name : new String[] { this.table, this.table.toUpperCase(), this.table.toLowerCase() }) {
+			try (ResultSet tables = metaData.getTables(null, null, name, null)) {
+				if (tables.next()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private void rollback() {
+		try {
+			this.connection.rollback();
+		} catch (SQLException e) {
+			// The original failure is the one worth reporting.
+		}
+	}
+
+	private byte[] encode(final V value) {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			this.codec.encode(value, out);
+		} catch (IOException e) {
+			throw new PersistenceException("The value could not be encoded.", e);
+		}
+		return bytes.toByteArray();
+	}
+
+	private V decode(final String key, final byte[] bytes) {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+			return this.codec.decode(key, in);
+		} catch (IOException e) {
+			throw new PersistenceException(String.format("The value of %s could not be decoded.", key), e);
+		}
+	}
+
+}
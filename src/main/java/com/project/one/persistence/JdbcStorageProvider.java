@@ -0,0 +1,52 @@
+package com.project.one.persistence;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * This class is a StorageProvider that keeps each record map in a table of a
+ * JDBC database, meant for an embedded, in-process database. The database is
+ * named by the URL_PROPERTY system property, for example jdbc:h2:./data/project
+ * or jdbc:derby:data;create=true, and its driver must be on the class path.
+ *
+ * @see JdbcMap
+ * @author Ben
+ */
+public class JdbcStorageProvider implements StorageProvider {
+
+	/**
+	 * The name of this provider.
+	 */
+	public static final String NAME = "jdbc";
+	/**
+	 * The system property holding the JDBC URL of the database.
+	 */
+	public static String URL_PROPERTY = "project.one.jdbc.url";
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	/**
+	 * Opens the table with the given name, creating it if it does not exist. Each
+	 * map gets its own connection.
+	 */
+	@Override
+	public <V> Map<String, V> open(final String name, final RecordCodec<V> codec) throws IOException {
+		final String url = System.getProperty(URL_PROPERTY);
+		if (url == null) {
+			throw new IOException(String.format("The %s system property is not set.", URL_PROPERTY));
+		}
+		try {
+			final Connection connection = DriverManager.getConnection(url);
+			return new JdbcMap<>(connection, name, codec);
+		} catch (SQLException e) {
+			throw new IOException(String.format("The %s table could not be opened.", name), e);
+		}
+	}
+
+}
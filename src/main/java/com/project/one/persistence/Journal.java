@@ -0,0 +1,235 @@
+package com.project.one.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import com.project.one.exceptions.PersistenceException;
+
+/**
+ * This class makes a service map durable. Every change to the map is recorded
+ * in a WriteAheadLog, and checkpoint periodically writes a snapshot of the
+ * whole map so that the log segments it covers can be deleted. Opening a
+ * Journal loads the newest snapshot and replays only the log segments written
+ * after it.
+ *
+ * Checkpoints do not stop writers. A checkpoint first rolls the log to a new
+ * segment and then copies the map entry by entry while writers carry on. The
+ * copy may include changes made after the roll, but every such change is also
+ * recorded in the new segment as the complete new value or a delete, so
+ * replaying the new segment over the snapshot always ends in the same state as
+ * the map. This relies on callers changing the map before they log the change.
+ *
+ * @param <V> The type of the stored values.
+ * @see WriteAheadLog
+ * @see Checkpointer
+ * @author Ben
+ */
+public class Journal<V> implements Closeable {
+
+	private static final byte PUT_RECORD = 1;
+	private static final byte DELETE_RECORD = 2;
+	private static final String SNAPSHOT_PREFIX = "snapshot-";
+	private static final String SNAPSHOT_SUFFIX = ".snap";
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	private final Path directory;
+	private final Map<String, V> map;
+	private final RecordCodec<V> codec;
+	private final WriteAheadLog log;
+	private long checkpointSequence;
+	private boolean closed;
+
+	/**
+	 * Constructor. Loads the newest snapshot and the log segments after it into
+	 * the map, then deletes any older snapshots and segments.
+	 *
+	 * @param directory The directory holding the snapshots and the log.
+	 * @param map       The map to load and to snapshot.
+	 * @param codec     Converts the values to and from bytes.
+	 * @throws IOException Exception indicating the journal could not be read.
+	 */
+	public Journal(final Path directory, final Map<String, V> map, final RecordCodec<V> codec) throws IOException {
+		this.directory = directory;
+		this.map = map;
+		this.codec = codec;
+		Files.createDirectories(directory);
+		final List<Long> snapshots = listSnapshots(directory);
+		long firstSegment = 0;
+		if (!snapshots.isEmpty()) {
+			firstSegment = snapshots.get(snapshots.size() - 1);
+			final Path snapshot = snapshotPath(firstSegment);
+			if (WriteAheadLog.readRecords(snapshot, this::apply) != Files.size(snapshot)) {
+				throw new IOException(String.format("The snapshot %s is damaged.", snapshot));
+			}
+		}
+		this.log = new WriteAheadLog(directory, firstSegment, this::apply);
+		this.checkpointSequence = this.log.getAppendedSequence();
+		deleteBefore(firstSegment);
+	}
+
+	/**
+	 * Appends the new value stored under a key to the log. The map must already
+	 * hold the value.
+	 *
+	 * @param key   The key.
+	 * @param value The new value.
+	 * @return Returns the sequence number to pass to sync.
+	 */
+	public long logPut(final String key, final V value) {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeByte(PUT_RECORD);
+			out.writeUTF(key);
+			this.codec.encode(value, out);
+		} catch (IOException e) {
+			throw new PersistenceException(String.format("The value of %s could not be encoded.", key), e);
+		}
+		return this.log.append(bytes.toByteArray());
+	}
+
+	/**
+	 * Appends the removal of a key to the log. The map must already be without
+	 * the key.
+	 *
+	 * @param key The key.
+	 * @return Returns the sequence number to pass to sync.
+	 */
+	public long logDelete(final String key) {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeByte(DELETE_RECORD);
+			out.writeUTF(key);
+		} catch (IOException e) {
+			throw new PersistenceException(String.format("The removal of %s could not be encoded.", key), e);
+		}
+		return this.log.append(bytes.toByteArray());
+	}
+
+	/**
+	 * Blocks until a logged change is on disk.
+	 *
+	 * @param sequence The sequence number returned by logPut or logDelete.
+	 * @throws IOException Exception indicating the log could not be written.
+	 */
+	public void sync(final long sequence) throws IOException {
+		this.log.sync(sequence);
+	}
+
+	/**
+	 * Writes a snapshot of the map and deletes the log segments and snapshots it
+	 * replaces. Nothing is written if the map has not changed since the last
+	 * checkpoint.
+	 *
+	 * @return Returns true if a snapshot was written.
+	 * @throws IOException Exception indicating the snapshot could not be written.
+	 */
+	public synchronized boolean checkpoint() throws IOException {
+		if (this.closed || this.log.getAppendedSequence() == this.checkpointSequence) {
+			return false;
+		}
+		final long appendedSequence = this.log.getAppendedSequence();
+		final long segment = this.log.roll();
+		final Path snapshot = snapshotPath(segment);
+		final Path temporary = snapshot.resolveSibling(snapshot.getFileName() + TEMPORARY_SUFFIX);
+		try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final DataOutputStream record = new DataOutputStream(bytes);
+			for (final Map.Entry<String, V> entry : this.map.entrySet()) {
+				bytes.reset();
+				record.writeByte(PUT_RECORD);
+				record.writeUTF(entry.getKey());
+				this.codec.encode(entry.getValue(), record);
+				WriteAheadLog.writeRecord(out, bytes.toByteArray());
+			}
+			out.flush();
+			file.getFD().sync();
+		}
+		Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		WriteAheadLog.syncDirectory(this.directory);
+		deleteBefore(segment);
+		this.checkpointSequence = appendedSequence;
+		return true;
+	}
+
+	/**
+	 * Flushes the log and closes it.
+	 *
+	 * @throws IOException Exception indicating the log could not be written.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (!this.closed) {
+			this.closed = true;
+			Checkpointer.getInstance().unregister(this);
+			this.log.close();
+		}
+	}
+
+	/**
+	 * Applies one snapshot or log record to the map.
+	 *
+	 * @param payload The record.
+	 */
+	private void apply(final byte[] payload) {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+			final byte type = in.readByte();
+			final String key = in.readUTF();
+			if (type == PUT_RECORD) {
+				this.map.put(key, this.codec.decode(key, in));
+			} else if (type == DELETE_RECORD) {
+				this.map.remove(key);
+			} else {
+				throw new PersistenceException(String.format("Unknown journal record type %s.", type));
+			}
+		} catch (IOException e) {
+			throw new PersistenceException("The journal record could not be applied.", e);
+		}
+	}
+
+	/**
+	 * Deletes the snapshots and log segments older than a segment.
+	 *
+	 * @param segment The segment of the newest snapshot.
+	 * @throws IOException Exception indicating a file could not be deleted.
+	 */
+	private void deleteBefore(final long segment) throws IOException {
+		for (final long number : listSnapshots(this.directory)) {
+			if (number < segment) {
+				Files.deleteIfExists(snapshotPath(number));
+			}
+		}
+		this.log.deleteSegmentsBefore(segment);
+	}
+
+	private Path snapshotPath(final long segment) {
+		return this.directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, segment, SNAPSHOT_SUFFIX));
+	}
+
+	private static List<Long> listSnapshots(final Path directory) throws IOException {
+		final List<Long> snapshots = new ArrayList<>();
+		try (Stream<Path> files = Files.list(directory)) {
+			files.map(path -> path.getFileName().toString())
+					.filter(name -> name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX))
+					.forEach(name -> snapshots.add(Long.parseLong(
+							name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()))));
+		}
+		Collections.sort(snapshots);
+		return snapshots;
+	}
+
+}
@@ -0,0 +1,707 @@
+package com.project.one.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import com.project.one.exceptions.PersistenceException;
+
+/**
+ * This class is a write-optimized, log-structured merge tree (LSM tree) behind
+ * the Map interface.
+ *
+ * Writes go to a WriteAheadLog and an in-memory sorted memtable. When the
+ * memtable grows past the flush size it is frozen, a new memtable takes its
+ * place, and a background thread writes the frozen one to an immutable
+ * SortedTable. Deletes are written as tombstones that hide older values until a
+ * compaction that includes the oldest table drops them.
+ *
+ * Compaction is size-tiered: tables are grouped into tiers by size, and when
+ * COMPACTION_THRESHOLD tables of the same tier are next to each other in age
+ * they are merged into one table of the next tier. Merging only neighbours
+ * keeps the newest value of a key in the newest table.
+ *
+ * A MANIFEST file lists the live tables, newest first, and the first log
+ * segment that is not yet in a table. It is replaced atomically after every
+ * flush and compaction, and files it does not list are deleted on open.
+ *
+ * Lookups check the memtable, the frozen memtable and then every table from
+ * newest to oldest; each table answers most misses from its BloomFilter.
+ *
+ * @param <V> The type of the stored values.
+ * @see SortedTable
+ * @see WriteAheadLog
+ * @author Ben
+ */
+public class LsmStore<V> extends AbstractMap<String, V> implements Closeable, Scannable<V> {
+
+	/**
+	 * The default memtable size, in bytes, at which it is flushed to a table.
+	 */
+	public static int DEFAULT_FLUSH_BYTES = 4 << 20;
+	/**
+	 * The number of neighbouring tables of one tier that are merged together.
+	 */
+	public static int COMPACTION_THRESHOLD = 4;
+
+	private static final byte PUT_RECORD = 1;
+	private static final byte DELETE_RECORD = 2;
+	private static final int ENTRY_OVERHEAD = 64;
+	private static final int TIER_GROWTH = 4;
+	private static final String MANIFEST = "MANIFEST";
+	private static final String TABLE_PREFIX = "table-";
+	private static final String TABLE_SUFFIX = ".sst";
+
+	private final Path directory;
+	private final RecordCodec<V> codec;
+	private final int flushBytes;
+	private final WriteAheadLog log;
+	private final Object writeLock = new Object();
+	private final ReadWriteLock tablesLock = new ReentrantReadWriteLock();
+	private final ExecutorService maintenance;
+	private volatile ConcurrentSkipListMap<String, byte[]> memtable = new ConcurrentSkipListMap<>();
+	private volatile ConcurrentSkipListMap<String, byte[]> frozen;
+	private volatile List<SortedTable> tables = new ArrayList<>();
+	private volatile IOException maintenanceFailure;
+	private long memtableBytes;
+	private long nextTableId;
+
+	/**
+	 * Constructor. Opens or creates a store with the default flush size.
+	 *
+	 * @param directory The store directory.
+	 * @param codec     Converts the values to and from bytes.
+	 * @throws IOException Exception indicating the store could not be opened.
+	 */
+	public LsmStore(final Path directory, final RecordCodec<V> codec) throws IOException {
+		this(directory, codec, DEFAULT_FLUSH_BYTES);
+	}
+
+	/**
+	 * Constructor. Opens or creates a store, loading the tables listed in the
+	 * MANIFEST and replaying the log written since the last flush into the
+	 * memtable.
+	 *
+	 * @param directory  The store directory.
+	 * @param codec      Converts the values to and from bytes.
+	 * @param flushBytes The memtable size, in bytes, at which it is flushed.
+	 * @throws IOException Exception indicating the store could not be opened.
+	 */
+	public LsmStore(final Path directory, final RecordCodec<V> codec, final int flushBytes) throws IOException {
+		this.directory = directory;
+		this.codec = codec;
+		this.flushBytes = flushBytes;
+		Files.createDirectories(directory);
+		final long firstSegment = readManifest();
+		deleteUnlistedFiles();
+		this.log = new WriteAheadLog(directory.resolve("log"), firstSegment, this::replay);
+		this.log.deleteSegmentsBefore(firstSegment);
+		this.maintenance = Executors.newSingleThreadExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "lsm-maintenance");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@Override
+	public V get(final Object key) {
+		if (!(key instanceof String)) {
+			return null;
+		}
+		return decode((String) key, read((String) key));
+	}
+
+	@Override
+	public boolean containsKey(final Object key) {
+		return key instanceof String && read((String) key) != null;
+	}
+
+	/**
+	 * Stores a value. Like Map.put this returns the previous value, which costs a
+	 * lookup before the write.
+	 */
+	@Override
+	public V put(final String key, final V value) {
+		final V previous = get(key);
+		write(key, encode(value));
+		return previous;
+	}
+
+	/**
+	 * Removes a key by writing a tombstone for it. Nothing is written if the key
+	 * is not stored.
+	 */
+	@Override
+	public V remove(final Object key) {
+		final V previous = get(key);
+		if (previous != null) {
+			write((String) key, SortedTable.TOMBSTONE);
+		}
+		return previous;
+	}
+
+	/**
+	 * Counts the live keys. This merges the keys of every table and is O(n).
+	 */
+	@Override
+	public int size() {
+		return liveKeys().size();
+	}
+
+	@Override
+	public Set<Map.Entry<String, V>> entrySet() {
+		return new AbstractSet<>() {
+
+			@Override
+			public Iterator<Map.Entry<String, V>> iterator() {
+				final Iterator<String> keys = liveKeys().iterator();
+				return new Iterator<>() {
+
+					private Map.Entry<String, V> next = advance();
+
+					@Override
+					public boolean hasNext() {
+						return this.next != null;
+					}
+
+					@Override
+					public Map.Entry<String, V> next() {
+						if (this.next == null) {
+							throw new NoSuchElementException();
+						}
+						final Map.Entry<String, V> current = this.next;
+						this.next = advance();
+						return current;
+					}
+
+					// Skips keys removed after the key snapshot was taken.
+					private Map.Entry<String, V> advance() {
+						while (keys.hasNext()) {
+							final String key = keys.next();
+							final V value = get(key);
+							if (value != null) {
+								return new AbstractMap.SimpleImmutableEntry<>(key, value);
+							}
+						}
+						return null;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return LsmStore.this.size();
+			}
+		};
+	}
+
+	@Override
+	public List<String> scanKeys() {
+		return liveKeys();
+	}
+
+	@Override
+	public V scanValue(final String key) {
+		return get(key);
+	}
+
+	/**
+	 * Gets the number of tables on disk.
+	 *
+	 * @return Returns the number of tables.
+	 */
+	public int getTableCount() {
+		return this.tables.size();
+	}
+
+	/**
+	 * Waits for any running flush and compaction to finish.
+	 *
+	 * @throws IOException Exception indicating a flush or compaction failed.
+	 */
+	public void awaitMaintenance() throws IOException {
+		try {
+			this.maintenance.submit(() -> {
+			}).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the LSM store.");
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		}
+		if (this.maintenanceFailure != null) {
+			throw this.maintenanceFailure;
+		}
+	}
+
+	/**
+	 * Finishes any running flush and compaction, then closes the log and the
+	 * tables. The memtable is not flushed; it is replayed from the log on the next
+	 * open.
+	 *
+	 * @throws IOException Exception indicating the store could not be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.maintenance.shutdown();
+		try {
+			this.maintenance.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		this.log.close();
+		for (final SortedTable table : this.tables) {
+			table.close();
+		}
+	}
+
+	/**
+	 * Looks a key up in the memtables and then the tables from newest to oldest.
+	 *
+	 * @param key The key.
+	 * @return Returns the stored bytes, or null if the key is absent or deleted.
+	 */
+	private byte[] read(final String key) {
+		this.tablesLock.readLock().lock();
+		try {
+			byte[] value = this.memtable.get(key);
+			final ConcurrentSkipListMap<String, byte[]> frozenTable = this.frozen;
+			if (value == null && frozenTable != null) {
+				value = frozenTable.get(key);
+			}
+			if (value == null) {
+				for (final SortedTable table : this.tables) {
+					value = table.get(key);
+					if (value != null) {
+						break;
+					}
+				}
+			}
+			return value == SortedTable.TOMBSTONE ? null : value;
+		} catch (IOException e) {
+			throw new PersistenceException(String.format("The value of %s could not be read.", key), e);
+		} finally {
+			this.tablesLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Logs a value or tombstone, adds it to the memtable and freezes the memtable
+	 * when it is full. Writers wait while a full memtable is still waiting for the
+	 * previous one to be flushed.
+	 *
+	 * @param key   The key.
+	 * @param value The encoded value or TOMBSTONE.
+	 */
+	private void write(final String key, final byte[] value) {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeByte(value == SortedTable.TOMBSTONE ? DELETE_RECORD : PUT_RECORD);
+			out.writeUTF(key);
+			out.write(value);
+		} catch (IOException e) {
+			throw new PersistenceException(String.format("The value of %s could not be encoded.", key), e);
+		}
+		final long sequence;
+		try {
+			synchronized (this.writeLock) {
+				while (this.frozen != null && this.memtableBytes >= this.flushBytes) {
+					if (this.maintenanceFailure != null) {
+						throw this.maintenanceFailure;
+					}
+					this.writeLock.wait();
+				}
+				sequence = this.log.append(bytes.toByteArray());
+				this.memtable.put(key, value);
+				this.memtableBytes += key.length() * Character.BYTES + value.length + ENTRY_OVERHEAD;
+				if (this.memtableBytes >= this.flushBytes && this.frozen == null) {
+					freeze();
+				}
+			}
+			this.log.sync(sequence);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new PersistenceException("Interrupted while waiting for a memtable flush.", e);
+		} catch (IOException e) {
+			throw new PersistenceException(String.format("The value of %s could not be written.", key), e);
+		}
+	}
+
+	/**
+	 * Swaps in a new memtable and hands the full one to the background thread.
+	 * Must be called while holding the write lock.
+	 *
+	 * @throws IOException Exception indicating the log could not be rolled.
+	 */
+	private void freeze() throws IOException {
+		final ConcurrentSkipListMap<String, byte[]> full = this.memtable;
+		// frozen is set first so that a reader who sees the new memtable also sees it.
+		this.frozen = full;
+		this.memtable = new ConcurrentSkipListMap<>();
+		this.memtableBytes = 0;
+		final long segment = this.log.roll();
+		final long tableId = this.nextTableId++;
+		this.maintenance.execute(() -> flush(full, segment, tableId));
+	}
+
+	/**
+	 * Writes a frozen memtable to a table, then compacts. Runs on the background
+	 * thread.
+	 *
+	 * @param full    The frozen memtable.
+	 * @param segment The first log segment written after the memtable was frozen.
+	 * @param tableId The id of the new table.
+	 */
+	private void flush(final ConcurrentSkipListMap<String, byte[]> full, final long segment, final long tableId) {
+		try {
+			final SortedTable table = SortedTable.write(tablePath(tableId), full.entrySet().iterator(),
+					full.size());
+			final List<SortedTable> next = new ArrayList<>();
+			next.add(table);
+			next.addAll(this.tables);
+			writeManifest(next, segment);
+			this.tablesLock.writeLock().lock();
+			try {
+				this.tables = next;
+				this.frozen = null;
+			} finally {
+				this.tablesLock.writeLock().unlock();
+			}
+			this.log.deleteSegmentsBefore(segment);
+			compact(segment);
+		} catch (IOException | RuntimeException e) {
+			this.maintenanceFailure = e instanceof IOException ? (IOException) e : new IOException(e);
+		} finally {
+			synchronized (this.writeLock) {
+				this.writeLock.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Merges runs of neighbouring tables of the same tier until there are none
+	 * left. Runs on the background thread.
+	 *
+	 * @param segment The first log segment not yet in a table.
+	 * @throws IOException Exception indicating a table could not be written.
+	 */
+	private void compact(final long segment) throws IOException {
+		while (true) {
+			final List<SortedTable> current = this.tables;
+			int runStart = -1;
+			int runEnd = -1;
+			for (int start = 0; start < current.size() && runStart < 0; start++) {
+				final int tier = tier(current.get(start));
+				int end = start + 1;
+				while (end < current.size() && tier(current.get(end)) == tier) {
+					end++;
+				}
+				if (end - start >= COMPACTION_THRESHOLD) {
+					runStart = start;
+					runEnd = end;
+				}
+			}
+			if (runStart < 0) {
+				return;
+			}
+			final List<SortedTable> run = current.subList(runStart, runEnd);
+			final boolean dropTombstones = runEnd == current.size();
+			int entryCount = 0;
+			for (final SortedTable table : run) {
+				entryCount += table.getEntryCount();
+			}
+			final long tableId;
+			synchronized (this.writeLock) {
+				tableId = this.nextTableId++;
+			}
+			final SortedTable merged = SortedTable.write(tablePath(tableId), new MergingIterator(run, dropTombstones),
+					entryCount);
+			final List<SortedTable> next = new ArrayList<>(current.subList(0, runStart));
+			next.add(merged);
+			next.addAll(current.subList(runEnd, current.size()));
+			writeManifest(next, segment);
+			this.tablesLock.writeLock().lock();
+			try {
+				this.tables = next;
+			} finally {
+				this.tablesLock.writeLock().unlock();
+			}
+			for (final SortedTable table : run) {
+				table.close();
+				Files.deleteIfExists(table.getPath());
+			}
+		}
+	}
+
+	private int tier(final SortedTable table) {
+		try {
+			long size = table.getFileLength() / Math.max(1, this.flushBytes);
+			int tier = 0;
+			while (size >= TIER_GROWTH) {
+				size /= TIER_GROWTH;
+				tier++;
+			}
+			return tier;
+		} catch (IOException e) {
+			return Integer.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * Collects the keys that currently hold a value.
+	 *
+	 * @return Returns the live keys.
+	 */
+	private List<String> liveKeys() {
+		final Map<String, Boolean> live = new HashMap<>();
+		this.tablesLock.readLock().lock();
+		try {
+			final List<SortedTable> current = this.tables;
+			for (int i = current.size() - 1; i >= 0; i--) {
+				final Iterator<Map.Entry<String, byte[]>> entries = current.get(i).iterator();
+				while (entries.hasNext()) {
+					final Map.Entry<String, byte[]> entry = entries.next();
+					live.put(entry.getKey(), entry.getValue() != SortedTable.TOMBSTONE);
+				}
+			}
+			final ConcurrentSkipListMap<String, byte[]> frozenTable = this.frozen;
+			if (frozenTable != null) {
+				frozenTable.forEach((key, value) -> live.put(key, value != SortedTable.TOMBSTONE));
+			}
+			this.memtable.forEach((key, value) -> live.put(key, value != SortedTable.TOMBSTONE));
+		} catch (IOException e) {
+			throw new PersistenceException("The keys could not be read.", e);
+		} finally {
+			this.tablesLock.readLock().unlock();
+		}
+		final List<String> keys = new ArrayList<>();
+		live.forEach((key, isLive) -> {
+			if (isLive) {
+				keys.add(key);
+			}
+		});
+		return keys;
+	}
+
+	/**
+	 * Applies one log record to the memtable while the store is opened.
+	 *
+	 * @param payload The log record.
+	 */
+	private void replay(final byte[] payload) {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+			final byte type = in.readByte();
+			final String key = in.readUTF();
+			final byte[] value = type == DELETE_RECORD ? SortedTable.TOMBSTONE : in.readAllBytes();
+			this.memtable.put(key, value);
+			this.memtableBytes += key.length() * Character.BYTES + value.length + ENTRY_OVERHEAD;
+		} catch (IOException e) {
+			throw new PersistenceException("The LSM log record could not be replayed.", e);
+		}
+	}
+
+	private byte[] encode(final V value) {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			this.codec.encode(value, out);
+		} catch (IOException e) {
+			throw new PersistenceException("The value could not be encoded.", e);
+		}
+		return bytes.toByteArray();
+	}
+
+	private V decode(final String key, final byte[] bytes) {
+		if (bytes == null) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+			return this.codec.decode(key, in);
+		} catch (IOException e) {
+			throw new PersistenceException(String.format("The value of %s could not be decoded.", key), e);
+		}
+	}
+
+	/**
+	 * Reads the MANIFEST, if there is one, and opens the tables it lists.
+	 *
+	 * @return Returns the first log segment that is not yet in a table.
+	 * @throws IOException Exception indicating the MANIFEST or a table could not
+	 *                     be read.
+	 */
+	private long readManifest() throws IOException {
+		final Path manifest = this.directory.resolve(MANIFEST);
+		if (!Files.exists(manifest)) {
+			return 0;
+		}
+		try (DataInputStream in = new DataInputStream(Files.newInputStream(manifest))) {
+			final long firstSegment = in.readLong();
+			this.nextTableId = in.readLong();
+			final int count = in.readInt();
+			final List<SortedTable> opened = new ArrayList<>();
+			for (int i = 0; i < count; i++) {
+				opened.add(SortedTable.open(this.directory.resolve(in.readUTF())));
+			}
+			this.tables = opened;
+			return firstSegment;
+		}
+	}
+
+	private void writeManifest(final List<SortedTable> next, final long firstSegment) throws IOException {
+		final Path manifest = this.directory.resolve(MANIFEST);
+		final Path temporary = this.directory.resolve(MANIFEST + ".tmp");
+		try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+			out.writeLong(firstSegment);
+			synchronized (this.writeLock) {
+				out.writeLong(this.nextTableId);
+			}
+			out.writeInt(next.size());
+			for (final SortedTable table : next) {
+				out.writeUTF(table.getPath().getFileName().toString());
+			}
+			out.flush();
+			file.getFD().sync();
+		}
+		Files.move(temporary, manifest, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		WriteAheadLog.syncDirectory(this.directory);
+	}
+
+	/**
+	 * Deletes table files left behind by a flush or compaction that did not reach
+	 * the MANIFEST.
+	 *
+	 * @throws IOException Exception indicating a file could not be deleted.
+	 */
+	private void deleteUnlistedFiles() throws IOException {
+		final Set<Path> listed = new HashSet<>();
+		for (final SortedTable table : this.tables) {
+			listed.add(table.getPath());
+		}
+		try (Stream<Path> files = Files.list(this.directory)) {
+			for (final Path path : (Iterable<Path>) files::iterator) {
+				final String name = path.getFileName().toString();
+				if (name.startsWith(TABLE_PREFIX) && !listed.contains(path)) {
+					Files.delete(path);
+				}
+			}
+		}
+	}
+
+	private Path tablePath(final long tableId) {
+		return this.directory.resolve(String.format("%s%020d%s", TABLE_PREFIX, tableId, TABLE_SUFFIX));
+	}
+
+	/**
+	 * Merges the entries of neighbouring tables in key order, keeping only the
+	 * value from the newest table for each key.
+	 */
+	private static class MergingIterator implements Iterator<Map.Entry<String, byte[]>> {
+
+		private final PriorityQueue<Source> queue = new PriorityQueue<>();
+		private final boolean dropTombstones;
+		private Map.Entry<String, byte[]> next;
+
+		private MergingIterator(final List<SortedTable> run, final boolean dropTombstones) throws IOException {
+			this.dropTombstones = dropTombstones;
+			for (int age = 0; age < run.size(); age++) {
+				final Source source = new Source(run.get(age).iterator(), age);
+				if (source.advance()) {
+					this.queue.add(source);
+				}
+			}
+			this.next = advance();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.next != null;
+		}
+
+		@Override
+		public Map.Entry<String, byte[]> next() {
+			if (this.next == null) {
+				throw new NoSuchElementException();
+			}
+			final Map.Entry<String, byte[]> current = this.next;
+			this.next = advance();
+			return current;
+		}
+
+		private Map.Entry<String, byte[]> advance() {
+			while (!this.queue.isEmpty()) {
+				final Source newest = this.queue.poll();
+				final Map.Entry<String, byte[]> entry = newest.current;
+				// Older values of the same key come out of the queue next; skip them.
+				while (!this.queue.isEmpty() && this.queue.peek().current.getKey().equals(entry.getKey())) {
+					final Source older = this.queue.poll();
+					if (older.advance()) {
+						this.queue.add(older);
+					}
+				}
+				if (newest.advance()) {
+					this.queue.add(newest);
+				}
+				if (!this.dropTombstones || entry.getValue() != SortedTable.TOMBSTONE) {
+					return entry;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * One table being merged; younger tables have a lower age and sort first for
+		 * equal keys.
+		 */
+		private static class Source implements Comparable<Source> {
+
+			private final Iterator<Map.Entry<String, byte[]>> entries;
+			private final int age;
+			private Map.Entry<String, byte[]> current;
+
+			private Source(final Iterator<Map.Entry<String, byte[]>> entries, final int age) {
+				this.entries = entries;
+				this.age = age;
+			}
+
+			private boolean advance() {
+				this.current = this.entries.hasNext() ? this.entries.next() : null;
+				return this.current != null;
+			}
+
+			@Override
+			public int compareTo(final Source other) {
+				final int comparison = this.current.getKey().compareTo(other.current.getKey());
+				return comparison != 0 ? comparison : Integer.compare(this.age, other.age);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,374 @@
+package com.project.one.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * This class stores fixed-length records in fixed-size slots of a
+ * memory-mapped file, so the records live outside the Java heap and reopening
+ * the store only maps the file again. Only the key to slot index and the free
+ * slot list are kept on the heap, and both are rebuilt by scanning the slot
+ * headers when the store is opened.
+ *
+ * A slot holds a state byte, a sequence number, a CRC32 checksum, the key and
+ * the record. A put always writes the new record to a free slot before it
+ * releases the old one, so a crash in the middle of an update leaves either the
+ * old or the new record intact; if both survive, the one with the higher
+ * sequence number wins when the store is opened again.
+ *
+ * The file is mapped in regions of a fixed number of slots. When every slot is
+ * in use a new region is mapped at the end of the file; existing regions are
+ * never remapped.
+ *
+ * @author Ben
+ */
+public class MappedRecordStore implements Closeable {
+
+	/**
+	 * The number of slots mapped at a time when the store grows.
+	 */
+	public static int DEFAULT_SLOTS_PER_REGION = 65536;
+
+	private static final int MAGIC = 0x4D525331;
+	private static final int HEADER_LENGTH = Integer.BYTES * 4;
+	private static final int SLOT_HEADER_LENGTH = 1 + Long.BYTES + Integer.BYTES;
+	private static final byte FREE = 0;
+	private static final byte USED = 1;
+
+	private final FileChannel channel;
+	private final int maxKeyLength;
+	private final int recordLength;
+	private final int slotLength;
+	private final int slotsPerRegion;
+	private final List<MappedByteBuffer> regions = new ArrayList<>();
+	private final Map<String, Integer> index = new HashMap<>();
+	private int[] freeSlots = new int[0];
+	private int freeSlotCount;
+	private long sequence;
+
+	/**
+	 * Constructor. Opens or creates a store with the default region size.
+	 *
+	 * @param path         The store file.
+	 * @param maxKeyLength The maximum number of characters in a key.
+	 * @param recordLength The length of every record in bytes.
+	 * @throws IOException Exception indicating the store could not be opened.
+	 */
+	public MappedRecordStore(final Path path, final int maxKeyLength, final int recordLength) throws IOException {
+		this(path, maxKeyLength, recordLength, DEFAULT_SLOTS_PER_REGION);
+	}
+
+	/**
+	 * Constructor. Opens or creates a store. The key length, record length and
+	 * region size of an existing file must match the arguments.
+	 *
+	 * @param path           The store file.
+	 * @param maxKeyLength   The maximum number of characters in a key.
+	 * @param recordLength   The length of every record in bytes.
+	 * @param slotsPerRegion The number of slots mapped at a time.
+	 * @throws IOException Exception indicating the store could not be opened.
+	 */
+	public MappedRecordStore(final Path path, final int maxKeyLength, final int recordLength,
+			final int slotsPerRegion) throws IOException {
+		this.maxKeyLength = maxKeyLength;
+		this.recordLength = recordLength;
+		this.slotsPerRegion = slotsPerRegion;
+		this.slotLength = SLOT_HEADER_LENGTH + 1 + maxKeyLength * Character.BYTES + recordLength;
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			if (this.channel.size() < HEADER_LENGTH) {
+				writeHeader();
+			} else {
+				checkHeader(path);
+			}
+			final long regionLength = (long) this.slotLength * this.slotsPerRegion;
+			final long regionCount = (this.channel.size() - HEADER_LENGTH + regionLength - 1) / regionLength;
+			for (long region = 0; region < regionCount; region++) {
+				mapRegion();
+			}
+			recover();
+		} catch (IOException | RuntimeException e) {
+			this.channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Gets the record stored under a key.
+	 *
+	 * @param key The key.
+	 * @return Returns a copy of the record, or null if there is none.
+	 */
+	public synchronized byte[] get(final String key) {
+		final Integer slot = this.index.get(key);
+		return slot == null ? null : readRecord(slot);
+	}
+
+	/**
+	 * Checks whether a record is stored under a key.
+	 *
+	 * @param key The key.
+	 * @return Returns true if a record is stored under the key.
+	 */
+	public synchronized boolean contains(final String key) {
+		return this.index.containsKey(key);
+	}
+
+	/**
+	 * Stores a record under a key, replacing any previous record.
+	 *
+	 * @param key    The key.
+	 * @param record The record, at most the record length of the store.
+	 * @return Returns the previous record, or null if there was none.
+	 * @throws IOException Exception indicating the store could not grow.
+	 */
+	public synchronized byte[] put(final String key, final byte[] record) throws IOException {
+		if (key.length() > this.maxKeyLength) {
+			throw new IllegalArgumentException(
+					String.format("The key must not exceed %s characters.", this.maxKeyLength));
+		}
+		if (record.length > this.recordLength) {
+			throw new IllegalArgumentException(
+					String.format("The record must not exceed %s bytes.", this.recordLength));
+		}
+		final int slot = allocate();
+		writeSlot(slot, ++this.sequence, key, record);
+		final Integer previousSlot = this.index.put(key, slot);
+		if (previousSlot == null) {
+			return null;
+		}
+		final byte[] previous = readRecord(previousSlot);
+		release(previousSlot);
+		return previous;
+	}
+
+	/**
+	 * Removes the record stored under a key.
+	 *
+	 * @param key The key.
+	 * @return Returns the removed record, or null if there was none.
+	 */
+	public synchronized byte[] remove(final String key) {
+		final Integer slot = this.index.remove(key);
+		if (slot == null) {
+			return null;
+		}
+		final byte[] previous = readRecord(slot);
+		release(slot);
+		return previous;
+	}
+
+	/**
+	 * Gets the number of stored records.
+	 *
+	 * @return Returns the number of stored records.
+	 */
+	public synchronized int size() {
+		return this.index.size();
+	}
+
+	/**
+	 * Gets the keys of all stored records.
+	 *
+	 * @return Returns a copy of the keys.
+	 */
+	public synchronized Set<String> keys() {
+		return new HashSet<>(this.index.keySet());
+	}
+
+	/**
+	 * Forces every mapped region to disk.
+	 */
+	public synchronized void force() {
+		for (final MappedByteBuffer region : this.regions) {
+			region.force();
+		}
+	}
+
+	/**
+	 * Forces every mapped region to disk and closes the file. The mappings are
+	 * released when they are garbage collected.
+	 *
+	 * @throws IOException Exception indicating the file could not be closed.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		force();
+		this.channel.close();
+	}
+
+	/**
+	 * Takes a slot from the free list, mapping a new region when it is empty.
+	 *
+	 * @return Returns the free slot.
+	 * @throws IOException Exception indicating the store could not grow.
+	 */
+	private int allocate() throws IOException {
+		if (this.freeSlotCount == 0) {
+			final int firstSlot = this.regions.size() * this.slotsPerRegion;
+			mapRegion();
+			for (int slot = firstSlot + this.slotsPerRegion - 1; slot >= firstSlot; slot--) {
+				pushFree(slot);
+			}
+		}
+		return this.freeSlots[--this.freeSlotCount];
+	}
+
+	/**
+	 * Marks a slot as free and returns it to the free list.
+	 *
+	 * @param slot The slot.
+	 */
+	private void release(final int slot) {
+		slotBuffer(slot).put(FREE);
+		pushFree(slot);
+	}
+
+	private void pushFree(final int slot) {
+		if (this.freeSlotCount == this.freeSlots.length) {
+			final int[] grown = new int[Math.max(16, this.freeSlots.length * 2)];
+			System.arraycopy(this.freeSlots, 0, grown, 0, this.freeSlotCount);
+			this.freeSlots = grown;
+		}
+		this.freeSlots[this.freeSlotCount++] = slot;
+	}
+
+	/**
+	 * Writes a record into a slot. The state byte is written last so that the
+	 * slot only counts as used once the rest of it is in place.
+	 *
+	 * @param slot           The slot.
+	 * @param recordSequence The sequence number of the write.
+	 * @param key            The key.
+	 * @param record         The record.
+	 */
+	private void writeSlot(final int slot, final long recordSequence, final String key, final byte[] record) {
+		final ByteBuffer buffer = slotBuffer(slot);
+		buffer.position(1);
+		buffer.putLong(recordSequence);
+		buffer.putInt(0);
+		buffer.put((byte) key.length());
+		for (int i = 0; i < this.maxKeyLength; i++) {
+			buffer.putChar(i < key.length() ? key.charAt(i) : 0);
+		}
+		buffer.put(record);
+		buffer.put(new byte[this.recordLength - record.length]);
+		buffer.putInt(1 + Long.BYTES, checksum(slot));
+		buffer.put(0, USED);
+	}
+
+	private byte[] readRecord(final int slot) {
+		final ByteBuffer buffer = slotBuffer(slot);
+		buffer.position(this.slotLength - this.recordLength);
+		final byte[] record = new byte[this.recordLength];
+		buffer.get(record);
+		return record;
+	}
+
+	private String readKey(final ByteBuffer buffer) {
+		buffer.position(SLOT_HEADER_LENGTH);
+		final int length = buffer.get();
+		final char[] key = new char[length];
+		for (int i = 0; i < length; i++) {
+			key[i] = buffer.getChar();
+		}
+		return new String(key);
+	}
+
+	/**
+	 * Computes the checksum of everything in a slot after the checksum field.
+	 *
+	 * @param slot The slot.
+	 * @return Returns the checksum.
+	 */
+	private int checksum(final int slot) {
+		final ByteBuffer buffer = slotBuffer(slot);
+		final CRC32 crc = new CRC32();
+		buffer.position(1);
+		buffer.limit(1 + Long.BYTES);
+		crc.update(buffer);
+		buffer.limit(this.slotLength);
+		buffer.position(SLOT_HEADER_LENGTH);
+		crc.update(buffer);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Gets an independent buffer covering exactly one slot.
+	 *
+	 * @param slot The slot.
+	 * @return Returns the slot buffer, positioned at its start.
+	 */
+	private ByteBuffer slotBuffer(final int slot) {
+		final ByteBuffer region = this.regions.get(slot / this.slotsPerRegion).duplicate();
+		final int offset = (slot % this.slotsPerRegion) * this.slotLength;
+		region.position(offset);
+		region.limit(offset + this.slotLength);
+		return region.slice();
+	}
+
+	/**
+	 * Rebuilds the index and the free list from the slot headers. Slots with a bad
+	 * checksum are treated as free, and when two slots hold the same key the one
+	 * with the lower sequence number is freed.
+	 */
+	private void recover() {
+		final int slotCount = this.regions.size() * this.slotsPerRegion;
+		for (int slot = slotCount - 1; slot >= 0; slot--) {
+			final ByteBuffer buffer = slotBuffer(slot);
+			if (buffer.get(0) != USED || buffer.getInt(1 + Long.BYTES) != checksum(slot)) {
+				pushFree(slot);
+				continue;
+			}
+			final long slotSequence = buffer.getLong(1);
+			this.sequence = Math.max(this.sequence, slotSequence);
+			final String key = readKey(buffer);
+			final Integer other = this.index.get(key);
+			if (other == null) {
+				this.index.put(key, slot);
+			} else if (slotBuffer(other).getLong(1) < slotSequence) {
+				this.index.put(key, slot);
+				release(other);
+			} else {
+				release(slot);
+			}
+		}
+	}
+
+	private void mapRegion() throws IOException {
+		final long regionLength = (long) this.slotLength * this.slotsPerRegion;
+		final long position = HEADER_LENGTH + this.regions.size() * regionLength;
+		this.regions.add(this.channel.map(FileChannel.MapMode.READ_WRITE, position, regionLength));
+	}
+
+	private void writeHeader() throws IOException {
+		final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+		header.putInt(MAGIC).putInt(this.maxKeyLength).putInt(this.recordLength).putInt(this.slotsPerRegion);
+		header.flip();
+		this.channel.write(header, 0);
+	}
+
+	private void checkHeader(final Path path) throws IOException {
+		final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+		this.channel.read(header, 0);
+		header.flip();
+		if (header.getInt() != MAGIC || header.getInt() != this.maxKeyLength
+				|| header.getInt() != this.recordLength || header.getInt() != this.slotsPerRegion) {
+			throw new IOException(String.format("%s is not a store with this record layout.", path));
+		}
+	}
+
+}
@@ -0,0 +1,30 @@
+package com.project.one.persistence;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class is the default StorageProvider. It keeps the records in a
+ * ConcurrentHashMap on the heap, as the services always have.
+ *
+ * @see StorageProvider
+ * @author Ben
+ */
+public class MemoryStorageProvider implements StorageProvider {
+
+	/**
+	 * The name of this provider.
+	 */
+	public static final String NAME = "memory";
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public <V> Map<String, V> open(final String name, final RecordCodec<V> codec) {
+		return new ConcurrentHashMap<>();
+	}
+
+}
@@ -0,0 +1,172 @@
+package com.project.one.persistence;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * This class indexes record keys by a text field so that the records whose
+ * field starts with a prefix can be found without looking at every record.
+ * Matching ignores case.
+ *
+ * Each entry is the lower-cased field, a separator and the record key, kept in
+ * a ConcurrentSkipListMap, so the entries for a prefix are one contiguous range
+ * of the map. Lookups never block and see every change that completed before
+ * they started. A replace adds the new entry before it removes the old one, so
+ * a concurrent lookup may see a record under both its old and new value for a
+ * moment, but never under neither; callers that need an exact answer check
+ * the matches against the records.
+ *
+ * @author Ben
+ */
+public class PrefixIndex {
+
+	// Sorts below every other character, so a field and its record keys stay
+	// together ahead of any longer field.
+	private static final char SEPARATOR = '\u0000';
+	private static final char LAST_CHARACTER = '\uffff';
+
+	// Maps each entry to its record key.
+	private final ConcurrentSkipListMap<String, String> entries = new ConcurrentSkipListMap<>();
+
+	/**
+	 * Indexes a record key under a value.
+	 *
+	 * @param value The field value.
+	 * @param key   The record key.
+	 */
+	public void add(final String value, final String key) {
+		this.entries.put(entry(value, key), key);
+	}
+
+	/**
+	 * Removes a record key from under a value.
+	 *
+	 * @param value The field value the key was indexed under.
+	 * @param key   The record key.
+	 */
+	public void remove(final String value, final String key) {
+		this.entries.remove(entry(value, key));
+	}
+
+	/**
+	 * Moves a record key from under one value to under another.
+	 *
+	 * @param previousValue The field value the key was indexed under.
+	 * @param value         The new field value.
+	 * @param key           The record key.
+	 */
+	public void replace(final String previousValue, final String value, final String key) {
+		final String entry = entry(value, key);
+		final String previousEntry = entry(previousValue, key);
+		if (!entry.equals(previousEntry)) {
+			this.entries.put(entry, key);
+			this.entries.remove(previousEntry);
+		}
+	}
+
+	/**
+	 * Gets the keys of the records whose value starts with a prefix, ignoring
+	 * case, ordered by value and then key. The keys are read from the index as
+	 * the iterator advances.
+	 *
+	 * @param prefix The prefix; an empty prefix matches every record.
+	 * @return Returns an iterator over the matching record keys.
+	 */
+	public Iterator<String> find(final String prefix) {
+		final String normalized = normalize(prefix);
+		return this.entries.subMap(normalized, normalized + LAST_CHARACTER).values().iterator();
+	}
+
+	/**
+	 * Gets the entries of the records whose value starts with a prefix, ignoring
+	 * case, ordered by value and then key, from just after a position. Each entry
+	 * maps the position of a record in that order to its key, so a caller can
+	 * stop anywhere and carry on later from the last position it read.
+	 *
+	 * @param prefix The prefix; an empty prefix matches every record.
+	 * @param after  The position to start after, or null to start at the first
+	 *               match.
+	 * @return Returns an iterator over the positions and keys.
+	 */
+	public Iterator<Map.Entry<String, String>> entriesStartingWith(final String prefix, final String after) {
+		final String normalized = normalize(prefix);
+		return entriesBetween(normalized, normalized + LAST_CHARACTER, after);
+	}
+
+	/**
+	 * Gets the entries of the records whose value equals a value, ignoring case,
+	 * ordered by key, from just after a position.
+	 *
+	 * @param value The value.
+	 * @param after The position to start after, or null to start at the first
+	 *              match.
+	 * @return Returns an iterator over the positions and keys.
+	 * @see #entriesStartingWith(String, String)
+	 */
+	public Iterator<Map.Entry<String, String>> entriesEqualTo(final String value, final String after) {
+		final String normalized = normalize(value) + SEPARATOR;
+		return entriesBetween(normalized, normalized + LAST_CHARACTER, after);
+	}
+
+	/**
+	 * Checks whether a position read from this index still matches the value of
+	 * its record.
+	 *
+	 * @param position The position.
+	 * @param value    The current field value of the record.
+	 * @return Returns true if the record is indexed at that position.
+	 */
+	public static boolean isAt(final String position, final String value) {
+		final String normalized = normalize(value);
+		return position.length() > normalized.length() && position.charAt(normalized.length()) == SEPARATOR
+				&& position.startsWith(normalized);
+	}
+
+	/**
+	 * Gets the number of indexed record keys.
+	 *
+	 * @return Returns the number of entries.
+	 */
+	public int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Removes every entry.
+	 */
+	public void clear() {
+		this.entries.clear();
+	}
+
+	/**
+	 * Normalizes a value for case-insensitive matching.
+	 *
+	 * @param value The value.
+	 * @return Returns the lower-cased value.
+	 */
+	public static String normalize(final String value) {
+		return value.toLowerCase(Locale.ROOT);
+	}
+
+	private Iterator<Map.Entry<String, String>> entriesBetween(final String from, final String to,
+			final String after) {
+		final NavigableMap<String, String> range;
+		if (after == null || after.compareTo(from) < 0) {
+			range = this.entries.subMap(from, true, to, false);
+		} else if (after.compareTo(to) < 0) {
+			range = this.entries.subMap(after, false, to, false);
+		} else {
+			return Collections.emptyIterator();
+		}
+		return range.entrySet().iterator();
+	}
+
+	private static String entry(final String value, final String key) {
+		return normalize(value) + SEPARATOR + key;
+	}
+
+}
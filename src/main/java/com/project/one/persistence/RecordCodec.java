@@ -0,0 +1,37 @@
+package com.project.one.persistence;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * This interface converts the values of a service map to and from the bytes
+ * stored in a Journal. The key is stored by the Journal itself.
+ *
+ * @param <V> The type of the stored values.
+ * @see Journal
+ * @author Ben
+ */
+public interface RecordCodec<V> {
+
+	/**
+	 * Writes a value.
+	 *
+	 * @param value The value to write.
+	 * @param out   The output to write to.
+	 * @throws IOException Exception indicating the value could not be written.
+	 */
+	void encode(V value, DataOutput out) throws IOException;
+
+	/**
+	 * Reads a value written by encode.
+	 *
+	 * @param key The key the value was stored under.
+	 * @param in  The input to read from.
+	 * @return Returns the value.
+	 * @throws IOException Exception indicating the value could not be read or is
+	 *                     not valid.
+	 */
+	V decode(String key, DataInput in) throws IOException;
+
+}
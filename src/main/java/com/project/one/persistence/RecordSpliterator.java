@@ -0,0 +1,93 @@
+package com.project.one.persistence;
+
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * This class splits a full scan of a record map for a parallel stream. A
+ * ConcurrentMap already has a spliterator that splits over its hash table, so
+ * it is used as it is. A Scannable map is split over a snapshot of its keys,
+ * halving the key range at every split, and each value is read when the scan
+ * reaches its key. Any other map falls back to the spliterator of its values.
+ *
+ * Scans are weakly consistent and never block writers for longer than one
+ * read. A record is seen at most once, and a record present for the whole scan
+ * is always seen; a record added or removed during the scan may or may not be.
+ *
+ * @param <V> The type of the stored values.
+ * @see Scannable
+ * @author Ben
+ */
+public class RecordSpliterator<V> implements Spliterator<V> {
+
+	/**
+	 * The smallest number of keys split off for another thread.
+	 */
+	public static final int MIN_SPLIT = 1_024;
+
+	private final Scannable<V> source;
+	private final String[] keys;
+	private int index;
+	private final int fence;
+
+	private RecordSpliterator(final Scannable<V> source, final String[] keys, final int index, final int fence) {
+		this.source = source;
+		this.keys = keys;
+		this.index = index;
+		this.fence = fence;
+	}
+
+	/**
+	 * Gets a spliterator over the values of a record map.
+	 *
+	 * @param <V> The type of the stored values.
+	 * @param map The map.
+	 * @return Returns the spliterator.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <V> Spliterator<V> over(final Map<String, V> map) {
+		if (!(map instanceof ConcurrentMap) && map instanceof Scannable) {
+			final Scannable<V> source = (Scannable<V>) map;
+			final String[] keys = source.scanKeys().toArray(new String[0]);
+			return new RecordSpliterator<>(source, keys, 0, keys.length);
+		}
+		return map.values().spliterator();
+	}
+
+	@Override
+	public boolean tryAdvance(final Consumer<? super V> action) {
+		while (this.index < this.fence) {
+			// Skips keys removed after the key snapshot was taken.
+			final V value = this.source.scanValue(this.keys[this.index++]);
+			if (value != null) {
+				action.accept(value);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public Spliterator<V> trySplit() {
+		final int middle = (this.index + this.fence) >>> 1;
+		if (middle - this.index < MIN_SPLIT) {
+			return null;
+		}
+		final Spliterator<V> prefix = new RecordSpliterator<>(this.source, this.keys, this.index, middle);
+		this.index = middle;
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+		return this.fence - this.index;
+	}
+
+	@Override
+	public int characteristics() {
+		return NONNULL | CONCURRENT;
+	}
+
+}
@@ -0,0 +1,33 @@
+package com.project.one.persistence;
+
+import java.util.List;
+
+/**
+ * This interface is implemented by the record maps that read their values from
+ * storage one key at a time. It lets a RecordSpliterator split a full scan by
+ * key, so that the values are read and decoded by the threads of a parallel
+ * stream instead of by the one thread walking the map.
+ *
+ * @param <V> The type of the stored values.
+ * @see RecordSpliterator
+ * @author Ben
+ */
+public interface Scannable<V> {
+
+	/**
+	 * Gets a snapshot of the keys of the map.
+	 *
+	 * @return Returns the keys, which later changes to the map do not affect.
+	 */
+	List<String> scanKeys();
+
+	/**
+	 * Reads a value for a scan. Unlike get, this must not change which values
+	 * are cached or how they are counted.
+	 *
+	 * @param key The key.
+	 * @return Returns the value, or null if the key was removed.
+	 */
+	V scanValue(String key);
+
+}
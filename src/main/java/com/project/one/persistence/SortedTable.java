@@ -0,0 +1,318 @@
+package com.project.one.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * This class is an immutable sorted table file (SSTable) written by an
+ * LsmStore when it flushes its memtable or compacts older tables.
+ *
+ * The file holds the entries sorted by key, followed by a sparse index with the
+ * key and file offset of every INDEX_INTERVAL-th entry, a BloomFilter of all
+ * keys and a fixed-length footer. Only the sparse index and the filter are kept
+ * in memory; a lookup checks the filter, finds the block that could hold the key
+ * in the index and reads just that block from disk.
+ *
+ * A deleted key is stored as a tombstone so that it hides older values of the
+ * key in older tables.
+ *
+ * @see LsmStore
+ * @see BloomFilter
+ * @author Ben
+ */
+class SortedTable implements Closeable {
+
+	/**
+	 * The number of entries between two keys of the sparse index.
+	 */
+	static int INDEX_INTERVAL = 16;
+
+	/**
+	 * The value returned by get for a key that was deleted.
+	 */
+	static final byte[] TOMBSTONE = new byte[0];
+
+	private static final int MAGIC = 0x53535431;
+	private static final int FOOTER_LENGTH = Long.BYTES * 2 + Integer.BYTES * 2;
+	private static final int TOMBSTONE_LENGTH = -1;
+
+	private final Path path;
+	private final FileChannel channel;
+	private final String[] indexKeys;
+	private final long[] indexOffsets;
+	private final long dataLength;
+	private final BloomFilter filter;
+	private final int entryCount;
+
+	private SortedTable(final Path path) throws IOException {
+		this.path = path;
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			final ByteBuffer footer = ByteBuffer.allocate(FOOTER_LENGTH);
+			readFully(footer, this.channel.size() - FOOTER_LENGTH);
+			footer.flip();
+			this.dataLength = footer.getLong();
+			final long filterOffset = footer.getLong();
+			this.entryCount = footer.getInt();
+			if (footer.getInt() != MAGIC) {
+				throw new IOException(String.format("%s is not a sorted table.", path));
+			}
+			final ByteBuffer metadata = ByteBuffer
+					.allocate((int) (this.channel.size() - FOOTER_LENGTH - this.dataLength));
+			readFully(metadata, this.dataLength);
+			final DataInputStream in = new DataInputStream(new ByteArrayInputStream(metadata.array()));
+			final int indexLength = in.readInt();
+			this.indexKeys = new String[indexLength];
+			this.indexOffsets = new long[indexLength];
+			for (int i = 0; i < indexLength; i++) {
+				this.indexKeys[i] = in.readUTF();
+				this.indexOffsets[i] = in.readLong();
+			}
+			if (this.dataLength + metadata.capacity() - in.available() != filterOffset) {
+				throw new IOException(String.format("The index of %s is damaged.", path));
+			}
+			this.filter = BloomFilter.read(in);
+		} catch (IOException | RuntimeException e) {
+			this.channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Opens an existing table file.
+	 *
+	 * @param path The table file.
+	 * @return Returns the table.
+	 * @throws IOException Exception indicating the table could not be read.
+	 */
+	static SortedTable open(final Path path) throws IOException {
+		return new SortedTable(path);
+	}
+
+	/**
+	 * Writes a new table file from entries sorted by key. A TOMBSTONE value
+	 * records a deleted key. The file is written under a temporary name and
+	 * renamed once it is complete, so a crash never leaves a partial table.
+	 *
+	 * @param path       The table file.
+	 * @param entries    The entries, sorted by key with no duplicate keys.
+	 * @param entryCount The number of entries, used to size the BloomFilter.
+	 * @return Returns the opened table.
+	 * @throws IOException Exception indicating the table could not be written.
+	 */
+	static SortedTable write(final Path path, final Iterator<Map.Entry<String, byte[]>> entries,
+			final int entryCount) throws IOException {
+		final Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+		final BloomFilter filter = new BloomFilter(entryCount);
+		final List<String> indexKeys = new ArrayList<>();
+		final List<Long> indexOffsets = new ArrayList<>();
+		try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+			int written = 0;
+			while (entries.hasNext()) {
+				final Map.Entry<String, byte[]> entry = entries.next();
+				if (written % INDEX_INTERVAL == 0) {
+					indexKeys.add(entry.getKey());
+					indexOffsets.add((long) out.size());
+				}
+				filter.add(entry.getKey());
+				out.writeUTF(entry.getKey());
+				if (entry.getValue() == TOMBSTONE) {
+					out.writeInt(TOMBSTONE_LENGTH);
+				} else {
+					out.writeInt(entry.getValue().length);
+					out.write(entry.getValue());
+				}
+				written++;
+			}
+			final long dataLength = out.size();
+			out.writeInt(indexKeys.size());
+			for (int i = 0; i < indexKeys.size(); i++) {
+				out.writeUTF(indexKeys.get(i));
+				out.writeLong(indexOffsets.get(i));
+			}
+			final long filterOffset = out.size();
+			filter.write(out);
+			out.writeLong(dataLength);
+			out.writeLong(filterOffset);
+			out.writeInt(written);
+			out.writeInt(MAGIC);
+			out.flush();
+			file.getFD().sync();
+		}
+		Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		WriteAheadLog.syncDirectory(path.getParent());
+		return open(path);
+	}
+
+	/**
+	 * Looks up a key.
+	 *
+	 * @param key The key.
+	 * @return Returns the value, TOMBSTONE if the key was deleted, or null if the
+	 *         table does not mention the key.
+	 * @throws IOException Exception indicating the table could not be read.
+	 */
+	byte[] get(final String key) throws IOException {
+		if (this.indexKeys.length == 0 || !this.filter.mightContain(key)) {
+			return null;
+		}
+		int low = 0;
+		int high = this.indexKeys.length - 1;
+		if (key.compareTo(this.indexKeys[0]) < 0) {
+			return null;
+		}
+		// Finds the last index key that is not greater than the key.
+		while (low < high) {
+			final int middle = (low + high + 1) >>> 1;
+			if (this.indexKeys[middle].compareTo(key) <= 0) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		final long start = this.indexOffsets[low];
+		final long end = low + 1 < this.indexOffsets.length ? this.indexOffsets[low + 1] : this.dataLength;
+		final ByteBuffer block = ByteBuffer.allocate((int) (end - start));
+		readFully(block, start);
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(block.array()));
+		while (in.available() > 0) {
+			final String entryKey = in.readUTF();
+			final int length = in.readInt();
+			final int comparison = entryKey.compareTo(key);
+			if (comparison == 0) {
+				if (length == TOMBSTONE_LENGTH) {
+					return TOMBSTONE;
+				}
+				final byte[] value = new byte[length];
+				in.readFully(value);
+				return value;
+			} else if (comparison > 0) {
+				return null;
+			}
+			if (length > 0) {
+				in.skipBytes(length);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Reads every entry in key order. TOMBSTONE values are included.
+	 *
+	 * @return Returns an iterator over the entries; it throws UncheckedIOException
+	 *         if the file cannot be read.
+	 * @throws IOException Exception indicating the table could not be opened.
+	 */
+	Iterator<Map.Entry<String, byte[]>> iterator() throws IOException {
+		final DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(this.path.toFile())));
+		return new Iterator<>() {
+
+			private int remaining = SortedTable.this.entryCount;
+
+			@Override
+			public boolean hasNext() {
+				if (this.remaining == 0) {
+					close();
+				}
+				return this.remaining > 0;
+			}
+
+			@Override
+			public Map.Entry<String, byte[]> next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				try {
+					final String key = in.readUTF();
+					final int length = in.readInt();
+					byte[] value = TOMBSTONE;
+					if (length != TOMBSTONE_LENGTH) {
+						value = new byte[length];
+						in.readFully(value);
+					}
+					this.remaining--;
+					return new AbstractMap.SimpleImmutableEntry<>(key, value);
+				} catch (IOException e) {
+					close();
+					throw new UncheckedIOException(e);
+				}
+			}
+
+			private void close() {
+				try {
+					in.close();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Gets the number of entries, including tombstones.
+	 *
+	 * @return Returns the number of entries.
+	 */
+	int getEntryCount() {
+		return this.entryCount;
+	}
+
+	/**
+	 * Gets the size of the table file.
+	 *
+	 * @return Returns the size of the table file in bytes.
+	 * @throws IOException Exception indicating the size could not be read.
+	 */
+	long getFileLength() throws IOException {
+		return this.channel.size();
+	}
+
+	/**
+	 * Gets the table file.
+	 *
+	 * @return Returns the table file.
+	 */
+	Path getPath() {
+		return this.path;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+	private void readFully(final ByteBuffer buffer, final long position) throws IOException {
+		long offset = position;
+		while (buffer.hasRemaining()) {
+			final int read = this.channel.read(buffer, offset);
+			if (read < 0) {
+				throw new EOFException(String.format("%s ended early.", this.path));
+			}
+			offset += read;
+		}
+	}
+
+}
@@ -0,0 +1,41 @@
+package com.project.one.persistence;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * This interface is the storage service provider interface. A provider opens
+ * the Map a service keeps its records in, so the storage engine can be chosen
+ * without changing the services. Providers are found with ServiceLoader, from
+ * META-INF/services on the class path or from the provides clause of a module.
+ *
+ * The returned Map must be safe to use from several threads. If it is
+ * Closeable, the service closes it when the service is closed.
+ *
+ * @see StorageProviders
+ * @see MemoryStorageProvider
+ * @see JdbcStorageProvider
+ * @author Ben
+ */
+public interface StorageProvider {
+
+	/**
+	 * Gets the name the provider is selected by.
+	 *
+	 * @return Returns the name of the provider.
+	 */
+	String getName();
+
+	/**
+	 * Opens or creates the record map with the given name.
+	 *
+	 * @param <V>   The type of the stored values.
+	 * @param name  The name of the map, such as contacts.
+	 * @param codec Converts the values to and from bytes, for providers that
+	 *              store bytes.
+	 * @return Returns the map.
+	 * @throws IOException Exception indicating the map could not be opened.
+	 */
+	<V> Map<String, V> open(String name, RecordCodec<V> codec) throws IOException;
+
+}
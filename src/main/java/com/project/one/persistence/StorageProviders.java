@@ -0,0 +1,76 @@
+package com.project.one.persistence;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+import com.project.one.exceptions.PersistenceException;
+
+/**
+ * This class finds StorageProvider implementations with ServiceLoader.
+ *
+ * @see StorageProvider
+ * @author Ben
+ */
+public class StorageProviders {
+
+	/**
+	 * The system property naming the provider the services use by default.
+	 */
+	public static String STORAGE_PROPERTY = "project.one.storage";
+
+	/**
+	 * Gets the names of every provider that can be loaded.
+	 *
+	 * @return Returns the provider names.
+	 */
+	public static List<String> getNames() {
+		final List<String> names = new ArrayList<>();
+		for (final StorageProvider provider : ServiceLoader.load(StorageProvider.class)) {
+			names.add(provider.getName());
+		}
+		return names;
+	}
+
+	/**
+	 * Gets a provider by name.
+	 *
+	 * @param name The name of the provider.
+	 * @return Returns the provider.
+	 * @throws IOException Exception indicating no provider has the name.
+	 */
+	public static StorageProvider get(final String name) throws IOException {
+		for (final StorageProvider provider : ServiceLoader.load(StorageProvider.class)) {
+			if (provider.getName().equals(name)) {
+				return provider;
+			}
+		}
+		throw new IOException(String.format("There is no storage provider named %s.", name));
+	}
+
+	/**
+	 * Opens a record map with the provider named by the STORAGE_PROPERTY system
+	 * property, or the MemoryStorageProvider if it is not set. The services use
+	 * this when they are first loaded, so failures are unchecked.
+	 *
+	 * @param <V>   The type of the stored values.
+	 * @param name  The name of the map.
+	 * @param codec Converts the values to and from bytes.
+	 * @return Returns the map.
+	 * @throws PersistenceException Exception indicating the map could not be
+	 *                              opened.
+	 */
+	public static <V> Map<String, V> openDefault(final String name, final RecordCodec<V> codec) {
+		final String providerName = System.getProperty(STORAGE_PROPERTY, MemoryStorageProvider.NAME);
+		try {
+			return get(providerName).open(name, codec);
+		} catch (IOException e) {
+			throw new PersistenceException(
+					String.format("The %s map could not be opened with the %s storage provider.", name, providerName),
+					e);
+		}
+	}
+
+}
@@ -0,0 +1,322 @@
+package com.project.one.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.project.one.exceptions.PersistenceException;
+
+/**
+ * This class is a Map that keeps a bounded number of recently used values on
+ * the heap and spills the rest to a cold file.
+ *
+ * The hot tier is kept in least recently used order. When a put grows it past
+ * its capacity, the least recently used values are encoded with a BinaryCodec
+ * and moved to a MappedRecordStore. A get of a cold value decodes it and moves it back to the
+ * hot tier, spilling another value if needed; containsKey, a putIfAbsent of a
+ * key that is present, size and iteration never move values between the
+ * tiers.
+ *
+ * The cold file only holds values spilled from the heap, so it is emptied when
+ * the map is opened and deleted when it is closed. Hits, misses and spills are
+ * counted so that the capacity of the hot tier can be sized.
+ *
+ * @param <V> The type of the stored values.
+ * @see MappedRecordStore
+ * @author Ben
+ */
+public class TieredMap<V> extends AbstractMap<String, V> implements Closeable, Scannable<V> {
+
+	private final Path coldFile;
+	private final BinaryCodec<V> codec;
+	private final int hotCapacity;
+	// A hit moves its value to the end, so iteration starts at the least
+	// recently used value. Insertion order rather than access order lets the
+	// iterator read the hot tier without reordering it.
+	private final LinkedHashMap<String, V> hot = new LinkedHashMap<>();
+	private final MappedRecordStore cold;
+	private final ByteBuffer spillBuffer;
+	private long hits;
+	private long misses;
+	private long spills;
+
+	/**
+	 * Constructor. Creates an empty cold file, replacing any left behind.
+	 *
+	 * @param coldFile     The cold file.
+	 * @param codec        Converts the values to and from bytes.
+	 * @param maxKeyLength The maximum number of characters in a key.
+	 * @param hotCapacity  The maximum number of values kept on the heap.
+	 * @throws IOException Exception indicating the cold file could not be
+	 *                     created.
+	 */
+	public TieredMap(final Path coldFile, final BinaryCodec<V> codec, final int maxKeyLength, final int hotCapacity)
+			throws IOException {
+		if (hotCapacity < 1) {
+			throw new IllegalArgumentException("The hot tier must hold at least one value.");
+		}
+		Files.deleteIfExists(coldFile);
+		this.coldFile = coldFile;
+		this.codec = codec;
+		this.hotCapacity = hotCapacity;
+		this.cold = new MappedRecordStore(coldFile, maxKeyLength, codec.getMaxLength());
+		this.spillBuffer = ByteBuffer.allocate(codec.getMaxLength());
+	}
+
+	/**
+	 * Gets a value, moving it to the hot tier if it was spilled.
+	 */
+	@Override
+	public synchronized V get(final Object key) {
+		if (!(key instanceof String)) {
+			return null;
+		}
+		final V value = this.hot.remove(key);
+		if (value != null) {
+			this.hot.put((String) key, value);
+			this.hits++;
+			return value;
+		}
+		final byte[] record = this.cold.remove((String) key);
+		if (record == null) {
+			return null;
+		}
+		this.misses++;
+		final V loaded = decode(record);
+		this.hot.put((String) key, loaded);
+		spill();
+		return loaded;
+	}
+
+	@Override
+	public synchronized boolean containsKey(final Object key) {
+		return key instanceof String && (this.hot.containsKey(key) || this.cold.contains((String) key));
+	}
+
+	@Override
+	public synchronized V put(final String key, final V value) {
+		V previous = this.hot.remove(key);
+		this.hot.put(key, value);
+		if (previous == null) {
+			final byte[] record = this.cold.remove(key);
+			previous = record == null ? null : decode(record);
+		}
+		spill();
+		return previous;
+	}
+
+	/**
+	 * Puts a value unless the key is present, reading the present value without
+	 * moving it between the tiers, so a rejected put does not load it.
+	 */
+	@Override
+	public synchronized V putIfAbsent(final String key, final V value) {
+		final V present = peek(key);
+		if (present == null) {
+			put(key, value);
+		}
+		return present;
+	}
+
+	@Override
+	public synchronized V remove(final Object key) {
+		if (!(key instanceof String)) {
+			return null;
+		}
+		final V previous = this.hot.remove(key);
+		if (previous != null) {
+			return previous;
+		}
+		final byte[] record = this.cold.remove((String) key);
+		return record == null ? null : decode(record);
+	}
+
+	@Override
+	public synchronized int size() {
+		return this.hot.size() + this.cold.size();
+	}
+
+	@Override
+	public synchronized void clear() {
+		this.hot.clear();
+		for (final String key : this.cold.keys()) {
+			this.cold.remove(key);
+		}
+	}
+
+	/**
+	 * Iterates over a snapshot of the keys, reading each value when it is
+	 * reached. Keys removed after the snapshot are skipped.
+	 */
+	@Override
+	public Set<Map.Entry<String, V>> entrySet() {
+		return new AbstractSet<>() {
+
+			@Override
+			public Iterator<Map.Entry<String, V>> iterator() {
+				final Iterator<String> keys = keys().iterator();
+				return new Iterator<>() {
+
+					private Map.Entry<String, V> next = advance();
+
+					@Override
+					public boolean hasNext() {
+						return this.next != null;
+					}
+
+					@Override
+					public Map.Entry<String, V> next() {
+						if (this.next == null) {
+							throw new NoSuchElementException();
+						}
+						final Map.Entry<String, V> current = this.next;
+						this.next = advance();
+						return current;
+					}
+
+					private Map.Entry<String, V> advance() {
+						while (keys.hasNext()) {
+							final String key = keys.next();
+							final V value = peek(key);
+							if (value != null) {
+								return new AbstractMap.SimpleImmutableEntry<>(key, value);
+							}
+						}
+						return null;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return TieredMap.this.size();
+			}
+		};
+	}
+
+	/**
+	 * Gets the number of gets answered from the hot tier.
+	 *
+	 * @return Returns the number of hits.
+	 */
+	public synchronized long getHits() {
+		return this.hits;
+	}
+
+	/**
+	 * Gets the number of gets that loaded a value from the cold file.
+	 *
+	 * @return Returns the number of misses.
+	 */
+	public synchronized long getMisses() {
+		return this.misses;
+	}
+
+	/**
+	 * Gets the number of values moved from the hot tier to the cold file.
+	 *
+	 * @return Returns the number of spills.
+	 */
+	public synchronized long getSpills() {
+		return this.spills;
+	}
+
+	/**
+	 * Gets the number of values kept on the heap.
+	 *
+	 * @return Returns the size of the hot tier.
+	 */
+	public synchronized int getHotCount() {
+		return this.hot.size();
+	}
+
+	/**
+	 * Closes and deletes the cold file.
+	 *
+	 * @throws IOException Exception indicating the cold file could not be
+	 *                     deleted.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		this.hot.clear();
+		this.cold.close();
+		Files.deleteIfExists(this.coldFile);
+	}
+
+	@Override
+	public List<String> scanKeys() {
+		return keys();
+	}
+
+	/**
+	 * Reads a value without moving it between the tiers, like iteration.
+	 */
+	@Override
+	public V scanValue(final String key) {
+		return peek(key);
+	}
+
+	private synchronized List<String> keys() {
+		final List<String> keys = new ArrayList<>(this.hot.keySet());
+		keys.addAll(this.cold.keys());
+		return keys;
+	}
+
+	/**
+	 * Gets a value without moving it between the tiers or counting the access.
+	 *
+	 * @param key The key.
+	 * @return Returns the value, or null if there is none.
+	 */
+	private synchronized V peek(final String key) {
+		final V value = this.hot.get(key);
+		if (value != null) {
+			return value;
+		}
+		final byte[] record = this.cold.get(key);
+		return record == null ? null : decode(record);
+	}
+
+	/**
+	 * Moves the least recently used values to the cold file until the hot tier
+	 * is within its capacity.
+	 */
+	private void spill() {
+		final Iterator<Map.Entry<String, V>> entries = this.hot.entrySet().iterator();
+		while (this.hot.size() > this.hotCapacity) {
+			final Map.Entry<String, V> eldest = entries.next();
+			this.spillBuffer.clear();
+			this.codec.encode(eldest.getValue(), this.spillBuffer);
+			final byte[] record = new byte[this.spillBuffer.position()];
+			this.spillBuffer.flip();
+			this.spillBuffer.get(record);
+			try {
+				this.cold.put(eldest.getKey(), record);
+			} catch (IOException e) {
+				throw new PersistenceException("The value could not be spilled to the cold file.", e);
+			}
+			entries.remove();
+			this.spills++;
+		}
+	}
+
+	private V decode(final byte[] record) {
+		try {
+			return this.codec.decode(ByteBuffer.wrap(record));
+		} catch (IOException e) {
+			throw new PersistenceException("The spilled value could not be decoded.", e);
+		}
+	}
+
+}
@@ -0,0 +1,145 @@
+package com.project.one.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * This class indexes record keys by a timestamp so that the records in a time
+ * range can be found without looking at every record. Each entry is a
+ * timestamp and a record key, kept in a ConcurrentSkipListSet ordered by
+ * timestamp and then key, so a range of time is one contiguous run of entries
+ * and a lookup costs O(log n + k) for k matches.
+ *
+ * Adding or removing one entry is atomic on its own. Moving a key to a new
+ * timestamp changes two entries, so a move is made under the write lock of a
+ * StampedLock. Lookups read optimistically without locking and only take the
+ * read lock to read again if a move happened while they read. A lookup never
+ * sees a key at both its old and its new timestamp, and never misses a key
+ * that is in its range both before and after a move.
+ *
+ * @author Ben
+ */
+public class TimeIndex {
+
+	private final ConcurrentSkipListSet<Entry> entries = new ConcurrentSkipListSet<>();
+	private final StampedLock moveLock = new StampedLock();
+
+	/**
+	 * Indexes a record key at a timestamp.
+	 *
+	 * @param time The timestamp, in milliseconds.
+	 * @param key  The record key.
+	 */
+	public void add(final long time, final String key) {
+		this.entries.add(new Entry(time, key));
+	}
+
+	/**
+	 * Removes a record key from a timestamp.
+	 *
+	 * @param time The timestamp the key was indexed at.
+	 * @param key  The record key.
+	 */
+	public void remove(final long time, final String key) {
+		this.entries.remove(new Entry(time, key));
+	}
+
+	/**
+	 * Moves a record key from one timestamp to another in one atomic step.
+	 *
+	 * @param previousTime The timestamp the key was indexed at.
+	 * @param time         The new timestamp.
+	 * @param key          The record key.
+	 */
+	public void move(final long previousTime, final long time, final String key) {
+		if (previousTime == time) {
+			return;
+		}
+		final long stamp = this.moveLock.writeLock();
+		try {
+			this.entries.add(new Entry(time, key));
+			this.entries.remove(new Entry(previousTime, key));
+		} finally {
+			this.moveLock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Gets the keys indexed at timestamps in a range, ordered by timestamp and
+	 * then key.
+	 *
+	 * @param from  The start of the range, inclusive.
+	 * @param to    The end of the range, exclusive.
+	 * @param limit The maximum number of keys to return.
+	 * @return Returns the matching record keys.
+	 */
+	public List<String> find(final long from, final long to, final int limit) {
+		if (from >= to || limit <= 0) {
+			return new ArrayList<>();
+		}
+		long stamp = this.moveLock.tryOptimisticRead();
+		if (stamp != 0) {
+			final List<String> keys = collect(from, to, limit);
+			if (this.moveLock.validate(stamp)) {
+				return keys;
+			}
+		}
+		stamp = this.moveLock.readLock();
+		try {
+			return collect(from, to, limit);
+		} finally {
+			this.moveLock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Gets the number of indexed record keys.
+	 *
+	 * @return Returns the number of entries.
+	 */
+	public int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Removes every entry.
+	 */
+	public void clear() {
+		this.entries.clear();
+	}
+
+	private List<String> collect(final long from, final long to, final int limit) {
+		final List<String> keys = new ArrayList<>();
+		// The empty key sorts ahead of every other key at the same timestamp.
+		for (final Entry entry : this.entries.subSet(new Entry(from, ""), new Entry(to, ""))) {
+			if (keys.size() >= limit) {
+				break;
+			}
+			keys.add(entry.key);
+		}
+		return keys;
+	}
+
+	/**
+	 * A timestamp and the record key indexed at it.
+	 */
+	private static final class Entry implements Comparable<Entry> {
+
+		private final long time;
+		private final String key;
+
+		private Entry(final long time, final String key) {
+			this.time = time;
+			this.key = key;
+		}
+
+		@Override
+		public int compareTo(final Entry other) {
+			final int byTime = Long.compare(this.time, other.time);
+			return byTime != 0 ? byTime : this.key.compareTo(other.key);
+		}
+	}
+
+}
@@ -0,0 +1,362 @@
+package com.project.one.persistence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * This class indexes record keys by a short text field so that the records
+ * whose field is within a few typing mistakes of a query can be found without
+ * comparing the query with every record. A mistake is one inserted, deleted or
+ * changed character, and matching ignores case.
+ *
+ * The field is padded with two marks at each end and cut into trigrams, its
+ * runs of three characters. Each trigram, together with the length of the
+ * field, maps to the entries holding it, an entry being the lower-cased field,
+ * a separator and the record key as in PrefixIndex. One mistake changes at
+ * most three trigrams, so a field within k mistakes of the query shares all
+ * but 3k of the query's trigrams and is no more than k characters longer or
+ * shorter. A query only counts the shared trigrams of the entries of the
+ * lengths that can match, and only computes the edit distance of the entries
+ * that share enough of them, stopping each computation once it passes k. A
+ * query too short for the trigrams to rule anything out, such as a three
+ * letter name with two mistakes, compares every entry of those lengths.
+ *
+ * The entries are spread over shards by record key. A query over more than
+ * PARALLEL_ENTRIES entries searches the shards in parallel and merges their
+ * best matches.
+ *
+ * Lookups never block. A replace adds the new entry before it removes the old
+ * one, so a concurrent lookup may see a record under both its old and new
+ * value for a moment, but never under neither; callers that need an exact
+ * answer check the matches against the records.
+ *
+ * @see PrefixIndex
+ * @author Ben
+ */
+public class TrigramIndex {
+
+	/**
+	 * The number of entries above which a query searches the shards in parallel.
+	 */
+	public static final int PARALLEL_ENTRIES = 50_000;
+
+	private static final char SEPARATOR = '\u0000';
+	private static final char PAD = '\u0001';
+
+	private final Shard[] shards;
+	private final AtomicInteger size = new AtomicInteger();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param shardCount The number of shards, usually the number of processors.
+	 */
+	public TrigramIndex(final int shardCount) {
+		this.shards = new Shard[Math.max(1, shardCount)];
+		for (int i = 0; i < this.shards.length; i++) {
+			this.shards[i] = new Shard();
+		}
+	}
+
+	/**
+	 * Indexes a record key under a value.
+	 *
+	 * @param value The field value.
+	 * @param key   The record key.
+	 */
+	public void add(final String value, final String key) {
+		if (shard(key).add(PrefixIndex.normalize(value), key)) {
+			this.size.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Removes a record key from under a value.
+	 *
+	 * @param value The field value the key was indexed under.
+	 * @param key   The record key.
+	 */
+	public void remove(final String value, final String key) {
+		if (shard(key).remove(PrefixIndex.normalize(value), key)) {
+			this.size.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Moves a record key from under one value to under another.
+	 *
+	 * @param previousValue The field value the key was indexed under.
+	 * @param value         The new field value.
+	 * @param key           The record key.
+	 */
+	public void replace(final String previousValue, final String value, final String key) {
+		if (!PrefixIndex.normalize(previousValue).equals(PrefixIndex.normalize(value))) {
+			add(value, key);
+			remove(previousValue, key);
+		}
+	}
+
+	/**
+	 * Gets the keys of the records whose value is within a number of mistakes of
+	 * a query, ignoring case, ordered by the number of mistakes, then by value and
+	 * then by key.
+	 *
+	 * @param query       The value to match.
+	 * @param maxDistance The most mistakes a match may have.
+	 * @param limit       The maximum number of keys to return.
+	 * @return Returns the matching record keys, best match first.
+	 */
+	public List<String> find(final String query, final int maxDistance, final int limit) {
+		final Query prepared = new Query(PrefixIndex.normalize(query), maxDistance, limit);
+		final List<Match> matches;
+		if (this.shards.length > 1 && this.size.get() > PARALLEL_ENTRIES) {
+			matches = Arrays.stream(this.shards).parallel().flatMap(shard -> shard.find(prepared).stream())
+					.collect(Collectors.toList());
+		} else {
+			matches = new ArrayList<>();
+			for (final Shard shard : this.shards) {
+				matches.addAll(shard.find(prepared));
+			}
+		}
+		matches.sort(Match.ORDER);
+		final Set<String> keys = new LinkedHashSet<>();
+		for (final Match match : matches) {
+			if (keys.size() >= limit) {
+				break;
+			}
+			keys.add(match.key);
+		}
+		return new ArrayList<>(keys);
+	}
+
+	/**
+	 * Gets the number of indexed record keys.
+	 *
+	 * @return Returns the number of entries.
+	 */
+	public int size() {
+		return this.size.get();
+	}
+
+	/**
+	 * Computes the edit distance between two values, ignoring case, giving up
+	 * once it is certain to pass a bound.
+	 *
+	 * @param a           The first value.
+	 * @param b           The second value.
+	 * @param maxDistance The bound.
+	 * @return Returns the number of inserted, deleted or changed characters that
+	 *         turn one value into the other, or maxDistance + 1 if it is more than
+	 *         maxDistance.
+	 */
+	public static int distance(final String a, final String b, final int maxDistance) {
+		return boundedDistance(PrefixIndex.normalize(a), PrefixIndex.normalize(b), maxDistance);
+	}
+
+	private static int boundedDistance(final String a, final String b, final int maxDistance) {
+		if (Math.abs(a.length() - b.length()) > maxDistance) {
+			return maxDistance + 1;
+		}
+		int[] previous = new int[b.length() + 1];
+		int[] current = new int[b.length() + 1];
+		for (int j = 0; j <= b.length(); j++) {
+			previous[j] = j;
+		}
+		for (int i = 1; i <= a.length(); i++) {
+			current[0] = i;
+			int rowMinimum = i;
+			for (int j = 1; j <= b.length(); j++) {
+				final int changed = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+				current[j] = Math.min(changed, Math.min(previous[j], current[j - 1]) + 1);
+				rowMinimum = Math.min(rowMinimum, current[j]);
+			}
+			// Every later row is at least this row's minimum.
+			if (rowMinimum > maxDistance) {
+				return maxDistance + 1;
+			}
+			final int[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+		return Math.min(previous[b.length()], maxDistance + 1);
+	}
+
+	/**
+	 * Cuts a lower-cased value into its distinct trigrams, each followed by the
+	 * length of the value.
+	 *
+	 * @param value  The lower-cased value.
+	 * @param length The length to append.
+	 * @return Returns the distinct trigrams.
+	 */
+	private static Set<String> trigrams(final String value, final int length) {
+		final String padded = "" + PAD + PAD + value + PAD + PAD;
+		final Set<String> trigrams = new LinkedHashSet<>();
+		for (int i = 0; i + 3 <= padded.length(); i++) {
+			trigrams.add(padded.substring(i, i + 3) + (char) length);
+		}
+		return trigrams;
+	}
+
+	private Shard shard(final String key) {
+		return this.shards[Math.floorMod(key.hashCode() * 0x9E3779B9, this.shards.length)];
+	}
+
+	/**
+	 * The entries of the record keys that hash to one shard.
+	 */
+	private static final class Shard {
+
+		// Maps each trigram and length to the entries holding it, and each length
+		// alone to every entry of that length.
+		private final Map<String, Set<String>> postings = new ConcurrentHashMap<>();
+
+		private static Set<String> postingKeys(final String value) {
+			final Set<String> keys = trigrams(value, value.length());
+			keys.add(String.valueOf((char) value.length()));
+			return keys;
+		}
+
+		private boolean add(final String value, final String key) {
+			final String entry = value + SEPARATOR + key;
+			final boolean[] added = new boolean[1];
+			for (final String trigram : postingKeys(value)) {
+				this.postings.compute(trigram, (t, entries) -> {
+					final Set<String> kept = entries == null ? ConcurrentHashMap.newKeySet() : entries;
+					added[0] |= kept.add(entry);
+					return kept;
+				});
+			}
+			return added[0];
+		}
+
+		private boolean remove(final String value, final String key) {
+			final String entry = value + SEPARATOR + key;
+			final boolean[] removed = new boolean[1];
+			for (final String trigram : postingKeys(value)) {
+				this.postings.computeIfPresent(trigram, (t, entries) -> {
+					removed[0] |= entries.remove(entry);
+					return entries.isEmpty() ? null : entries;
+				});
+			}
+			return removed[0];
+		}
+
+		/**
+		 * Gets the entries holding at least a number of the given trigrams. An entry
+		 * missing from all of the rarest trigrams but minimumShared - 1 cannot hold
+		 * enough of them, so only those rarest lists are read in full; the other
+		 * trigrams are only looked up for the entries found there.
+		 *
+		 * @param trigrams      The trigrams.
+		 * @param minimumShared The number of trigrams an entry must hold.
+		 * @return Returns the entries.
+		 */
+		private List<String> sharing(final Set<String> trigrams, final int minimumShared) {
+			final List<Set<String>> lists = new ArrayList<>();
+			for (final String trigram : trigrams) {
+				lists.add(this.postings.getOrDefault(trigram, Set.of()));
+			}
+			lists.sort(Comparator.comparingInt(Set::size));
+			final int scanned = lists.size() - minimumShared + 1;
+			final Map<String, int[]> shared = new HashMap<>();
+			for (final Set<String> entries : lists.subList(0, scanned)) {
+				for (final String entry : entries) {
+					shared.computeIfAbsent(entry, e -> new int[1])[0]++;
+				}
+			}
+			final List<String> candidates = new ArrayList<>();
+			for (final Map.Entry<String, int[]> candidate : shared.entrySet()) {
+				int count = candidate.getValue()[0];
+				for (int i = scanned; i < lists.size() && count < minimumShared; i++) {
+					if (lists.get(i).contains(candidate.getKey())) {
+						count++;
+					}
+				}
+				if (count >= minimumShared) {
+					candidates.add(candidate.getKey());
+				}
+			}
+			return candidates;
+		}
+
+		/**
+		 * Finds the best matches in this shard.
+		 *
+		 * @param query The prepared query.
+		 * @return Returns up to query.limit matches, best first.
+		 */
+		private List<Match> find(final Query query) {
+			final List<Match> matches = new ArrayList<>();
+			final int length = query.value.length();
+			for (int candidateLength = Math.max(0, length - query.maxDistance); candidateLength <= length
+					+ query.maxDistance; candidateLength++) {
+				final Set<String> trigrams = trigrams(query.value, candidateLength);
+				// A match keeps all but 3 trigrams per mistake.
+				final int minimumShared = trigrams.size() - 3 * query.maxDistance;
+				final Collection<String> candidates;
+				if (minimumShared <= 0) {
+					candidates = this.postings.getOrDefault(String.valueOf((char) candidateLength), Set.of());
+				} else {
+					candidates = sharing(trigrams, minimumShared);
+				}
+				for (final String entry : candidates) {
+					final int separator = entry.indexOf(SEPARATOR);
+					final String value = entry.substring(0, separator);
+					final int distance = boundedDistance(query.value, value, query.maxDistance);
+					if (distance <= query.maxDistance) {
+						matches.add(new Match(distance, value, entry.substring(separator + 1)));
+					}
+				}
+			}
+			matches.sort(Match.ORDER);
+			return matches.size() > query.limit ? new ArrayList<>(matches.subList(0, query.limit)) : matches;
+		}
+	}
+
+	/**
+	 * A normalized query and its bounds.
+	 */
+	private static final class Query {
+
+		private final String value;
+		private final int maxDistance;
+		private final int limit;
+
+		private Query(final String value, final int maxDistance, final int limit) {
+			this.value = value;
+			this.maxDistance = Math.max(0, maxDistance);
+			this.limit = limit;
+		}
+	}
+
+	/**
+	 * A record key, the value it matched and its distance from the query.
+	 */
+	private static final class Match {
+
+		private static final Comparator<Match> ORDER = Comparator.comparingInt((final Match match) -> match.distance)
+				.thenComparing(match -> match.value).thenComparing(match -> match.key);
+
+		private final int distance;
+		private final String value;
+		private final String key;
+
+		private Match(final int distance, final String value, final String key) {
+			this.distance = distance;
+			this.value = value;
+			this.key = key;
+		}
+	}
+
+}
@@ -0,0 +1,126 @@
+package com.project.one.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * This class is the commit clock shared by the VersionHistory objects of
+ * several maps, so that a snapshot taken from it is one point in time across
+ * all of them.
+ *
+ * Every change a writer makes is published with the next stamp, and a
+ * snapshot at a stamp sees exactly the changes published with that stamp or an
+ * earlier one. The changes collected in a Batch are published together with a
+ * single stamp, so a snapshot sees all of them or none of them. Writers only
+ * hold the clock for the few steps that assign a stamp.
+ *
+ * Opening a snapshot takes no lock. The open snapshots are registered so that
+ * writers keep the versions they still need; once the oldest snapshot is
+ * closed, the versions only it needed are dropped by the writers.
+ *
+ * @see VersionHistory
+ * @author Ben
+ */
+public class VersionClock {
+
+	private volatile long committed;
+	// Each open snapshot stamp maps to the number of snapshots open at it.
+	private final ConcurrentSkipListMap<Long, Integer> snapshots = new ConcurrentSkipListMap<>();
+
+	/**
+	 * Gets the stamp of the last change published.
+	 *
+	 * @return Returns the stamp.
+	 */
+	public long now() {
+		return this.committed;
+	}
+
+	/**
+	 * Opens a snapshot at the stamp of the last change published. It must be
+	 * closed with closeSnapshot.
+	 *
+	 * @return Returns the stamp of the snapshot.
+	 */
+	public long openSnapshot() {
+		while (true) {
+			final long stamp = this.committed;
+			this.snapshots.merge(stamp, 1, Integer::sum);
+			// A writer that published in between may not have seen the snapshot and
+			// dropped a version it needs, so the snapshot is taken again.
+			if (this.committed == stamp) {
+				return stamp;
+			}
+			closeSnapshot(stamp);
+		}
+	}
+
+	/**
+	 * Closes a snapshot, letting writers drop the versions only it needed.
+	 *
+	 * @param stamp The stamp of the snapshot.
+	 */
+	public void closeSnapshot(final long stamp) {
+		this.snapshots.computeIfPresent(stamp, (key, count) -> count == 1 ? null : count - 1);
+	}
+
+	/**
+	 * Gets the oldest stamp an open snapshot or a new one can be taken at.
+	 * Every version older than the newest one published at or before it is no
+	 * longer needed.
+	 *
+	 * @return Returns the stamp.
+	 */
+	public long horizon() {
+		final long now = this.committed;
+		final Map.Entry<Long, Integer> oldest = this.snapshots.firstEntry();
+		return oldest == null ? now : Math.min(oldest.getKey(), now);
+	}
+
+	/**
+	 * Publishes one version with the next stamp.
+	 *
+	 * @param version The version.
+	 */
+	synchronized void publish(final VersionHistory.Version<?> version) {
+		final long stamp = this.committed + 1;
+		version.stamp = stamp;
+		this.committed = stamp;
+	}
+
+	/**
+	 * Publishes every version collected in a batch with one stamp.
+	 *
+	 * @param batch The batch.
+	 */
+	public synchronized void publish(final Batch batch) {
+		if (batch.versions.isEmpty()) {
+			return;
+		}
+		final long stamp = this.committed + 1;
+		for (final VersionHistory.Version<?> version : batch.versions) {
+			version.stamp = stamp;
+		}
+		this.committed = stamp;
+	}
+
+	/**
+	 * Changes to be published together. A batch is used by one thread.
+	 */
+	public static final class Batch {
+
+		private final List<VersionHistory.Version<?>> versions = new ArrayList<>();
+
+		/**
+		 * Adds a version to the batch.
+		 *
+		 * @param version The version.
+		 */
+		void add(final VersionHistory.Version<?> version) {
+			this.versions.add(version);
+		}
+	}
+
+}
@@ -0,0 +1,292 @@
+package com.project.one.persistence;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * This class keeps the earlier versions of the records of a service map that
+ * open snapshots still need, so that a snapshot can read every record as it
+ * was at its stamp without locks while writers carry on.
+ *
+ * Each key changed since the history was created may have a chain of
+ * versions, newest first, each with the stamp the VersionClock published it
+ * with. A writer adds an unpublished version to the chain before it changes
+ * the map, and publishes it once the map holds the new value. A snapshot reads
+ * the newest published version at or before its stamp, skipping unpublished
+ * ones, and reads the map itself for a key with no chain; the chain is looked
+ * up again after the map, so a change that started in between is never missed.
+ *
+ * The records are stored as changed copies, so a version holds the same
+ * object the map held and nothing is copied. Writers drop the versions no open
+ * snapshot needs: the chain of the key they change at once, and every other
+ * chain once as many chains have been started as were left by the last look.
+ *
+ * Callers must call beforeChange before changing a key and changed afterwards,
+ * both while holding the write lock of the map, as ChangeTracker does.
+ *
+ * @param <V> The type of the stored values.
+ * @see VersionClock
+ * @see ChangeTracker
+ * @author Ben
+ */
+public class VersionHistory<V> {
+
+	// The stamp of a version not published yet.
+	private static final long PENDING = Long.MAX_VALUE;
+	private static final int MIN_SWEEP = 1_024;
+
+	private final Map<String, V> map;
+	private final VersionClock clock;
+	private final Map<String, Version<V>> heads = new ConcurrentHashMap<>();
+	// Only used while holding the write lock.
+	private VersionClock.Batch batch;
+	private long created;
+	private long sweepAt = MIN_SWEEP;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param map   The map whose versions are kept.
+	 * @param clock The clock the versions are published with.
+	 */
+	public VersionHistory(final Map<String, V> map, final VersionClock clock) {
+		this.map = map;
+		this.clock = clock;
+	}
+
+	/**
+	 * Gets the clock the versions are published with.
+	 *
+	 * @return Returns the clock.
+	 */
+	public VersionClock getClock() {
+		return this.clock;
+	}
+
+	/**
+	 * Adds an unpublished version to the chain of a key about to be put or
+	 * deleted. Must be called while holding the write lock.
+	 *
+	 * @param key The key about to change.
+	 */
+	public void beforeChange(final String key) {
+		final Version<V> head = this.heads.get(key);
+		if (head != null && head.stamp == PENDING) {
+			// A change that never happened, or an earlier change in the same batch.
+			return;
+		}
+		// A key without a chain holds the value every snapshot sees.
+		Version<V> older = head;
+		if (older == null) {
+			older = new Version<>(this.map.get(key), 0);
+			this.created++;
+		}
+		final Version<V> version = new Version<>(null, PENDING);
+		version.older = older;
+		this.heads.put(key, version);
+	}
+
+	/**
+	 * Publishes the version of a key that was put or deleted, or adds it to the
+	 * open batch. Must be called while holding the write lock.
+	 *
+	 * @param key The key that changed.
+	 */
+	public void changed(final String key) {
+		final Version<V> head = this.heads.get(key);
+		if (head == null || head.stamp != PENDING) {
+			return;
+		}
+		head.value = this.map.get(key);
+		if (this.batch != null) {
+			this.batch.add(head);
+			return;
+		}
+		this.clock.publish(head);
+		prune(key, head, this.clock.horizon());
+		if (this.created >= this.sweepAt) {
+			sweep();
+		}
+	}
+
+	/**
+	 * Collects the changes made until endBatch in a batch instead of publishing
+	 * each one. Must be called while holding the write lock, which must be held
+	 * until the batch is published.
+	 *
+	 * @param batch The batch.
+	 */
+	public void beginBatch(final VersionClock.Batch batch) {
+		this.batch = batch;
+	}
+
+	/**
+	 * Stops collecting changes in a batch. Must be called while holding the
+	 * write lock.
+	 */
+	public void endBatch() {
+		this.batch = null;
+	}
+
+	/**
+	 * Reads the value of a key as of a snapshot.
+	 *
+	 * @param key   The key.
+	 * @param stamp The stamp of an open snapshot.
+	 * @return Returns the value, or null if the key did not exist.
+	 */
+	public V read(final String key, final long stamp) {
+		Version<V> version = this.heads.get(key);
+		if (version == null) {
+			final V value = this.map.get(key);
+			version = this.heads.get(key);
+			if (version == null) {
+				return value;
+			}
+		}
+		while (version != null && version.stamp > stamp) {
+			version = version.older;
+		}
+		return version == null ? null : version.value;
+	}
+
+	/**
+	 * Gets the stamp of the last published change to a key.
+	 *
+	 * @param key The key.
+	 * @return Returns the stamp, or 0 if no open snapshot predates the change.
+	 */
+	public long lastChanged(final String key) {
+		Version<V> version = this.heads.get(key);
+		while (version != null && version.stamp == PENDING) {
+			version = version.older;
+		}
+		return version == null ? 0 : version.stamp;
+	}
+
+	/**
+	 * Streams every value as of a snapshot. The stream never blocks writers;
+	 * it walks the map, then the chains of the keys it did not find there.
+	 *
+	 * @param stamp The stamp of an open snapshot.
+	 * @return Returns a sequential stream of the values.
+	 */
+	public Stream<V> scan(final long stamp) {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new Scan(stamp),
+				Spliterator.NONNULL | Spliterator.DISTINCT), false);
+	}
+
+	/**
+	 * Drops the versions of a key no open snapshot needs, and the whole chain
+	 * once every snapshot sees the value in the map. Must be called while
+	 * holding the write lock.
+	 */
+	private void prune(final String key, final Version<V> head, final long horizon) {
+		Version<V> top = head;
+		while (top != null && top.stamp == PENDING) {
+			top = top.older;
+		}
+		Version<V> kept = top;
+		while (kept != null && kept.stamp > horizon) {
+			kept = kept.older;
+		}
+		if (kept == top) {
+			this.heads.remove(key, head);
+			return;
+		}
+		if (top != head) {
+			this.heads.replace(key, head, top);
+		}
+		if (kept != null) {
+			kept.older = null;
+		}
+	}
+
+	/**
+	 * Prunes every chain. Must be called while holding the write lock.
+	 */
+	private void sweep() {
+		final long horizon = this.clock.horizon();
+		for (final Map.Entry<String, Version<V>> entry : this.heads.entrySet()) {
+			prune(entry.getKey(), entry.getValue(), horizon);
+		}
+		this.created = 0;
+		this.sweepAt = Math.max(MIN_SWEEP, this.heads.size());
+	}
+
+	/**
+	 * Walks the values as of a snapshot. It runs on one thread even in a
+	 * parallel stream, so the keys it has seen need no locking.
+	 */
+	private final class Scan implements Iterator<V> {
+
+		private final long stamp;
+		private final Iterator<Map.Entry<String, V>> present = VersionHistory.this.map.entrySet().iterator();
+		private final Set<String> seen = new HashSet<>();
+		private Iterator<String> deleted;
+		private V next;
+
+		private Scan(final long stamp) {
+			this.stamp = stamp;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (this.next == null && this.present.hasNext()) {
+				final Map.Entry<String, V> entry = this.present.next();
+				this.seen.add(entry.getKey());
+				// The value was read before the chain is looked up, as in read.
+				final V value = entry.getValue();
+				this.next = VersionHistory.this.heads.containsKey(entry.getKey()) ? read(entry.getKey(), this.stamp)
+						: value;
+			}
+			if (this.deleted == null && this.next == null) {
+				this.deleted = VersionHistory.this.heads.keySet().iterator();
+			}
+			while (this.next == null && this.deleted != null && this.deleted.hasNext()) {
+				final String key = this.deleted.next();
+				if (!this.seen.contains(key)) {
+					this.next = read(key, this.stamp);
+				}
+			}
+			return this.next != null;
+		}
+
+		@Override
+		public V next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			final V value = this.next;
+			this.next = null;
+			return value;
+		}
+	}
+
+	/**
+	 * One version of a key.
+	 *
+	 * @param <V> The type of the stored values.
+	 */
+	static final class Version<V> {
+
+		// Written before the version is published.
+		private V value;
+		volatile long stamp;
+		private volatile Version<V> older;
+
+		private Version(final V value, final long stamp) {
+			this.value = value;
+			this.stamp = stamp;
+		}
+	}
+
+}
@@ -0,0 +1,424 @@
+package com.project.one.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * This class is an append-only write-ahead log. Every record is framed with its
+ * length and a CRC32 checksum so that a torn write at the end of the log is
+ * detected and discarded on the next open.
+ *
+ * The log is a directory of numbered segment files. Records are always
+ * appended to the newest segment; roll starts a new one so that the segments
+ * before it can be deleted once a snapshot covers them.
+ *
+ * Appending a record and making it durable are separate steps. append only
+ * copies the record into an in-memory batch and returns its sequence number;
+ * sync blocks until that sequence number has been forced to disk. The first
+ * thread to call sync becomes the leader and writes the whole batch with a
+ * single fsync while the other callers wait, so concurrent writers share the
+ * cost of one fsync instead of paying for one each (group commit).
+ *
+ * @author Ben
+ */
+public class WriteAheadLog implements Closeable {
+
+	/**
+	 * The largest record payload, in bytes, that the log accepts.
+	 */
+	public static int MAX_RECORD_LENGTH = 1 << 20;
+
+	private static final int HEADER_LENGTH = Integer.BYTES * 2;
+	private static final int INITIAL_BATCH_LENGTH = 8192;
+	private static final String SEGMENT_PREFIX = "segment-";
+	private static final String SEGMENT_SUFFIX = ".log";
+
+	private final Path directory;
+	private RandomAccessFile file;
+	private long segment;
+	private final Object lock = new Object();
+	private Batch pending = new Batch();
+	private Batch spare = new Batch();
+	private long appendedSequence;
+	private long durableSequence;
+	private boolean syncing;
+	private IOException failure;
+
+	/**
+	 * Constructor. Opens or creates the log directory, hands every intact record
+	 * in the segments numbered firstSegment and above to the replayer in the order
+	 * it was appended, and truncates any torn record left at the end of the newest
+	 * segment by a crash. Older segments are ignored.
+	 *
+	 * @param directory    The log directory.
+	 * @param firstSegment The number of the first segment to replay.
+	 * @param replayer     Receives the payload of every intact record.
+	 * @throws IOException Exception indicating the log could not be read, or a
+	 *                     segment other than the newest one is damaged.
+	 */
+	public WriteAheadLog(final Path directory, final long firstSegment, final Consumer<byte[]> replayer)
+			throws IOException {
+		this.directory = directory;
+		Files.createDirectories(directory);
+		final List<Long> segments = listSegments(directory);
+		segments.removeIf(number -> number < firstSegment);
+		this.segment = segments.isEmpty() ? firstSegment : segments.get(segments.size() - 1);
+		long validLength = 0;
+		for (final long number : segments) {
+			final Path path = segmentPath(directory, number);
+			validLength = readRecords(path, replayer);
+			if (number != this.segment && validLength != Files.size(path)) {
+				throw new IOException(String.format("The log segment %s is damaged.", path));
+			}
+		}
+		this.file = new RandomAccessFile(segmentPath(directory, this.segment).toFile(), "rw");
+		if (this.file.length() != validLength) {
+			this.file.setLength(validLength);
+			this.file.getFD().sync();
+		}
+		this.file.seek(validLength);
+	}
+
+	/**
+	 * Appends a record to the in-memory batch. The record is not durable until
+	 * sync has been called with the returned sequence number.
+	 *
+	 * @param payload The record payload.
+	 * @return Returns the sequence number of the record.
+	 */
+	public long append(final byte[] payload) {
+		if (payload.length > MAX_RECORD_LENGTH) {
+			throw new IllegalArgumentException(
+					String.format("The record must not exceed %s bytes.", MAX_RECORD_LENGTH));
+		}
+		final CRC32 crc = new CRC32();
+		crc.update(payload);
+		synchronized (this.lock) {
+			this.pending.putInt(payload.length);
+			this.pending.putInt((int) crc.getValue());
+			this.pending.put(payload);
+			return ++this.appendedSequence;
+		}
+	}
+
+	/**
+	 * Blocks until every record up to and including the sequence number is on
+	 * disk.
+	 *
+	 * @param sequence The sequence number returned by append.
+	 * @throws IOException Exception indicating the log could not be written.
+	 */
+	public void sync(final long sequence) throws IOException {
+		while (true) {
+			final Batch batch;
+			final long batchSequence;
+			synchronized (this.lock) {
+				while (this.syncing && this.durableSequence < sequence) {
+					awaitLeader();
+				}
+				if (this.durableSequence >= sequence) {
+					return;
+				}
+				if (this.failure != null) {
+					throw new IOException("The write-ahead log failed an earlier write.", this.failure);
+				}
+				batch = this.pending;
+				batchSequence = this.appendedSequence;
+				this.pending = this.spare;
+				this.syncing = true;
+			}
+			// Only the leader touches the file, so the batch is written without the lock
+			// and new records keep going into the other batch during the fsync.
+			IOException error = null;
+			try {
+				writeBatch(batch);
+			} catch (final IOException e) {
+				error = e;
+			}
+			synchronized (this.lock) {
+				batch.clear();
+				this.spare = batch;
+				this.syncing = false;
+				if (error == null) {
+					this.durableSequence = batchSequence;
+				} else {
+					this.failure = error;
+				}
+				this.lock.notifyAll();
+			}
+			if (error != null) {
+				throw error;
+			}
+		}
+	}
+
+	/**
+	 * Writes every appended record to the current segment and starts a new one.
+	 * Records appended after this method returns go to the new segment.
+	 *
+	 * @return Returns the number of the new segment.
+	 * @throws IOException Exception indicating the log could not be written.
+	 */
+	public long roll() throws IOException {
+		synchronized (this.lock) {
+			while (this.syncing) {
+				awaitLeader();
+			}
+			if (this.failure != null) {
+				throw new IOException("The write-ahead log failed an earlier write.", this.failure);
+			}
+			// Rolling holds the lock for the whole write, which is rare enough not to
+			// matter for the writers waiting on it.
+			try {
+				writeBatch(this.pending);
+				this.pending.clear();
+				this.durableSequence = this.appendedSequence;
+				final RandomAccessFile next = new RandomAccessFile(
+						segmentPath(this.directory, this.segment + 1).toFile(), "rw");
+				this.file.close();
+				this.file = next;
+				this.segment++;
+			} catch (final IOException e) {
+				this.failure = e;
+				throw e;
+			} finally {
+				this.lock.notifyAll();
+			}
+			syncDirectory(this.directory);
+			return this.segment;
+		}
+	}
+
+	/**
+	 * Deletes the segments numbered below a segment.
+	 *
+	 * @param firstSegment The number of the oldest segment to keep.
+	 * @throws IOException Exception indicating a segment could not be deleted.
+	 */
+	public void deleteSegmentsBefore(final long firstSegment) throws IOException {
+		for (final long number : listSegments(this.directory)) {
+			if (number < firstSegment) {
+				Files.deleteIfExists(segmentPath(this.directory, number));
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of the segment that records are appended to.
+	 *
+	 * @return Returns the current segment number.
+	 */
+	public long getSegment() {
+		synchronized (this.lock) {
+			return this.segment;
+		}
+	}
+
+	/**
+	 * Gets the sequence number of the last appended record.
+	 *
+	 * @return Returns the sequence number of the last appended record.
+	 */
+	public long getAppendedSequence() {
+		synchronized (this.lock) {
+			return this.appendedSequence;
+		}
+	}
+
+	/**
+	 * Appends a record and blocks until it is on disk.
+	 *
+	 * @param payload The record payload.
+	 * @throws IOException Exception indicating the log could not be written.
+	 */
+	public void write(final byte[] payload) throws IOException {
+		sync(append(payload));
+	}
+
+	/**
+	 * Flushes any appended records and closes the current segment.
+	 *
+	 * @throws IOException Exception indicating the log could not be written.
+	 */
+	@Override
+	public void close() throws IOException {
+		final long sequence;
+		synchronized (this.lock) {
+			sequence = this.appendedSequence;
+		}
+		try {
+			sync(sequence);
+		} finally {
+			this.file.close();
+		}
+	}
+
+	/**
+	 * Writes a batch to the end of the current segment and forces it to disk.
+	 *
+	 * @param batch The batch to write.
+	 * @throws IOException Exception indicating the log could not be written.
+	 */
+	private void writeBatch(final Batch batch) throws IOException {
+		if (batch.length == 0) {
+			return;
+		}
+		this.file.write(batch.bytes, 0, batch.length);
+		this.file.getFD().sync();
+	}
+
+	/**
+	 * Waits for the current leader to finish its fsync.
+	 *
+	 * @throws InterruptedIOException Exception indicating the wait was
+	 *                                interrupted.
+	 */
+	private void awaitLeader() throws InterruptedIOException {
+		try {
+			this.lock.wait();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the write-ahead log.");
+		}
+	}
+
+	/**
+	 * Reads every intact record from the start of a file of framed records.
+	 *
+	 * @param path     The file.
+	 * @param consumer Receives the payload of every intact record.
+	 * @return Returns the length of the intact prefix of the file.
+	 * @throws IOException Exception indicating the file could not be read.
+	 */
+	static long readRecords(final Path path, final Consumer<byte[]> consumer) throws IOException {
+		if (!Files.exists(path)) {
+			return 0;
+		}
+		long validLength = 0;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path.toFile())))) {
+			final CRC32 crc = new CRC32();
+			while (true) {
+				final int length;
+				final int checksum;
+				final byte[] payload;
+				try {
+					length = in.readInt();
+					checksum = in.readInt();
+					if (length < 0 || length > MAX_RECORD_LENGTH) {
+						break;
+					}
+					payload = new byte[length];
+					in.readFully(payload);
+				} catch (final EOFException e) {
+					break;
+				}
+				crc.reset();
+				crc.update(payload);
+				if ((int) crc.getValue() != checksum) {
+					break;
+				}
+				consumer.accept(payload);
+				validLength += HEADER_LENGTH + length;
+			}
+		}
+		return validLength;
+	}
+
+	/**
+	 * Writes one framed record, in the same format as the log, to an output.
+	 *
+	 * @param out     The output.
+	 * @param payload The record payload.
+	 * @throws IOException Exception indicating the output could not be written.
+	 */
+	static void writeRecord(final DataOutput out, final byte[] payload) throws IOException {
+		final CRC32 crc = new CRC32();
+		crc.update(payload);
+		out.writeInt(payload.length);
+		out.writeInt((int) crc.getValue());
+		out.write(payload);
+	}
+
+	/**
+	 * Forces a directory entry change, such as a new or renamed file, to disk.
+	 * Not every platform can open a directory, in which case this does nothing.
+	 *
+	 * @param directory The directory.
+	 */
+	static void syncDirectory(final Path directory) {
+		try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch (final IOException e) {
+			// Directories cannot be opened for syncing on every platform.
+		}
+	}
+
+	private static List<Long> listSegments(final Path directory) throws IOException {
+		final List<Long> segments = new ArrayList<>();
+		try (Stream<Path> files = Files.list(directory)) {
+			files.map(path -> path.getFileName().toString())
+					.filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+					.forEach(name -> segments.add(Long.parseLong(
+							name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))));
+		}
+		Collections.sort(segments);
+		return segments;
+	}
+
+	private static Path segmentPath(final Path directory, final long number) {
+		return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+	}
+
+	/**
+	 * A growable byte buffer holding framed records that have not been written.
+	 */
+	private static class Batch {
+
+		private byte[] bytes = new byte[INITIAL_BATCH_LENGTH];
+		private int length;
+
+		private void putInt(final int value) {
+			ensureCapacity(Integer.BYTES);
+			this.bytes[this.length++] = (byte) (value >>> 24);
+			this.bytes[this.length++] = (byte) (value >>> 16);
+			this.bytes[this.length++] = (byte) (value >>> 8);
+			this.bytes[this.length++] = (byte) value;
+		}
+
+		private void put(final byte[] payload) {
+			ensureCapacity(payload.length);
+			System.arraycopy(payload, 0, this.bytes, this.length, payload.length);
+			this.length += payload.length;
+		}
+
+		private void clear() {
+			this.length = 0;
+		}
+
+		private void ensureCapacity(final int additional) {
+			if (this.length + additional > this.bytes.length) {
+				byte[] grown = new byte[Math.max(this.bytes.length * 2, this.length + additional)];
+				System.arraycopy(this.bytes, 0, grown, 0, this.length);
+				this.bytes = grown;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,259 @@
+package com.project.one.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class queues the keys of changed records so that a background thread
+ * can write them to a durable store in batches, after the change has already
+ * been made in memory and the caller has moved on.
+ *
+ * The queue holds keys, not values: a key changed again before it is written
+ * stays queued once, and the BatchWriter writes whatever the record holds at
+ * that moment. The queue is bounded by the number of distinct keys; a caller
+ * queuing a new key while it is full waits for the next batch to be taken.
+ *
+ * A batch is written as soon as the oldest queued key has waited the maximum
+ * lag, the queue is full, or a caller asks for a flush. flush and awaitDurable
+ * let a caller wait until its changes are written. A failed batch stops the
+ * queue; every later call throws the failure.
+ *
+ * @author Ben
+ */
+public class WriteBehindQueue implements Closeable {
+
+	/**
+	 * The default maximum number of distinct queued keys.
+	 */
+	public static int DEFAULT_CAPACITY = 10000;
+	/**
+	 * The default maximum time, in milliseconds, a queued key waits before its
+	 * batch is written.
+	 */
+	public static long DEFAULT_MAX_LAG_MILLIS = 50;
+
+	/**
+	 * This interface writes a batch of queued keys to the durable store.
+	 */
+	public interface BatchWriter {
+
+		/**
+		 * Writes the current state of the records with the given keys and returns
+		 * once they are durable.
+		 *
+		 * @param keys The keys, each once, in the order they were first queued.
+		 * @throws IOException Exception indicating the batch could not be written.
+		 */
+		void write(List<String> keys) throws IOException;
+	}
+
+	private final BatchWriter writer;
+	private final int capacity;
+	private final long maxLagNanos;
+	private final Thread flusher;
+	// Each queued key maps to the number of its latest change.
+	private Map<String, Long> pending = new LinkedHashMap<>();
+	private Map<String, Long> writing = Collections.emptyMap();
+	private long changeCount;
+	private long durableChange;
+	private long oldestPendingNanos;
+	private boolean flushRequested;
+	private boolean closed;
+	private IOException failure;
+
+	/**
+	 * Constructor. Starts the background thread.
+	 *
+	 * @param writer       Writes the batches.
+	 * @param capacity     The maximum number of distinct queued keys.
+	 * @param maxLagMillis The maximum time, in milliseconds, a queued key waits
+	 *                     before its batch is written.
+	 */
+	public WriteBehindQueue(final BatchWriter writer, final int capacity, final long maxLagMillis) {
+		this.writer = writer;
+		this.capacity = capacity;
+		this.maxLagNanos = TimeUnit.MILLISECONDS.toNanos(maxLagMillis);
+		this.flusher = new Thread(this::run, "write-behind");
+		this.flusher.setDaemon(true);
+		this.flusher.start();
+	}
+
+	/**
+	 * Queues a changed key. Waits while the queue is full, unless the key is
+	 * already queued.
+	 *
+	 * @param key The key of the changed record.
+	 * @throws IOException Exception indicating a batch failed, the queue is
+	 *                     closed, or the wait was interrupted.
+	 */
+	public synchronized void enqueue(final String key) throws IOException {
+		checkOpen();
+		while (!this.pending.containsKey(key) && this.pending.size() >= this.capacity) {
+			this.flushRequested = true;
+			notifyAll();
+			await();
+			checkOpen();
+		}
+		if (this.pending.isEmpty()) {
+			this.oldestPendingNanos = System.nanoTime();
+			notifyAll();
+		}
+		this.pending.put(key, ++this.changeCount);
+	}
+
+	/**
+	 * Waits until every change queued before this call is durable.
+	 *
+	 * @throws IOException Exception indicating a batch failed or the wait was
+	 *                     interrupted.
+	 */
+	public synchronized void flush() throws IOException {
+		awaitChange(this.changeCount);
+	}
+
+	/**
+	 * Waits until the latest queued change of a key is durable. Returns at once
+	 * if the key is not queued.
+	 *
+	 * @param key The key of the changed record.
+	 * @throws IOException Exception indicating a batch failed or the wait was
+	 *                     interrupted.
+	 */
+	public synchronized void awaitDurable(final String key) throws IOException {
+		Long change = this.pending.get(key);
+		if (change == null) {
+			change = this.writing.get(key);
+		}
+		awaitChange(change == null ? 0 : change);
+	}
+
+	/**
+	 * Gets the number of distinct keys waiting for a batch.
+	 *
+	 * @return Returns the number of queued keys.
+	 */
+	public synchronized int getPendingCount() {
+		return this.pending.size();
+	}
+
+	/**
+	 * Writes the queued keys and stops the background thread.
+	 *
+	 * @throws IOException Exception indicating a batch failed.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			this.closed = true;
+			notifyAll();
+		}
+		try {
+			this.flusher.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while closing the write-behind queue.");
+		}
+		synchronized (this) {
+			if (this.failure != null) {
+				throw this.failure;
+			}
+		}
+	}
+
+	/**
+	 * Takes batches off the queue and writes them until the queue is closed and
+	 * empty. Runs on the background thread.
+	 */
+	private void run() {
+		while (true) {
+			final List<String> batch;
+			final long batchChange;
+			synchronized (this) {
+				try {
+					while (!readyToWrite()) {
+						if (this.pending.isEmpty()) {
+							if (this.closed) {
+								return;
+							}
+							wait();
+						} else {
+							TimeUnit.NANOSECONDS.timedWait(this,
+									this.oldestPendingNanos + this.maxLagNanos - System.nanoTime());
+						}
+					}
+				} catch (InterruptedException e) {
+					this.failure = new InterruptedIOException("The write-behind thread was interrupted.");
+					notifyAll();
+					return;
+				}
+				batch = new ArrayList<>(this.pending.keySet());
+				batchChange = this.changeCount;
+				this.writing = this.pending;
+				this.pending = new LinkedHashMap<>();
+				this.flushRequested = false;
+				// Wakes callers waiting for room in the queue.
+				notifyAll();
+			}
+			try {
+				this.writer.write(batch);
+			} catch (IOException | RuntimeException e) {
+				synchronized (this) {
+					this.failure = e instanceof IOException ? (IOException) e
+							: new IOException("The write-behind batch could not be written.", e);
+					notifyAll();
+				}
+				return;
+			}
+			synchronized (this) {
+				this.durableChange = batchChange;
+				this.writing = Collections.emptyMap();
+				notifyAll();
+			}
+		}
+	}
+
+	private boolean readyToWrite() {
+		return !this.pending.isEmpty() && (this.closed || this.flushRequested || this.pending.size() >= this.capacity
+				|| System.nanoTime() - this.oldestPendingNanos >= this.maxLagNanos);
+	}
+
+	private void awaitChange(final long change) throws IOException {
+		while (this.durableChange < change) {
+			checkFailure();
+			this.flushRequested = true;
+			notifyAll();
+			await();
+		}
+		checkFailure();
+	}
+
+	private void await() throws InterruptedIOException {
+		try {
+			wait();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the write-behind queue.");
+		}
+	}
+
+	private void checkFailure() throws IOException {
+		if (this.failure != null) {
+			throw new IOException("A write-behind batch failed.", this.failure);
+		}
+	}
+
+	private void checkOpen() throws IOException {
+		checkFailure();
+		if (this.closed) {
+			throw new IOException("The write-behind queue is closed.");
+		}
+	}
+
+}
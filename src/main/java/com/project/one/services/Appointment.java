@@ -9,7 +9,15 @@ import com.project.one.exceptions.PastDateException;
 import com.project.one.utils.ProjectUtils;
 
 /**
- * This class is a container for Appointment related information.
+ * This class is a container for Appointment related information. An
+ * Appointment may have a duration; one without a duration only takes up its
+ * appointment date. An Appointment may also have an owner, whose calendar it
+ * is on. The services store a copy of an added Appointment and never change a
+ * stored Appointment; an update stores a changed copy in its place. The
+ * setters of a stored Appointment throw an UnsupportedOperationException, so
+ * it can only be changed through the service. The appointmentDate is kept as
+ * a time, so a Date given to or returned by an Appointment can be changed
+ * without changing it.
  *
  * @author Ben
  */
@@ -27,10 +35,19 @@ public class Appointment {
 	 * The maximum length that is acceptable for the description field.
 	 */
 	public static int DESCRIPTION_MAX_CHAR_LENGTH = 50;
+	/**
+	 * The maximum length that is acceptable for the owner field.
+	 */
+	public static int OWNER_MAX_CHAR_LENGTH = 10;
 
 	private String appointmentId;
-	private Date appointmentDate;
+	// The appointmentDate in epoch milliseconds.
+	private long appointmentTime;
+	private long duration;
+	private String owner;
 	private String description;
+	private long version;
+	private boolean frozen;
 
 	/**
 	 * Constructor.
@@ -62,17 +79,193 @@ public class Appointment {
 		setDescription(description);
 	}
 
+	/**
+	 * Constructor for an Appointment that takes up a length of time.
+	 *
+	 * @param appointmentId   Unique Identifier of the appointment.
+	 * @param appointmentDate The date the appointment starts.
+	 * @param duration        The length of the appointment, in milliseconds.
+	 * @param description     The description of the appointment.
+	 * @see NullFieldException
+	 * @see MinimumLengthNotMetException
+	 * @see MaximumLengthExceededException
+	 * @see PastDateException
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 * @throws PastDateException              Exception indicating a date field is
+	 *                                        in the past.
+	 */
+	public Appointment(final String appointmentId, final Date appointmentDate, final long duration,
+			final String description)
+			throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException, PastDateException {
+		this(appointmentId, appointmentDate, description);
+		setDuration(duration);
+	}
+
+	/**
+	 * Constructor used by restore. Sets every field except the appointmentDate.
+	 *
+	 * @param appointmentId Unique Identifier of the appointment.
+	 * @param description   The description of the appointment.
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	private Appointment(final String appointmentId, final String description)
+			throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		if (ProjectUtils.validStringField("appointment ID", appointmentId, MIN_CHAR_LENGTH,
+				APPOINTMENT_ID_MAX_CHAR_LENGTH)) {
+			this.appointmentId = appointmentId;
+		}
+		setDescription(description);
+	}
+
+	/**
+	 * Copy constructor used by copy and storedCopy.
+	 *
+	 * @param appointment The Appointment to copy.
+	 * @param version     The version of the copy.
+	 */
+	private Appointment(final Appointment appointment, final long version) {
+		this.appointmentId = appointment.appointmentId;
+		this.appointmentTime = appointment.appointmentTime;
+		this.duration = appointment.duration;
+		this.owner = appointment.owner;
+		this.description = appointment.description;
+		this.version = version;
+	}
+
+	/**
+	 * Copies the Appointment as its next version, so that a service can change the
+	 * copy and store it in place of the Appointment.
+	 *
+	 * @return Returns an Appointment with the same fields and the next version.
+	 */
+	Appointment copy() {
+		return new Appointment(this, this.version + 1);
+	}
+
+	/**
+	 * Copies the Appointment for a service to store in place of the one it was
+	 * given, so the caller cannot change the stored Appointment through its own.
+	 *
+	 * @param version The version of the copy.
+	 * @return Returns a frozen Appointment with the same fields.
+	 */
+	Appointment storedCopy(final long version) {
+		return new Appointment(this, version).freeze();
+	}
+
+	/**
+	 * Stops the setters from changing the Appointment, once a service stores it.
+	 *
+	 * @return Returns the Appointment.
+	 */
+	Appointment freeze() {
+		this.frozen = true;
+		return this;
+	}
+
+	/**
+	 * Recreates a stored Appointment. Unlike the public constructor, the
+	 * appointmentDate may be in the past, because a stored appointment may have
+	 * passed since it was made.
+	 *
+	 * @see NullFieldException
+	 * @see MinimumLengthNotMetException
+	 * @see MaximumLengthExceededException
+	 * @param appointmentId   Unique Identifier of the appointment.
+	 * @param appointmentDate The date of the appointment.
+	 * @param description     The description of the appointment.
+	 * @return Returns the restored Appointment.
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	static Appointment restore(final String appointmentId, final Date appointmentDate, final String description)
+			throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		return restore(appointmentId, appointmentDate, 0, description);
+	}
+
+	/**
+	 * Recreates a stored Appointment that has a duration.
+	 *
+	 * @see #restore(String, Date, String)
+	 * @param appointmentId   Unique Identifier of the appointment.
+	 * @param appointmentDate The date of the appointment.
+	 * @param duration        The length of the appointment, in milliseconds.
+	 * @param description     The description of the appointment.
+	 * @return Returns the restored Appointment.
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	static Appointment restore(final String appointmentId, final Date appointmentDate, final long duration,
+			final String description)
+			throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		if (appointmentDate == null) {
+			throw new NullFieldException("The appointment Date field cannot be NULL.");
+		}
+		final Appointment appointment = new Appointment(appointmentId, description);
+		appointment.appointmentTime = appointmentDate.getTime();
+		appointment.setDuration(duration);
+		return appointment;
+	}
+
+	/**
+	 * Recreates a stored Appointment that has a duration and an owner.
+	 *
+	 * @see #restore(String, Date, String)
+	 * @param appointmentId   Unique Identifier of the appointment.
+	 * @param appointmentDate The date of the appointment.
+	 * @param duration        The length of the appointment, in milliseconds.
+	 * @param owner           The owner of the appointment, or null for none.
+	 * @param description     The description of the appointment.
+	 * @return Returns the restored Appointment.
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	static Appointment restore(final String appointmentId, final Date appointmentDate, final long duration,
+			final String owner, final String description)
+			throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		final Appointment appointment = restore(appointmentId, appointmentDate, duration, description);
+		appointment.setOwner(owner);
+		return appointment;
+	}
+
 	/**
 	 * Gets the appointmentDate.
 	 *
-	 * @return Returns the appointmentDate.
+	 * @return Returns a new Date holding the appointmentDate.
 	 */
 	public Date getAppointmentDate() {
-		return this.appointmentDate;
+		return new Date(this.appointmentTime);
 	}
 
 	/**
-	 * Sets the appointmentDate.
+	 * Gets the appointmentDate without creating a Date, for the indexes.
+	 *
+	 * @return Returns the appointmentDate in epoch milliseconds.
+	 */
+	long getAppointmentTime() {
+		return this.appointmentTime;
+	}
+
+	/**
+	 * Sets the appointmentDate. Later changes to the Date do not change the
+	 * Appointment.
 	 *
 	 * @see NullFieldException
 	 * @see PastDateException
@@ -81,8 +274,68 @@ public class Appointment {
 	 * @throws PastDateException  Exception indicating a date field is in the past.
 	 */
 	public void setAppointmentDate(final Date appointmentDate) throws NullFieldException, PastDateException {
+		checkNotFrozen();
 		if (ProjectUtils.validAfterDateField("appointment Date", appointmentDate)) {
-			this.appointmentDate = appointmentDate;
+			this.appointmentTime = appointmentDate.getTime();
+		}
+	}
+
+	/**
+	 * Gets the duration.
+	 *
+	 * @return Returns the length of the appointment in milliseconds, or 0 if it
+	 *         has no duration.
+	 */
+	public long getDuration() {
+		return this.duration;
+	}
+
+	/**
+	 * Sets the duration.
+	 *
+	 * @see MinimumLengthNotMetException
+	 * @param duration The length of the appointment in milliseconds, or 0 for no
+	 *                 duration.
+	 * @throws MinimumLengthNotMetException Exception indicating the duration is
+	 *                                      negative.
+	 */
+	public void setDuration(final long duration) throws MinimumLengthNotMetException {
+		checkNotFrozen();
+		if (duration < 0) {
+			throw new MinimumLengthNotMetException("The duration field cannot be negative.");
+		}
+		this.duration = duration;
+	}
+
+	/**
+	 * Gets the owner.
+	 *
+	 * @return Returns the owner, or null if the Appointment has none.
+	 */
+	public String getOwner() {
+		return this.owner;
+	}
+
+	/**
+	 * Sets the owner.
+	 *
+	 * @see MinimumLengthNotMetException
+	 * @see MaximumLengthExceededException
+	 * @param owner The owner to set, or null for none.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	public void setOwner(final String owner) throws MinimumLengthNotMetException, MaximumLengthExceededException {
+		checkNotFrozen();
+		try {
+			if (owner == null
+					|| ProjectUtils.validStringField("owner", owner, MIN_CHAR_LENGTH, OWNER_MAX_CHAR_LENGTH)) {
+				this.owner = owner;
+			}
+		} catch (NullFieldException e) {
+			// Not thrown; an owner of NULL means the Appointment has none.
 		}
 	}
 
@@ -110,11 +363,42 @@ public class Appointment {
 	 */
 	public void setDescription(final String description)
 			throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		checkNotFrozen();
 		if (ProjectUtils.validStringField("description", description, MIN_CHAR_LENGTH, DESCRIPTION_MAX_CHAR_LENGTH)) {
 			this.description = description;
 		}
 	}
 
+	/**
+	 * Gets the version. A new Appointment has version 0, and every update made
+	 * through a service stores a copy with the next version. A service stores an
+	 * added Appointment above the version of every Appointment it has deleted, so
+	 * an Appointment deleted and added again never repeats a version. The
+	 * conditional updates and deletes of the services compare it to catch changes
+	 * made since the Appointment was read.
+	 *
+	 * @return Returns the version.
+	 */
+	public long getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * Sets the version of an Appointment read back from storage.
+	 *
+	 * @param version The stored version.
+	 */
+	void setVersion(final long version) {
+		this.version = version;
+	}
+
+	private void checkNotFrozen() {
+		if (this.frozen) {
+			throw new UnsupportedOperationException(
+					"A stored Appointment cannot be changed; update it through the service.");
+		}
+	}
+
 	/**
 	 * Gets the appointmentId.
 	 *
@@ -0,0 +1,101 @@
+package com.project.one.services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+import com.project.one.exceptions.MaximumLengthExceededException;
+import com.project.one.exceptions.MinimumLengthNotMetException;
+import com.project.one.exceptions.NullFieldException;
+import com.project.one.persistence.BinaryCodec;
+import com.project.one.persistence.BinaryFields;
+
+/**
+ * This class is a singleton BinaryCodec for Appointment objects. Decoding
+ * restores the Appointment, so an appointmentDate that has passed since it was
+ * encoded is still accepted.
+ *
+ * Version 1 layout: the version byte, a flags byte with one bit per string
+ * field set when the field is UTF-8, the appointmentId as a BinaryFields
+ * string, the appointmentDate as epoch milliseconds in a long, the duration in
+ * milliseconds in a long, the owner as a BinaryFields string that is empty when
+ * there is no owner, the description as a BinaryFields string, and the version
+ * of the Appointment in a long.
+ *
+ * @see Appointment
+ * @see BinaryFields
+ * @author Ben
+ */
+public class AppointmentCodec implements BinaryCodec<Appointment> {
+
+	/**
+	 * The format version written by encode.
+	 */
+	public static final byte VERSION = 1;
+
+	private static final AppointmentCodec INSTANCE = new AppointmentCodec();
+
+	/**
+	 * Private Constructor.
+	 */
+	private AppointmentCodec() {
+	}
+
+	/**
+	 * Gets the only instance of AppointmentCodec.
+	 *
+	 * @return Returns the only instance of AppointmentCodec.
+	 */
+	public static AppointmentCodec getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public void encode(final Appointment appointment, final ByteBuffer buffer) {
+		buffer.put(VERSION);
+		final int flagsPosition = buffer.position();
+		buffer.put((byte) 0);
+		int flags = 0;
+		flags |= BinaryFields.putString(buffer, appointment.getAppointmentId()) ? 1 : 0;
+		buffer.putLong(appointment.getAppointmentTime());
+		buffer.putLong(appointment.getDuration());
+		final String owner = appointment.getOwner();
+		flags |= BinaryFields.putString(buffer, owner == null ? "" : owner) ? 1 << 2 : 0;
+		flags |= BinaryFields.putString(buffer, appointment.getDescription()) ? 1 << 1 : 0;
+		buffer.put(flagsPosition, (byte) flags);
+		buffer.putLong(appointment.getVersion());
+	}
+
+	@Override
+	public Appointment decode(final ByteBuffer buffer) throws IOException {
+		BinaryFields.checkVersion(buffer, VERSION);
+		final int flags = buffer.get();
+		final String appointmentId = BinaryFields.getString(buffer, (flags & 1) != 0);
+		if (buffer.remaining() < 2 * Long.BYTES) {
+			throw new IOException("The record ends inside a field.");
+		}
+		final Date appointmentDate = new Date(buffer.getLong());
+		final long duration = buffer.getLong();
+		final String owner = BinaryFields.getString(buffer, (flags & 1 << 2) != 0);
+		final Appointment appointment;
+		try {
+			appointment = Appointment.restore(appointmentId, appointmentDate, duration,
+					owner.isEmpty() ? null : owner, BinaryFields.getString(buffer, (flags & 1 << 1) != 0));
+		} catch (NullFieldException | MinimumLengthNotMetException | MaximumLengthExceededException e) {
+			throw new IOException("The encoded appointment is not valid.", e);
+		}
+		if (buffer.remaining() < Long.BYTES) {
+			throw new IOException("The record ends inside a field.");
+		}
+		appointment.setVersion(buffer.getLong());
+		return appointment.freeze();
+	}
+
+	@Override
+	public int getMaxLength() {
+		return 2 + BinaryFields.maxLength(Appointment.APPOINTMENT_ID_MAX_CHAR_LENGTH) + 3 * Long.BYTES
+				+ BinaryFields.maxLength(Appointment.OWNER_MAX_CHAR_LENGTH)
+				+ BinaryFields.maxLength(Appointment.DESCRIPTION_MAX_CHAR_LENGTH);
+	}
+
+}
@@ -0,0 +1,195 @@
+package com.project.one.services;
+
+import java.util.Date;
+
+import com.project.one.exceptions.MaximumLengthExceededException;
+import com.project.one.exceptions.MinimumLengthNotMetException;
+import com.project.one.exceptions.NullFieldException;
+import com.project.one.exceptions.PastDateException;
+import com.project.one.utils.ProjectUtils;
+
+/**
+ * This class describes the changes AppointmentService.updateAppointment makes
+ * to one Appointment object. A patch starts from none, which changes nothing,
+ * and each field set adds a change; the fields left unset keep their values. A
+ * patch is immutable, so one patch can be shared and extended. A field set to
+ * a NULL value is rejected with an IllegalArgumentException, except the owner,
+ * where NULL removes the owner; a value that is not valid for an Appointment
+ * is accepted here and makes the update fail.
+ *
+ * @see AppointmentService
+ * @author Ben
+ */
+public final class AppointmentPatch {
+
+	private static final AppointmentPatch NONE = new AppointmentPatch(null, null, false, null, null);
+
+	private final Date appointmentDate;
+	private final Long duration;
+	private final boolean ownerSet;
+	private final String owner;
+	private final String description;
+
+	private AppointmentPatch(final Date appointmentDate, final Long duration, final boolean ownerSet,
+			final String owner, final String description) {
+		this.appointmentDate = appointmentDate;
+		this.duration = duration;
+		this.ownerSet = ownerSet;
+		this.owner = owner;
+		this.description = description;
+	}
+
+	/**
+	 * Gets the patch that changes nothing.
+	 *
+	 * @return Returns the patch.
+	 */
+	public static AppointmentPatch none() {
+		return NONE;
+	}
+
+	/**
+	 * Adds a change of the appointment date to the patch.
+	 *
+	 * @param appointmentDate The new appointment date.
+	 * @return Returns the extended patch.
+	 */
+	public AppointmentPatch appointmentDate(final Date appointmentDate) {
+		if (appointmentDate == null) {
+			throw new IllegalArgumentException("A patch value cannot be NULL.");
+		}
+		// Copied, so that changing the Date later does not change the patch.
+		return new AppointmentPatch(new Date(appointmentDate.getTime()), this.duration, this.ownerSet, this.owner,
+				this.description);
+	}
+
+	/**
+	 * Adds a change of the duration to the patch.
+	 *
+	 * @param duration The new duration in milliseconds, or 0 for no duration.
+	 * @return Returns the extended patch.
+	 */
+	public AppointmentPatch duration(final long duration) {
+		return new AppointmentPatch(this.appointmentDate, duration, this.ownerSet, this.owner, this.description);
+	}
+
+	/**
+	 * Adds a change of the owner to the patch.
+	 *
+	 * @param owner The new owner, or null to remove the owner.
+	 * @return Returns the extended patch.
+	 */
+	public AppointmentPatch owner(final String owner) {
+		return new AppointmentPatch(this.appointmentDate, this.duration, true, owner, this.description);
+	}
+
+	/**
+	 * Adds a change of the description to the patch.
+	 *
+	 * @param description The new description.
+	 * @return Returns the extended patch.
+	 */
+	public AppointmentPatch description(final String description) {
+		if (description == null) {
+			throw new IllegalArgumentException("A patch value cannot be NULL.");
+		}
+		return new AppointmentPatch(this.appointmentDate, this.duration, this.ownerSet, this.owner, description);
+	}
+
+	/**
+	 * Checks whether the patch changes the appointment date or the duration,
+	 * the fields that decide when the Appointment is booked.
+	 *
+	 * @return Returns true if the appointment date or the duration is set.
+	 */
+	boolean changesBooking() {
+		return this.appointmentDate != null || this.duration != null;
+	}
+
+	/**
+	 * Checks whether the patch changes any field the free/busy bitmaps are built
+	 * from.
+	 *
+	 * @return Returns true if the appointment date, duration or owner is set.
+	 */
+	boolean changesBusy() {
+		return changesBooking() || this.ownerSet;
+	}
+
+	/**
+	 * Gets the new description.
+	 *
+	 * @return Returns the description, or null if the patch does not change it.
+	 */
+	String getDescription() {
+		return this.description;
+	}
+
+	/**
+	 * Checks whether the patch changes nothing.
+	 *
+	 * @return Returns true if no field is set.
+	 */
+	boolean isEmpty() {
+		return !changesBusy() && this.description == null;
+	}
+
+	/**
+	 * Checks every field set against the limits of an Appointment, without
+	 * changing any Appointment.
+	 *
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 * @throws PastDateException              Exception indicating a date field is
+	 *                                        in the past.
+	 */
+	void validate()
+			throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException, PastDateException {
+		if (this.appointmentDate != null) {
+			ProjectUtils.validAfterDateField("appointment Date", this.appointmentDate);
+		}
+		if (this.duration != null && this.duration < 0) {
+			throw new MinimumLengthNotMetException("The duration field cannot be negative.");
+		}
+		if (this.owner != null) {
+			ProjectUtils.validStringField("owner", this.owner, Appointment.MIN_CHAR_LENGTH,
+					Appointment.OWNER_MAX_CHAR_LENGTH);
+		}
+		if (this.description != null) {
+			ProjectUtils.validStringField("description", this.description, Appointment.MIN_CHAR_LENGTH,
+					Appointment.DESCRIPTION_MAX_CHAR_LENGTH);
+		}
+	}
+
+	/**
+	 * Sets every field set in the patch on an Appointment.
+	 *
+	 * @param appointment The Appointment to change.
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 * @throws PastDateException              Exception indicating a date field is
+	 *                                        in the past.
+	 */
+	void applyTo(final Appointment appointment)
+			throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException, PastDateException {
+		if (this.appointmentDate != null) {
+			appointment.setAppointmentDate(this.appointmentDate);
+		}
+		if (this.duration != null) {
+			appointment.setDuration(this.duration);
+		}
+		if (this.ownerSet) {
+			appointment.setOwner(this.owner);
+		}
+		if (this.description != null) {
+			appointment.setDescription(this.description);
+		}
+	}
+
+}
@@ -1,32 +1,237 @@
 package com.project.one.services;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TimeZone;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.project.one.exceptions.MaximumLengthExceededException;
 import com.project.one.exceptions.MinimumLengthNotMetException;
 import com.project.one.exceptions.NullFieldException;
 import com.project.one.exceptions.PastDateException;
+import com.project.one.exceptions.PersistenceException;
+import com.project.one.persistence.BPlusTree;
+import com.project.one.persistence.BackupFile;
+import com.project.one.persistence.BinaryRecordCodec;
+import com.project.one.persistence.ChangeTracker;
+import com.project.one.persistence.Checkpointer;
+import com.project.one.persistence.DayCounter;
+import com.project.one.persistence.FreeBusyIndex;
+import com.project.one.persistence.IntervalTree;
+import com.project.one.persistence.InvertedIndex;
+import com.project.one.persistence.Journal;
+import com.project.one.persistence.RecordCodec;
+import com.project.one.persistence.RecordSpliterator;
+import com.project.one.persistence.StorageProvider;
+import com.project.one.persistence.StorageProviders;
+import com.project.one.persistence.TimeIndex;
+import com.project.one.persistence.VersionClock;
+import com.project.one.persistence.VersionHistory;
+import com.project.one.persistence.WriteBehindQueue;
 
 /**
  * This class is a singleton service handling CRUD operations to the Appointment
- * database. NOTE: The current implementation uses an in-memory solution. This
- * should be replaced with a permanent persistence option.
+ * database. NOTE: By default the Appointment objects are only kept in memory.
+ * Calling enableWriteAheadLog makes every add, delete and update durable by
+ * recording it in a Journal that is replayed on the next start. Calling
+ * enableDateIndex keeps an on-disk BPlusTree of the appointment dates for
+ * getAppointmentsBetween to read.
+ *
+ * Adds, deletes and updates each make one atomic map operation (putIfAbsent,
+ * remove or computeIfPresent) under the write lock, so concurrent changes to
+ * one appointmentId take effect one at a time and an add of an existing
+ * appointmentId always fails. Lookups never take the lock.
+ *
+ * Every Appointment object carries a version that each update raises by one. An
+ * added Appointment object starts above the version of every deleted one, so a
+ * version read before a delete never matches an Appointment object added again.
+ * Each update and delete also comes in a conditional form taking the version
+ * the caller read, for example from getAppointmentVersion; it changes nothing
+ * and returns false if the Appointment object has since been changed, so two
+ * clients editing the same Appointment object cannot silently overwrite each
+ * other. The version is checked once without the write lock, so a stale change
+ * fails without waiting, and again inside the map operation. A negative version
+ * never matches.
+ *
+ * updateAppointment changes several fields at once from an AppointmentPatch.
+ * Every field is checked first, and then all of them are set on one copy of
+ * the Appointment object with one map operation, one index move and one
+ * journal record, instead of one of each per field.
+ *
+ * The appointment dates are also kept in memory in a TimeIndex ordered by
+ * appointment date and appointmentId, so getAppointmentsBetween,
+ * getAppointmentsOn and getNextAppointments only look at the matching
+ * Appointment objects. Changing an appointment date moves its entry in one
+ * atomic step, so a concurrent query sees the Appointment exactly once.
+ *
+ * The number of Appointment objects on each day is kept up to date by every
+ * add, delete and date change in a DayCounter, so countAppointmentsPerDay
+ * answers dashboard queries such as the counts for the next 90 days without
+ * reading any Appointment object.
+ *
+ * Each Appointment object takes up the time from its appointment date to the
+ * end of its duration, and an IntervalTree of those times finds the ones that
+ * overlap a given time, so getOverlappingAppointments and isTimeFree cost
+ * O(log n + k) for k overlaps. addAppointmentIfFree checks and books a time
+ * of one owner under the write lock, so concurrent bookings never
+ * double-book an owner.
+ *
+ * The times of the Appointment objects with an owner are also marked in a
+ * FreeBusyIndex, one busy bitmap per owner, so findFreeTime finds the earliest
+ * time that is free for every one of a set of owners with word-wide bit
+ * operations rather than by reading their Appointment objects.
+ *
+ * The words of the descriptions are kept in an InvertedIndex, so
+ * findAppointmentsMatchingAll and findAppointmentsMatchingAny only read the
+ * Appointment objects that match.
+ *
+ * Calling enableWriteBehind instead journals the changes asynchronously: each
+ * change returns once it is made in memory, and a WriteBehindQueue writes the
+ * changed Appointment objects to the journal in batches. flush and
+ * awaitDurable wait for queued changes to be written.
+ *
+ * The storage engine behind the service can be swapped: enableStorage, or the
+ * project.one.storage system property set before the service is first used,
+ * keeps the Appointment objects in a Map opened by a StorageProvider.
+ *
+ * Calling backup streams a consistent copy of the Appointment objects to a file
+ * while writers carry on, and backupChangesSince writes only the Appointment
+ * objects changed since an earlier backup. restoreBackup rebuilds the service
+ * from a full backup and the incremental backups after it.
+ *
+ * stream and parallelStream walk every Appointment object for reports, splitting the
+ * scan over the storage so that a parallel stream runs on every core. They are
+ * weakly consistent: they never block writers and never throw a
+ * ConcurrentModificationException, each Appointment object is seen at most once, and
+ * one present for the whole scan is always seen, but one added or deleted
+ * during the scan may or may not be. An update stores a changed copy, so each
+ * Appointment object is seen either as it was before an update or as it is after
+ * it, never half made.
+ *
+ * A TransactionManager created over the service reads it as of a snapshot
+ * and changes it all or nothing together with the other services. It makes
+ * the service keep the versions of its Appointment objects that open
+ * transactions still need.
  *
  * @see Appointment
+ * @see Journal
+ * @see ChangeTracker
+ * @see FieldUpdate
+ * @see RecordSpliterator
+ * @see StorageProvider
+ * @see BPlusTree
+ * @see TimeIndex
+ * @see DayCounter
+ * @see IntervalTree
+ * @see FreeBusyIndex
+ * @see InvertedIndex
+ * @see WriteBehindQueue
+ * @see AppointmentPatch
+ * @see TransactionManager
  * @author Ben
  */
 public class AppointmentService {
-	// TODO This should be replaced with a permanent persistence option.
+
+	// Journals, snapshots, backups and storage engines all hold AppointmentCodec records.
+	private static final RecordCodec<Appointment> CODEC = new BinaryRecordCodec<>(AppointmentCodec.getInstance(),
+			Appointment::getAppointmentId);
+
+	// The expected version of the unconditional updates and deletes; no Appointment
+	// has a negative version, and the conditional forms refuse one.
+	private static final long ANY_VERSION = Long.MIN_VALUE;
+
+	private static final String STORAGE_NAME = "appointments";
+
+	private static final Comparator<Appointment> BY_DATE = Comparator.comparing(Appointment::getAppointmentDate)
+			.thenComparing(Appointment::getAppointmentId);
+
 	private final Map<String, Appointment> appointmentMap;
-	private static AppointmentService instance = new AppointmentService();
+	private final Journal<Appointment> journal;
+	private final WriteBehindQueue writeBehind;
+	// Keeps the order of the log records the same as the order of the map changes.
+	private final Object writeLock = new Object();
+	// Added Appointment objects start above the version of every deleted one, so a
+	// version read before a delete never matches a Appointment object added again.
+	private long firstVersion;
+	private final ChangeTracker<Appointment> changes;
+	private volatile BPlusTree dateIndex;
+	private final TimeIndex schedule = new TimeIndex();
+	private final DayCounter dailyCounts = new DayCounter(TimeZone.getDefault());
+	private final IntervalTree bookings = new IntervalTree();
+	private final FreeBusyIndex freeBusy = new FreeBusyIndex();
+	private final InvertedIndex descriptionIndex = new InvertedIndex();
+	private static volatile AppointmentService instance = new AppointmentService();
 
 	/**
 	 * Private Constructor.
 	 */
 	private AppointmentService() {
+		this.appointmentMap = StorageProviders.openDefault(STORAGE_NAME, CODEC);
+		this.changes = new ChangeTracker<>(this.appointmentMap, CODEC, this.writeLock);
+		this.journal = null;
+		this.writeBehind = null;
+		indexAppointments();
+	}
+
+	/**
+	 * Constructor. Rebuilds the Appointment objects from the journal directory
+	 * and records every later change in it.
+	 *
+	 * @param journalDirectory The directory holding the snapshots and the log.
+	 * @throws IOException Exception indicating the journal could not be read.
+	 */
+	AppointmentService(final Path journalDirectory) throws IOException {
 		this.appointmentMap = new ConcurrentHashMap<>();
+		this.changes = new ChangeTracker<>(this.appointmentMap, CODEC, this.writeLock);
+		this.journal = new Journal<>(journalDirectory, this.appointmentMap, CODEC);
+		this.writeBehind = null;
+		indexAppointments();
+	}
+
+	/**
+	 * Constructor. Rebuilds the Appointment objects from the journal directory
+	 * and writes every later change to it in the background.
+	 *
+	 * @param journalDirectory The directory holding the snapshots and the log.
+	 * @param queueCapacity    The maximum number of changed Appointment objects
+	 *                         waiting to be written.
+	 * @param maxLagMillis     The maximum time, in milliseconds, a change waits
+	 *                         before it is written.
+	 * @throws IOException Exception indicating the journal could not be read.
+	 */
+	AppointmentService(final Path journalDirectory, final int queueCapacity, final long maxLagMillis)
+			throws IOException {
+		this.appointmentMap = new ConcurrentHashMap<>();
+		this.changes = new ChangeTracker<>(this.appointmentMap, CODEC, this.writeLock);
+		this.journal = new Journal<>(journalDirectory, this.appointmentMap, CODEC);
+		this.writeBehind = new WriteBehindQueue(this::writeBatch, queueCapacity, maxLagMillis);
+		indexAppointments();
+	}
+
+	/**
+	 * Constructor. Keeps the Appointment objects in the given map.
+	 *
+	 * @param appointmentMap The map holding the Appointment objects.
+	 */
+	AppointmentService(final Map<String, Appointment> appointmentMap) {
+		this.appointmentMap = appointmentMap;
+		this.changes = new ChangeTracker<>(this.appointmentMap, CODEC, this.writeLock);
+		this.journal = null;
+		this.writeBehind = null;
+		indexAppointments();
 	}
 
 	/**
@@ -38,6 +243,94 @@ public class AppointmentService {
 		return instance;
 	}
 
+	/**
+	 * Replaces the only instance of AppointmentService with one that persists
+	 * every change to a write-ahead log, which the Checkpointer compacts into
+	 * snapshots in the background. The Appointment objects already in the journal
+	 * are loaded before this method returns. This should be called once on
+	 * startup before the service is used.
+	 *
+	 * @param journalDirectory The directory holding the snapshots and the log.
+	 * @throws IOException Exception indicating the journal could not be read.
+	 */
+	public static synchronized void enableWriteAheadLog(final Path journalDirectory) throws IOException {
+		final AppointmentService previous = instance;
+		instance = new AppointmentService(journalDirectory);
+		Checkpointer.getInstance().register(instance.journal);
+		previous.close();
+	}
+
+	/**
+	 * Replaces the only instance of AppointmentService with one that returns from
+	 * every change once it is made in memory and writes the changes to a journal
+	 * in the background. Repeated changes to one Appointment before it is written
+	 * are written once. A change waits when queueCapacity other Appointment
+	 * objects are already waiting. This should be called once on startup before
+	 * the service is used.
+	 *
+	 * @param journalDirectory The directory holding the snapshots and the log.
+	 * @param queueCapacity    The maximum number of changed Appointment objects
+	 *                         waiting to be written.
+	 * @param maxLagMillis     The maximum time, in milliseconds, a change waits
+	 *                         before it is written.
+	 * @throws IOException Exception indicating the journal could not be read.
+	 */
+	public static synchronized void enableWriteBehind(final Path journalDirectory, final int queueCapacity,
+			final long maxLagMillis) throws IOException {
+		final AppointmentService previous = instance;
+		instance = new AppointmentService(journalDirectory, queueCapacity, maxLagMillis);
+		Checkpointer.getInstance().register(instance.journal);
+		previous.close();
+	}
+
+	/**
+	 * Keeps an index of the appointment dates in the given file. If the file was
+	 * not closed cleanly, or is new, the index is rebuilt from the Appointment
+	 * objects already loaded. This should be called on startup after
+	 * enableWriteAheadLog, if that is used.
+	 *
+	 * @param indexFile The index file.
+	 * @throws IOException Exception indicating the index could not be opened.
+	 */
+	public static synchronized void enableDateIndex(final Path indexFile) throws IOException {
+		instance.openDateIndex(indexFile);
+	}
+
+	/**
+	 * Replaces the only instance of AppointmentService with one that keeps the Appointment
+	 * objects in the appointments map of the named StorageProvider. This should be
+	 * called once on startup before the service is used.
+	 *
+	 * @param providerName The name of the StorageProvider.
+	 * @throws IOException Exception indicating the provider could not be found or
+	 *                     the map could not be opened.
+	 */
+	public static synchronized void enableStorage(final String providerName) throws IOException {
+		final AppointmentService previous = instance;
+		instance = new AppointmentService(StorageProviders.get(providerName).open(STORAGE_NAME, CODEC));
+		previous.close();
+	}
+
+	/**
+	 * Replaces the only instance of AppointmentService with one holding the Appointment objects
+	 * of a full backup and the incremental backups taken after it. The chunks of
+	 * each backup file are read in parallel. The restored Appointment objects are
+	 * kept in memory. This should be called on startup before the service is
+	 * used.
+	 *
+	 * @param backupFiles The full backup, then each incremental backup in the
+	 *                    order they were taken.
+	 * @throws IOException Exception indicating a backup file is damaged or the
+	 *                     files do not form a chain of backups.
+	 */
+	public static synchronized void restoreBackup(final List<Path> backupFiles) throws IOException {
+		final Map<String, Appointment> restored = new ConcurrentHashMap<>();
+		BackupFile.restore(backupFiles, restored, CODEC, Runtime.getRuntime().availableProcessors());
+		final AppointmentService previous = instance;
+		instance = new AppointmentService(restored);
+		previous.close();
+	}
+
 	/**
 	 * Adds an Appointment object.
 	 *
@@ -45,12 +338,64 @@ public class AppointmentService {
 	 * @return Returns true if the add was successful.
 	 */
 	public boolean addAppointment(final Appointment appointment) {
-		if (!appointmentExists(appointment.getAppointmentId())) {
-			this.appointmentMap.put(appointment.getAppointmentId(), appointment);
-			return true;
-		} else {
-			return false;
+		return add(appointment, false);
+	}
+
+	/**
+	 * Adds an Appointment object only if no other Appointment object of the same
+	 * owner overlaps the time it takes up, so a time findFreeTime finds for an
+	 * owner can be booked. The Appointment objects without an owner share one
+	 * calendar. The check and the add are one atomic step, so of two concurrent
+	 * bookings of overlapping times for one owner at most one succeeds.
+	 *
+	 * @param appointment The Appointment object that will be added.
+	 * @return Returns true if the add was successful, or false if the
+	 *         appointmentId exists or the time is taken.
+	 */
+	public boolean addAppointmentIfFree(final Appointment appointment) {
+		return add(appointment, true);
+	}
+
+	/**
+	 * Adds a frozen copy of an Appointment object, so the caller cannot change
+	 * the stored Appointment object.
+	 */
+	private boolean add(final Appointment added, final boolean ifFree) {
+		final long sequence;
+		final long start = added.getAppointmentTime();
+		synchronized (this.writeLock) {
+			final Appointment appointment = copyToStore(added);
+			// Every writer holds the write lock, so no booking can land between the check and the add.
+			if (ifFree && isBooked(appointment.getOwner(), start, end(start, appointment.getDuration()))) {
+				return false;
+			}
+			this.changes.beforeChange(appointment.getAppointmentId());
+			if (this.appointmentMap.putIfAbsent(appointment.getAppointmentId(), appointment) != null) {
+				return false;
+			}
+			this.changes.changed(appointment.getAppointmentId());
+			indexDate(appointment.getAppointmentDate(), appointment.getDuration(), null,
+					appointment.getAppointmentId());
+			indexBusy(appointment);
+			this.descriptionIndex.add(appointment.getAppointmentId(), appointment.getDescription());
+			sequence = logPut(appointment);
+		}
+		persist(added.getAppointmentId(), sequence);
+		return true;
+	}
+
+	/**
+	 * Checks whether an Appointment object of an owner overlaps a time. Must be
+	 * called while holding the write lock, so the bookings match the map.
+	 */
+	private boolean isBooked(final String owner, final long from, final long to) {
+		for (final String appointmentId : this.bookings.findOverlapping(from, to, Integer.MAX_VALUE)) {
+			final Appointment booked = this.appointmentMap.get(appointmentId);
+			if (booked != null && Objects.equals(owner, booked.getOwner())) {
+				return true;
+			}
 		}
+		return false;
 	}
 
 	/**
@@ -61,12 +406,51 @@ public class AppointmentService {
 	 * @return Returns true if the delete was successful.
 	 */
 	public boolean deleteAppointment(final String appointmentId) {
-		if (appointmentExists(appointmentId)) {
-			this.appointmentMap.remove(appointmentId);
-			return true;
-		} else {
+		return delete(appointmentId, ANY_VERSION);
+	}
+
+	/**
+	 * Deletes an Appointment object based on a appointmentId, only if it still
+	 * has the expected version.
+	 *
+	 * The version is checked before the write lock is taken, so a delete of an
+	 * Appointment object that has already changed fails at once instead of
+	 * waiting for other writers.
+	 *
+	 * @param appointmentId   The appointmentId that indicates the Appointment
+	 *                        object that should be deleted.
+	 * @param expectedVersion The version the Appointment object was read at. A
+	 *                        negative version never matches.
+	 * @return Returns true if the delete was successful, or false if the
+	 *         Appointment object has another version.
+	 */
+	public boolean deleteAppointment(final String appointmentId, final long expectedVersion) {
+		return expectedVersion >= 0 && delete(appointmentId, expectedVersion);
+	}
+
+	/**
+	 * Deletes an Appointment object based on a appointmentId, if it has the
+	 * expected version; ANY_VERSION matches any version.
+	 */
+	private boolean delete(final String appointmentId, final long expectedVersion) {
+		if (!hasVersion(appointmentId, expectedVersion)) {
 			return false;
 		}
+		final long sequence;
+		synchronized (this.writeLock) {
+			this.changes.beforeChange(appointmentId);
+			final Appointment removed = remove(appointmentId, expectedVersion);
+			if (removed == null) {
+				return false;
+			}
+			this.changes.changed(appointmentId);
+			indexDate(null, 0, removed.getAppointmentDate(), appointmentId);
+			this.freeBusy.remove(appointmentId);
+			this.descriptionIndex.remove(appointmentId, removed.getDescription());
+			sequence = logDelete(appointmentId);
+		}
+		persist(appointmentId, sequence);
+		return true;
 	}
 
 	/**
@@ -79,18 +463,172 @@ public class AppointmentService {
 	 * @return Returns true if the update was successful.
 	 */
 	public boolean updateAppointmentDate(final String appointmentId, final Date updateDate) {
-		if (!appointmentExists(appointmentId)) {
+		return updateDate(appointmentId, ANY_VERSION, updateDate);
+	}
+
+	/**
+	 * Updates the appointment date of an Appointment object based on a
+	 * appointmentId, only if it still has the expected version.
+	 *
+	 * The version is checked before the write lock is taken, so an update of an
+	 * Appointment object that has already changed fails at once instead of
+	 * waiting for other writers.
+	 *
+	 * @param appointmentId   The appointmentId that indicates the Appointment
+	 *                        object that should be updated.
+	 * @param expectedVersion The version the Appointment object was read at. A
+	 *                        negative version never matches.
+	 * @param updateDate      The updated appointment date of the Appointment
+	 *                        object.
+	 * @return Returns true if the update was successful, or false if the
+	 *         Appointment object has another version.
+	 */
+	public boolean updateAppointmentDate(final String appointmentId, final long expectedVersion,
+			final Date updateDate) {
+		return expectedVersion >= 0 && updateDate(appointmentId, expectedVersion, updateDate);
+	}
+
+	/**
+	 * Updates the appointment date of an Appointment object based on a
+	 * appointmentId, if it has the expected version; ANY_VERSION matches any
+	 * version.
+	 */
+	private boolean updateDate(final String appointmentId, final long expectedVersion, final Date updateDate) {
+		if (!hasVersion(appointmentId, expectedVersion)) {
 			return false;
-		} else {
-			final Appointment appointment = this.appointmentMap.get(appointmentId);
-			try {
-				appointment.setAppointmentDate(updateDate);
-				return true;
-			} catch (NullFieldException | PastDateException e) {
+		}
+		final long sequence;
+		synchronized (this.writeLock) {
+			final Date[] previousDate = new Date[1];
+			final Appointment appointment = change(appointmentId, expectedVersion, current -> {
+				previousDate[0] = current.getAppointmentDate();
+				current.setAppointmentDate(updateDate);
+			});
+			if (appointment == null) {
 				return false;
 			}
+			indexDate(updateDate, appointment.getDuration(), previousDate[0], appointmentId);
+			indexBusy(appointment);
+			sequence = logPut(appointment);
 		}
+		persist(appointmentId, sequence);
+		return true;
+	}
+
+	/**
+	 * Updates the duration of an Appointment object based on a appointmentId.
+	 *
+	 * @param appointmentId  The appointmentId that indicates the Appointment object
+	 *                       that should be updated.
+	 * @param updateDuration The updated duration of the Appointment object, in
+	 *                       milliseconds, or 0 for no duration.
+	 * @return Returns true if the update was successful.
+	 */
+	public boolean updateAppointmentDuration(final String appointmentId, final long updateDuration) {
+		return updateDuration(appointmentId, ANY_VERSION, updateDuration);
+	}
+
+	/**
+	 * Updates the duration of an Appointment object based on a appointmentId,
+	 * only if it still has the expected version.
+	 *
+	 * The version is checked before the write lock is taken, so an update of an
+	 * Appointment object that has already changed fails at once instead of
+	 * waiting for other writers.
+	 *
+	 * @param appointmentId   The appointmentId that indicates the Appointment
+	 *                        object that should be updated.
+	 * @param expectedVersion The version the Appointment object was read at. A
+	 *                        negative version never matches.
+	 * @param updateDuration  The updated duration of the Appointment object, in
+	 *                        milliseconds, or 0 for no duration.
+	 * @return Returns true if the update was successful, or false if the
+	 *         Appointment object has another version.
+	 */
+	public boolean updateAppointmentDuration(final String appointmentId, final long expectedVersion,
+			final long updateDuration) {
+		return expectedVersion >= 0 && updateDuration(appointmentId, expectedVersion, updateDuration);
+	}
 
+	/**
+	 * Updates the duration of an Appointment object based on a appointmentId, if
+	 * it has the expected version; ANY_VERSION matches any version.
+	 */
+	private boolean updateDuration(final String appointmentId, final long expectedVersion, final long updateDuration) {
+		if (!hasVersion(appointmentId, expectedVersion)) {
+			return false;
+		}
+		final long sequence;
+		synchronized (this.writeLock) {
+			final Appointment appointment = change(appointmentId, expectedVersion,
+					current -> current.setDuration(updateDuration));
+			if (appointment == null) {
+				return false;
+			}
+			final long start = appointment.getAppointmentTime();
+			this.bookings.add(start, end(start, updateDuration), appointmentId);
+			indexBusy(appointment);
+			sequence = logPut(appointment);
+		}
+		persist(appointmentId, sequence);
+		return true;
+	}
+
+	/**
+	 * Updates the owner of an Appointment object based on a appointmentId.
+	 *
+	 * @param appointmentId The appointmentId that indicates the Appointment object
+	 *                      that should be updated.
+	 * @param updateOwner   The updated owner of the Appointment object, or null
+	 *                      for none.
+	 * @return Returns true if the update was successful.
+	 */
+	public boolean updateAppointmentOwner(final String appointmentId, final String updateOwner) {
+		return updateOwner(appointmentId, ANY_VERSION, updateOwner);
+	}
+
+	/**
+	 * Updates the owner of an Appointment object based on a appointmentId, only
+	 * if it still has the expected version.
+	 *
+	 * The version is checked before the write lock is taken, so an update of an
+	 * Appointment object that has already changed fails at once instead of
+	 * waiting for other writers.
+	 *
+	 * @param appointmentId   The appointmentId that indicates the Appointment
+	 *                        object that should be updated.
+	 * @param expectedVersion The version the Appointment object was read at. A
+	 *                        negative version never matches.
+	 * @param updateOwner     The updated owner of the Appointment object, or
+	 *                        null for none.
+	 * @return Returns true if the update was successful, or false if the
+	 *         Appointment object has another version.
+	 */
+	public boolean updateAppointmentOwner(final String appointmentId, final long expectedVersion,
+			final String updateOwner) {
+		return expectedVersion >= 0 && updateOwner(appointmentId, expectedVersion, updateOwner);
+	}
+
+	/**
+	 * Updates the owner of an Appointment object based on a appointmentId, if it
+	 * has the expected version; ANY_VERSION matches any version.
+	 */
+	private boolean updateOwner(final String appointmentId, final long expectedVersion, final String updateOwner) {
+		if (!hasVersion(appointmentId, expectedVersion)) {
+			return false;
+		}
+		final long sequence;
+		synchronized (this.writeLock) {
+			final Appointment appointment = change(appointmentId, expectedVersion,
+					current -> current.setOwner(updateOwner));
+			if (appointment == null) {
+				return false;
+			}
+			indexBusy(appointment);
+			sequence = logPut(appointment);
+		}
+		persist(appointmentId, sequence);
+		return true;
 	}
 
 	/**
@@ -102,30 +640,850 @@ public class AppointmentService {
 	 * @return Returns true if the update was successful.
 	 */
 	public boolean updateAppointmentDescription(final String appointmentId, final String updateDescription) {
-		if (!appointmentExists(appointmentId)) {
+		return updateDescription(appointmentId, ANY_VERSION, updateDescription);
+	}
+
+	/**
+	 * Updates the description of a Appointment object based on a appointmentId,
+	 * only if it still has the expected version.
+	 *
+	 * The version is checked before the write lock is taken, so an update of an
+	 * Appointment object that has already changed fails at once instead of
+	 * waiting for other writers.
+	 *
+	 * @param appointmentId     The appointmentId that indicates the Appointment
+	 *                          object that should be updated.
+	 * @param expectedVersion   The version the Appointment object was read at. A
+	 *                          negative version never matches.
+	 * @param updateDescription The updated description of the Appointment
+	 *                          object.
+	 * @return Returns true if the update was successful, or false if the
+	 *         Appointment object has another version.
+	 */
+	public boolean updateAppointmentDescription(final String appointmentId, final long expectedVersion,
+			final String updateDescription) {
+		return expectedVersion >= 0 && updateDescription(appointmentId, expectedVersion, updateDescription);
+	}
+
+	/**
+	 * Updates the description of a Appointment object based on a appointmentId,
+	 * if it has the expected version; ANY_VERSION matches any version.
+	 */
+	private boolean updateDescription(final String appointmentId, final long expectedVersion,
+			final String updateDescription) {
+		if (!hasVersion(appointmentId, expectedVersion)) {
 			return false;
-		} else {
+		}
+		final long sequence;
+		synchronized (this.writeLock) {
+			final String[] previousDescription = new String[1];
+			final Appointment appointment = change(appointmentId, expectedVersion, current -> {
+				previousDescription[0] = current.getDescription();
+				current.setDescription(updateDescription);
+			});
+			if (appointment == null) {
+				return false;
+			}
+			this.descriptionIndex.replace(appointmentId, previousDescription[0], updateDescription);
+			sequence = logPut(appointment);
+		}
+		persist(appointmentId, sequence);
+		return true;
+	}
+
+	/**
+	 * Updates several fields of an Appointment object based on a appointmentId
+	 * in one change.
+	 *
+	 * @param appointmentId The appointmentId that indicates the Appointment object
+	 *                      that should be updated.
+	 * @param patch         The fields to update and their updated values.
+	 * @return Returns true if the update was successful.
+	 */
+	public boolean updateAppointment(final String appointmentId, final AppointmentPatch patch) {
+		return update(appointmentId, ANY_VERSION, patch);
+	}
+
+	/**
+	 * Updates several fields of an Appointment object based on a appointmentId
+	 * in one change, only if it still has the expected version.
+	 *
+	 * Every field is checked before the write lock is taken, and the update
+	 * fails without changing anything if any is not valid. The fields are then
+	 * set on one copy of the Appointment object stored in a single atomic map
+	 * operation with one journal record, so readers see either all of the
+	 * changes or none of them, and a new date and duration move the Appointment
+	 * object in the indexes once.
+	 *
+	 * @param appointmentId   The appointmentId that indicates the Appointment
+	 *                        object that should be updated.
+	 * @param expectedVersion The version the Appointment object was read at. A
+	 *                        negative version never matches.
+	 * @param patch           The fields to update and their updated values.
+	 * @return Returns true if the update was successful, or false if the patch
+	 *         is empty, a field is not valid or the Appointment object has
+	 *         another version.
+	 */
+	public boolean updateAppointment(final String appointmentId, final long expectedVersion,
+			final AppointmentPatch patch) {
+		return expectedVersion >= 0 && update(appointmentId, expectedVersion, patch);
+	}
+
+	/**
+	 * Updates several fields of an Appointment object based on a appointmentId in
+	 * one change, if it has the expected version; ANY_VERSION matches any
+	 * version.
+	 */
+	private boolean update(final String appointmentId, final long expectedVersion, final AppointmentPatch patch) {
+		if (patch == null || patch.isEmpty() || !hasVersion(appointmentId, expectedVersion)) {
+			return false;
+		}
+		try {
+			patch.validate();
+		} catch (NullFieldException | MinimumLengthNotMetException | MaximumLengthExceededException
+				| PastDateException e) {
+			return false;
+		}
+		final long sequence;
+		synchronized (this.writeLock) {
+			final Date[] previousDate = new Date[1];
+			final String[] previousDescription = new String[1];
+			final Appointment appointment = change(appointmentId, expectedVersion, current -> {
+				previousDate[0] = current.getAppointmentDate();
+				previousDescription[0] = current.getDescription();
+				patch.applyTo(current);
+			});
+			if (appointment == null) {
+				return false;
+			}
+			final Date date = appointment.getAppointmentDate();
+			if (!date.equals(previousDate[0])) {
+				indexDate(date, appointment.getDuration(), previousDate[0], appointmentId);
+			} else if (patch.changesBooking()) {
+				this.bookings.add(date.getTime(), end(date.getTime(), appointment.getDuration()), appointmentId);
+			}
+			if (patch.changesBusy()) {
+				indexBusy(appointment);
+			}
+			if (patch.getDescription() != null) {
+				this.descriptionIndex.replace(appointmentId, previousDescription[0], appointment.getDescription());
+			}
+			sequence = logPut(appointment);
+		}
+		persist(appointmentId, sequence);
+		return true;
+	}
+
+	/**
+	 * Gets the Appointment objects with an appointment date in a range. With a
+	 * date index only the index pages covering the range are read; without one
+	 * the in-memory index is read.
+	 *
+	 * @param from The start of the range, inclusive.
+	 * @param to   The end of the range, exclusive.
+	 * @return Returns the Appointment objects ordered by appointment date and then
+	 *         appointmentId.
+	 */
+	public List<Appointment> getAppointmentsBetween(final Date from, final Date to) {
+		final long fromMillis = from.getTime();
+		final long toMillis = to.getTime();
+		final List<Appointment> appointments = new ArrayList<>();
+		final BPlusTree index = this.dateIndex;
+		if (index == null) {
+			return findScheduled(fromMillis, toMillis, Integer.MAX_VALUE);
+		}
+		try {
+			for (final String appointmentId : index.range(fromMillis, toMillis)) {
+				final Appointment appointment = this.appointmentMap.get(appointmentId);
+				// Skips an Appointment deleted or moved after the index was read.
+				if (appointment != null && appointment.getAppointmentTime() >= fromMillis
+						&& appointment.getAppointmentTime() < toMillis) {
+					appointments.add(appointment);
+				}
+			}
+		} catch (IOException e) {
+			throw new PersistenceException("The date index could not be read.", e);
+		}
+		return appointments;
+	}
+
+	/**
+	 * Gets the Appointment objects on the same day as a date, in the default time
+	 * zone.
+	 *
+	 * @param day Any time on the day.
+	 * @return Returns the Appointment objects ordered by appointment date and then
+	 *         appointmentId.
+	 */
+	public List<Appointment> getAppointmentsOn(final Date day) {
+		final Calendar calendar = Calendar.getInstance();
+		calendar.setTime(day);
+		calendar.set(Calendar.HOUR_OF_DAY, 0);
+		calendar.set(Calendar.MINUTE, 0);
+		calendar.set(Calendar.SECOND, 0);
+		calendar.set(Calendar.MILLISECOND, 0);
+		final long fromMillis = calendar.getTimeInMillis();
+		calendar.add(Calendar.DAY_OF_MONTH, 1);
+		return findScheduled(fromMillis, calendar.getTimeInMillis(), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Gets the Appointment objects that overlap a length of time. An Appointment
+	 * object without a duration takes up only its appointment date, and one that
+	 * ends when the time starts does not overlap it.
+	 *
+	 * @param start    The start of the time.
+	 * @param duration The length of the time in milliseconds, or 0 for only the
+	 *                 start.
+	 * @return Returns the Appointment objects ordered by appointment date and then
+	 *         appointmentId.
+	 */
+	public List<Appointment> getOverlappingAppointments(final Date start, final long duration) {
+		final long from = start.getTime();
+		final long to = end(from, duration);
+		final List<Appointment> appointments = new ArrayList<>();
+		for (final String appointmentId : this.bookings.findOverlapping(from, to, Integer.MAX_VALUE)) {
 			final Appointment appointment = this.appointmentMap.get(appointmentId);
+			// Skips an Appointment deleted or moved after the index was read.
+			if (appointment != null && appointment.getAppointmentTime() < to
+					&& end(appointment.getAppointmentTime(), appointment.getDuration()) > from) {
+				appointments.add(appointment);
+			}
+		}
+		appointments.sort(BY_DATE);
+		return appointments;
+	}
+
+	/**
+	 * Checks whether no Appointment object of any owner overlaps a length of
+	 * time. The answer may be out of date as soon as it is returned; use
+	 * addAppointmentIfFree to book the time.
+	 *
+	 * @param start    The start of the time.
+	 * @param duration The length of the time in milliseconds, or 0 for only the
+	 *                 start.
+	 * @return Returns true if the time is free.
+	 */
+	public boolean isTimeFree(final Date start, final long duration) {
+		return !this.bookings.overlapsAny(start.getTime(), end(start.getTime(), duration));
+	}
+
+	/**
+	 * Finds the earliest time of a given length that no Appointment object of any
+	 * of a set of owners overlaps, such as the first free 30 minutes after a date
+	 * for everyone invited to a meeting. Times are found in whole slots of
+	 * FreeBusyIndex.SLOT_MILLIS, so the time found starts on a slot boundary and
+	 * a slot partly taken up by an Appointment object counts as taken. The
+	 * answer may be out of date as soon as it is returned; use
+	 * addAppointmentIfFree to book the time.
+	 *
+	 * @see FreeBusyIndex
+	 * @param owners   The owners.
+	 * @param after    The earliest start of the time.
+	 * @param duration The length of the time in milliseconds.
+	 * @param before   The latest end of the time.
+	 * @return Returns the start of the earliest free time, or null if there is
+	 *         none before the latest end.
+	 * @throws IllegalArgumentException Exception indicating the duration is
+	 *                                  negative or the search window is too long.
+	 */
+	public Date findFreeTime(final Collection<String> owners, final Date after, final long duration,
+			final Date before) {
+		if (duration < 0) {
+			throw new IllegalArgumentException("The duration cannot be negative.");
+		}
+		final Set<String> ownerSet = new HashSet<>(owners);
+		long from = after.getTime();
+		while (true) {
+			final long start = this.freeBusy.findFree(ownerSet, from, before.getTime(), duration);
+			if (start == Long.MIN_VALUE) {
+				return null;
+			}
+			// The index may lag a concurrent change, so the time is checked against the Appointment objects.
+			long conflictEnd = Long.MIN_VALUE;
+			for (final Appointment appointment : getOverlappingAppointments(new Date(start), duration)) {
+				if (ownerSet.contains(appointment.getOwner())) {
+					conflictEnd = Math.max(conflictEnd,
+							end(appointment.getAppointmentTime(), appointment.getDuration()));
+				}
+			}
+			if (conflictEnd == Long.MIN_VALUE) {
+				return new Date(start);
+			}
+			from = Math.max(conflictEnd, start + 1);
+		}
+	}
+
+	/**
+	 * Counts the Appointment objects on each of a number of days, in the default
+	 * time zone, without reading the Appointment objects.
+	 *
+	 * @param from Any time on the first day.
+	 * @param days The number of days.
+	 * @return Returns one count per day, starting with the day of from.
+	 */
+	public long[] countAppointmentsPerDay(final Date from, final int days) {
+		return this.dailyCounts.counts(from.getTime(), days);
+	}
+
+	/**
+	 * Gets the next Appointment objects from now on.
+	 *
+	 * @param count The maximum number of Appointment objects to return.
+	 * @return Returns the Appointment objects ordered by appointment date and then
+	 *         appointmentId.
+	 */
+	public List<Appointment> getNextAppointments(final int count) {
+		return findScheduled(System.currentTimeMillis(), Long.MAX_VALUE, count);
+	}
+
+	/**
+	 * Gets the Appointment objects whose description contains every word of a
+	 * query, ignoring case. The Appointment objects with the rarest of the words,
+	 * or the most of them, come first.
+	 *
+	 * @param keywords The words to find.
+	 * @param limit    The maximum number of Appointment objects to return.
+	 * @return Returns the matching Appointment objects, best match first.
+	 */
+	public List<Appointment> findAppointmentsMatchingAll(final String keywords, final int limit) {
+		final List<Appointment> appointments = new ArrayList<>();
+		for (final String appointmentId : this.descriptionIndex.findAll(keywords, limit)) {
+			final Appointment appointment = this.appointmentMap.get(appointmentId);
+			// Skips an Appointment deleted or changed after the index was read.
+			if (appointment != null && InvertedIndex.containsAll(appointment.getDescription(), keywords)) {
+				appointments.add(appointment);
+			}
+		}
+		return appointments;
+	}
+
+	/**
+	 * Gets the Appointment objects whose description contains any word of a
+	 * query, ignoring case. The Appointment objects with the most of the words,
+	 * or the rarest of them, come first.
+	 *
+	 * @param keywords The words to find.
+	 * @param limit    The maximum number of Appointment objects to return.
+	 * @return Returns the matching Appointment objects, best match first.
+	 */
+	public List<Appointment> findAppointmentsMatchingAny(final String keywords, final int limit) {
+		final List<Appointment> appointments = new ArrayList<>();
+		for (final String appointmentId : this.descriptionIndex.findAny(keywords, limit)) {
+			final Appointment appointment = this.appointmentMap.get(appointmentId);
+			// Skips an Appointment deleted or changed after the index was read.
+			if (appointment != null && InvertedIndex.containsAny(appointment.getDescription(), keywords)) {
+				appointments.add(appointment);
+			}
+		}
+		return appointments;
+	}
+
+	/**
+	 * Waits until every change made before this call is written to the journal.
+	 * Returns at once unless the service is in write-behind mode.
+	 */
+	public void flush() {
+		if (this.writeBehind == null) {
+			return;
+		}
+		try {
+			this.writeBehind.flush();
+		} catch (IOException e) {
+			throw new PersistenceException("The appointment changes could not be made durable.", e);
+		}
+	}
+
+	/**
+	 * Waits until the latest change to an Appointment object is written to the
+	 * journal. Returns at once unless the service is in write-behind mode.
+	 *
+	 * @param appointmentId The appointmentId of the changed Appointment object.
+	 */
+	public void awaitDurable(final String appointmentId) {
+		if (this.writeBehind == null) {
+			return;
+		}
+		try {
+			this.writeBehind.awaitDurable(appointmentId);
+		} catch (IOException e) {
+			throw new PersistenceException("The appointment change could not be made durable.", e);
+		}
+	}
+
+	/**
+	 * Replaces a stored Appointment object with a changed copy in one atomic
+	 * map operation, if it has the expected version. Must be called while
+	 * holding the write lock.
+	 *
+	 * @param appointmentId   The appointmentId of the Appointment object.
+	 * @param expectedVersion The version the Appointment object must have, or
+	 *                        ANY_VERSION for any version.
+	 * @param update          The change, made through the setters of a copy of
+	 *                        the Appointment object.
+	 * @return Returns the changed Appointment object, or null if it does not
+	 *         exist, has another version or a value is not valid.
+	 */
+	private Appointment change(final String appointmentId, final long expectedVersion,
+			final FieldUpdate<Appointment> update) {
+		final boolean[] valid = new boolean[1];
+		final Appointment appointment = this.appointmentMap.computeIfPresent(appointmentId, (id, current) -> {
+			if (expectedVersion != ANY_VERSION && current.getVersion() != expectedVersion) {
+				return current;
+			}
+			this.changes.beforeChange(id);
+			// Readers holding the current Appointment never see it change.
+			final Appointment changed = current.copy();
 			try {
-				appointment.setDescription(updateDescription);
-				return true;
-			} catch (NullFieldException | MinimumLengthNotMetException | MaximumLengthExceededException e) {
-				return false;
+				update.apply(changed);
+			} catch (NullFieldException | MinimumLengthNotMetException | MaximumLengthExceededException
+					| PastDateException e) {
+				return current;
 			}
+			valid[0] = true;
+			return changed.freeze();
+		});
+		if (appointment == null || !valid[0]) {
+			return null;
 		}
+		this.changes.changed(appointmentId);
+		return appointment;
 	}
 
 	/**
-	 * Searches for an existing Appointment object based on a appointmentId.
+	 * Removes a stored Appointment object in one atomic map operation, if it
+	 * has the expected version. Must be called while holding the write lock.
 	 *
-	 * @param appointmentId The appointmentId being searched for.
-	 * @return Returns true if the contact exists.
+	 * @param appointmentId   The appointmentId of the Appointment object.
+	 * @param expectedVersion The version the Appointment object must have, or
+	 *                        ANY_VERSION for any version.
+	 * @return Returns the removed Appointment object, or null if it does not
+	 *         exist or has another version.
 	 */
-	private boolean appointmentExists(final String appointmentId) {
-		if (this.appointmentMap.containsKey(appointmentId)) {
+	private Appointment remove(final String appointmentId, final long expectedVersion) {
+		final Appointment[] removed = new Appointment[1];
+		if (expectedVersion == ANY_VERSION) {
+			removed[0] = this.appointmentMap.remove(appointmentId);
+		} else {
+			this.appointmentMap.computeIfPresent(appointmentId, (id, current) -> {
+				if (current.getVersion() != expectedVersion) {
+					return current;
+				}
+				removed[0] = current;
+				return null;
+			});
+		}
+		if (removed[0] != null) {
+			this.firstVersion = Math.max(this.firstVersion, removed[0].getVersion() + 1);
+		}
+		return removed[0];
+	}
+
+	/**
+	 * Checks the version of a Appointment object without taking the write lock,
+	 * so that a conditional update or delete of a Appointment object that has
+	 * already changed fails at once. The version is checked again under the
+	 * write lock.
+	 *
+	 * @param appointmentId   The appointmentId of the Appointment object.
+	 * @param expectedVersion The version the Appointment object must have, or
+	 *                        ANY_VERSION for any version.
+	 * @return Returns true if the Appointment object exists with the expected
+	 *         version or any version is expected.
+	 */
+	private boolean hasVersion(final String appointmentId, final long expectedVersion) {
+		if (expectedVersion == ANY_VERSION) {
 			return true;
+		}
+		final Appointment appointment = this.appointmentMap.get(appointmentId);
+		return appointment != null && appointment.getVersion() == expectedVersion;
+	}
+
+	/**
+	 * Gets an Appointment object based on an appointmentId.
+	 *
+	 * @param appointmentId The appointmentId being searched for.
+	 * @return Returns the Appointment object, or null if it does not exist.
+	 */
+	Appointment getAppointment(final String appointmentId) {
+		return this.appointmentMap.get(appointmentId);
+	}
+
+	/**
+	 * Gets the version of an Appointment object, to pass to a later conditional
+	 * update or delete.
+	 *
+	 * @param appointmentId The appointmentId being searched for.
+	 * @return Returns the version, or -1 if the Appointment object does not
+	 *         exist.
+	 */
+	public long getAppointmentVersion(final String appointmentId) {
+		final Appointment appointment = this.appointmentMap.get(appointmentId);
+		return appointment == null ? -1 : appointment.getVersion();
+	}
+
+	/**
+	 * Starts keeping the versions of the Appointment objects that open snapshots still
+	 * need, published with a clock shared with the other services.
+	 *
+	 * @param clock The clock the versions are published with.
+	 * @return Returns the version history of the Appointment objects.
+	 */
+	VersionHistory<Appointment> keepVersions(final VersionClock clock) {
+		synchronized (this.writeLock) {
+			return this.changes.keepVersions(clock);
+		}
+	}
+
+	/**
+	 * Gets the lock writers hold while they change the Appointment objects, which a
+	 * Transaction holds while it commits.
+	 *
+	 * @return Returns the write lock.
+	 */
+	Object getWriteLock() {
+		return this.writeLock;
+	}
+
+	/**
+	 * Copies an added Appointment object to store, frozen and above the version
+	 * of every deleted one. Must be called while holding the write lock.
+	 *
+	 * @param appointment The added Appointment object.
+	 * @return Returns the copy to store.
+	 */
+	Appointment copyToStore(final Appointment appointment) {
+		return appointment.storedCopy(Math.max(appointment.getVersion(), this.firstVersion));
+	}
+
+	/**
+	 * Stores an Appointment object in place of the stored one, or deletes the
+	 * stored one, for a Transaction that holds the write lock. The indexes
+	 * follow the change as they do for the update methods, moving a changed date
+	 * in one step, and the journal records it, but nothing waits for the disk or
+	 * the write-behind queue; the Transaction calls persist once it has released
+	 * the write lock.
+	 *
+	 * @param appointmentId The appointmentId of the Appointment object.
+	 * @param appointment   The frozen Appointment object to store, or null to
+	 *                      delete the stored one.
+	 * @return Returns the sequence number of the journal record.
+	 */
+	long store(final String appointmentId, final Appointment appointment) {
+		this.changes.beforeChange(appointmentId);
+		if (appointment == null) {
+			final Appointment removed = remove(appointmentId, ANY_VERSION);
+			this.changes.changed(appointmentId);
+			if (removed != null) {
+				indexDate(null, 0, removed.getAppointmentDate(), appointmentId);
+				this.freeBusy.remove(appointmentId);
+				this.descriptionIndex.remove(appointmentId, removed.getDescription());
+			}
+			return logDelete(appointmentId);
+		}
+		final Appointment previous = this.appointmentMap.put(appointmentId, appointment);
+		this.changes.changed(appointmentId);
+		final Date date = appointment.getAppointmentDate();
+		if (previous == null) {
+			indexDate(date, appointment.getDuration(), null, appointmentId);
+			this.descriptionIndex.add(appointmentId, appointment.getDescription());
 		} else {
-			return false;
+			if (!date.equals(previous.getAppointmentDate())) {
+				indexDate(date, appointment.getDuration(), previous.getAppointmentDate(), appointmentId);
+			} else if (appointment.getDuration() != previous.getDuration()) {
+				this.bookings.add(date.getTime(), end(date.getTime(), appointment.getDuration()), appointmentId);
+			}
+			this.descriptionIndex.replace(appointmentId, previous.getDescription(), appointment.getDescription());
+		}
+		indexBusy(appointment);
+		return logPut(appointment);
+	}
+
+	/**
+	 * Streams every Appointment object. The stream is weakly consistent and does not
+	 * block writers; see the class description for what it sees of concurrent
+	 * changes.
+	 *
+	 * @return Returns a sequential stream of the Appointment objects.
+	 */
+	public Stream<Appointment> stream() {
+		return StreamSupport.stream(RecordSpliterator.over(this.appointmentMap), false);
+	}
+
+	/**
+	 * Streams every Appointment object on the common fork-join pool. The Appointment objects
+	 * are split over the storage, so a full scan runs on every core.
+	 *
+	 * @return Returns a parallel stream of the Appointment objects.
+	 * @see #stream()
+	 */
+	public Stream<Appointment> parallelStream() {
+		return StreamSupport.stream(RecordSpliterator.over(this.appointmentMap), true);
+	}
+
+	/**
+	 * Streams a full backup of the Appointment objects into a file. The backup holds
+	 * the Appointment objects as they were when it started; writers are not paused
+	 * while it is written.
+	 *
+	 * @param backupFile The backup file, replaced if it exists.
+	 * @throws IOException Exception indicating the backup could not be written.
+	 */
+	public void backup(final Path backupFile) throws IOException {
+		this.changes.backup(backupFile, null);
+	}
+
+	/**
+	 * Streams an incremental backup of the Appointment objects added, updated or
+	 * deleted since an earlier backup into a file. The earlier backup must have
+	 * been taken since the service was last started, and no earlier than the
+	 * last full backup.
+	 *
+	 * @param backupFile     The backup file, replaced if it exists.
+	 * @param previousBackup The full or incremental backup this one follows.
+	 * @throws IOException Exception indicating the backup could not be written,
+	 *                     or the previous backup is too old.
+	 */
+	public void backupChangesSince(final Path backupFile, final Path previousBackup) throws IOException {
+		this.changes.backup(backupFile, previousBackup);
+	}
+
+	/**
+	 * Writes a snapshot of the Appointment objects so that the log it covers can
+	 * be deleted. Does nothing when the service is only kept in memory.
+	 *
+	 * @throws IOException Exception indicating the snapshot could not be written.
+	 */
+	void checkpoint() throws IOException {
+		if (this.journal != null) {
+			this.journal.checkpoint();
+		}
+	}
+
+	/**
+	 * Opens the date index, rebuilding it from the Appointment objects if it was
+	 * not closed cleanly, and closes any index opened before.
+	 *
+	 * @param indexFile The index file.
+	 * @throws IOException Exception indicating the index could not be opened.
+	 */
+	void openDateIndex(final Path indexFile) throws IOException {
+		synchronized (this.writeLock) {
+			final BPlusTree index = new BPlusTree(indexFile, Appointment.APPOINTMENT_ID_MAX_CHAR_LENGTH,
+					BPlusTree.DEFAULT_POOL_PAGES);
+			if (!index.wasClosedCleanly()) {
+				final List<Map.Entry<Long, String>> keys = new ArrayList<>();
+				for (final Appointment appointment : this.appointmentMap.values()) {
+					keys.add(new AbstractMap.SimpleImmutableEntry<>(appointment.getAppointmentTime(),
+							appointment.getAppointmentId()));
+				}
+				keys.sort(Map.Entry.<Long, String>comparingByKey().thenComparing(Map.Entry.comparingByValue()));
+				index.rebuild(keys.iterator());
+			}
+			final BPlusTree previous = this.dateIndex;
+			this.dateIndex = index;
+			if (previous != null) {
+				previous.close();
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of date index pages read from disk, for benchmarks.
+	 *
+	 * @return Returns the number of page reads, or 0 without a date index.
+	 */
+	long getDateIndexPageReads() {
+		final BPlusTree index = this.dateIndex;
+		return index == null ? 0 : index.getPageReads();
+	}
+
+	/**
+	 * Flushes and closes the write-behind queue, the journal and the date index,
+	 * if there are any.
+	 *
+	 * @throws IOException Exception indicating the journal could not be written.
+	 */
+	void close() throws IOException {
+		if (this.writeBehind != null) {
+			this.writeBehind.close();
+		}
+		if (this.journal != null) {
+			this.journal.close();
+		}
+		if (this.dateIndex != null) {
+			this.dateIndex.close();
+		}
+	}
+
+	/**
+	 * Moves an Appointment object in the in-memory index and in the date index, if
+	 * there is one. Must be called while holding the write lock.
+	 *
+	 * @param date          The new appointment date, or null if it was deleted.
+	 * @param duration      The duration of the Appointment object.
+	 * @param previousDate  The previous appointment date, or null if it was added.
+	 * @param appointmentId The appointmentId of the Appointment object.
+	 */
+	private void indexDate(final Date date, final long duration, final Date previousDate,
+			final String appointmentId) {
+		if (previousDate == null) {
+			this.schedule.add(date.getTime(), appointmentId);
+			this.dailyCounts.add(date.getTime());
+			this.bookings.add(date.getTime(), end(date.getTime(), duration), appointmentId);
+		} else if (date == null) {
+			this.schedule.remove(previousDate.getTime(), appointmentId);
+			this.dailyCounts.remove(previousDate.getTime());
+			this.bookings.remove(previousDate.getTime(), appointmentId);
+		} else {
+			this.schedule.move(previousDate.getTime(), date.getTime(), appointmentId);
+			this.dailyCounts.move(previousDate.getTime(), date.getTime());
+			this.bookings.move(previousDate.getTime(), date.getTime(), end(date.getTime(), duration), appointmentId);
+		}
+		final BPlusTree index = this.dateIndex;
+		if (index == null) {
+			return;
+		}
+		try {
+			if (previousDate == null) {
+				index.insert(date.getTime(), appointmentId);
+			} else if (date == null) {
+				index.delete(previousDate.getTime(), appointmentId);
+			} else {
+				index.move(previousDate.getTime(), date.getTime(), appointmentId);
+			}
+		} catch (IOException e) {
+			throw new PersistenceException("The date index could not be updated.", e);
+		}
+	}
+
+	/**
+	 * Marks the time an Appointment object takes up busy for its owner, or clears
+	 * it if the Appointment object has no owner. Must be called while holding the
+	 * write lock.
+	 *
+	 * @param appointment The Appointment object.
+	 */
+	private void indexBusy(final Appointment appointment) {
+		final long start = appointment.getAppointmentTime();
+		this.freeBusy.put(appointment.getAppointmentId(), appointment.getOwner(), start,
+				end(start, appointment.getDuration()));
+	}
+
+	/**
+	 * Gets the end of the time an Appointment object takes up. One without a
+	 * duration takes up the millisecond of its appointment date.
+	 *
+	 * @param start    The appointment date, in milliseconds.
+	 * @param duration The duration, in milliseconds.
+	 * @return Returns the end of the time, exclusive.
+	 */
+	private static long end(final long start, final long duration) {
+		final long end = start + Math.max(1, duration);
+		return end < start ? Long.MAX_VALUE : end;
+	}
+
+	/**
+	 * Gets the Appointment objects the in-memory index holds in a range of
+	 * appointment dates.
+	 *
+	 * @param fromMillis The start of the range, inclusive.
+	 * @param toMillis   The end of the range, exclusive.
+	 * @param limit      The maximum number of Appointment objects to return.
+	 * @return Returns the Appointment objects ordered by appointment date and then
+	 *         appointmentId.
+	 */
+	private List<Appointment> findScheduled(final long fromMillis, final long toMillis, final int limit) {
+		final List<Appointment> appointments = new ArrayList<>();
+		for (final String appointmentId : this.schedule.find(fromMillis, toMillis, limit)) {
+			final Appointment appointment = this.appointmentMap.get(appointmentId);
+			// Skips an Appointment deleted or moved out of the range after the index was read.
+			if (appointment != null && appointment.getAppointmentTime() >= fromMillis
+					&& appointment.getAppointmentTime() < toMillis) {
+				appointments.add(appointment);
+			}
+		}
+		// An Appointment moved within the range after the index was read is out of order.
+		appointments.sort(BY_DATE);
+		return appointments;
+	}
+
+	/**
+	 * Indexes the appointment dates and descriptions of the Appointment objects
+	 * already in the map.
+	 */
+	private void indexAppointments() {
+		for (final Appointment appointment : this.appointmentMap.values()) {
+			this.schedule.add(appointment.getAppointmentTime(), appointment.getAppointmentId());
+			this.dailyCounts.add(appointment.getAppointmentTime());
+			final long start = appointment.getAppointmentTime();
+			this.bookings.add(start, end(start, appointment.getDuration()), appointment.getAppointmentId());
+			indexBusy(appointment);
+			this.descriptionIndex.add(appointment.getAppointmentId(), appointment.getDescription());
+		}
+	}
+
+	/**
+	 * Writes a batch of changed Appointment objects to the journal in write-behind
+	 * mode. Runs on the WriteBehindQueue thread.
+	 *
+	 * @param appointmentIds The appointmentIds of the changed Appointment objects.
+	 * @throws IOException Exception indicating the batch could not be written.
+	 */
+	private void writeBatch(final List<String> appointmentIds) throws IOException {
+		long sequence = 0;
+		// Holding the write lock keeps the records in the same order as the map changes.
+		synchronized (this.writeLock) {
+			for (final String appointmentId : appointmentIds) {
+				final Appointment appointment = this.appointmentMap.get(appointmentId);
+				sequence = appointment == null ? this.journal.logDelete(appointmentId)
+						: this.journal.logPut(appointmentId, appointment);
+			}
+		}
+		this.journal.sync(sequence);
+	}
+
+	/**
+	 * Records the current state of an Appointment object in the journal.
+	 *
+	 * @param appointment The Appointment object that was added or updated.
+	 * @return Returns the sequence number of the journal record, or 0 when there
+	 *         is no journal or the change is written behind.
+	 */
+	private long logPut(final Appointment appointment) {
+		return this.journal == null || this.writeBehind != null ? 0
+				: this.journal.logPut(appointment.getAppointmentId(), appointment);
+	}
+
+	/**
+	 * Records the deletion of an Appointment object in the journal.
+	 *
+	 * @param appointmentId The appointmentId of the deleted Appointment object.
+	 * @return Returns the sequence number of the journal record, or 0 when there
+	 *         is no journal or the change is written behind.
+	 */
+	private long logDelete(final String appointmentId) {
+		return this.journal == null || this.writeBehind != null ? 0 : this.journal.logDelete(appointmentId);
+	}
+
+	/**
+	 * Makes a change durable. Blocks until its journal record is on disk, or in
+	 * write-behind mode queues the Appointment object for the background writer,
+	 * blocking only while the queue is full. Writers release the write lock
+	 * before calling this so that concurrent changes share one fsync.
+	 *
+	 * @param appointmentId The appointmentId of the changed Appointment object.
+	 * @param sequence      The sequence number of the journal record.
+	 */
+	void persist(final String appointmentId, final long sequence) {
+		try {
+			if (this.writeBehind != null) {
+				this.writeBehind.enqueue(appointmentId);
+			} else if (this.journal != null) {
+				this.journal.sync(sequence);
+			}
+		} catch (IOException e) {
+			throw new PersistenceException("The appointment change could not be made durable.", e);
 		}
 	}
 
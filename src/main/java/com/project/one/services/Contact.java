@@ -6,7 +6,12 @@ import com.project.one.exceptions.NullFieldException;
 import com.project.one.utils.ProjectUtils;
 
 /**
- * This class is a container for contact related information.
+ * This class is a container for contact related information. The services
+ * store a copy of an added Contact and never change a stored Contact; an
+ * update stores a changed copy in its place, so a Contact read from a service
+ * does not change while it is being read. The setters of a stored Contact
+ * throw an UnsupportedOperationException, so it can only be changed through
+ * the service.
  *
  * @author Ben
  */
@@ -42,6 +47,8 @@ public class Contact {
 	private String lastName;
 	private String phoneNumber;
 	private String address;
+	private long version;
+	private boolean frozen;
 
 	/**
 	 * Constructor.
@@ -72,6 +79,52 @@ public class Contact {
 		setAddress(address);
 	}
 
+	/**
+	 * Copy constructor used by copy and storedCopy.
+	 *
+	 * @param contact The Contact to copy.
+	 * @param version The version of the copy.
+	 */
+	private Contact(final Contact contact, final long version) {
+		this.contactId = contact.contactId;
+		this.firstName = contact.firstName;
+		this.lastName = contact.lastName;
+		this.phoneNumber = contact.phoneNumber;
+		this.address = contact.address;
+		this.version = version;
+	}
+
+	/**
+	 * Copies the Contact as its next version, so that a service can change the
+	 * copy and store it in place of the Contact.
+	 *
+	 * @return Returns a Contact with the same fields and the next version.
+	 */
+	Contact copy() {
+		return new Contact(this, this.version + 1);
+	}
+
+	/**
+	 * Copies the Contact for a service to store in place of the one it was
+	 * given, so the caller cannot change the stored Contact through its own.
+	 *
+	 * @param version The version of the copy.
+	 * @return Returns a frozen Contact with the same fields.
+	 */
+	Contact storedCopy(final long version) {
+		return new Contact(this, version).freeze();
+	}
+
+	/**
+	 * Stops the setters from changing the Contact, once a service stores it.
+	 *
+	 * @return Returns the Contact.
+	 */
+	Contact freeze() {
+		this.frozen = true;
+		return this;
+	}
+
 	/**
 	 * Gets the firstName field.
 	 *
@@ -96,6 +149,7 @@ public class Contact {
 	 */
 	public void setFirstName(final String firstName)
 			throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		checkNotFrozen();
 		if (ProjectUtils.validStringField("first name", firstName, MIN_CHAR_LENGTH, FIRST_NAME_MAX_CHAR_LENGTH)) {
 			this.firstName = firstName;
 		}
@@ -125,6 +179,7 @@ public class Contact {
 	 */
 	public void setLastName(final String lastName)
 			throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		checkNotFrozen();
 		if (ProjectUtils.validStringField("last name", lastName, MIN_CHAR_LENGTH, LAST_NAME_MAX_CHAR_LENGTH)) {
 			this.lastName = lastName;
 		}
@@ -154,6 +209,7 @@ public class Contact {
 	 */
 	public void setPhoneNumber(final String phoneNumber)
 			throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		checkNotFrozen();
 		if (ProjectUtils.validStringField("phone number", phoneNumber, MIN_CHAR_LENGTH, PHONE_MAX_CHAR_LENGTH)) {
 			this.phoneNumber = phoneNumber;
 		}
@@ -183,11 +239,42 @@ public class Contact {
 	 */
 	public void setAddress(final String address)
 			throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		checkNotFrozen();
 		if (ProjectUtils.validStringField("address", address, MIN_CHAR_LENGTH, ADDRESS_MAX_CHAR_LENGTH)) {
 			this.address = address;
 		}
 	}
 
+	/**
+	 * Gets the version. A new Contact has version 0, and every update made through
+	 * a service stores a copy with the next version. A service stores an added
+	 * Contact above the version of every Contact it has deleted, so a Contact
+	 * deleted and added again never repeats a version. The conditional updates and
+	 * deletes of the services compare it to catch changes made since the Contact
+	 * was read.
+	 *
+	 * @return Returns the version.
+	 */
+	public long getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * Sets the version of a Contact read back from storage.
+	 *
+	 * @param version The stored version.
+	 */
+	void setVersion(final long version) {
+		this.version = version;
+	}
+
+	private void checkNotFrozen() {
+		if (this.frozen) {
+			throw new UnsupportedOperationException(
+					"A stored Contact cannot be changed; update it through the service.");
+		}
+	}
+
 	/**
 	 * Gets the contactId field.
 	 *
@@ -0,0 +1,93 @@
+package com.project.one.services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.project.one.exceptions.MaximumLengthExceededException;
+import com.project.one.exceptions.MinimumLengthNotMetException;
+import com.project.one.exceptions.NullFieldException;
+import com.project.one.persistence.BinaryCodec;
+import com.project.one.persistence.BinaryFields;
+
+/**
+ * This class is a singleton BinaryCodec for Contact objects.
+ *
+ * Version 1 layout: the version byte, a flags byte with one bit per string
+ * field set when the field is UTF-8, the contactId, firstName, lastName,
+ * phoneNumber and address as BinaryFields strings, then the version of the
+ * Contact in a long.
+ *
+ * @see Contact
+ * @see BinaryFields
+ * @author Ben
+ */
+public class ContactCodec implements BinaryCodec<Contact> {
+
+	/**
+	 * The format version written by encode.
+	 */
+	public static final byte VERSION = 1;
+
+	private static final ContactCodec INSTANCE = new ContactCodec();
+
+	/**
+	 * Private Constructor.
+	 */
+	private ContactCodec() {
+	}
+
+	/**
+	 * Gets the only instance of ContactCodec.
+	 *
+	 * @return Returns the only instance of ContactCodec.
+	 */
+	public static ContactCodec getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public void encode(final Contact contact, final ByteBuffer buffer) {
+		buffer.put(VERSION);
+		final int flagsPosition = buffer.position();
+		buffer.put((byte) 0);
+		int flags = 0;
+		flags |= BinaryFields.putString(buffer, contact.getContactId()) ? 1 : 0;
+		flags |= BinaryFields.putString(buffer, contact.getFirstName()) ? 1 << 1 : 0;
+		flags |= BinaryFields.putString(buffer, contact.getLastName()) ? 1 << 2 : 0;
+		flags |= BinaryFields.putString(buffer, contact.getPhoneNumber()) ? 1 << 3 : 0;
+		flags |= BinaryFields.putString(buffer, contact.getAddress()) ? 1 << 4 : 0;
+		buffer.put(flagsPosition, (byte) flags);
+		buffer.putLong(contact.getVersion());
+	}
+
+	@Override
+	public Contact decode(final ByteBuffer buffer) throws IOException {
+		BinaryFields.checkVersion(buffer, VERSION);
+		final int flags = buffer.get();
+		final Contact contact;
+		try {
+			contact = new Contact(BinaryFields.getString(buffer, (flags & 1) != 0),
+					BinaryFields.getString(buffer, (flags & 1 << 1) != 0),
+					BinaryFields.getString(buffer, (flags & 1 << 2) != 0),
+					BinaryFields.getString(buffer, (flags & 1 << 3) != 0),
+					BinaryFields.getString(buffer, (flags & 1 << 4) != 0));
+		} catch (NullFieldException | MinimumLengthNotMetException | MaximumLengthExceededException e) {
+			throw new IOException("The encoded contact is not valid.", e);
+		}
+		if (buffer.remaining() < Long.BYTES) {
+			throw new IOException("The record ends inside a field.");
+		}
+		contact.setVersion(buffer.getLong());
+		return contact.freeze();
+	}
+
+	@Override
+	public int getMaxLength() {
+		return 2 + BinaryFields.maxLength(Contact.CONTACT_ID_MAX_CHAR_LENGTH)
+				+ BinaryFields.maxLength(Contact.FIRST_NAME_MAX_CHAR_LENGTH)
+				+ BinaryFields.maxLength(Contact.LAST_NAME_MAX_CHAR_LENGTH)
+				+ BinaryFields.maxLength(Contact.PHONE_MAX_CHAR_LENGTH)
+				+ BinaryFields.maxLength(Contact.ADDRESS_MAX_CHAR_LENGTH) + Long.BYTES;
+	}
+
+}
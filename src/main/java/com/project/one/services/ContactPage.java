@@ -0,0 +1,56 @@
+package com.project.one.services;
+
+import java.util.List;
+
+/**
+ * This class is one page of the Contact objects matching a ContactQuery, and
+ * the cursor that fetches the page after it.
+ *
+ * @see ContactService
+ * @see ContactQuery
+ * @author Ben
+ */
+public final class ContactPage {
+
+	private final List<Contact> contacts;
+	private final String nextCursor;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param contacts   The Contact objects on the page.
+	 * @param nextCursor The cursor of the next page, or null on the last page.
+	 */
+	ContactPage(final List<Contact> contacts, final String nextCursor) {
+		this.contacts = List.copyOf(contacts);
+		this.nextCursor = nextCursor;
+	}
+
+	/**
+	 * Gets the Contact objects on the page.
+	 *
+	 * @return Returns the Contact objects, in query order.
+	 */
+	public List<Contact> getContacts() {
+		return this.contacts;
+	}
+
+	/**
+	 * Gets the cursor to pass to ContactService.findContacts for the next page.
+	 *
+	 * @return Returns the cursor, or null if this is the last page.
+	 */
+	public String getNextCursor() {
+		return this.nextCursor;
+	}
+
+	/**
+	 * Checks whether there is a page after this one.
+	 *
+	 * @return Returns true if getNextCursor returns a cursor.
+	 */
+	public boolean hasNextPage() {
+		return this.nextCursor != null;
+	}
+
+}
@@ -0,0 +1,183 @@
+package com.project.one.services;
+
+import com.project.one.exceptions.MaximumLengthExceededException;
+import com.project.one.exceptions.MinimumLengthNotMetException;
+import com.project.one.exceptions.NullFieldException;
+import com.project.one.utils.ProjectUtils;
+
+/**
+ * This class describes the changes ContactService.updateContact makes to one
+ * Contact object. A patch starts from none, which changes nothing, and each
+ * field set adds a change; the fields left unset keep their values. A patch is
+ * immutable, so one patch can be shared and extended. A field set to a NULL
+ * value is rejected with an IllegalArgumentException; a value that is too
+ * short or too long is accepted here and makes the update fail.
+ *
+ * @see ContactService
+ * @author Ben
+ */
+public final class ContactPatch {
+
+	private static final ContactPatch NONE = new ContactPatch(null, null, null, null);
+
+	private final String firstName;
+	private final String lastName;
+	private final String phoneNumber;
+	private final String address;
+
+	private ContactPatch(final String firstName, final String lastName, final String phoneNumber,
+			final String address) {
+		this.firstName = firstName;
+		this.lastName = lastName;
+		this.phoneNumber = phoneNumber;
+		this.address = address;
+	}
+
+	/**
+	 * Gets the patch that changes nothing.
+	 *
+	 * @return Returns the patch.
+	 */
+	public static ContactPatch none() {
+		return NONE;
+	}
+
+	/**
+	 * Adds a change of the first name to the patch.
+	 *
+	 * @param firstName The new first name.
+	 * @return Returns the extended patch.
+	 */
+	public ContactPatch firstName(final String firstName) {
+		return new ContactPatch(checkValue(firstName), this.lastName, this.phoneNumber, this.address);
+	}
+
+	/**
+	 * Adds a change of the last name to the patch.
+	 *
+	 * @param lastName The new last name.
+	 * @return Returns the extended patch.
+	 */
+	public ContactPatch lastName(final String lastName) {
+		return new ContactPatch(this.firstName, checkValue(lastName), this.phoneNumber, this.address);
+	}
+
+	/**
+	 * Adds a change of the phone number to the patch.
+	 *
+	 * @param phoneNumber The new phone number.
+	 * @return Returns the extended patch.
+	 */
+	public ContactPatch phoneNumber(final String phoneNumber) {
+		return new ContactPatch(this.firstName, this.lastName, checkValue(phoneNumber), this.address);
+	}
+
+	/**
+	 * Adds a change of the address to the patch.
+	 *
+	 * @param address The new address.
+	 * @return Returns the extended patch.
+	 */
+	public ContactPatch address(final String address) {
+		return new ContactPatch(this.firstName, this.lastName, this.phoneNumber, checkValue(address));
+	}
+
+	/**
+	 * Gets the new first name.
+	 *
+	 * @return Returns the first name, or null if the patch does not change it.
+	 */
+	String getFirstName() {
+		return this.firstName;
+	}
+
+	/**
+	 * Gets the new last name.
+	 *
+	 * @return Returns the last name, or null if the patch does not change it.
+	 */
+	String getLastName() {
+		return this.lastName;
+	}
+
+	/**
+	 * Gets the new phone number.
+	 *
+	 * @return Returns the phone number, or null if the patch does not change it.
+	 */
+	String getPhoneNumber() {
+		return this.phoneNumber;
+	}
+
+	/**
+	 * Checks whether the patch changes nothing.
+	 *
+	 * @return Returns true if no field is set.
+	 */
+	boolean isEmpty() {
+		return this.firstName == null && this.lastName == null && this.phoneNumber == null && this.address == null;
+	}
+
+	/**
+	 * Checks every field set against the limits of a Contact, without changing
+	 * any Contact.
+	 *
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	void validate() throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		if (this.firstName != null) {
+			ProjectUtils.validStringField("first name", this.firstName, Contact.MIN_CHAR_LENGTH,
+					Contact.FIRST_NAME_MAX_CHAR_LENGTH);
+		}
+		if (this.lastName != null) {
+			ProjectUtils.validStringField("last name", this.lastName, Contact.MIN_CHAR_LENGTH,
+					Contact.LAST_NAME_MAX_CHAR_LENGTH);
+		}
+		if (this.phoneNumber != null) {
+			ProjectUtils.validStringField("phone number", this.phoneNumber, Contact.MIN_CHAR_LENGTH,
+					Contact.PHONE_MAX_CHAR_LENGTH);
+		}
+		if (this.address != null) {
+			ProjectUtils.validStringField("address", this.address, Contact.MIN_CHAR_LENGTH,
+					Contact.ADDRESS_MAX_CHAR_LENGTH);
+		}
+	}
+
+	/**
+	 * Sets every field set in the patch on a Contact.
+	 *
+	 * @param contact The Contact to change.
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	void applyTo(final Contact contact)
+			throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		if (this.firstName != null) {
+			contact.setFirstName(this.firstName);
+		}
+		if (this.lastName != null) {
+			contact.setLastName(this.lastName);
+		}
+		if (this.phoneNumber != null) {
+			contact.setPhoneNumber(this.phoneNumber);
+		}
+		if (this.address != null) {
+			contact.setAddress(this.address);
+		}
+	}
+
+	private static String checkValue(final String value) {
+		if (value == null) {
+			throw new IllegalArgumentException("A patch value cannot be NULL.");
+		}
+		return value;
+	}
+
+}
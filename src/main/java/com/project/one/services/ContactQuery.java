@@ -0,0 +1,203 @@
+package com.project.one.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * This class describes which Contact objects ContactService.findContacts
+ * returns. A query starts from all, which matches every Contact object, and
+ * each condition added narrows it; a Contact object must meet every condition.
+ * Names and addresses are compared ignoring case, and phone numbers by their
+ * digits only. A query is immutable, so one query can be shared and extended.
+ * A condition with a NULL value is rejected with an IllegalArgumentException.
+ *
+ * @see ContactService
+ * @see ContactPage
+ * @author Ben
+ */
+public final class ContactQuery {
+
+	/**
+	 * The fields a condition can test.
+	 */
+	enum Field {
+		FIRST_NAME, LAST_NAME, PHONE_NUMBER, ADDRESS
+	}
+
+	/**
+	 * The ways a condition can compare a field with its value.
+	 */
+	enum Operator {
+		EQUALS, STARTS_WITH, CONTAINS
+	}
+
+	private static final ContactQuery ALL = new ContactQuery(Collections.emptyList());
+
+	private final List<Condition> conditions;
+
+	private ContactQuery(final List<Condition> conditions) {
+		this.conditions = conditions;
+	}
+
+	/**
+	 * Gets the query matching every Contact object.
+	 *
+	 * @return Returns the query.
+	 */
+	public static ContactQuery all() {
+		return ALL;
+	}
+
+	/**
+	 * Narrows the query to the Contact objects with a first name.
+	 *
+	 * @param firstName The first name.
+	 * @return Returns the narrowed query.
+	 */
+	public ContactQuery firstNameEquals(final String firstName) {
+		return and(Field.FIRST_NAME, Operator.EQUALS, firstName);
+	}
+
+	/**
+	 * Narrows the query to the Contact objects whose first name starts with a
+	 * prefix.
+	 *
+	 * @param prefix The prefix.
+	 * @return Returns the narrowed query.
+	 */
+	public ContactQuery firstNameStartsWith(final String prefix) {
+		return and(Field.FIRST_NAME, Operator.STARTS_WITH, prefix);
+	}
+
+	/**
+	 * Narrows the query to the Contact objects with a last name.
+	 *
+	 * @param lastName The last name.
+	 * @return Returns the narrowed query.
+	 */
+	public ContactQuery lastNameEquals(final String lastName) {
+		return and(Field.LAST_NAME, Operator.EQUALS, lastName);
+	}
+
+	/**
+	 * Narrows the query to the Contact objects whose last name starts with a
+	 * prefix.
+	 *
+	 * @param prefix The prefix.
+	 * @return Returns the narrowed query.
+	 */
+	public ContactQuery lastNameStartsWith(final String prefix) {
+		return and(Field.LAST_NAME, Operator.STARTS_WITH, prefix);
+	}
+
+	/**
+	 * Narrows the query to the Contact objects with a phone number.
+	 *
+	 * @param phoneNumber The phone number.
+	 * @return Returns the narrowed query.
+	 */
+	public ContactQuery phoneNumberEquals(final String phoneNumber) {
+		return and(Field.PHONE_NUMBER, Operator.EQUALS, phoneNumber);
+	}
+
+	/**
+	 * Narrows the query to the Contact objects whose phone number starts with
+	 * some digits, such as an area code.
+	 *
+	 * @param digits The leading digits.
+	 * @return Returns the narrowed query.
+	 */
+	public ContactQuery phoneNumberStartsWith(final String digits) {
+		return and(Field.PHONE_NUMBER, Operator.STARTS_WITH, digits);
+	}
+
+	/**
+	 * Narrows the query to the Contact objects whose address contains some text.
+	 *
+	 * @param text The text.
+	 * @return Returns the narrowed query.
+	 */
+	public ContactQuery addressContains(final String text) {
+		return and(Field.ADDRESS, Operator.CONTAINS, text);
+	}
+
+	/**
+	 * Checks whether a Contact object meets every condition.
+	 *
+	 * @param contact The Contact object.
+	 * @return Returns true if the Contact object matches the query.
+	 */
+	public boolean matches(final Contact contact) {
+		for (final Condition condition : this.conditions) {
+			if (!condition.matches(contact)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the first condition on a field with an operator, for choosing an
+	 * index.
+	 *
+	 * @param field    The field.
+	 * @param operator The operator.
+	 * @return Returns the value of the condition, or null if there is none.
+	 */
+	String find(final Field field, final Operator operator) {
+		for (final Condition condition : this.conditions) {
+			if (condition.field == field && condition.operator == operator) {
+				return condition.value;
+			}
+		}
+		return null;
+	}
+
+	private ContactQuery and(final Field field, final Operator operator, final String value) {
+		if (value == null) {
+			throw new IllegalArgumentException("A query value cannot be NULL.");
+		}
+		final List<Condition> narrowed = new ArrayList<>(this.conditions);
+		narrowed.add(new Condition(field, operator, value));
+		return new ContactQuery(Collections.unmodifiableList(narrowed));
+	}
+
+	/**
+	 * One condition on one field.
+	 */
+	private static final class Condition {
+
+		private final Field field;
+		private final Operator operator;
+		private final String value;
+
+		private Condition(final Field field, final Operator operator, final String value) {
+			this.field = field;
+			this.operator = operator;
+			this.value = value;
+		}
+
+		private boolean matches(final Contact contact) {
+			if (this.field == Field.PHONE_NUMBER) {
+				if (this.operator == Operator.EQUALS) {
+					final long number = PhoneIndex.pack(this.value);
+					return number >= 0 && PhoneIndex.pack(contact.getPhoneNumber()) == number;
+				}
+				return PhoneIndex.startsWith(contact.getPhoneNumber(), this.value);
+			}
+			final String text = this.field == Field.FIRST_NAME ? contact.getFirstName()
+					: this.field == Field.LAST_NAME ? contact.getLastName() : contact.getAddress();
+			switch (this.operator) {
+			case EQUALS:
+				return text.equalsIgnoreCase(this.value);
+			case STARTS_WITH:
+				return text.regionMatches(true, 0, this.value, 0, this.value.length());
+			default:
+				return text.toLowerCase(Locale.ROOT).contains(this.value.toLowerCase(Locale.ROOT));
+			}
+		}
+	}
+
+}
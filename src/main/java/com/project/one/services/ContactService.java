@@ -1,31 +1,207 @@
 package com.project.one.services;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.project.one.exceptions.MaximumLengthExceededException;
 import com.project.one.exceptions.MinimumLengthNotMetException;
 import com.project.one.exceptions.NullFieldException;
+import com.project.one.exceptions.PastDateException;
+import com.project.one.exceptions.PersistenceException;
+import com.project.one.persistence.BackupFile;
+import com.project.one.persistence.BinaryRecordCodec;
+import com.project.one.persistence.ChangeTracker;
+import com.project.one.persistence.Checkpointer;
+import com.project.one.persistence.Journal;
+import com.project.one.persistence.PrefixIndex;
+import com.project.one.persistence.RecordCodec;
+import com.project.one.persistence.RecordSpliterator;
+import com.project.one.persistence.StorageProvider;
+import com.project.one.persistence.StorageProviders;
+import com.project.one.persistence.TieredMap;
+import com.project.one.persistence.TrigramIndex;
+import com.project.one.persistence.VersionClock;
+import com.project.one.persistence.VersionHistory;
 
 /**
  * This class is a singleton service handling CRUD operations to the Contact
- * database. NOTE: The current implementation uses an in-memory solution. This
- * should be replaced with a permanent persistence option.
+ * database. NOTE: By default the Contact objects are only kept in memory.
+ * Calling enableWriteAheadLog makes every add, delete and update durable by
+ * recording it in a Journal that is replayed on the next start. Calling
+ * enableMappedStore instead keeps the Contact objects in fixed-size slots of a
+ * memory-mapped file, outside the Java heap.
+ *
+ * Every add, delete and update is a single atomic map operation: putIfAbsent,
+ * remove, or computeIfPresent running the setters on a copy of the Contact
+ * object and storing the copy in one step. There is no separate existence
+ * check, so of concurrent adds of one contactId exactly one succeeds, and each
+ * change takes effect at one point. Writers still hold the write lock, which keeps
+ * the journal, the indexes and the backup stamps in the order of the map
+ * changes; lookups never take it.
+ *
+ * Every Contact object carries a version that each update raises by one. An
+ * added Contact object starts above the version of every deleted one, so a
+ * version read before a delete never matches a Contact object added again. Each
+ * update and delete also comes in a conditional form taking the version the
+ * caller read, for example from getContactVersion; it changes nothing and
+ * returns false if the Contact object has since been changed, so two clients
+ * editing the same Contact object cannot silently overwrite each other. The
+ * version is checked once without the write lock, so a stale change fails
+ * without waiting, and again inside the map operation. A negative version never
+ * matches.
+ *
+ * updateContact changes several fields at once from a ContactPatch. Every
+ * field is checked first, and then all of them are set on one copy of the
+ * Contact object with one map operation, one journal record and one wait for
+ * durability, instead of one of each per field.
+ *
+ * The storage engine behind the service can be swapped: enableStorage, or the
+ * project.one.storage system property set before the service is first used,
+ * keeps the Contact objects in a Map opened by a StorageProvider.
+ *
+ * Calling enableTiering bounds the number of Contact objects kept on the heap.
+ * The least recently used ones are spilled to a cold file and loaded back when
+ * they are next looked up or updated; the hot tier counters show how well the
+ * bound fits the workload.
+ *
+ * Calling backup streams a consistent copy of the Contact objects to a file
+ * while writers carry on, and backupChangesSince writes only the Contact
+ * objects changed since an earlier backup. restoreBackup rebuilds the service
+ * from a full backup and the incremental backups after it.
+ *
+ * The last and first names are indexed, so findContactsByLastNamePrefix and
+ * findContactsByFirstNamePrefix answer case-insensitive prefix searches
+ * without scanning every Contact object. The phone numbers are indexed by
+ * their digits too: findContactsByPhoneNumber answers reverse lookups in
+ * constant time and findContactsByAreaCode finds numbers by their leading
+ * digits.
+ *
+ * The name, phone and trigram indexes are kept on the heap. They are built
+ * by the first lookup that needs one, which reads every Contact object once,
+ * so opening a mapped or tiered store does not read the Contact objects until
+ * then.
+ *
+ * The names are also cut into trigrams, so findContactsByFuzzyName finds the
+ * names within a few typing mistakes of a query. Only the names sharing enough
+ * trigrams with the query are compared with it, and large indexes are searched
+ * one shard per processor in parallel.
+ *
+ * findContacts lists the Contact objects matching a ContactQuery one page at a
+ * time. Each page ends with a cursor for the next one, so a caller can page
+ * through every Contact object without the service building the whole result.
+ * The query is answered through the index covering its most selective
+ * condition, or the last name index when no index covers one, and every other
+ * condition is checked on the Contact objects read from that index.
+ *
+ * stream and parallelStream walk every Contact object for reports, splitting the
+ * scan over the storage so that a parallel stream runs on every core. They are
+ * weakly consistent: they never block writers and never throw a
+ * ConcurrentModificationException, each Contact object is seen at most once, and
+ * one present for the whole scan is always seen, but one added or deleted
+ * during the scan may or may not be. An update stores a changed copy, so each
+ * Contact object is seen either as it was before an update or as it is after
+ * it, never half made.
+ *
+ * A TransactionManager created over the service reads it as of a snapshot
+ * and changes it all or nothing together with the other services. It makes
+ * the service keep the versions of its Contact objects that open
+ * transactions still need.
  *
  * @see Contact
+ * @see Journal
+ * @see ChangeTracker
+ * @see FieldUpdate
+ * @see RecordSpliterator
+ * @see StorageProvider
+ * @see TieredMap
+ * @see PrefixIndex
+ * @see PhoneIndex
+ * @see TrigramIndex
+ * @see ContactQuery
+ * @see ContactPatch
+ * @see TransactionManager
+ * @see MappedContactMap
  * @author Ben
  */
 public class ContactService {
 
-	// TODO This should be replaced with a permanent persistence option.
+	// Journals, snapshots, backups and storage engines all hold ContactCodec records.
+	private static final RecordCodec<Contact> CODEC = new BinaryRecordCodec<>(ContactCodec.getInstance(),
+			Contact::getContactId);
+
+	// The expected version of the unconditional updates and deletes; no Contact
+	// has a negative version, and the conditional forms refuse one.
+	private static final long ANY_VERSION = Long.MIN_VALUE;
+
+	private static final String STORAGE_NAME = "contacts";
+
 	private final Map<String, Contact> contactMap;
-	private static ContactService instance = new ContactService();
+	private final Journal<Contact> journal;
+	// Keeps the order of the log records the same as the order of the map changes.
+	private final Object writeLock = new Object();
+	// Added Contact objects start above the version of every deleted one, so a
+	// version read before a delete never matches a Contact object added again.
+	private long firstVersion;
+	private final ChangeTracker<Contact> changes;
+	private final PrefixIndex lastNameIndex = new PrefixIndex();
+	private final PrefixIndex firstNameIndex = new PrefixIndex();
+	private final PhoneIndex phoneIndex = new PhoneIndex();
+	private final TrigramIndex lastNameTrigrams = new TrigramIndex(Runtime.getRuntime().availableProcessors());
+	private final TrigramIndex firstNameTrigrams = new TrigramIndex(Runtime.getRuntime().availableProcessors());
+	// Whether the indexes above are built; they are built on the first lookup.
+	private volatile boolean indexed;
+	private static volatile ContactService instance = new ContactService();
 
 	/**
 	 * Private Constructor.
 	 */
 	private ContactService() {
+		this.contactMap = StorageProviders.openDefault(STORAGE_NAME, CODEC);
+		this.changes = new ChangeTracker<>(this.contactMap, CODEC, this.writeLock);
+		this.journal = null;
+	}
+
+	/**
+	 * Constructor. Rebuilds the Contact objects from the journal directory and
+	 * records every later change in it.
+	 *
+	 * @param journalDirectory The directory holding the snapshots and the log.
+	 * @throws IOException Exception indicating the journal could not be read.
+	 */
+	ContactService(final Path journalDirectory) throws IOException {
 		this.contactMap = new ConcurrentHashMap<>();
+		this.changes = new ChangeTracker<>(this.contactMap, CODEC, this.writeLock);
+		this.journal = new Journal<>(journalDirectory, this.contactMap, CODEC);
+	}
+
+	/**
+	 * Constructor. Keeps the Contact objects in the given map, which is closed
+	 * with the service if it is Closeable.
+	 *
+	 * @param contactMap The map holding the Contact objects.
+	 */
+	ContactService(final Map<String, Contact> contactMap) {
+		this.contactMap = contactMap;
+		this.changes = new ChangeTracker<>(this.contactMap, CODEC, this.writeLock);
+		this.journal = null;
 	}
 
 	/**
@@ -37,6 +213,96 @@ public class ContactService {
 		return instance;
 	}
 
+	/**
+	 * Replaces the only instance of ContactService with one that persists every
+	 * change to a write-ahead log, which the Checkpointer compacts into snapshots
+	 * in the background. The Contact objects already in the journal are loaded
+	 * before this method returns. This should be called once on startup before
+	 * the service is used.
+	 *
+	 * @param journalDirectory The directory holding the snapshots and the log.
+	 * @throws IOException Exception indicating the journal could not be read.
+	 */
+	public static synchronized void enableWriteAheadLog(final Path journalDirectory) throws IOException {
+		final ContactService previous = instance;
+		instance = new ContactService(journalDirectory);
+		Checkpointer.getInstance().register(instance.journal);
+		previous.close();
+	}
+
+	/**
+	 * Replaces the only instance of ContactService with one that keeps the
+	 * Contact objects in a memory-mapped store file. Reopening an existing file
+	 * only maps it again; the Contact objects are not loaded onto the heap. The
+	 * first name, phone or fuzzy search reads every Contact object once to build
+	 * its indexes, which stay on the heap. This should be called once on startup
+	 * before the service is used.
+	 *
+	 * @param storeFile The store file.
+	 * @throws IOException Exception indicating the store could not be opened.
+	 */
+	public static synchronized void enableMappedStore(final Path storeFile) throws IOException {
+		final ContactService previous = instance;
+		instance = new ContactService(new MappedContactMap(storeFile));
+		previous.close();
+	}
+
+	/**
+	 * Replaces the only instance of ContactService with one that keeps the Contact
+	 * objects in the contacts map of the named StorageProvider. This should be
+	 * called once on startup before the service is used.
+	 *
+	 * @param providerName The name of the StorageProvider.
+	 * @throws IOException Exception indicating the provider could not be found or
+	 *                     the map could not be opened.
+	 */
+	public static synchronized void enableStorage(final String providerName) throws IOException {
+		final ContactService previous = instance;
+		instance = new ContactService(StorageProviders.get(providerName).open(STORAGE_NAME, CODEC));
+		previous.close();
+	}
+
+	/**
+	 * Replaces the only instance of ContactService with one that keeps at most
+	 * hotCapacity Contact objects on the heap and spills the least recently used
+	 * ones to a cold file. The cold file is scratch space; it does not make the
+	 * Contact objects durable. The bound does not cover the name, phone and
+	 * trigram indexes, which the first search that needs them builds on the heap
+	 * from every Contact object. This should be called once on startup before the
+	 * service is used.
+	 *
+	 * @param coldFile    The cold file, replaced if it exists.
+	 * @param hotCapacity The maximum number of Contact objects kept on the heap.
+	 * @throws IOException Exception indicating the cold file could not be
+	 *                     created.
+	 */
+	public static synchronized void enableTiering(final Path coldFile, final int hotCapacity) throws IOException {
+		final ContactService previous = instance;
+		instance = new ContactService(new TieredMap<>(coldFile, ContactCodec.getInstance(),
+				Contact.CONTACT_ID_MAX_CHAR_LENGTH, hotCapacity));
+		previous.close();
+	}
+
+	/**
+	 * Replaces the only instance of ContactService with one holding the Contact objects
+	 * of a full backup and the incremental backups taken after it. The chunks of
+	 * each backup file are read in parallel. The restored Contact objects are
+	 * kept in memory. This should be called on startup before the service is
+	 * used.
+	 *
+	 * @param backupFiles The full backup, then each incremental backup in the
+	 *                    order they were taken.
+	 * @throws IOException Exception indicating a backup file is damaged or the
+	 *                     files do not form a chain of backups.
+	 */
+	public static synchronized void restoreBackup(final List<Path> backupFiles) throws IOException {
+		final Map<String, Contact> restored = new ConcurrentHashMap<>();
+		BackupFile.restore(backupFiles, restored, CODEC, Runtime.getRuntime().availableProcessors());
+		final ContactService previous = instance;
+		instance = new ContactService(restored);
+		previous.close();
+	}
+
 	/**
 	 * Adds a Contact object.
 	 *
@@ -44,12 +310,22 @@ public class ContactService {
 	 * @return Returns true if the add was successful.
 	 */
 	public boolean addContact(final Contact contact) {
-		if (!contactExists(contact.getContactId())) {
-			this.contactMap.put(contact.getContactId(), contact);
-			return true;
-		} else {
-			return false;
+		final long sequence;
+		synchronized (this.writeLock) {
+			// Stores a frozen copy, so the caller cannot change the stored Contact object.
+			final Contact stored = copyToStore(contact);
+			this.changes.beforeChange(stored.getContactId());
+			if (this.contactMap.putIfAbsent(stored.getContactId(), stored) != null) {
+				return false;
+			}
+			this.changes.changed(stored.getContactId());
+			if (this.indexed) {
+				index(stored);
+			}
+			sequence = logPut(stored);
 		}
+		awaitDurable(sequence);
+		return true;
 	}
 
 	/**
@@ -60,12 +336,51 @@ public class ContactService {
 	 * @return Returns true if the delete was successful.
 	 */
 	public boolean deleteContact(final String contactId) {
-		if (contactExists(contactId)) {
-			this.contactMap.remove(contactId);
-			return true;
-		} else {
+		return delete(contactId, ANY_VERSION);
+	}
+
+	/**
+	 * Deletes a Contact object based on a contactId, only if it still has the
+	 * expected version.
+	 *
+	 * The version is checked before the write lock is taken, so a delete of a
+	 * Contact object that has already changed fails at once instead of waiting
+	 * for other writers.
+	 *
+	 * @param contactId       The contactId that indicates the Contact object
+	 *                        that should be deleted.
+	 * @param expectedVersion The version the Contact object was read at. A negative
+	 *                        version never matches.
+	 * @return Returns true if the delete was successful, or false if the
+	 *         Contact object has another version.
+	 */
+	public boolean deleteContact(final String contactId, final long expectedVersion) {
+		return expectedVersion >= 0 && delete(contactId, expectedVersion);
+	}
+
+	/**
+	 * Deletes a Contact object based on a contactId, if it has the expected
+	 * version; ANY_VERSION matches any version.
+	 */
+	private boolean delete(final String contactId, final long expectedVersion) {
+		if (!hasVersion(contactId, expectedVersion)) {
 			return false;
 		}
+		final long sequence;
+		synchronized (this.writeLock) {
+			this.changes.beforeChange(contactId);
+			final Contact removed = remove(contactId, expectedVersion);
+			if (removed == null) {
+				return false;
+			}
+			this.changes.changed(contactId);
+			if (this.indexed) {
+				unindex(removed);
+			}
+			sequence = logDelete(contactId);
+		}
+		awaitDurable(sequence);
+		return true;
 	}
 
 	/**
@@ -77,18 +392,56 @@ public class ContactService {
 	 * @return Returns true if the update was successful.
 	 */
 	public boolean updateContactFirstName(final String contactId, final String updateFirstName) {
-		if (!contactExists(contactId)) {
+		return updateFirstName(contactId, ANY_VERSION, updateFirstName);
+	}
+
+	/**
+	 * Updates the first name of a Contact object based on a contactId, only if
+	 * it still has the expected version.
+	 *
+	 * The version is checked before the write lock is taken, so an update of a
+	 * Contact object that has already changed fails at once instead of waiting
+	 * for other writers.
+	 *
+	 * @param contactId       The contactId that indicates the Contact object
+	 *                        that should be updated.
+	 * @param expectedVersion The version the Contact object was read at. A negative
+	 *                        version never matches.
+	 * @param updateFirstName The updated first name of the Contact object.
+	 * @return Returns true if the update was successful, or false if the
+	 *         Contact object has another version.
+	 */
+	public boolean updateContactFirstName(final String contactId, final long expectedVersion,
+			final String updateFirstName) {
+		return expectedVersion >= 0 && updateFirstName(contactId, expectedVersion, updateFirstName);
+	}
+
+	/**
+	 * Updates the first name of a Contact object based on a contactId, if it has
+	 * the expected version; ANY_VERSION matches any version.
+	 */
+	private boolean updateFirstName(final String contactId, final long expectedVersion, final String updateFirstName) {
+		if (!hasVersion(contactId, expectedVersion)) {
 			return false;
-		} else {
-			final Contact contact = this.contactMap.get(contactId);
-			try {
-				contact.setFirstName(updateFirstName);
-				return true;
-			} catch (NullFieldException | MinimumLengthNotMetException | MaximumLengthExceededException e) {
+		}
+		final long sequence;
+		synchronized (this.writeLock) {
+			final String[] previousFirstName = new String[1];
+			final Contact contact = change(contactId, expectedVersion, current -> {
+				previousFirstName[0] = current.getFirstName();
+				current.setFirstName(updateFirstName);
+			});
+			if (contact == null) {
 				return false;
 			}
+			if (this.indexed) {
+				this.firstNameIndex.replace(previousFirstName[0], updateFirstName, contactId);
+				this.firstNameTrigrams.replace(previousFirstName[0], updateFirstName, contactId);
+			}
+			sequence = logPut(contact);
 		}
-
+		awaitDurable(sequence);
+		return true;
 	}
 
 	/**
@@ -100,17 +453,56 @@ public class ContactService {
 	 * @return Returns true if the update was successful.
 	 */
 	public boolean updateContactLastName(final String contactId, final String updateLastName) {
-		if (!contactExists(contactId)) {
+		return updateLastName(contactId, ANY_VERSION, updateLastName);
+	}
+
+	/**
+	 * Updates the last name of a Contact object based on a contactId, only if
+	 * it still has the expected version.
+	 *
+	 * The version is checked before the write lock is taken, so an update of a
+	 * Contact object that has already changed fails at once instead of waiting
+	 * for other writers.
+	 *
+	 * @param contactId       The contactId that indicates the Contact object
+	 *                        that should be updated.
+	 * @param expectedVersion The version the Contact object was read at. A negative
+	 *                        version never matches.
+	 * @param updateLastName  The updated last name of the Contact object.
+	 * @return Returns true if the update was successful, or false if the
+	 *         Contact object has another version.
+	 */
+	public boolean updateContactLastName(final String contactId, final long expectedVersion,
+			final String updateLastName) {
+		return expectedVersion >= 0 && updateLastName(contactId, expectedVersion, updateLastName);
+	}
+
+	/**
+	 * Updates the last name of a Contact object based on a contactId, if it has
+	 * the expected version; ANY_VERSION matches any version.
+	 */
+	private boolean updateLastName(final String contactId, final long expectedVersion, final String updateLastName) {
+		if (!hasVersion(contactId, expectedVersion)) {
 			return false;
-		} else {
-			final Contact contact = this.contactMap.get(contactId);
-			try {
-				contact.setLastName(updateLastName);
-				return true;
-			} catch (NullFieldException | MinimumLengthNotMetException | MaximumLengthExceededException e) {
+		}
+		final long sequence;
+		synchronized (this.writeLock) {
+			final String[] previousLastName = new String[1];
+			final Contact contact = change(contactId, expectedVersion, current -> {
+				previousLastName[0] = current.getLastName();
+				current.setLastName(updateLastName);
+			});
+			if (contact == null) {
 				return false;
 			}
+			if (this.indexed) {
+				this.lastNameIndex.replace(previousLastName[0], updateLastName, contactId);
+				this.lastNameTrigrams.replace(previousLastName[0], updateLastName, contactId);
+			}
+			sequence = logPut(contact);
 		}
+		awaitDurable(sequence);
+		return true;
 	}
 
 	/**
@@ -122,17 +514,56 @@ public class ContactService {
 	 * @return Returns true if the update was successful.
 	 */
 	public boolean updateContactPhoneNumber(final String contactId, final String updatePhoneNumber) {
-		if (!contactExists(contactId)) {
+		return updatePhoneNumber(contactId, ANY_VERSION, updatePhoneNumber);
+	}
+
+	/**
+	 * Updates the phone number of a Contact object based on a contactId, only
+	 * if it still has the expected version.
+	 *
+	 * The version is checked before the write lock is taken, so an update of a
+	 * Contact object that has already changed fails at once instead of waiting
+	 * for other writers.
+	 *
+	 * @param contactId         The contactId that indicates the Contact object
+	 *                          that should be updated.
+	 * @param expectedVersion   The version the Contact object was read at. A
+	 *                          negative version never matches.
+	 * @param updatePhoneNumber The updated phone number of the Contact object.
+	 * @return Returns true if the update was successful, or false if the
+	 *         Contact object has another version.
+	 */
+	public boolean updateContactPhoneNumber(final String contactId, final long expectedVersion,
+			final String updatePhoneNumber) {
+		return expectedVersion >= 0 && updatePhoneNumber(contactId, expectedVersion, updatePhoneNumber);
+	}
+
+	/**
+	 * Updates the phone number of a Contact object based on a contactId, if it
+	 * has the expected version; ANY_VERSION matches any version.
+	 */
+	private boolean updatePhoneNumber(final String contactId, final long expectedVersion,
+			final String updatePhoneNumber) {
+		if (!hasVersion(contactId, expectedVersion)) {
 			return false;
-		} else {
-			final Contact contact = this.contactMap.get(contactId);
-			try {
-				contact.setPhoneNumber(updatePhoneNumber);
-				return true;
-			} catch (NullFieldException | MinimumLengthNotMetException | MaximumLengthExceededException e) {
+		}
+		final long sequence;
+		synchronized (this.writeLock) {
+			final String[] previousPhoneNumber = new String[1];
+			final Contact contact = change(contactId, expectedVersion, current -> {
+				previousPhoneNumber[0] = current.getPhoneNumber();
+				current.setPhoneNumber(updatePhoneNumber);
+			});
+			if (contact == null) {
 				return false;
 			}
+			if (this.indexed) {
+				this.phoneIndex.replace(previousPhoneNumber[0], updatePhoneNumber, contactId);
+			}
+			sequence = logPut(contact);
 		}
+		awaitDurable(sequence);
+		return true;
 	}
 
 	/**
@@ -144,31 +575,781 @@ public class ContactService {
 	 * @return Returns true if the update was successful.
 	 */
 	public boolean updateContactAddress(final String contactId, final String updateAddress) {
-		if (!contactExists(contactId)) {
+		return updateAddress(contactId, ANY_VERSION, updateAddress);
+	}
+
+	/**
+	 * Updates the address of a Contact object based on a contactId, only if it
+	 * still has the expected version.
+	 *
+	 * The version is checked before the write lock is taken, so an update of a
+	 * Contact object that has already changed fails at once instead of waiting
+	 * for other writers.
+	 *
+	 * @param contactId       The contactId that indicates the Contact object
+	 *                        that should be updated.
+	 * @param expectedVersion The version the Contact object was read at. A negative
+	 *                        version never matches.
+	 * @param updateAddress   The updated address of the Contact object.
+	 * @return Returns true if the update was successful, or false if the
+	 *         Contact object has another version.
+	 */
+	public boolean updateContactAddress(final String contactId, final long expectedVersion,
+			final String updateAddress) {
+		return expectedVersion >= 0 && updateAddress(contactId, expectedVersion, updateAddress);
+	}
+
+	/**
+	 * Updates the address of a Contact object based on a contactId, if it has the
+	 * expected version; ANY_VERSION matches any version.
+	 */
+	private boolean updateAddress(final String contactId, final long expectedVersion, final String updateAddress) {
+		if (!hasVersion(contactId, expectedVersion)) {
 			return false;
-		} else {
+		}
+		final long sequence;
+		synchronized (this.writeLock) {
+			final Contact contact = change(contactId, expectedVersion, current -> current.setAddress(updateAddress));
+			if (contact == null) {
+				return false;
+			}
+			sequence = logPut(contact);
+		}
+		awaitDurable(sequence);
+		return true;
+	}
+
+	/**
+	 * Updates several fields of a Contact object based on a contactId in one
+	 * change.
+	 *
+	 * @param contactId The contactId that indicates the Contact object that should
+	 *                  be updated.
+	 * @param patch     The fields to update and their updated values.
+	 * @return Returns true if the update was successful.
+	 */
+	public boolean updateContact(final String contactId, final ContactPatch patch) {
+		return update(contactId, ANY_VERSION, patch);
+	}
+
+	/**
+	 * Updates several fields of a Contact object based on a contactId in one
+	 * change, only if it still has the expected version.
+	 *
+	 * Every field is checked before the write lock is taken, and the update
+	 * fails without changing anything if any is not valid. The fields are then
+	 * set on one copy of the Contact object stored in a single atomic map
+	 * operation with one journal record, so readers see either all of the
+	 * changes or none of them.
+	 *
+	 * @param contactId       The contactId that indicates the Contact object
+	 *                        that should be updated.
+	 * @param expectedVersion The version the Contact object was read at. A negative
+	 *                        version never matches.
+	 * @param patch           The fields to update and their updated values.
+	 * @return Returns true if the update was successful, or false if the patch
+	 *         is empty, a field is not valid or the Contact object has another
+	 *         version.
+	 */
+	public boolean updateContact(final String contactId, final long expectedVersion, final ContactPatch patch) {
+		return expectedVersion >= 0 && update(contactId, expectedVersion, patch);
+	}
+
+	/**
+	 * Updates several fields of a Contact object based on a contactId in one
+	 * change, if it has the expected version; ANY_VERSION matches any version.
+	 */
+	private boolean update(final String contactId, final long expectedVersion, final ContactPatch patch) {
+		if (patch == null || patch.isEmpty() || !hasVersion(contactId, expectedVersion)) {
+			return false;
+		}
+		try {
+			patch.validate();
+		} catch (NullFieldException | MinimumLengthNotMetException | MaximumLengthExceededException e) {
+			return false;
+		}
+		final long sequence;
+		synchronized (this.writeLock) {
+			final String[] previous = new String[3];
+			final Contact contact = change(contactId, expectedVersion, current -> {
+				previous[0] = current.getFirstName();
+				previous[1] = current.getLastName();
+				previous[2] = current.getPhoneNumber();
+				patch.applyTo(current);
+			});
+			if (contact == null) {
+				return false;
+			}
+			if (this.indexed && patch.getFirstName() != null) {
+				this.firstNameIndex.replace(previous[0], contact.getFirstName(), contactId);
+				this.firstNameTrigrams.replace(previous[0], contact.getFirstName(), contactId);
+			}
+			if (this.indexed && patch.getLastName() != null) {
+				this.lastNameIndex.replace(previous[1], contact.getLastName(), contactId);
+				this.lastNameTrigrams.replace(previous[1], contact.getLastName(), contactId);
+			}
+			if (this.indexed && patch.getPhoneNumber() != null) {
+				this.phoneIndex.replace(previous[2], contact.getPhoneNumber(), contactId);
+			}
+			sequence = logPut(contact);
+		}
+		awaitDurable(sequence);
+		return true;
+	}
+
+	/**
+	 * Finds the Contact objects whose last name starts with a prefix, ignoring
+	 * case, ordered by last name. The lookup uses an index, so it does not look
+	 * at the other Contact objects.
+	 *
+	 * @param prefix The prefix; an empty prefix matches every Contact object.
+	 * @param limit  The maximum number of Contact objects to return.
+	 * @return Returns the matching Contact objects, empty if the prefix is
+	 *         null.
+	 */
+	public List<Contact> findContactsByLastNamePrefix(final String prefix, final int limit) {
+		ensureIndexed();
+		return findByPrefix(this.lastNameIndex, prefix, limit, Contact::getLastName);
+	}
+
+	/**
+	 * Finds the Contact objects whose first name starts with a prefix, ignoring
+	 * case, ordered by first name. The lookup uses an index, so it does not look
+	 * at the other Contact objects.
+	 *
+	 * @param prefix The prefix; an empty prefix matches every Contact object.
+	 * @param limit  The maximum number of Contact objects to return.
+	 * @return Returns the matching Contact objects, empty if the prefix is
+	 *         null.
+	 */
+	public List<Contact> findContactsByFirstNamePrefix(final String prefix, final int limit) {
+		ensureIndexed();
+		return findByPrefix(this.firstNameIndex, prefix, limit, Contact::getFirstName);
+	}
+
+	/**
+	 * Gets a page of the Contact objects matching a query. The pages follow the
+	 * order of the index answering the query: phone number, or name and then
+	 * contactId. A cursor stays valid while Contact objects are added, changed
+	 * and deleted: a page after it holds the matching Contact objects that come
+	 * after it in that order at the time the page is read, so no Contact object
+	 * is skipped or repeated unless a change moved it past the cursor. A
+	 * condition no index covers is checked on each Contact object read in that
+	 * order until the page is full, so a page of rare matches can take a while.
+	 *
+	 * @param query    The query.
+	 * @param cursor   The cursor of the previous page, or null for the first page.
+	 * @param pageSize The maximum number of Contact objects on the page.
+	 * @return Returns the page, with the cursor of the next page if there may be
+	 *         one.
+	 */
+	public ContactPage findContacts(final ContactQuery query, final String cursor, final int pageSize) {
+		ensureIndexed();
+		final QueryPlan plan = plan(query);
+		final Iterator<Map.Entry<String, String>> entries = plan.entries.apply(cursor);
+		final List<Contact> contacts = new ArrayList<>();
+		String position = null;
+		while (contacts.size() < pageSize && entries.hasNext()) {
+			final Map.Entry<String, String> entry = entries.next();
+			final Contact contact = this.contactMap.get(entry.getValue());
+			// Skips a Contact object deleted, or found at the position it is moving from.
+			if (contact != null && plan.current.test(entry.getKey(), contact) && query.matches(contact)) {
+				contacts.add(contact);
+				position = entry.getKey();
+			}
+		}
+		return new ContactPage(contacts, contacts.size() == pageSize && entries.hasNext() ? position : null);
+	}
+
+	/**
+	 * Streams the Contact objects matching a query, reading them a page at a time
+	 * with findContacts as the stream is consumed.
+	 *
+	 * @param query    The query.
+	 * @param pageSize The number of Contact objects read at a time.
+	 * @return Returns the stream, in the order of findContacts.
+	 */
+	public Stream<Contact> streamContacts(final ContactQuery query, final int pageSize) {
+		final Iterator<Contact> contacts = new Iterator<>() {
+
+			private ContactPage page;
+			private int next;
+
+			@Override
+			public boolean hasNext() {
+				while (this.page == null || this.next == this.page.getContacts().size()) {
+					if (this.page != null && !this.page.hasNextPage()) {
+						return false;
+					}
+					this.page = findContacts(query, this.page == null ? null : this.page.getNextCursor(), pageSize);
+					this.next = 0;
+				}
+				return true;
+			}
+
+			@Override
+			public Contact next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return this.page.getContacts().get(this.next++);
+			}
+		};
+		return StreamSupport.stream(
+				Spliterators.spliteratorUnknownSize(contacts, Spliterator.ORDERED | Spliterator.NONNULL), false);
+	}
+
+	/**
+	 * Finds the Contact objects whose first or last name is within a number of
+	 * typing mistakes of a name, ignoring case. A mistake is one inserted, deleted
+	 * or changed character. The closest matches come first, then the matches are
+	 * ordered by last name, first name and contactId.
+	 *
+	 * @param name        The name, possibly misspelled.
+	 * @param maxDistance The most mistakes a match may have.
+	 * @param limit       The maximum number of Contact objects to return.
+	 * @return Returns the matching Contact objects, best match first; empty if
+	 *         the name is null.
+	 */
+	public List<Contact> findContactsByFuzzyName(final String name, final int maxDistance, final int limit) {
+		if (name == null) {
+			return new ArrayList<>();
+		}
+		ensureIndexed();
+		// The best matches are among the best of either name.
+		final Set<String> contactIds = new LinkedHashSet<>(this.lastNameTrigrams.find(name, maxDistance, limit));
+		contactIds.addAll(this.firstNameTrigrams.find(name, maxDistance, limit));
+		final Map<Contact, Integer> distances = new HashMap<>();
+		for (final String contactId : contactIds) {
+			final Contact contact = this.contactMap.get(contactId);
+			// Drops a Contact object deleted or renamed after the lookup.
+			if (contact != null) {
+				final int distance = Math.min(TrigramIndex.distance(name, contact.getLastName(), maxDistance),
+						TrigramIndex.distance(name, contact.getFirstName(), maxDistance));
+				if (distance <= maxDistance) {
+					distances.put(contact, distance);
+				}
+			}
+		}
+		final List<Contact> contacts = new ArrayList<>(distances.keySet());
+		contacts.sort(Comparator.comparing((final Contact contact) -> distances.get(contact))
+				.thenComparing(Contact::getLastName).thenComparing(Contact::getFirstName)
+				.thenComparing(Contact::getContactId));
+		return contacts.size() > limit ? new ArrayList<>(contacts.subList(0, limit)) : contacts;
+	}
+
+	/**
+	 * Finds the Contact objects that own a phone number. Only the digits are
+	 * compared, and the lookup takes constant time.
+	 *
+	 * @param phoneNumber The phone number.
+	 * @return Returns the owners, usually one; empty if no Contact object has the
+	 *         number or it is null.
+	 */
+	public List<Contact> findContactsByPhoneNumber(final String phoneNumber) {
+		ensureIndexed();
+		final long number = PhoneIndex.pack(phoneNumber);
+		final List<Contact> contacts = new ArrayList<>();
+		for (final String contactId : this.phoneIndex.find(phoneNumber)) {
 			final Contact contact = this.contactMap.get(contactId);
+			// Drops a Contact object whose number changed after the lookup.
+			if (contact != null && PhoneIndex.pack(contact.getPhoneNumber()) == number) {
+				contacts.add(contact);
+			}
+		}
+		return contacts;
+	}
+
+	/**
+	 * Finds the Contact objects whose phone number starts with an area code or
+	 * any other leading digits, ordered by phone number.
+	 *
+	 * @param areaCode The leading digits.
+	 * @param limit    The maximum number of Contact objects to return.
+	 * @return Returns the matching Contact objects, empty if the area code is
+	 *         null.
+	 */
+	public List<Contact> findContactsByAreaCode(final String areaCode, final int limit) {
+		ensureIndexed();
+		final List<Contact> contacts = new ArrayList<>();
+		final Set<String> seen = new HashSet<>();
+		for (final String contactId : this.phoneIndex.findByPrefix(areaCode, limit)) {
+			final Contact contact = this.contactMap.get(contactId);
+			if (contact != null && PhoneIndex.startsWith(contact.getPhoneNumber(), areaCode) && seen.add(contactId)) {
+				contacts.add(contact);
+			}
+		}
+		return contacts;
+	}
+
+	/**
+	 * Replaces a stored Contact object with a changed copy in one atomic map
+	 * operation, if it has the expected version. Must be called while holding
+	 * the write lock.
+	 *
+	 * @param contactId       The contactId of the Contact object.
+	 * @param expectedVersion The version the Contact object must have, or
+	 *                        ANY_VERSION for any version.
+	 * @param update          The change, made through the setters of a copy of
+	 *                        the Contact object.
+	 * @return Returns the changed Contact object, or null if it does not exist,
+	 *         has another version or a value is not valid.
+	 */
+	private Contact change(final String contactId, final long expectedVersion, final FieldUpdate<Contact> update) {
+		final boolean[] valid = new boolean[1];
+		final Contact contact = this.contactMap.computeIfPresent(contactId, (id, current) -> {
+			if (expectedVersion != ANY_VERSION && current.getVersion() != expectedVersion) {
+				return current;
+			}
+			this.changes.beforeChange(id);
+			// Readers holding the current Contact never see it change.
+			final Contact changed = current.copy();
 			try {
-				contact.setAddress(updateAddress);
-				return true;
-			} catch (NullFieldException | MinimumLengthNotMetException | MaximumLengthExceededException e) {
-				return false;
+				update.apply(changed);
+			} catch (NullFieldException | MinimumLengthNotMetException | MaximumLengthExceededException
+					| PastDateException e) {
+				return current;
 			}
+			valid[0] = true;
+			return changed.freeze();
+		});
+		if (contact == null || !valid[0]) {
+			return null;
+		}
+		this.changes.changed(contactId);
+		return contact;
+	}
+
+	/**
+	 * Removes a stored Contact object in one atomic map operation, if it has
+	 * the expected version. Must be called while holding the write lock.
+	 *
+	 * @param contactId       The contactId of the Contact object.
+	 * @param expectedVersion The version the Contact object must have, or
+	 *                        ANY_VERSION for any version.
+	 * @return Returns the removed Contact object, or null if it does not exist
+	 *         or has another version.
+	 */
+	private Contact remove(final String contactId, final long expectedVersion) {
+		final Contact[] removed = new Contact[1];
+		if (expectedVersion == ANY_VERSION) {
+			removed[0] = this.contactMap.remove(contactId);
+		} else {
+			this.contactMap.computeIfPresent(contactId, (id, current) -> {
+				if (current.getVersion() != expectedVersion) {
+					return current;
+				}
+				removed[0] = current;
+				return null;
+			});
+		}
+		if (removed[0] != null) {
+			this.firstVersion = Math.max(this.firstVersion, removed[0].getVersion() + 1);
+		}
+		return removed[0];
+	}
 
+	/**
+	 * Checks the version of a Contact object without taking the write lock, so
+	 * that a conditional update or delete of a Contact object that has already
+	 * changed fails at once. The version is checked again under the write lock.
+	 *
+	 * @param contactId       The contactId of the Contact object.
+	 * @param expectedVersion The version the Contact object must have, or
+	 *                        ANY_VERSION for any version.
+	 * @return Returns true if the Contact object exists with the expected
+	 *         version or any version is expected.
+	 */
+	private boolean hasVersion(final String contactId, final long expectedVersion) {
+		if (expectedVersion == ANY_VERSION) {
+			return true;
 		}
+		final Contact contact = this.contactMap.get(contactId);
+		return contact != null && contact.getVersion() == expectedVersion;
 	}
 
 	/**
-	 * Searches for an existing Contact object based on a contactId.
+	 * Gets a Contact object based on a contactId.
 	 *
 	 * @param contactId The contactId being searched for.
-	 * @return Returns true if the contact exists.
+	 * @return Returns the Contact object, or null if it does not exist.
 	 */
-	private boolean contactExists(final String contactId) {
-		if (this.contactMap.containsKey(contactId)) {
-			return true;
-		} else {
-			return false;
+	Contact getContact(final String contactId) {
+		return this.contactMap.get(contactId);
+	}
+
+	/**
+	 * Gets the version of a Contact object, to pass to a later conditional
+	 * update or delete.
+	 *
+	 * @param contactId The contactId being searched for.
+	 * @return Returns the version, or -1 if the Contact object does not exist.
+	 */
+	public long getContactVersion(final String contactId) {
+		final Contact contact = this.contactMap.get(contactId);
+		return contact == null ? -1 : contact.getVersion();
+	}
+
+	/**
+	 * Starts keeping the versions of the Contact objects that open snapshots still
+	 * need, published with a clock shared with the other services.
+	 *
+	 * @param clock The clock the versions are published with.
+	 * @return Returns the version history of the Contact objects.
+	 */
+	VersionHistory<Contact> keepVersions(final VersionClock clock) {
+		synchronized (this.writeLock) {
+			return this.changes.keepVersions(clock);
+		}
+	}
+
+	/**
+	 * Gets the lock writers hold while they change the Contact objects, which a
+	 * Transaction holds while it commits.
+	 *
+	 * @return Returns the write lock.
+	 */
+	Object getWriteLock() {
+		return this.writeLock;
+	}
+
+	/**
+	 * Copies an added Contact object to store, frozen and above the version of
+	 * every deleted one. Must be called while holding the write lock.
+	 *
+	 * @param contact The added Contact object.
+	 * @return Returns the copy to store.
+	 */
+	Contact copyToStore(final Contact contact) {
+		return contact.storedCopy(Math.max(contact.getVersion(), this.firstVersion));
+	}
+
+	/**
+	 * Stores a Contact object in place of the stored one, or deletes the stored
+	 * one, for a Transaction that holds the write lock. The indexes follow the
+	 * change as they do for the update methods, adding a changed field's new
+	 * entry before removing the old one, and the journal records it, but nothing
+	 * waits for the disk; the Transaction calls awaitDurable once it has
+	 * released the write lock.
+	 *
+	 * @param contactId The contactId of the Contact object.
+	 * @param contact   The frozen Contact object to store, or null to delete the
+	 *                  stored one.
+	 * @return Returns the sequence number of the journal record.
+	 */
+	long store(final String contactId, final Contact contact) {
+		this.changes.beforeChange(contactId);
+		if (contact == null) {
+			final Contact removed = remove(contactId, ANY_VERSION);
+			this.changes.changed(contactId);
+			if (removed != null && this.indexed) {
+				unindex(removed);
+			}
+			return logDelete(contactId);
+		}
+		final Contact previous = this.contactMap.put(contactId, contact);
+		this.changes.changed(contactId);
+		if (this.indexed) {
+			if (previous == null) {
+				index(contact);
+			} else {
+				reindex(previous, contact);
+			}
+		}
+		return logPut(contact);
+	}
+
+	/**
+	 * Gets the number of lookups answered from the hot tier.
+	 *
+	 * @return Returns the number of hot tier hits, or 0 without tiering.
+	 */
+	public long getHotTierHits() {
+		return this.contactMap instanceof TieredMap ? ((TieredMap<?>) this.contactMap).getHits() : 0;
+	}
+
+	/**
+	 * Gets the number of lookups that loaded a Contact object from the cold file.
+	 *
+	 * @return Returns the number of hot tier misses, or 0 without tiering.
+	 */
+	public long getHotTierMisses() {
+		return this.contactMap instanceof TieredMap ? ((TieredMap<?>) this.contactMap).getMisses() : 0;
+	}
+
+	/**
+	 * Gets the number of Contact objects spilled from the heap to the cold file.
+	 *
+	 * @return Returns the number of spills, or 0 without tiering.
+	 */
+	public long getHotTierSpills() {
+		return this.contactMap instanceof TieredMap ? ((TieredMap<?>) this.contactMap).getSpills() : 0;
+	}
+
+	/**
+	 * Streams every Contact object. The stream is weakly consistent and does not
+	 * block writers; see the class description for what it sees of concurrent
+	 * changes.
+	 *
+	 * @return Returns a sequential stream of the Contact objects.
+	 */
+	public Stream<Contact> stream() {
+		return StreamSupport.stream(RecordSpliterator.over(this.contactMap), false);
+	}
+
+	/**
+	 * Streams every Contact object on the common fork-join pool. The Contact objects
+	 * are split over the storage, so a full scan runs on every core.
+	 *
+	 * @return Returns a parallel stream of the Contact objects.
+	 * @see #stream()
+	 */
+	public Stream<Contact> parallelStream() {
+		return StreamSupport.stream(RecordSpliterator.over(this.contactMap), true);
+	}
+
+	/**
+	 * Streams a full backup of the Contact objects into a file. The backup holds
+	 * the Contact objects as they were when it started; writers are not paused
+	 * while it is written.
+	 *
+	 * @param backupFile The backup file, replaced if it exists.
+	 * @throws IOException Exception indicating the backup could not be written.
+	 */
+	public void backup(final Path backupFile) throws IOException {
+		this.changes.backup(backupFile, null);
+	}
+
+	/**
+	 * Streams an incremental backup of the Contact objects added, updated or
+	 * deleted since an earlier backup into a file. The earlier backup must have
+	 * been taken since the service was last started, and no earlier than the
+	 * last full backup.
+	 *
+	 * @param backupFile     The backup file, replaced if it exists.
+	 * @param previousBackup The full or incremental backup this one follows.
+	 * @throws IOException Exception indicating the backup could not be written,
+	 *                     or the previous backup is too old.
+	 */
+	public void backupChangesSince(final Path backupFile, final Path previousBackup) throws IOException {
+		this.changes.backup(backupFile, previousBackup);
+	}
+
+	/**
+	 * Writes a snapshot of the Contact objects so that the log it covers can be
+	 * deleted. Does nothing when the service is only kept in memory.
+	 *
+	 * @throws IOException Exception indicating the snapshot could not be written.
+	 */
+	void checkpoint() throws IOException {
+		if (this.journal != null) {
+			this.journal.checkpoint();
+		}
+	}
+
+	/**
+	 * Flushes and closes the journal or the store, if there is one.
+	 *
+	 * @throws IOException Exception indicating the journal could not be written.
+	 */
+	void close() throws IOException {
+		if (this.journal != null) {
+			this.journal.close();
+		}
+		if (this.contactMap instanceof Closeable) {
+			((Closeable) this.contactMap).close();
+		}
+	}
+
+	/**
+	 * Reads the matches of a prefix from a name index. The index runs without
+	 * locks, so each match is checked against the stored Contact object to drop
+	 * entries an update is moving and Contact objects deleted meanwhile.
+	 *
+	 * @param index  The name index.
+	 * @param prefix The prefix.
+	 * @param limit  The maximum number of Contact objects to return.
+	 * @param name   Gets the indexed name from a Contact object.
+	 * @return Returns the matching Contact objects.
+	 */
+	private List<Contact> findByPrefix(final PrefixIndex index, final String prefix, final int limit,
+			final Function<Contact, String> name) {
+		final List<Contact> contacts = new ArrayList<>();
+		if (prefix == null) {
+			return contacts;
+		}
+		final Set<String> seen = new HashSet<>();
+		final Iterator<String> contactIds = index.find(prefix);
+		while (contacts.size() < limit && contactIds.hasNext()) {
+			final String contactId = contactIds.next();
+			final Contact contact = this.contactMap.get(contactId);
+			if (contact != null && name.apply(contact).regionMatches(true, 0, prefix, 0, prefix.length())
+					&& seen.add(contactId)) {
+				contacts.add(contact);
+			}
+		}
+		return contacts;
+	}
+
+	/**
+	 * Chooses the index that answers a query: an exact phone number, then an
+	 * exact name, then a phone number prefix, then a name prefix, and otherwise
+	 * every last name.
+	 *
+	 * @param query The query.
+	 * @return Returns the plan reading the index.
+	 */
+	private QueryPlan plan(final ContactQuery query) {
+		final String phoneNumber = query.find(ContactQuery.Field.PHONE_NUMBER, ContactQuery.Operator.EQUALS);
+		if (phoneNumber != null) {
+			return phonePlan(phoneNumber, true);
+		}
+		final String lastName = query.find(ContactQuery.Field.LAST_NAME, ContactQuery.Operator.EQUALS);
+		if (lastName != null) {
+			return new QueryPlan(after -> this.lastNameIndex.entriesEqualTo(lastName, after),
+					(position, contact) -> PrefixIndex.isAt(position, contact.getLastName()));
+		}
+		final String firstName = query.find(ContactQuery.Field.FIRST_NAME, ContactQuery.Operator.EQUALS);
+		if (firstName != null) {
+			return new QueryPlan(after -> this.firstNameIndex.entriesEqualTo(firstName, after),
+					(position, contact) -> PrefixIndex.isAt(position, contact.getFirstName()));
+		}
+		final String digits = query.find(ContactQuery.Field.PHONE_NUMBER, ContactQuery.Operator.STARTS_WITH);
+		if (digits != null) {
+			return phonePlan(digits, false);
+		}
+		final String firstNamePrefix = query.find(ContactQuery.Field.FIRST_NAME, ContactQuery.Operator.STARTS_WITH);
+		final String lastNamePrefix = query.find(ContactQuery.Field.LAST_NAME, ContactQuery.Operator.STARTS_WITH);
+		if (lastNamePrefix == null && firstNamePrefix != null) {
+			return new QueryPlan(after -> this.firstNameIndex.entriesStartingWith(firstNamePrefix, after),
+					(position, contact) -> PrefixIndex.isAt(position, contact.getFirstName()));
+		}
+		final String prefix = lastNamePrefix == null ? "" : lastNamePrefix;
+		return new QueryPlan(after -> this.lastNameIndex.entriesStartingWith(prefix, after),
+				(position, contact) -> PrefixIndex.isAt(position, contact.getLastName()));
+	}
+
+	private QueryPlan phonePlan(final String digits, final boolean exact) {
+		return new QueryPlan(after -> this.phoneIndex.entries(digits, exact, after),
+				(position, contact) -> PhoneIndex.isAt(position, contact.getPhoneNumber()));
+	}
+
+	/**
+	 * Indexes the names and phone numbers of the Contact objects in the map the
+	 * first time a lookup needs them, so opening a store does not read every
+	 * Contact object. From then on every change keeps the indexes up to date
+	 * under the write lock.
+	 */
+	private void ensureIndexed() {
+		if (this.indexed) {
+			return;
+		}
+		synchronized (this.writeLock) {
+			if (!this.indexed) {
+				for (final Contact contact : this.contactMap.values()) {
+					index(contact);
+				}
+				this.indexed = true;
+			}
+		}
+	}
+
+	/**
+	 * Adds a Contact object to the name, phone and trigram indexes. Must be
+	 * called while holding the write lock.
+	 *
+	 * @param contact The Contact object.
+	 */
+	private void index(final Contact contact) {
+		this.lastNameIndex.add(contact.getLastName(), contact.getContactId());
+		this.firstNameIndex.add(contact.getFirstName(), contact.getContactId());
+		this.phoneIndex.add(contact.getPhoneNumber(), contact.getContactId());
+		this.lastNameTrigrams.add(contact.getLastName(), contact.getContactId());
+		this.firstNameTrigrams.add(contact.getFirstName(), contact.getContactId());
+	}
+
+	/**
+	 * Removes a Contact object from the name, phone and trigram indexes. Must be
+	 * called while holding the write lock.
+	 *
+	 * @param contact The Contact object.
+	 */
+	private void unindex(final Contact contact) {
+		this.lastNameIndex.remove(contact.getLastName(), contact.getContactId());
+		this.firstNameIndex.remove(contact.getFirstName(), contact.getContactId());
+		this.phoneIndex.remove(contact.getPhoneNumber(), contact.getContactId());
+		this.lastNameTrigrams.remove(contact.getLastName(), contact.getContactId());
+		this.firstNameTrigrams.remove(contact.getFirstName(), contact.getContactId());
+	}
+
+	/**
+	 * Moves a Contact object in the name, phone and trigram indexes from the
+	 * fields of the one it replaces, adding each changed field's new entry
+	 * before removing the old one. Must be called while holding the write lock.
+	 *
+	 * @param previous The replaced Contact object.
+	 * @param contact  The Contact object.
+	 */
+	private void reindex(final Contact previous, final Contact contact) {
+		this.lastNameIndex.replace(previous.getLastName(), contact.getLastName(), contact.getContactId());
+		this.firstNameIndex.replace(previous.getFirstName(), contact.getFirstName(), contact.getContactId());
+		this.phoneIndex.replace(previous.getPhoneNumber(), contact.getPhoneNumber(), contact.getContactId());
+		this.lastNameTrigrams.replace(previous.getLastName(), contact.getLastName(), contact.getContactId());
+		this.firstNameTrigrams.replace(previous.getFirstName(), contact.getFirstName(), contact.getContactId());
+	}
+
+	/**
+	 * Records the current state of a Contact object in the journal.
+	 *
+	 * @param contact The Contact object that was added or updated.
+	 * @return Returns the sequence number of the journal record, or 0 when there
+	 *         is no journal.
+	 */
+	private long logPut(final Contact contact) {
+		return this.journal == null ? 0 : this.journal.logPut(contact.getContactId(), contact);
+	}
+
+	/**
+	 * Records the deletion of a Contact object in the journal.
+	 *
+	 * @param contactId The contactId of the deleted Contact object.
+	 * @return Returns the sequence number of the journal record, or 0 when there
+	 *         is no journal.
+	 */
+	private long logDelete(final String contactId) {
+		return this.journal == null ? 0 : this.journal.logDelete(contactId);
+	}
+
+	/**
+	 * Blocks until a journal record is on disk. Writers release the write lock
+	 * before calling this so that concurrent changes share one fsync.
+	 *
+	 * @param sequence The sequence number of the journal record.
+	 */
+	void awaitDurable(final long sequence) {
+		if (this.journal == null) {
+			return;
+		}
+		try {
+			this.journal.sync(sequence);
+		} catch (IOException e) {
+			throw new PersistenceException("The contact change could not be made durable.", e);
+		}
+	}
+
+	/**
+	 * Reads the positions and contactIds of an index from just after a cursor,
+	 * and checks that a Contact object is still at the position it was read at.
+	 */
+	private static final class QueryPlan {
+
+		private final Function<String, Iterator<Map.Entry<String, String>>> entries;
+		private final BiPredicate<String, Contact> current;
+
+		private QueryPlan(final Function<String, Iterator<Map.Entry<String, String>>> entries,
+				final BiPredicate<String, Contact> current) {
+			this.entries = entries;
+			this.current = current;
 		}
 	}
 
@@ -0,0 +1,36 @@
+package com.project.one.services;
+
+import com.project.one.exceptions.MaximumLengthExceededException;
+import com.project.one.exceptions.MinimumLengthNotMetException;
+import com.project.one.exceptions.NullFieldException;
+import com.project.one.exceptions.PastDateException;
+
+/**
+ * This interface is a change to one or more fields of a stored record, made
+ * through the setters of a copy of the record. The services run it inside a
+ * single atomic map operation that stores the changed copy in place of the
+ * record, so the lookup, the change and the write back are one step and the
+ * stored record itself never changes.
+ *
+ * @param <V> The type of the record.
+ * @author Ben
+ */
+@FunctionalInterface
+interface FieldUpdate<V> {
+
+	/**
+	 * Changes the fields of a record.
+	 *
+	 * @param record The record to change.
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 * @throws PastDateException              Exception indicating a date field is
+	 *                                        in the past.
+	 */
+	void apply(V record)
+			throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException, PastDateException;
+
+}
@@ -0,0 +1,214 @@
+package com.project.one.services;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.project.one.exceptions.MaximumLengthExceededException;
+import com.project.one.exceptions.MinimumLengthNotMetException;
+import com.project.one.exceptions.NullFieldException;
+import com.project.one.exceptions.PersistenceException;
+import com.project.one.persistence.MappedRecordStore;
+import com.project.one.persistence.Scannable;
+
+/**
+ * This class is a Map of Contact objects kept in a MappedRecordStore instead of
+ * on the heap. Every Contact field has a maximum length, so each Contact is
+ * written as a fixed-width record: a length byte followed by the maximum number
+ * of UTF-16 characters for each field, then the version of the Contact in a
+ * long.
+ *
+ * The Contact objects returned by get are decoded copies; a changed Contact
+ * must be put back to be stored.
+ *
+ * @see MappedRecordStore
+ * @author Ben
+ */
+class MappedContactMap extends AbstractMap<String, Contact> implements Closeable, Scannable<Contact> {
+
+	private final MappedRecordStore store;
+
+	/**
+	 * Constructor. Opens or creates the store file.
+	 *
+	 * @param storeFile The store file.
+	 * @throws IOException Exception indicating the store could not be opened.
+	 */
+	MappedContactMap(final Path storeFile) throws IOException {
+		this.store = new MappedRecordStore(storeFile, Contact.CONTACT_ID_MAX_CHAR_LENGTH, recordLength());
+	}
+
+	@Override
+	public Contact get(final Object key) {
+		if (!(key instanceof String)) {
+			return null;
+		}
+		final String contactId = (String) key;
+		return decode(contactId, this.store.get(contactId));
+	}
+
+	@Override
+	public boolean containsKey(final Object key) {
+		return key instanceof String && this.store.contains((String) key);
+	}
+
+	@Override
+	public Contact put(final String key, final Contact value) {
+		try {
+			return decode(key, this.store.put(key, encode(value)));
+		} catch (IOException e) {
+			throw new PersistenceException("The contact could not be stored.", e);
+		}
+	}
+
+	@Override
+	public Contact remove(final Object key) {
+		if (!(key instanceof String)) {
+			return null;
+		}
+		final String contactId = (String) key;
+		return decode(contactId, this.store.remove(contactId));
+	}
+
+	@Override
+	public int size() {
+		return this.store.size();
+	}
+
+	@Override
+	public Set<Map.Entry<String, Contact>> entrySet() {
+		return new AbstractSet<>() {
+
+			@Override
+			public Iterator<Map.Entry<String, Contact>> iterator() {
+				final Iterator<String> keys = MappedContactMap.this.store.keys().iterator();
+				return new Iterator<>() {
+
+					private Map.Entry<String, Contact> next = advance();
+
+					@Override
+					public boolean hasNext() {
+						return this.next != null;
+					}
+
+					@Override
+					public Map.Entry<String, Contact> next() {
+						if (this.next == null) {
+							throw new NoSuchElementException();
+						}
+						final Map.Entry<String, Contact> current = this.next;
+						this.next = advance();
+						return current;
+					}
+
+					// Skips keys removed after the key snapshot was taken.
+					private Map.Entry<String, Contact> advance() {
+						while (keys.hasNext()) {
+							final String contactId = keys.next();
+							final Contact contact = get(contactId);
+							if (contact != null) {
+								return new AbstractMap.SimpleImmutableEntry<>(contactId, contact);
+							}
+						}
+						return null;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return MappedContactMap.this.size();
+			}
+		};
+	}
+
+	@Override
+	public List<String> scanKeys() {
+		return new ArrayList<>(this.store.keys());
+	}
+
+	@Override
+	public Contact scanValue(final String key) {
+		return get(key);
+	}
+
+	/**
+	 * Forces the store to disk and closes it.
+	 *
+	 * @throws IOException Exception indicating the store could not be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.store.close();
+	}
+
+	/**
+	 * Gets the length of an encoded Contact record.
+	 *
+	 * @return Returns the record length in bytes.
+	 */
+	private static int recordLength() {
+		return fieldLength(Contact.FIRST_NAME_MAX_CHAR_LENGTH) + fieldLength(Contact.LAST_NAME_MAX_CHAR_LENGTH)
+				+ fieldLength(Contact.PHONE_MAX_CHAR_LENGTH) + fieldLength(Contact.ADDRESS_MAX_CHAR_LENGTH)
+				+ Long.BYTES;
+	}
+
+	private static int fieldLength(final int maxCharLength) {
+		return 1 + maxCharLength * Character.BYTES;
+	}
+
+	private static byte[] encode(final Contact contact) {
+		final ByteBuffer buffer = ByteBuffer.allocate(recordLength());
+		putField(buffer, contact.getFirstName(), Contact.FIRST_NAME_MAX_CHAR_LENGTH);
+		putField(buffer, contact.getLastName(), Contact.LAST_NAME_MAX_CHAR_LENGTH);
+		putField(buffer, contact.getPhoneNumber(), Contact.PHONE_MAX_CHAR_LENGTH);
+		putField(buffer, contact.getAddress(), Contact.ADDRESS_MAX_CHAR_LENGTH);
+		buffer.putLong(contact.getVersion());
+		return buffer.array();
+	}
+
+	private static Contact decode(final String contactId, final byte[] record) {
+		if (record == null) {
+			return null;
+		}
+		final ByteBuffer buffer = ByteBuffer.wrap(record);
+		try {
+			final Contact contact = new Contact(contactId, getField(buffer, Contact.FIRST_NAME_MAX_CHAR_LENGTH),
+					getField(buffer, Contact.LAST_NAME_MAX_CHAR_LENGTH),
+					getField(buffer, Contact.PHONE_MAX_CHAR_LENGTH), getField(buffer, Contact.ADDRESS_MAX_CHAR_LENGTH));
+			contact.setVersion(buffer.getLong());
+			return contact.freeze();
+		} catch (NullFieldException | MinimumLengthNotMetException | MaximumLengthExceededException e) {
+			throw new PersistenceException("The stored contact is not valid.", e);
+		}
+	}
+
+	private static void putField(final ByteBuffer buffer, final String value, final int maxCharLength) {
+		buffer.put((byte) value.length());
+		for (int i = 0; i < maxCharLength; i++) {
+			buffer.putChar(i < value.length() ? value.charAt(i) : 0);
+		}
+	}
+
+	private static String getField(final ByteBuffer buffer, final int maxCharLength) {
+		final int length = buffer.get();
+		final char[] value = new char[length];
+		for (int i = 0; i < maxCharLength; i++) {
+			final char c = buffer.getChar();
+			if (i < length) {
+				value[i] = c;
+			}
+		}
+		return new String(value);
+	}
+
+}
@@ -0,0 +1,319 @@
+package com.project.one.services;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * This class maps phone numbers to the contactIds that own them. Only the
+ * digits of a phone number count, so "(555) 0100" and "5550100" are the same
+ * number.
+ *
+ * The digits are packed into a long: a leading 1 followed by the digits, read
+ * as a decimal number, which keeps leading zeros apart ("012" is 1012, "12" is
+ * 112). Exact lookups go through a ConcurrentHashMap keyed by the packed
+ * number. A ConcurrentSkipListSet of the packed numbers answers prefix queries
+ * such as an area code: the numbers of each length that start with a prefix
+ * are one contiguous range of it. Numbers without digits, or with more than
+ * MAX_DIGITS digits, are not indexed.
+ *
+ * Most numbers have one owner, so an owner is stored as a bare contactId and
+ * only a shared number holds a concurrent set of them, which keeps adding an
+ * owner to a number shared by many contacts cheap. Changes are made inside
+ * the map's compute methods, and lookups never block.
+ *
+ * @see ContactService
+ * @author Ben
+ */
+class PhoneIndex {
+
+	/**
+	 * The most digits a packed phone number can hold.
+	 */
+	static final int MAX_DIGITS = 18;
+
+	// A packed number written with leading zeros, so positions sort as numbers.
+	private static final int POSITION_DIGITS = MAX_DIGITS + 1;
+
+	// Each value is a contactId or, for a shared number, a Set of them.
+	private final Map<Long, Object> owners = new ConcurrentHashMap<>();
+	private final NavigableSet<Long> numbers = new ConcurrentSkipListSet<>();
+
+	/**
+	 * Indexes a contactId under a phone number.
+	 *
+	 * @param phoneNumber The phone number.
+	 * @param contactId   The contactId.
+	 */
+	void add(final String phoneNumber, final String contactId) {
+		final long number = pack(phoneNumber);
+		if (number < 0) {
+			return;
+		}
+		this.owners.compute(number, (key, owner) -> {
+			if (owner == null || owner.equals(contactId)) {
+				return contactId;
+			}
+			if (owner instanceof String) {
+				final Set<String> shared = ConcurrentHashMap.newKeySet();
+				shared.add((String) owner);
+				shared.add(contactId);
+				return shared;
+			}
+			ownerSet(owner).add(contactId);
+			return owner;
+		});
+		this.numbers.add(number);
+	}
+
+	/**
+	 * Removes a contactId from under a phone number.
+	 *
+	 * @param phoneNumber The phone number the contactId was indexed under.
+	 * @param contactId   The contactId.
+	 */
+	void remove(final String phoneNumber, final String contactId) {
+		final long number = pack(phoneNumber);
+		if (number < 0) {
+			return;
+		}
+		final Object remaining = this.owners.computeIfPresent(number, (key, owner) -> {
+			if (owner instanceof String) {
+				return owner.equals(contactId) ? null : owner;
+			}
+			final Set<String> shared = ownerSet(owner);
+			shared.remove(contactId);
+			return shared.size() == 1 ? shared.iterator().next() : shared;
+		});
+		if (remaining == null) {
+			this.numbers.remove(number);
+			// An add of the same number may have slipped in after the owner was
+			// dropped and before the number was.
+			if (this.owners.containsKey(number)) {
+				this.numbers.add(number);
+			}
+		}
+	}
+
+	/**
+	 * Moves a contactId from under one phone number to under another. The new
+	 * entry is added before the old one is removed, so a concurrent lookup finds
+	 * the contactId under at least one of the numbers.
+	 *
+	 * @param previousPhoneNumber The phone number the contactId was indexed under.
+	 * @param phoneNumber         The new phone number.
+	 * @param contactId           The contactId.
+	 */
+	void replace(final String previousPhoneNumber, final String phoneNumber, final String contactId) {
+		if (pack(previousPhoneNumber) != pack(phoneNumber)) {
+			add(phoneNumber, contactId);
+			remove(previousPhoneNumber, contactId);
+		}
+	}
+
+	/**
+	 * Gets the contactIds that own a phone number.
+	 *
+	 * @param phoneNumber The phone number.
+	 * @return Returns the contactIds, empty if the number is not indexed.
+	 */
+	List<String> find(final String phoneNumber) {
+		final long number = pack(phoneNumber);
+		return number < 0 ? List.of() : List.of(contactIds(this.owners.get(number)));
+	}
+
+	/**
+	 * Gets the contactIds owning phone numbers that start with some digits,
+	 * ordered by the length of the number and then by the number.
+	 *
+	 * @param prefix The leading digits, such as an area code.
+	 * @param limit  The maximum number of contactIds to return.
+	 * @return Returns the contactIds.
+	 */
+	List<String> findByPrefix(final String prefix, final int limit) {
+		final List<String> contactIds = new ArrayList<>();
+		final long packedPrefix = pack(prefix);
+		if (packedPrefix < 0) {
+			return contactIds;
+		}
+		final int prefixDigits = digitCount(packedPrefix);
+		long scale = 1;
+		for (int digits = prefixDigits; digits <= MAX_DIGITS && contactIds.size() < limit; digits++) {
+			// The numbers with this many digits that start with the prefix.
+			final Iterator<Long> range = this.numbers.subSet(packedPrefix * scale, (packedPrefix + 1) * scale)
+					.iterator();
+			while (range.hasNext() && contactIds.size() < limit) {
+				for (final String contactId : contactIds(this.owners.get(range.next()))) {
+					if (contactIds.size() < limit) {
+						contactIds.add(contactId);
+					}
+				}
+			}
+			scale *= 10;
+		}
+		return contactIds;
+	}
+
+	/**
+	 * Gets the owners of the phone numbers that start with some digits, or that
+	 * equal them, from just after a position. The numbers come in the order of
+	 * findByPrefix, and the owners of each number in contactId order. Each entry
+	 * maps the position of an owner in that order to its contactId, so a caller
+	 * can stop anywhere and carry on later from the last position it read. The
+	 * numbers are read from the index as the iterator advances.
+	 *
+	 * @param digits The leading digits, or the whole number.
+	 * @param exact  True to match only numbers equal to the digits.
+	 * @param after  The position to start after, or null to start at the first
+	 *               match.
+	 * @return Returns an iterator over the positions and contactIds.
+	 */
+	Iterator<Map.Entry<String, String>> entries(final String digits, final boolean exact, final String after) {
+		final long packedPrefix = pack(digits);
+		if (packedPrefix < 0) {
+			return Collections.emptyIterator();
+		}
+		return new Positions(packedPrefix, exact ? digitCount(packedPrefix) : MAX_DIGITS, after);
+	}
+
+	/**
+	 * Checks whether a position read from this index still matches the phone
+	 * number of its Contact object.
+	 *
+	 * @param position    The position.
+	 * @param phoneNumber The current phone number of the Contact object.
+	 * @return Returns true if the Contact object is indexed at that position.
+	 */
+	static boolean isAt(final String position, final String phoneNumber) {
+		return Long.parseLong(position.substring(0, POSITION_DIGITS)) == pack(phoneNumber);
+	}
+
+	/**
+	 * Packs the digits of a phone number into a long.
+	 *
+	 * @param phoneNumber The phone number.
+	 * @return Returns the packed number, or -1 if it is null, or has no digits or
+	 *         too many.
+	 */
+	static long pack(final String phoneNumber) {
+		if (phoneNumber == null) {
+			return -1;
+		}
+		long packed = 1;
+		int digits = 0;
+		for (int i = 0; i < phoneNumber.length(); i++) {
+			final char c = phoneNumber.charAt(i);
+			if (c >= '0' && c <= '9') {
+				if (++digits > MAX_DIGITS) {
+					return -1;
+				}
+				packed = packed * 10 + (c - '0');
+			}
+		}
+		return digits == 0 ? -1 : packed;
+	}
+
+	/**
+	 * Checks whether the digits of a phone number start with the digits of a
+	 * prefix.
+	 *
+	 * @param phoneNumber The phone number.
+	 * @param prefix      The prefix.
+	 * @return Returns true if the phone number starts with the prefix.
+	 */
+	static boolean startsWith(final String phoneNumber, final String prefix) {
+		final long number = pack(phoneNumber);
+		final long packedPrefix = pack(prefix);
+		return number >= 0 && packedPrefix >= 0 && Long.toString(number).startsWith(Long.toString(packedPrefix));
+	}
+
+	private static String position(final long number, final String contactId) {
+		return String.format("%0" + POSITION_DIGITS + "d", number) + '\u0000' + contactId;
+	}
+
+	private static int digitCount(final long packed) {
+		return Long.toString(packed).length() - 1;
+	}
+
+	private static String[] contactIds(final Object owner) {
+		if (owner == null) {
+			return new String[0];
+		}
+		return owner instanceof String ? new String[] { (String) owner } : ownerSet(owner).toArray(new String[0]);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Set<String> ownerSet(final Object owner) {
+		return (Set<String>) owner;
+	}
+
+	/**
+	 * Walks the owners of the numbers of each length that start with a prefix,
+	 * one range of numbers after another.
+	 */
+	private final class Positions implements Iterator<Map.Entry<String, String>> {
+
+		private final long packedPrefix;
+		private final int lastDigits;
+		private final long afterNumber;
+		private final String afterContactId;
+		private int digits;
+		private long scale = 1;
+		private Iterator<Long> range = Collections.emptyIterator();
+		private final Deque<Map.Entry<String, String>> pending = new ArrayDeque<>();
+
+		private Positions(final long packedPrefix, final int lastDigits, final String after) {
+			this.packedPrefix = packedPrefix;
+			this.lastDigits = lastDigits;
+			this.digits = digitCount(packedPrefix);
+			this.afterNumber = after == null ? -1 : Long.parseLong(after.substring(0, POSITION_DIGITS));
+			this.afterContactId = after == null ? null : after.substring(POSITION_DIGITS + 1);
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (this.pending.isEmpty()) {
+				while (!this.range.hasNext()) {
+					if (this.digits > this.lastDigits) {
+						return false;
+					}
+					final long from = Math.max(this.packedPrefix * this.scale, this.afterNumber);
+					final long to = (this.packedPrefix + 1) * this.scale;
+					this.range = from < to ? PhoneIndex.this.numbers.subSet(from, to).iterator()
+							: Collections.emptyIterator();
+					this.digits++;
+					this.scale *= 10;
+				}
+				final long number = this.range.next();
+				final String[] contactIds = contactIds(PhoneIndex.this.owners.get(number));
+				Arrays.sort(contactIds);
+				for (final String contactId : contactIds) {
+					if (number != this.afterNumber || contactId.compareTo(this.afterContactId) > 0) {
+						this.pending.add(new AbstractMap.SimpleImmutableEntry<>(position(number, contactId), contactId));
+					}
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public Map.Entry<String, String> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return this.pending.poll();
+		}
+	}
+
+}
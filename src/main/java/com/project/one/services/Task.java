@@ -6,7 +6,11 @@ import com.project.one.exceptions.NullFieldException;
 import com.project.one.utils.ProjectUtils;
 
 /**
- * This class is a container for task related information.
+ * This class is a container for task related information. The services store
+ * a copy of an added Task and never change a stored Task; an update stores a
+ * changed copy in its place. The setters of a stored Task throw an
+ * UnsupportedOperationException, so it can only be changed through the
+ * service.
  *
  * @author Ben
  */
@@ -32,6 +36,8 @@ public class Task {
 	private String taskId;
 	private String name;
 	private String description;
+	private long version;
+	private boolean frozen;
 
 	/**
 	 * Constructor.
@@ -57,6 +63,50 @@ public class Task {
 		setDescription(description);
 	}
 
+	/**
+	 * Copy constructor used by copy and storedCopy.
+	 *
+	 * @param task The Task to copy.
+	 * @param version The version of the copy.
+	 */
+	private Task(final Task task, final long version) {
+		this.taskId = task.taskId;
+		this.name = task.name;
+		this.description = task.description;
+		this.version = version;
+	}
+
+	/**
+	 * Copies the Task as its next version, so that a service can change the copy
+	 * and store it in place of the Task.
+	 *
+	 * @return Returns a Task with the same fields and the next version.
+	 */
+	Task copy() {
+		return new Task(this, this.version + 1);
+	}
+
+	/**
+	 * Copies the Task for a service to store in place of the one it was
+	 * given, so the caller cannot change the stored Task through its own.
+	 *
+	 * @param version The version of the copy.
+	 * @return Returns a frozen Task with the same fields.
+	 */
+	Task storedCopy(final long version) {
+		return new Task(this, version).freeze();
+	}
+
+	/**
+	 * Stops the setters from changing the Task, once a service stores it.
+	 *
+	 * @return Returns the Task.
+	 */
+	Task freeze() {
+		this.frozen = true;
+		return this;
+	}
+
 	/**
 	 * Gets the name field.
 	 *
@@ -81,6 +131,7 @@ public class Task {
 	 */
 	public void setName(final String name)
 			throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		checkNotFrozen();
 		if (ProjectUtils.validStringField("name", name, MIN_CHAR_LENGTH, NAME_MAX_CHAR_LENGTH)) {
 			this.name = name;
 		}
@@ -110,11 +161,40 @@ public class Task {
 	 */
 	public void setDescription(final String description)
 			throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		checkNotFrozen();
 		if (ProjectUtils.validStringField("description", description, MIN_CHAR_LENGTH, DESCRIPTION_MAX_CHAR_LENGTH)) {
 			this.description = description;
 		}
 	}
 
+	/**
+	 * Gets the version. A new Task has version 0, and every update made through a
+	 * service stores a copy with the next version. A service stores an added Task
+	 * above the version of every Task it has deleted, so a Task deleted and added
+	 * again never repeats a version. The conditional updates and deletes of the
+	 * services compare it to catch changes made since the Task was read.
+	 *
+	 * @return Returns the version.
+	 */
+	public long getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * Sets the version of a Task read back from storage.
+	 *
+	 * @param version The stored version.
+	 */
+	void setVersion(final long version) {
+		this.version = version;
+	}
+
+	private void checkNotFrozen() {
+		if (this.frozen) {
+			throw new UnsupportedOperationException("A stored Task cannot be changed; update it through the service.");
+		}
+	}
+
 	/**
 	 * Gets the taskId field.
 	 *
@@ -0,0 +1,86 @@
+package com.project.one.services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.project.one.exceptions.MaximumLengthExceededException;
+import com.project.one.exceptions.MinimumLengthNotMetException;
+import com.project.one.exceptions.NullFieldException;
+import com.project.one.persistence.BinaryCodec;
+import com.project.one.persistence.BinaryFields;
+
+/**
+ * This class is a singleton BinaryCodec for Task objects.
+ *
+ * Version 1 layout: the version byte, a flags byte with one bit per string
+ * field set when the field is UTF-8, the taskId, name and description as
+ * BinaryFields strings, then the version of the Task in a long.
+ *
+ * @see Task
+ * @see BinaryFields
+ * @author Ben
+ */
+public class TaskCodec implements BinaryCodec<Task> {
+
+	/**
+	 * The format version written by encode.
+	 */
+	public static final byte VERSION = 1;
+
+	private static final TaskCodec INSTANCE = new TaskCodec();
+
+	/**
+	 * Private Constructor.
+	 */
+	private TaskCodec() {
+	}
+
+	/**
+	 * Gets the only instance of TaskCodec.
+	 *
+	 * @return Returns the only instance of TaskCodec.
+	 */
+	public static TaskCodec getInstance() {
+		return INSTANCE;
+	}
+
+	@Override
+	public void encode(final Task task, final ByteBuffer buffer) {
+		buffer.put(VERSION);
+		final int flagsPosition = buffer.position();
+		buffer.put((byte) 0);
+		int flags = 0;
+		flags |= BinaryFields.putString(buffer, task.getTaskId()) ? 1 : 0;
+		flags |= BinaryFields.putString(buffer, task.getName()) ? 1 << 1 : 0;
+		flags |= BinaryFields.putString(buffer, task.getDescription()) ? 1 << 2 : 0;
+		buffer.put(flagsPosition, (byte) flags);
+		buffer.putLong(task.getVersion());
+	}
+
+	@Override
+	public Task decode(final ByteBuffer buffer) throws IOException {
+		BinaryFields.checkVersion(buffer, VERSION);
+		final int flags = buffer.get();
+		final Task task;
+		try {
+			task = new Task(BinaryFields.getString(buffer, (flags & 1) != 0),
+					BinaryFields.getString(buffer, (flags & 1 << 1) != 0),
+					BinaryFields.getString(buffer, (flags & 1 << 2) != 0));
+		} catch (NullFieldException | MinimumLengthNotMetException | MaximumLengthExceededException e) {
+			throw new IOException("The encoded task is not valid.", e);
+		}
+		if (buffer.remaining() < Long.BYTES) {
+			throw new IOException("The record ends inside a field.");
+		}
+		task.setVersion(buffer.getLong());
+		return task.freeze();
+	}
+
+	@Override
+	public int getMaxLength() {
+		return 2 + BinaryFields.maxLength(Task.TASK_ID_MAX_CHAR_LENGTH)
+				+ BinaryFields.maxLength(Task.NAME_MAX_CHAR_LENGTH)
+				+ BinaryFields.maxLength(Task.DESCRIPTION_MAX_CHAR_LENGTH) + Long.BYTES;
+	}
+
+}
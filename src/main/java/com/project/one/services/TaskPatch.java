@@ -0,0 +1,125 @@
+package com.project.one.services;
+
+import com.project.one.exceptions.MaximumLengthExceededException;
+import com.project.one.exceptions.MinimumLengthNotMetException;
+import com.project.one.exceptions.NullFieldException;
+import com.project.one.utils.ProjectUtils;
+
+/**
+ * This class describes the changes TaskService.updateTask makes to one Task
+ * object. A patch starts from none, which changes nothing, and each field set
+ * adds a change; the fields left unset keep their values. A patch is
+ * immutable, so one patch can be shared and extended. A field set to a NULL
+ * value is rejected with an IllegalArgumentException; a value that is too
+ * short or too long is accepted here and makes the update fail.
+ *
+ * @see TaskService
+ * @author Ben
+ */
+public final class TaskPatch {
+
+	private static final TaskPatch NONE = new TaskPatch(null, null);
+
+	private final String name;
+	private final String description;
+
+	private TaskPatch(final String name, final String description) {
+		this.name = name;
+		this.description = description;
+	}
+
+	/**
+	 * Gets the patch that changes nothing.
+	 *
+	 * @return Returns the patch.
+	 */
+	public static TaskPatch none() {
+		return NONE;
+	}
+
+	/**
+	 * Adds a change of the name to the patch.
+	 *
+	 * @param name The new name.
+	 * @return Returns the extended patch.
+	 */
+	public TaskPatch name(final String name) {
+		return new TaskPatch(checkValue(name), this.description);
+	}
+
+	/**
+	 * Adds a change of the description to the patch.
+	 *
+	 * @param description The new description.
+	 * @return Returns the extended patch.
+	 */
+	public TaskPatch description(final String description) {
+		return new TaskPatch(this.name, checkValue(description));
+	}
+
+	/**
+	 * Gets the new description.
+	 *
+	 * @return Returns the description, or null if the patch does not change it.
+	 */
+	String getDescription() {
+		return this.description;
+	}
+
+	/**
+	 * Checks whether the patch changes nothing.
+	 *
+	 * @return Returns true if no field is set.
+	 */
+	boolean isEmpty() {
+		return this.name == null && this.description == null;
+	}
+
+	/**
+	 * Checks every field set against the limits of a Task, without changing any
+	 * Task.
+	 *
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	void validate() throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		if (this.name != null) {
+			ProjectUtils.validStringField("name", this.name, Task.MIN_CHAR_LENGTH, Task.NAME_MAX_CHAR_LENGTH);
+		}
+		if (this.description != null) {
+			ProjectUtils.validStringField("description", this.description, Task.MIN_CHAR_LENGTH,
+					Task.DESCRIPTION_MAX_CHAR_LENGTH);
+		}
+	}
+
+	/**
+	 * Sets every field set in the patch on a Task.
+	 *
+	 * @param task The Task to change.
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	void applyTo(final Task task)
+			throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		if (this.name != null) {
+			task.setName(this.name);
+		}
+		if (this.description != null) {
+			task.setDescription(this.description);
+		}
+	}
+
+	private static String checkValue(final String value) {
+		if (value == null) {
+			throw new IllegalArgumentException("A patch value cannot be NULL.");
+		}
+		return value;
+	}
+
+}
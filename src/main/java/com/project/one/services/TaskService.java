@@ -1,31 +1,159 @@
 package com.project.one.services;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.project.one.exceptions.MaximumLengthExceededException;
 import com.project.one.exceptions.MinimumLengthNotMetException;
 import com.project.one.exceptions.NullFieldException;
+import com.project.one.exceptions.PastDateException;
+import com.project.one.exceptions.PersistenceException;
+import com.project.one.persistence.BackupFile;
+import com.project.one.persistence.BinaryRecordCodec;
+import com.project.one.persistence.ChangeTracker;
+import com.project.one.persistence.Checkpointer;
+import com.project.one.persistence.InvertedIndex;
+import com.project.one.persistence.Journal;
+import com.project.one.persistence.LsmStore;
+import com.project.one.persistence.RecordCodec;
+import com.project.one.persistence.RecordSpliterator;
+import com.project.one.persistence.StorageProvider;
+import com.project.one.persistence.StorageProviders;
+import com.project.one.persistence.VersionClock;
+import com.project.one.persistence.VersionHistory;
 
 /**
  * This class is a singleton service handling CRUD operations to the Task
- * database. NOTE: The current implementation uses an in-memory solution. This
- * should be replaced with a permanent persistence option.
+ * database. NOTE: By default the Task objects are only kept in memory. Calling
+ * enableWriteAheadLog makes every add, delete and update durable by recording
+ * it in a Journal that is replayed on the next start. Calling enableLsmStore
+ * instead keeps the Task objects in an LsmStore on disk, which suits workloads
+ * that write far more than they read.
+ *
+ * Adds, deletes and updates each make one atomic map operation (putIfAbsent,
+ * remove or computeIfPresent) under the write lock, so concurrent changes to
+ * one taskId take effect one at a time and an add of an existing taskId always
+ * fails. Lookups never take the lock.
+ *
+ * Every Task object carries a version that each update raises by one. An added
+ * Task object starts above the version of every deleted one, so a version read
+ * before a delete never matches a Task object added again. Each update and
+ * delete also comes in a conditional form taking the version the caller read,
+ * for example from getTaskVersion; it changes nothing and returns false if the
+ * Task object has since been changed, so two clients editing the same Task
+ * object cannot silently overwrite each other. The version is checked once
+ * without the write lock, so a stale change fails without waiting, and again
+ * inside the map operation. A negative version never matches.
+ *
+ * updateTask changes several fields at once from a TaskPatch. Every field is
+ * checked first, and then all of them are set on one copy of the Task object
+ * with one map operation, one journal record and one wait for durability,
+ * instead of one of each per field.
+ *
+ * The storage engine behind the service can be swapped: enableStorage, or the
+ * project.one.storage system property set before the service is first used,
+ * keeps the Task objects in a Map opened by a StorageProvider.
+ *
+ * Calling backup streams a consistent copy of the Task objects to a file while
+ * writers carry on, and backupChangesSince writes only the Task objects changed
+ * since an earlier backup. restoreBackup rebuilds the service from a full
+ * backup and the incremental backups after it.
+ *
+ * The words of the Task descriptions are kept in an InvertedIndex, so
+ * findTasksMatchingAll and findTasksMatchingAny only read the Task objects
+ * that match. The index is built from the Task objects when the service
+ * starts, which in LsmStore mode reads every Task once.
+ *
+ * stream and parallelStream walk every Task object for reports, splitting the
+ * scan over the storage so that a parallel stream runs on every core. They are
+ * weakly consistent: they never block writers and never throw a
+ * ConcurrentModificationException, each Task object is seen at most once, and
+ * one present for the whole scan is always seen, but one added or deleted
+ * during the scan may or may not be. An update stores a changed copy, so each
+ * Task object is seen either as it was before an update or as it is after
+ * it, never half made.
+ *
+ * A TransactionManager created over the service reads it as of a snapshot
+ * and changes it all or nothing together with the other services. It makes
+ * the service keep the versions of its Task objects that open
+ * transactions still need.
  *
  * @see Task
+ * @see Journal
+ * @see ChangeTracker
+ * @see FieldUpdate
+ * @see RecordSpliterator
+ * @see StorageProvider
+ * @see LsmStore
+ * @see InvertedIndex
+ * @see TaskPatch
+ * @see TransactionManager
  * @author Ben
  */
 public class TaskService {
 
-	// TODO This should be replaced with a permanent persistence option.
+	// Journals, snapshots, backups and storage engines all hold TaskCodec records.
+	static final RecordCodec<Task> CODEC = new BinaryRecordCodec<>(TaskCodec.getInstance(), Task::getTaskId);
+
+	// The expected version of the unconditional updates and deletes; no Task
+	// has a negative version, and the conditional forms refuse one.
+	private static final long ANY_VERSION = Long.MIN_VALUE;
+
+	private static final String STORAGE_NAME = "tasks";
+
 	private final Map<String, Task> taskMap;
-	private static TaskService instance = new TaskService();
+	private final Journal<Task> journal;
+	// Keeps the order of the log records the same as the order of the map changes.
+	private final Object writeLock = new Object();
+	// Added Task objects start above the version of every deleted one, so a
+	// version read before a delete never matches a Task object added again.
+	private long firstVersion;
+	private final ChangeTracker<Task> changes;
+	private final InvertedIndex descriptionIndex = new InvertedIndex();
+	private static volatile TaskService instance = new TaskService();
 
 	/**
 	 * Private Constructor.
 	 */
 	private TaskService() {
+		this.taskMap = StorageProviders.openDefault(STORAGE_NAME, CODEC);
+		this.changes = new ChangeTracker<>(this.taskMap, CODEC, this.writeLock);
+		this.journal = null;
+		indexTasks();
+	}
+
+	/**
+	 * Constructor. Rebuilds the Task objects from the journal directory and
+	 * records every later change in it.
+	 *
+	 * @param journalDirectory The directory holding the snapshots and the log.
+	 * @throws IOException Exception indicating the journal could not be read.
+	 */
+	TaskService(final Path journalDirectory) throws IOException {
 		this.taskMap = new ConcurrentHashMap<>();
+		this.changes = new ChangeTracker<>(this.taskMap, CODEC, this.writeLock);
+		this.journal = new Journal<>(journalDirectory, this.taskMap, CODEC);
+		indexTasks();
+	}
+
+	/**
+	 * Constructor. Keeps the Task objects in the given map, which is closed with
+	 * the service if it is Closeable.
+	 *
+	 * @param taskMap The map holding the Task objects.
+	 */
+	TaskService(final Map<String, Task> taskMap) {
+		this.taskMap = taskMap;
+		this.changes = new ChangeTracker<>(this.taskMap, CODEC, this.writeLock);
+		this.journal = null;
+		indexTasks();
 	}
 
 	/**
@@ -37,6 +165,74 @@ public class TaskService {
 		return instance;
 	}
 
+	/**
+	 * Replaces the only instance of TaskService with one that persists every
+	 * change to a write-ahead log, which the Checkpointer compacts into snapshots
+	 * in the background. The Task objects already in the journal are loaded
+	 * before this method returns. This should be called once on startup before
+	 * the service is used.
+	 *
+	 * @param journalDirectory The directory holding the snapshots and the log.
+	 * @throws IOException Exception indicating the journal could not be read.
+	 */
+	public static synchronized void enableWriteAheadLog(final Path journalDirectory) throws IOException {
+		final TaskService previous = instance;
+		instance = new TaskService(journalDirectory);
+		Checkpointer.getInstance().register(instance.journal);
+		previous.close();
+	}
+
+	/**
+	 * Replaces the only instance of TaskService with one that keeps the Task
+	 * objects in an LSM tree in the given directory. Every change is logged before
+	 * it returns, and the Task objects are read from disk on demand rather than
+	 * loaded on startup. This should be called once on startup before the service
+	 * is used.
+	 *
+	 * @param storeDirectory The directory holding the log and the sorted tables.
+	 * @throws IOException Exception indicating the store could not be opened.
+	 */
+	public static synchronized void enableLsmStore(final Path storeDirectory) throws IOException {
+		final TaskService previous = instance;
+		instance = new TaskService(new LsmStore<>(storeDirectory, CODEC));
+		previous.close();
+	}
+
+	/**
+	 * Replaces the only instance of TaskService with one that keeps the Task
+	 * objects in the tasks map of the named StorageProvider. This should be
+	 * called once on startup before the service is used.
+	 *
+	 * @param providerName The name of the StorageProvider.
+	 * @throws IOException Exception indicating the provider could not be found or
+	 *                     the map could not be opened.
+	 */
+	public static synchronized void enableStorage(final String providerName) throws IOException {
+		final TaskService previous = instance;
+		instance = new TaskService(StorageProviders.get(providerName).open(STORAGE_NAME, CODEC));
+		previous.close();
+	}
+
+	/**
+	 * Replaces the only instance of TaskService with one holding the Task objects
+	 * of a full backup and the incremental backups taken after it. The chunks of
+	 * each backup file are read in parallel. The restored Task objects are
+	 * kept in memory. This should be called on startup before the service is
+	 * used.
+	 *
+	 * @param backupFiles The full backup, then each incremental backup in the
+	 *                    order they were taken.
+	 * @throws IOException Exception indicating a backup file is damaged or the
+	 *                     files do not form a chain of backups.
+	 */
+	public static synchronized void restoreBackup(final List<Path> backupFiles) throws IOException {
+		final Map<String, Task> restored = new ConcurrentHashMap<>();
+		BackupFile.restore(backupFiles, restored, CODEC, Runtime.getRuntime().availableProcessors());
+		final TaskService previous = instance;
+		instance = new TaskService(restored);
+		previous.close();
+	}
+
 	/**
 	 * Adds a Task object.
 	 *
@@ -44,12 +240,20 @@ public class TaskService {
 	 * @return Returns true if the add was successful.
 	 */
 	public boolean addTask(final Task task) {
-		if (!taskExists(task.getTaskId())) {
-			this.taskMap.put(task.getTaskId(), task);
-			return true;
-		} else {
-			return false;
+		final long sequence;
+		synchronized (this.writeLock) {
+			// Stores a frozen copy, so the caller cannot change the stored Task object.
+			final Task stored = copyToStore(task);
+			this.changes.beforeChange(stored.getTaskId());
+			if (this.taskMap.putIfAbsent(stored.getTaskId(), stored) != null) {
+				return false;
+			}
+			this.changes.changed(stored.getTaskId());
+			this.descriptionIndex.add(stored.getTaskId(), stored.getDescription());
+			sequence = logPut(stored);
 		}
+		awaitDurable(sequence);
+		return true;
 	}
 
 	/**
@@ -60,12 +264,49 @@ public class TaskService {
 	 * @return Returns true if the delete was successful.
 	 */
 	public boolean deleteTask(final String taskId) {
-		if (taskExists(taskId)) {
-			this.taskMap.remove(taskId);
-			return true;
-		} else {
+		return delete(taskId, ANY_VERSION);
+	}
+
+	/**
+	 * Deletes a Task object based on a taskId, only if it still has the
+	 * expected version.
+	 *
+	 * The version is checked before the write lock is taken, so a delete of a
+	 * Task object that has already changed fails at once instead of waiting for
+	 * other writers.
+	 *
+	 * @param taskId          The taskId that indicates the Task object that
+	 *                        should be deleted.
+	 * @param expectedVersion The version the Task object was read at. A negative
+	 *                        version never matches.
+	 * @return Returns true if the delete was successful, or false if the Task
+	 *         object has another version.
+	 */
+	public boolean deleteTask(final String taskId, final long expectedVersion) {
+		return expectedVersion >= 0 && delete(taskId, expectedVersion);
+	}
+
+	/**
+	 * Deletes a Task object based on a taskId, if it has the expected version;
+	 * ANY_VERSION matches any version.
+	 */
+	private boolean delete(final String taskId, final long expectedVersion) {
+		if (!hasVersion(taskId, expectedVersion)) {
 			return false;
 		}
+		final long sequence;
+		synchronized (this.writeLock) {
+			this.changes.beforeChange(taskId);
+			final Task removed = remove(taskId, expectedVersion);
+			if (removed == null) {
+				return false;
+			}
+			this.changes.changed(taskId);
+			this.descriptionIndex.remove(taskId, removed.getDescription());
+			sequence = logDelete(taskId);
+		}
+		awaitDurable(sequence);
+		return true;
 	}
 
 	/**
@@ -77,18 +318,47 @@ public class TaskService {
 	 * @return Returns true if the update was successful.
 	 */
 	public boolean updateTaskName(final String taskId, final String updateName) {
-		if (!taskExists(taskId)) {
+		return updateName(taskId, ANY_VERSION, updateName);
+	}
+
+	/**
+	 * Updates the name of a Task object based on a taskId, only if it still has
+	 * the expected version.
+	 *
+	 * The version is checked before the write lock is taken, so an update of a
+	 * Task object that has already changed fails at once instead of waiting for
+	 * other writers.
+	 *
+	 * @param taskId          The taskId that indicates the Task object that
+	 *                        should be updated.
+	 * @param expectedVersion The version the Task object was read at. A negative
+	 *                        version never matches.
+	 * @param updateName      The updated name of the Task object.
+	 * @return Returns true if the update was successful, or false if the Task
+	 *         object has another version.
+	 */
+	public boolean updateTaskName(final String taskId, final long expectedVersion, final String updateName) {
+		return expectedVersion >= 0 && updateName(taskId, expectedVersion, updateName);
+	}
+
+	/**
+	 * Updates the name of a Task object based on a taskId, if it has the expected
+	 * version; ANY_VERSION matches any version.
+	 */
+	private boolean updateName(final String taskId, final long expectedVersion, final String updateName) {
+		if (!hasVersion(taskId, expectedVersion)) {
 			return false;
-		} else {
-			final Task task = this.taskMap.get(taskId);
-			try {
-				task.setName(updateName);
-				return true;
-			} catch (NullFieldException | MinimumLengthNotMetException | MaximumLengthExceededException e) {
+		}
+		final long sequence;
+		synchronized (this.writeLock) {
+			final Task task = change(taskId, expectedVersion, current -> current.setName(updateName));
+			if (task == null) {
 				return false;
 			}
+			sequence = logPut(task);
 		}
-
+		awaitDurable(sequence);
+		return true;
 	}
 
 	/**
@@ -100,30 +370,458 @@ public class TaskService {
 	 * @return Returns true if the update was successful.
 	 */
 	public boolean updateTaskDescription(final String taskId, final String updateDescription) {
-		if (!taskExists(taskId)) {
+		return updateDescription(taskId, ANY_VERSION, updateDescription);
+	}
+
+	/**
+	 * Updates the description of a Task object based on a taskId, only if it
+	 * still has the expected version.
+	 *
+	 * The version is checked before the write lock is taken, so an update of a
+	 * Task object that has already changed fails at once instead of waiting for
+	 * other writers.
+	 *
+	 * @param taskId            The taskId that indicates the Task object that
+	 *                          should be updated.
+	 * @param expectedVersion   The version the Task object was read at. A negative
+	 *                          version never matches.
+	 * @param updateDescription The updated description of the Task object.
+	 * @return Returns true if the update was successful, or false if the Task
+	 *         object has another version.
+	 */
+	public boolean updateTaskDescription(final String taskId, final long expectedVersion,
+			final String updateDescription) {
+		return expectedVersion >= 0 && updateDescription(taskId, expectedVersion, updateDescription);
+	}
+
+	/**
+	 * Updates the description of a Task object based on a taskId, if it has the
+	 * expected version; ANY_VERSION matches any version.
+	 */
+	private boolean updateDescription(final String taskId, final long expectedVersion, final String updateDescription) {
+		if (!hasVersion(taskId, expectedVersion)) {
 			return false;
-		} else {
+		}
+		final long sequence;
+		synchronized (this.writeLock) {
+			final String[] previousDescription = new String[1];
+			final Task task = change(taskId, expectedVersion, current -> {
+				previousDescription[0] = current.getDescription();
+				current.setDescription(updateDescription);
+			});
+			if (task == null) {
+				return false;
+			}
+			this.descriptionIndex.replace(taskId, previousDescription[0], updateDescription);
+			sequence = logPut(task);
+		}
+		awaitDurable(sequence);
+		return true;
+	}
+
+	/**
+	 * Updates several fields of a Task object based on a taskId in one change.
+	 *
+	 * @param taskId The taskId that indicates the Task object that should be
+	 *               updated.
+	 * @param patch  The fields to update and their updated values.
+	 * @return Returns true if the update was successful.
+	 */
+	public boolean updateTask(final String taskId, final TaskPatch patch) {
+		return update(taskId, ANY_VERSION, patch);
+	}
+
+	/**
+	 * Updates several fields of a Task object based on a taskId in one change,
+	 * only if it still has the expected version.
+	 *
+	 * Every field is checked before the write lock is taken, and the update
+	 * fails without changing anything if any is not valid. The fields are then
+	 * set on one copy of the Task object stored in a single atomic map operation
+	 * with one journal record, so readers see either all of the changes or none
+	 * of them.
+	 *
+	 * @param taskId          The taskId that indicates the Task object that
+	 *                        should be updated.
+	 * @param expectedVersion The version the Task object was read at. A negative
+	 *                        version never matches.
+	 * @param patch           The fields to update and their updated values.
+	 * @return Returns true if the update was successful, or false if the patch
+	 *         is empty, a field is not valid or the Task object has another
+	 *         version.
+	 */
+	public boolean updateTask(final String taskId, final long expectedVersion, final TaskPatch patch) {
+		return expectedVersion >= 0 && update(taskId, expectedVersion, patch);
+	}
+
+	/**
+	 * Updates several fields of a Task object based on a taskId in one change, if
+	 * it has the expected version; ANY_VERSION matches any version.
+	 */
+	private boolean update(final String taskId, final long expectedVersion, final TaskPatch patch) {
+		if (patch == null || patch.isEmpty() || !hasVersion(taskId, expectedVersion)) {
+			return false;
+		}
+		try {
+			patch.validate();
+		} catch (NullFieldException | MinimumLengthNotMetException | MaximumLengthExceededException e) {
+			return false;
+		}
+		final long sequence;
+		synchronized (this.writeLock) {
+			final String[] previousDescription = new String[1];
+			final Task task = change(taskId, expectedVersion, current -> {
+				previousDescription[0] = current.getDescription();
+				patch.applyTo(current);
+			});
+			if (task == null) {
+				return false;
+			}
+			if (patch.getDescription() != null) {
+				this.descriptionIndex.replace(taskId, previousDescription[0], task.getDescription());
+			}
+			sequence = logPut(task);
+		}
+		awaitDurable(sequence);
+		return true;
+	}
+
+	/**
+	 * Gets the Task objects whose description contains every word of a query,
+	 * ignoring case. The Task objects with the rarest of the words, or the most
+	 * of them, come first.
+	 *
+	 * @param keywords The words to find.
+	 * @param limit    The maximum number of Task objects to return.
+	 * @return Returns the matching Task objects, best match first.
+	 */
+	public List<Task> findTasksMatchingAll(final String keywords, final int limit) {
+		final List<Task> tasks = new ArrayList<>();
+		for (final String taskId : this.descriptionIndex.findAll(keywords, limit)) {
+			final Task task = this.taskMap.get(taskId);
+			// Skips a Task deleted or changed after the index was read.
+			if (task != null && InvertedIndex.containsAll(task.getDescription(), keywords)) {
+				tasks.add(task);
+			}
+		}
+		return tasks;
+	}
+
+	/**
+	 * Gets the Task objects whose description contains any word of a query,
+	 * ignoring case. The Task objects with the most of the words, or the rarest
+	 * of them, come first.
+	 *
+	 * @param keywords The words to find.
+	 * @param limit    The maximum number of Task objects to return.
+	 * @return Returns the matching Task objects, best match first.
+	 */
+	public List<Task> findTasksMatchingAny(final String keywords, final int limit) {
+		final List<Task> tasks = new ArrayList<>();
+		for (final String taskId : this.descriptionIndex.findAny(keywords, limit)) {
 			final Task task = this.taskMap.get(taskId);
+			// Skips a Task deleted or changed after the index was read.
+			if (task != null && InvertedIndex.containsAny(task.getDescription(), keywords)) {
+				tasks.add(task);
+			}
+		}
+		return tasks;
+	}
+
+	/**
+	 * Replaces a stored Task object with a changed copy in one atomic map
+	 * operation, if it has the expected version. Must be called while holding
+	 * the write lock.
+	 *
+	 * @param taskId          The taskId of the Task object.
+	 * @param expectedVersion The version the Task object must have, or
+	 *                        ANY_VERSION for any version.
+	 * @param update          The change, made through the setters of a copy of
+	 *                        the Task object.
+	 * @return Returns the changed Task object, or null if it does not exist,
+	 *         has another version or a value is not valid.
+	 */
+	private Task change(final String taskId, final long expectedVersion, final FieldUpdate<Task> update) {
+		final boolean[] valid = new boolean[1];
+		final Task task = this.taskMap.computeIfPresent(taskId, (id, current) -> {
+			if (expectedVersion != ANY_VERSION && current.getVersion() != expectedVersion) {
+				return current;
+			}
+			this.changes.beforeChange(id);
+			// Readers holding the current Task never see it change.
+			final Task changed = current.copy();
 			try {
-				task.setDescription(updateDescription);
-				return true;
-			} catch (NullFieldException | MinimumLengthNotMetException | MaximumLengthExceededException e) {
-				return false;
+				update.apply(changed);
+			} catch (NullFieldException | MinimumLengthNotMetException | MaximumLengthExceededException
+					| PastDateException e) {
+				return current;
 			}
+			valid[0] = true;
+			return changed.freeze();
+		});
+		if (task == null || !valid[0]) {
+			return null;
 		}
+		this.changes.changed(taskId);
+		return task;
 	}
 
 	/**
-	 * Searches for an existing Task object based on a taskId.
+	 * Removes a stored Task object in one atomic map operation, if it has the
+	 * expected version. Must be called while holding the write lock.
 	 *
-	 * @param taskId The taskId being searched for.
-	 * @return Returns true if the contact exists.
+	 * @param taskId          The taskId of the Task object.
+	 * @param expectedVersion The version the Task object must have, or
+	 *                        ANY_VERSION for any version.
+	 * @return Returns the removed Task object, or null if it does not exist or
+	 *         has another version.
 	 */
-	private boolean taskExists(final String taskId) {
-		if (this.taskMap.containsKey(taskId)) {
+	private Task remove(final String taskId, final long expectedVersion) {
+		final Task[] removed = new Task[1];
+		if (expectedVersion == ANY_VERSION) {
+			removed[0] = this.taskMap.remove(taskId);
+		} else {
+			this.taskMap.computeIfPresent(taskId, (id, current) -> {
+				if (current.getVersion() != expectedVersion) {
+					return current;
+				}
+				removed[0] = current;
+				return null;
+			});
+		}
+		if (removed[0] != null) {
+			this.firstVersion = Math.max(this.firstVersion, removed[0].getVersion() + 1);
+		}
+		return removed[0];
+	}
+
+	/**
+	 * Checks the version of a Task object without taking the write lock, so
+	 * that a conditional update or delete of a Task object that has already
+	 * changed fails at once. The version is checked again under the write lock.
+	 *
+	 * @param taskId          The taskId of the Task object.
+	 * @param expectedVersion The version the Task object must have, or
+	 *                        ANY_VERSION for any version.
+	 * @return Returns true if the Task object exists with the expected version
+	 *         or any version is expected.
+	 */
+	private boolean hasVersion(final String taskId, final long expectedVersion) {
+		if (expectedVersion == ANY_VERSION) {
 			return true;
+		}
+		final Task task = this.taskMap.get(taskId);
+		return task != null && task.getVersion() == expectedVersion;
+	}
+
+	/**
+	 * Gets a Task object based on a taskId.
+	 *
+	 * @param taskId The taskId being searched for.
+	 * @return Returns the Task object, or null if it does not exist.
+	 */
+	Task getTask(final String taskId) {
+		return this.taskMap.get(taskId);
+	}
+
+	/**
+	 * Gets the version of a Task object, to pass to a later conditional update
+	 * or delete.
+	 *
+	 * @param taskId The taskId being searched for.
+	 * @return Returns the version, or -1 if the Task object does not exist.
+	 */
+	public long getTaskVersion(final String taskId) {
+		final Task task = this.taskMap.get(taskId);
+		return task == null ? -1 : task.getVersion();
+	}
+
+	/**
+	 * Starts keeping the versions of the Task objects that open snapshots still
+	 * need, published with a clock shared with the other services.
+	 *
+	 * @param clock The clock the versions are published with.
+	 * @return Returns the version history of the Task objects.
+	 */
+	VersionHistory<Task> keepVersions(final VersionClock clock) {
+		synchronized (this.writeLock) {
+			return this.changes.keepVersions(clock);
+		}
+	}
+
+	/**
+	 * Gets the lock writers hold while they change the Task objects, which a
+	 * Transaction holds while it commits.
+	 *
+	 * @return Returns the write lock.
+	 */
+	Object getWriteLock() {
+		return this.writeLock;
+	}
+
+	/**
+	 * Copies an added Task object to store, frozen and above the version of
+	 * every deleted one. Must be called while holding the write lock.
+	 *
+	 * @param task The added Task object.
+	 * @return Returns the copy to store.
+	 */
+	Task copyToStore(final Task task) {
+		return task.storedCopy(Math.max(task.getVersion(), this.firstVersion));
+	}
+
+	/**
+	 * Stores a Task object in place of the stored one, or deletes the stored
+	 * one, for a Transaction that holds the write lock. The description index
+	 * follows the change as it does for the update methods, and the journal
+	 * records it, but nothing waits for the disk; the Transaction calls
+	 * awaitDurable once it has released the write lock.
+	 *
+	 * @param taskId The taskId of the Task object.
+	 * @param task   The frozen Task object to store, or null to delete the
+	 *               stored one.
+	 * @return Returns the sequence number of the journal record.
+	 */
+	long store(final String taskId, final Task task) {
+		this.changes.beforeChange(taskId);
+		if (task == null) {
+			final Task removed = remove(taskId, ANY_VERSION);
+			this.changes.changed(taskId);
+			if (removed != null) {
+				this.descriptionIndex.remove(taskId, removed.getDescription());
+			}
+			return logDelete(taskId);
+		}
+		final Task previous = this.taskMap.put(taskId, task);
+		this.changes.changed(taskId);
+		if (previous == null) {
+			this.descriptionIndex.add(taskId, task.getDescription());
 		} else {
-			return false;
+			this.descriptionIndex.replace(taskId, previous.getDescription(), task.getDescription());
+		}
+		return logPut(task);
+	}
+
+	/**
+	 * Streams every Task object. The stream is weakly consistent and does not
+	 * block writers; see the class description for what it sees of concurrent
+	 * changes.
+	 *
+	 * @return Returns a sequential stream of the Task objects.
+	 */
+	public Stream<Task> stream() {
+		return StreamSupport.stream(RecordSpliterator.over(this.taskMap), false);
+	}
+
+	/**
+	 * Streams every Task object on the common fork-join pool. The Task objects
+	 * are split over the storage, so a full scan runs on every core.
+	 *
+	 * @return Returns a parallel stream of the Task objects.
+	 * @see #stream()
+	 */
+	public Stream<Task> parallelStream() {
+		return StreamSupport.stream(RecordSpliterator.over(this.taskMap), true);
+	}
+
+	/**
+	 * Streams a full backup of the Task objects into a file. The backup holds
+	 * the Task objects as they were when it started; writers are not paused
+	 * while it is written.
+	 *
+	 * @param backupFile The backup file, replaced if it exists.
+	 * @throws IOException Exception indicating the backup could not be written.
+	 */
+	public void backup(final Path backupFile) throws IOException {
+		this.changes.backup(backupFile, null);
+	}
+
+	/**
+	 * Streams an incremental backup of the Task objects added, updated or
+	 * deleted since an earlier backup into a file. The earlier backup must have
+	 * been taken since the service was last started, and no earlier than the
+	 * last full backup.
+	 *
+	 * @param backupFile     The backup file, replaced if it exists.
+	 * @param previousBackup The full or incremental backup this one follows.
+	 * @throws IOException Exception indicating the backup could not be written,
+	 *                     or the previous backup is too old.
+	 */
+	public void backupChangesSince(final Path backupFile, final Path previousBackup) throws IOException {
+		this.changes.backup(backupFile, previousBackup);
+	}
+
+	/**
+	 * Writes a snapshot of the Task objects so that the log it covers can be
+	 * deleted. Does nothing when the service is only kept in memory.
+	 *
+	 * @throws IOException Exception indicating the snapshot could not be written.
+	 */
+	void checkpoint() throws IOException {
+		if (this.journal != null) {
+			this.journal.checkpoint();
+		}
+	}
+
+	/**
+	 * Flushes and closes the journal or the store, if there is one.
+	 *
+	 * @throws IOException Exception indicating the journal could not be written.
+	 */
+	void close() throws IOException {
+		if (this.journal != null) {
+			this.journal.close();
+		}
+		if (this.taskMap instanceof Closeable) {
+			((Closeable) this.taskMap).close();
+		}
+	}
+
+	/**
+	 * Indexes the descriptions of the Task objects already in the map.
+	 */
+	private void indexTasks() {
+		for (final Task task : this.taskMap.values()) {
+			this.descriptionIndex.add(task.getTaskId(), task.getDescription());
+		}
+	}
+
+	/**
+	 * Records the current state of a Task object in the journal.
+	 *
+	 * @param task The Task object that was added or updated.
+	 * @return Returns the sequence number of the journal record, or 0 when there
+	 *         is no journal.
+	 */
+	private long logPut(final Task task) {
+		return this.journal == null ? 0 : this.journal.logPut(task.getTaskId(), task);
+	}
+
+	/**
+	 * Records the deletion of a Task object in the journal.
+	 *
+	 * @param taskId The taskId of the deleted Task object.
+	 * @return Returns the sequence number of the journal record, or 0 when there
+	 *         is no journal.
+	 */
+	private long logDelete(final String taskId) {
+		return this.journal == null ? 0 : this.journal.logDelete(taskId);
+	}
+
+	/**
+	 * Blocks until a journal record is on disk. Writers release the write lock
+	 * before calling this so that concurrent changes share one fsync.
+	 *
+	 * @param sequence The sequence number of the journal record.
+	 */
+	void awaitDurable(final long sequence) {
+		if (this.journal == null) {
+			return;
+		}
+		try {
+			this.journal.sync(sequence);
+		} catch (IOException e) {
+			throw new PersistenceException("The task change could not be made durable.", e);
 		}
 	}
 
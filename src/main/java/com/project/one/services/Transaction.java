@@ -0,0 +1,548 @@
+package com.project.one.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.ToLongBiFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+import com.project.one.exceptions.MaximumLengthExceededException;
+import com.project.one.exceptions.MinimumLengthNotMetException;
+import com.project.one.exceptions.NullFieldException;
+import com.project.one.exceptions.PastDateException;
+import com.project.one.persistence.VersionClock;
+import com.project.one.persistence.VersionHistory;
+
+/**
+ * This class is a transaction over the Contact, Task and Appointment objects
+ * of the services of a TransactionManager. A transaction is used by one thread
+ * and must be ended with commit or rollback, or closed.
+ *
+ * A transaction reads a snapshot: every Contact, Task and Appointment object
+ * as it was when the transaction started, whatever is changed after, plus the
+ * changes the transaction made itself. Reads take no locks and never hold up
+ * writers.
+ *
+ * The adds, updates and deletes of a transaction are checked when they are
+ * made, with the same results as the service methods, but only kept in the
+ * transaction. commit stores them in the services while holding the write
+ * lock of each service changed, and fails without changing anything if
+ * another writer changed one of the same records since the transaction started.
+ * All of the changes are published together, so a snapshot sees every one of
+ * them or none. Only records changed by both are compared, so two transactions
+ * that read each other's records but change different ones both commit. If a
+ * change cannot be stored, the records already changed are put back and none
+ * is published.
+ *
+ * The transaction is atomic in memory; a service keeping a journal records
+ * each change of the commit on its own. commit waits for the journals, and
+ * queues the changes of a write-behind service, only after releasing the write
+ * locks, so a full queue never holds up the writer that drains it.
+ *
+ * @see TransactionManager
+ * @see ContactPatch
+ * @see TaskPatch
+ * @see AppointmentPatch
+ * @author Ben
+ */
+public final class Transaction implements AutoCloseable {
+
+	private final TransactionManager manager;
+	private final boolean readOnly;
+	private final long snapshot;
+	// The records the transaction changed, each mapping to null if deleted.
+	private final Map<String, Contact> contacts = new HashMap<>();
+	private final Map<String, Task> tasks = new HashMap<>();
+	private final Map<String, Appointment> appointments = new HashMap<>();
+	private final List<AppointmentPatch> appointmentPatches = new ArrayList<>();
+	private boolean open = true;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param manager  The manager of the services.
+	 * @param readOnly Whether the transaction only reads.
+	 */
+	Transaction(final TransactionManager manager, final boolean readOnly) {
+		this.manager = manager;
+		this.readOnly = readOnly;
+		this.snapshot = manager.getClock().openSnapshot();
+	}
+
+	/**
+	 * Checks whether the transaction only reads.
+	 *
+	 * @return Returns true if the transaction cannot change records.
+	 */
+	public boolean isReadOnly() {
+		return this.readOnly;
+	}
+
+	/**
+	 * Gets a Contact object based on a contactId, as of the snapshot.
+	 *
+	 * @param contactId The contactId being searched for.
+	 * @return Returns the Contact object, or null if it does not exist.
+	 */
+	public Contact getContact(final String contactId) {
+		checkOpen();
+		if (this.contacts.containsKey(contactId)) {
+			return this.contacts.get(contactId);
+		}
+		return this.manager.getContactVersions().read(contactId, this.snapshot);
+	}
+
+	/**
+	 * Gets a Task object based on a taskId, as of the snapshot.
+	 *
+	 * @param taskId The taskId being searched for.
+	 * @return Returns the Task object, or null if it does not exist.
+	 */
+	public Task getTask(final String taskId) {
+		checkOpen();
+		if (this.tasks.containsKey(taskId)) {
+			return this.tasks.get(taskId);
+		}
+		return this.manager.getTaskVersions().read(taskId, this.snapshot);
+	}
+
+	/**
+	 * Gets an Appointment object based on an appointmentId, as of the snapshot.
+	 *
+	 * @param appointmentId The appointmentId being searched for.
+	 * @return Returns the Appointment object, or null if it does not exist.
+	 */
+	public Appointment getAppointment(final String appointmentId) {
+		checkOpen();
+		if (this.appointments.containsKey(appointmentId)) {
+			return this.appointments.get(appointmentId);
+		}
+		return this.manager.getAppointmentVersions().read(appointmentId, this.snapshot);
+	}
+
+	/**
+	 * Streams every Contact object as of the snapshot. The stream must be used
+	 * before the transaction ends.
+	 *
+	 * @return Returns a sequential stream of the Contact objects.
+	 */
+	public Stream<Contact> contacts() {
+		checkOpen();
+		return overlay(this.manager.getContactVersions(), this.contacts, Contact::getContactId);
+	}
+
+	/**
+	 * Streams every Task object as of the snapshot. The stream must be used
+	 * before the transaction ends.
+	 *
+	 * @return Returns a sequential stream of the Task objects.
+	 */
+	public Stream<Task> tasks() {
+		checkOpen();
+		return overlay(this.manager.getTaskVersions(), this.tasks, Task::getTaskId);
+	}
+
+	/**
+	 * Streams every Appointment object as of the snapshot. The stream must be
+	 * used before the transaction ends.
+	 *
+	 * @return Returns a sequential stream of the Appointment objects.
+	 */
+	public Stream<Appointment> appointments() {
+		checkOpen();
+		return overlay(this.manager.getAppointmentVersions(), this.appointments, Appointment::getAppointmentId);
+	}
+
+	/**
+	 * Adds a Contact object when the transaction commits.
+	 *
+	 * @param contact The Contact object that will be added.
+	 * @return Returns true if the add was successful.
+	 */
+	public boolean addContact(final Contact contact) {
+		checkWritable();
+		if (contact == null || getContact(contact.getContactId()) != null) {
+			return false;
+		}
+		final String contactId = contact.getContactId();
+		// A record deleted by the transaction is added back above its version.
+		final Contact deleted = this.contacts.containsKey(contactId)
+				? this.manager.getContactVersions().read(contactId, this.snapshot)
+				: null;
+		this.contacts.put(contactId, contact.storedCopy(
+				deleted == null ? contact.getVersion() : Math.max(contact.getVersion(), deleted.getVersion() + 1)));
+		return true;
+	}
+
+	/**
+	 * Updates several fields of a Contact object when the transaction commits.
+	 *
+	 * @param contactId The contactId that indicates the Contact object that should
+	 *                  be updated.
+	 * @param patch     The fields to update and their updated values.
+	 * @return Returns true if the update was successful.
+	 */
+	public boolean updateContact(final String contactId, final ContactPatch patch) {
+		checkWritable();
+		final Contact current = getContact(contactId);
+		if (current == null || patch == null || patch.isEmpty()) {
+			return false;
+		}
+		final Contact changed = current.copy();
+		try {
+			patch.applyTo(changed);
+		} catch (NullFieldException | MinimumLengthNotMetException | MaximumLengthExceededException e) {
+			return false;
+		}
+		this.contacts.put(contactId, changed.freeze());
+		return true;
+	}
+
+	/**
+	 * Deletes a Contact object when the transaction commits.
+	 *
+	 * @param contactId The contactId that indicates the Contact object that should
+	 *                  be deleted.
+	 * @return Returns true if the delete was successful.
+	 */
+	public boolean deleteContact(final String contactId) {
+		checkWritable();
+		if (getContact(contactId) == null) {
+			return false;
+		}
+		this.contacts.put(contactId, null);
+		return true;
+	}
+
+	/**
+	 * Adds a Task object when the transaction commits.
+	 *
+	 * @param task The Task object that will be added.
+	 * @return Returns true if the add was successful.
+	 */
+	public boolean addTask(final Task task) {
+		checkWritable();
+		if (task == null || getTask(task.getTaskId()) != null) {
+			return false;
+		}
+		final String taskId = task.getTaskId();
+		// A record deleted by the transaction is added back above its version.
+		final Task deleted = this.tasks.containsKey(taskId)
+				? this.manager.getTaskVersions().read(taskId, this.snapshot)
+				: null;
+		this.tasks.put(taskId, task.storedCopy(
+				deleted == null ? task.getVersion() : Math.max(task.getVersion(), deleted.getVersion() + 1)));
+		return true;
+	}
+
+	/**
+	 * Updates several fields of a Task object when the transaction commits.
+	 *
+	 * @param taskId The taskId that indicates the Task object that should be
+	 *               updated.
+	 * @param patch  The fields to update and their updated values.
+	 * @return Returns true if the update was successful.
+	 */
+	public boolean updateTask(final String taskId, final TaskPatch patch) {
+		checkWritable();
+		final Task current = getTask(taskId);
+		if (current == null || patch == null || patch.isEmpty()) {
+			return false;
+		}
+		final Task changed = current.copy();
+		try {
+			patch.applyTo(changed);
+		} catch (NullFieldException | MinimumLengthNotMetException | MaximumLengthExceededException e) {
+			return false;
+		}
+		this.tasks.put(taskId, changed.freeze());
+		return true;
+	}
+
+	/**
+	 * Deletes a Task object when the transaction commits.
+	 *
+	 * @param taskId The taskId that indicates the Task object that should be
+	 *               deleted.
+	 * @return Returns true if the delete was successful.
+	 */
+	public boolean deleteTask(final String taskId) {
+		checkWritable();
+		if (getTask(taskId) == null) {
+			return false;
+		}
+		this.tasks.put(taskId, null);
+		return true;
+	}
+
+	/**
+	 * Adds an Appointment object when the transaction commits.
+	 *
+	 * @param appointment The Appointment object that will be added.
+	 * @return Returns true if the add was successful.
+	 */
+	public boolean addAppointment(final Appointment appointment) {
+		checkWritable();
+		if (appointment == null || getAppointment(appointment.getAppointmentId()) != null) {
+			return false;
+		}
+		final String appointmentId = appointment.getAppointmentId();
+		// A record deleted by the transaction is added back above its version.
+		final Appointment deleted = this.appointments.containsKey(appointmentId)
+				? this.manager.getAppointmentVersions().read(appointmentId, this.snapshot)
+				: null;
+		this.appointments.put(appointmentId, appointment.storedCopy(deleted == null ? appointment.getVersion()
+				: Math.max(appointment.getVersion(), deleted.getVersion() + 1)));
+		return true;
+	}
+
+	/**
+	 * Updates several fields of an Appointment object when the transaction
+	 * commits.
+	 *
+	 * @param appointmentId The appointmentId that indicates the Appointment object
+	 *                      that should be updated.
+	 * @param patch         The fields to update and their updated values.
+	 * @return Returns true if the update was successful.
+	 */
+	public boolean updateAppointment(final String appointmentId, final AppointmentPatch patch) {
+		checkWritable();
+		final Appointment current = getAppointment(appointmentId);
+		if (current == null || patch == null || patch.isEmpty()) {
+			return false;
+		}
+		final Appointment changed = current.copy();
+		try {
+			patch.applyTo(changed);
+		} catch (NullFieldException | MinimumLengthNotMetException | MaximumLengthExceededException
+				| PastDateException e) {
+			return false;
+		}
+		this.appointments.put(appointmentId, changed.freeze());
+		this.appointmentPatches.add(patch);
+		return true;
+	}
+
+	/**
+	 * Deletes an Appointment object when the transaction commits.
+	 *
+	 * @param appointmentId The appointmentId that indicates the Appointment object
+	 *                      that should be deleted.
+	 * @return Returns true if the delete was successful.
+	 */
+	public boolean deleteAppointment(final String appointmentId) {
+		checkWritable();
+		if (getAppointment(appointmentId) == null) {
+			return false;
+		}
+		this.appointments.put(appointmentId, null);
+		return true;
+	}
+
+	/**
+	 * Applies the changes of the transaction and ends it. The write locks of
+	 * the services changed are taken in one order, Contact, Task and
+	 * Appointment, and held until every change is stored and published. An
+	 * exception storing a change, such as a PersistenceException, propagates
+	 * after the changes already stored are put back.
+	 *
+	 * @return Returns true if every change was applied, or false if none was
+	 *         because a record changed by the transaction was changed by
+	 *         another writer since the transaction started, or an updated
+	 *         appointment date has passed.
+	 */
+	public boolean commit() {
+		checkOpen();
+		try {
+			if (this.contacts.isEmpty() && this.tasks.isEmpty() && this.appointments.isEmpty()) {
+				return true;
+			}
+			final List<Object> locks = new ArrayList<>(3);
+			if (!this.contacts.isEmpty()) {
+				locks.add(this.manager.getContactService().getWriteLock());
+			}
+			if (!this.tasks.isEmpty()) {
+				locks.add(this.manager.getTaskService().getWriteLock());
+			}
+			if (!this.appointments.isEmpty()) {
+				locks.add(this.manager.getAppointmentService().getWriteLock());
+			}
+			final long[] sequences = new long[3];
+			if (!commit(locks, 0, sequences)) {
+				return false;
+			}
+			if (!this.contacts.isEmpty()) {
+				this.manager.getContactService().awaitDurable(sequences[0]);
+			}
+			if (!this.tasks.isEmpty()) {
+				this.manager.getTaskService().awaitDurable(sequences[1]);
+			}
+			for (final String appointmentId : this.appointments.keySet()) {
+				this.manager.getAppointmentService().persist(appointmentId, sequences[2]);
+			}
+			return true;
+		} finally {
+			end();
+		}
+	}
+
+	/**
+	 * Discards the changes of the transaction and ends it. Does nothing if the
+	 * transaction has already ended.
+	 */
+	public void rollback() {
+		if (this.open) {
+			end();
+		}
+	}
+
+	/**
+	 * Rolls the transaction back unless it has already ended.
+	 */
+	@Override
+	public void close() {
+		rollback();
+	}
+
+	/**
+	 * Takes the remaining write locks, then checks and stores the changes.
+	 *
+	 * @param locks     The write locks of the services changed, in order.
+	 * @param held      The number of the write locks already held.
+	 * @param sequences Receives the sequence number of the last journal record
+	 *                  of the Contact, Task and Appointment services.
+	 * @return Returns true if every change was stored.
+	 */
+	private boolean commit(final List<Object> locks, final int held, final long[] sequences) {
+		if (held < locks.size()) {
+			synchronized (locks.get(held)) {
+				return commit(locks, held + 1, sequences);
+			}
+		}
+		if (changedSince(this.manager.getContactVersions(), this.contacts)
+				|| changedSince(this.manager.getTaskVersions(), this.tasks)
+				|| changedSince(this.manager.getAppointmentVersions(), this.appointments)) {
+			return false;
+		}
+		try {
+			for (final AppointmentPatch patch : this.appointmentPatches) {
+				patch.validate();
+			}
+		} catch (NullFieldException | MinimumLengthNotMetException | MaximumLengthExceededException
+				| PastDateException e) {
+			return false;
+		}
+		final List<VersionHistory<?>> histories = new ArrayList<>(3);
+		if (!this.contacts.isEmpty()) {
+			histories.add(this.manager.getContactVersions());
+		}
+		if (!this.tasks.isEmpty()) {
+			histories.add(this.manager.getTaskVersions());
+		}
+		if (!this.appointments.isEmpty()) {
+			histories.add(this.manager.getAppointmentVersions());
+		}
+		final VersionClock.Batch batch = new VersionClock.Batch();
+		for (final VersionHistory<?> history : histories) {
+			history.beginBatch(batch);
+		}
+		final ContactService contactService = this.manager.getContactService();
+		final TaskService taskService = this.manager.getTaskService();
+		final AppointmentService appointmentService = this.manager.getAppointmentService();
+		final List<Runnable> undo = new ArrayList<>();
+		try {
+			sequences[0] = store(this.contacts, contactService::getContact, contactService::copyToStore,
+					contactService::store, undo);
+			sequences[1] = store(this.tasks, taskService::getTask, taskService::copyToStore, taskService::store, undo);
+			sequences[2] = store(this.appointments, appointmentService::getAppointment,
+					appointmentService::copyToStore, appointmentService::store, undo);
+		} catch (RuntimeException e) {
+			// Put the stored records back within the batch, which is never published.
+			for (int i = undo.size() - 1; i >= 0; i--) {
+				try {
+					undo.get(i).run();
+				} catch (RuntimeException suppressed) {
+					e.addSuppressed(suppressed);
+				}
+			}
+			throw e;
+		} finally {
+			for (final VersionHistory<?> history : histories) {
+				history.endBatch();
+			}
+		}
+		this.manager.getClock().publish(batch);
+		return true;
+	}
+
+	/**
+	 * Stores the changes of the transaction to the records of one service,
+	 * recording how to put each record back first. Must be called while holding
+	 * the write lock of the service.
+	 *
+	 * @return Returns the sequence number of the last journal record, or 0 if
+	 *         nothing was stored.
+	 */
+	private static <V> long store(final Map<String, V> changed, final Function<String, V> current,
+			final UnaryOperator<V> added, final ToLongBiFunction<String, V> store, final List<Runnable> undo) {
+		long sequence = 0;
+		for (final Map.Entry<String, V> change : changed.entrySet()) {
+			final String key = change.getKey();
+			final V previous = current.apply(key);
+			if (previous == null && change.getValue() == null) {
+				// Added and deleted by the transaction.
+				continue;
+			}
+			undo.add(() -> store.applyAsLong(key, previous));
+			sequence = store.applyAsLong(key, previous == null ? added.apply(change.getValue()) : change.getValue());
+		}
+		return sequence;
+	}
+
+	/**
+	 * Checks whether another writer changed a record the transaction changed
+	 * since the transaction started. Must be called while holding the write
+	 * lock of the service.
+	 */
+	private boolean changedSince(final VersionHistory<?> history, final Map<String, ?> changed) {
+		for (final String key : changed.keySet()) {
+			if (history.lastChanged(key) > this.snapshot) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Streams the records of a service as of the snapshot, with the changes of
+	 * the transaction in place of the records they change.
+	 */
+	private <V> Stream<V> overlay(final VersionHistory<V> history, final Map<String, V> changed,
+			final Function<V, String> key) {
+		final Stream<V> unchanged = history.scan(this.snapshot).filter(value -> !changed.containsKey(key.apply(value)));
+		return Stream.concat(unchanged, changed.values().stream().filter(Objects::nonNull));
+	}
+
+	private void end() {
+		this.open = false;
+		this.manager.getClock().closeSnapshot(this.snapshot);
+	}
+
+	private void checkOpen() {
+		if (!this.open) {
+			throw new IllegalStateException("The transaction has ended.");
+		}
+	}
+
+	private void checkWritable() {
+		checkOpen();
+		if (this.readOnly) {
+			throw new IllegalStateException("A read-only transaction cannot change records.");
+		}
+	}
+
+}
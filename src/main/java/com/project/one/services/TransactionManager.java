@@ -0,0 +1,137 @@
+package com.project.one.services;
+
+import com.project.one.persistence.VersionClock;
+import com.project.one.persistence.VersionHistory;
+
+/**
+ * This class starts transactions spanning a ContactService, a TaskService and
+ * an AppointmentService, for workflows that must change records of several
+ * services all or nothing, such as adding an Appointment object and a follow-up
+ * Task object for a Contact object.
+ *
+ * Creating a manager makes the services keep the versions of their records
+ * that open transactions still need, published with one clock shared by every
+ * service, so a transaction reads all three services as they were at one point
+ * in time. Each change made outside a transaction is still published on its
+ * own, so the services can be used directly alongside transactions. The
+ * manager should be created over the service instances in use, for example
+ * those of the getInstance methods, after they are set up.
+ *
+ * @see Transaction
+ * @see VersionClock
+ * @see VersionHistory
+ * @author Ben
+ */
+public class TransactionManager {
+
+	// Shared by every manager, since each service keeps one history.
+	private static final VersionClock CLOCK = new VersionClock();
+
+	private final ContactService contactService;
+	private final TaskService taskService;
+	private final AppointmentService appointmentService;
+	private final VersionHistory<Contact> contactVersions;
+	private final VersionHistory<Task> taskVersions;
+	private final VersionHistory<Appointment> appointmentVersions;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param contactService     The ContactService the transactions use.
+	 * @param taskService        The TaskService the transactions use.
+	 * @param appointmentService The AppointmentService the transactions use.
+	 */
+	public TransactionManager(final ContactService contactService, final TaskService taskService,
+			final AppointmentService appointmentService) {
+		this.contactService = contactService;
+		this.taskService = taskService;
+		this.appointmentService = appointmentService;
+		this.contactVersions = contactService.keepVersions(CLOCK);
+		this.taskVersions = taskService.keepVersions(CLOCK);
+		this.appointmentVersions = appointmentService.keepVersions(CLOCK);
+	}
+
+	/**
+	 * Starts a transaction that reads a snapshot of the services and may change
+	 * records.
+	 *
+	 * @return Returns the transaction.
+	 */
+	public Transaction begin() {
+		return new Transaction(this, false);
+	}
+
+	/**
+	 * Starts a transaction that only reads a snapshot of the services, for
+	 * reports and analytics. It takes no locks, so it never holds up writers.
+	 *
+	 * @return Returns the transaction.
+	 */
+	public Transaction beginReadOnly() {
+		return new Transaction(this, true);
+	}
+
+	/**
+	 * Gets the clock shared by the services.
+	 *
+	 * @return Returns the clock.
+	 */
+	VersionClock getClock() {
+		return CLOCK;
+	}
+
+	/**
+	 * Gets the ContactService the transactions use.
+	 *
+	 * @return Returns the ContactService.
+	 */
+	ContactService getContactService() {
+		return this.contactService;
+	}
+
+	/**
+	 * Gets the TaskService the transactions use.
+	 *
+	 * @return Returns the TaskService.
+	 */
+	TaskService getTaskService() {
+		return this.taskService;
+	}
+
+	/**
+	 * Gets the AppointmentService the transactions use.
+	 *
+	 * @return Returns the AppointmentService.
+	 */
+	AppointmentService getAppointmentService() {
+		return this.appointmentService;
+	}
+
+	/**
+	 * Gets the version history of the Contact objects.
+	 *
+	 * @return Returns the version history.
+	 */
+	VersionHistory<Contact> getContactVersions() {
+		return this.contactVersions;
+	}
+
+	/**
+	 * Gets the version history of the Task objects.
+	 *
+	 * @return Returns the version history.
+	 */
+	VersionHistory<Task> getTaskVersions() {
+		return this.taskVersions;
+	}
+
+	/**
+	 * Gets the version history of the Appointment objects.
+	 *
+	 * @return Returns the version history.
+	 */
+	VersionHistory<Appointment> getAppointmentVersions() {
+		return this.appointmentVersions;
+	}
+
+}
@@ -1,2 +1,12 @@
 module project_one {
-}
\ No newline at end of file
+	requires java.sql;
+
+	exports com.project.one.exceptions;
+	exports com.project.one.persistence;
+	exports com.project.one.services;
+
+	uses com.project.one.persistence.StorageProvider;
+
+	provides com.project.one.persistence.StorageProvider
+			with com.project.one.persistence.MemoryStorageProvider, com.project.one.persistence.JdbcStorageProvider;
+}
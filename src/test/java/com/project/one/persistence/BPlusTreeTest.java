@@ -0,0 +1,143 @@
+package com.project.one.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class tests the functionality of the BPlusTree class.
+ *
+ * @see BPlusTree
+ * @author Ben
+ */
+public class BPlusTreeTest {
+
+	private static final int MAX_ID_LENGTH = 10;
+	// Small enough that the tree is several levels deep and pages are evicted.
+	private static final int POOL_PAGES = 16;
+
+	@TempDir
+	Path directory;
+
+	/**
+	 * Asserts that random inserts, deletes and range scans match a sorted set, and
+	 * that the keys survive a clean reopen.
+	 *
+	 * @throws IOException Exception indicating the index could not be used.
+	 */
+	@Test
+	void insertDeleteRangeTest() throws IOException {
+		final Path file = this.directory.resolve("dates.idx");
+		final TreeSet<Map.Entry<Long, String>> expected = new TreeSet<>(
+				Map.Entry.<Long, String>comparingByKey().thenComparing(Map.Entry.comparingByValue()));
+		final Random random = new Random(5);
+		try (BPlusTree tree = new BPlusTree(file, MAX_ID_LENGTH, POOL_PAGES)) {
+			assertFalse(tree.wasClosedCleanly());
+			for (int i = 0; i < 20000; i++) {
+				final long millis = random.nextInt(5000);
+				final String id = "id" + random.nextInt(2000);
+				final Map.Entry<Long, String> key = new AbstractMap.SimpleImmutableEntry<>(millis, id);
+				if (random.nextInt(3) == 0) {
+					assertEquals(expected.remove(key), tree.delete(millis, id));
+				} else {
+					assertEquals(expected.add(key), tree.insert(millis, id));
+				}
+			}
+			assertEquals(ids(expected, 1000, 1100), tree.range(1000, 1100));
+			assertEquals(ids(expected, 0, 5000), tree.range(0, 5000));
+		}
+		try (BPlusTree reopened = new BPlusTree(file, MAX_ID_LENGTH, POOL_PAGES)) {
+			assertTrue(reopened.wasClosedCleanly());
+			assertEquals(ids(expected, 0, 5000), reopened.range(Long.MIN_VALUE, Long.MAX_VALUE));
+			assertEquals(ids(expected, 2500, 2501), reopened.range(2500, 2501));
+		}
+	}
+
+	/**
+	 * Asserts that move takes an id from one timestamp to another, leaving the
+	 * other ids in place, and reports an id that was not at the previous one.
+	 *
+	 * @throws IOException Exception indicating the index could not be used.
+	 */
+	@Test
+	void moveTest() throws IOException {
+		try (BPlusTree tree = new BPlusTree(this.directory.resolve("dates.idx"), MAX_ID_LENGTH, POOL_PAGES)) {
+			for (int i = 0; i < 1000; i++) {
+				tree.insert(i * 10, "id" + i);
+			}
+			assertTrue(tree.move(10, 99995, "id1"));
+			assertEquals(List.of("id999", "id1"), tree.range(9990, 100000));
+			assertFalse(tree.contains(10, "id1"));
+			assertEquals(999, tree.range(0, 9991).size());
+			assertTrue(tree.move(99995, 99995, "id1"));
+			assertFalse(tree.move(10, 20, "id1"));
+			assertEquals(List.of("id1", "id2"), tree.range(20, 21));
+		}
+	}
+
+	/**
+	 * Asserts that a rebuild packs sorted keys into a tree that can still be
+	 * changed, and that unsorted keys are rejected.
+	 *
+	 * @throws IOException Exception indicating the index could not be used.
+	 */
+	@Test
+	void rebuildTest() throws IOException {
+		final List<Map.Entry<Long, String>> keys = new ArrayList<>();
+		for (int i = 0; i < 50000; i++) {
+			keys.add(new AbstractMap.SimpleImmutableEntry<>((long) i * 10, "id" + i));
+		}
+		try (BPlusTree tree = new BPlusTree(this.directory.resolve("dates.idx"), MAX_ID_LENGTH, POOL_PAGES)) {
+			tree.rebuild(keys.iterator());
+			assertEquals(List.of("id100", "id101"), tree.range(1000, 1011));
+			assertTrue(tree.insert(1005, "new"));
+			assertTrue(tree.delete(1010, "id101"));
+			assertEquals(List.of("id100", "new"), tree.range(1000, 1011));
+			assertTrue(tree.contains(499990, "id49999"));
+			assertThrows(IllegalArgumentException.class,
+					() -> tree.rebuild(List.<Map.Entry<Long, String>>of(new AbstractMap.SimpleImmutableEntry<>(2L, "b"),
+							new AbstractMap.SimpleImmutableEntry<>(1L, "a")).iterator()));
+		}
+	}
+
+	/**
+	 * Asserts that an index that was not closed is opened empty.
+	 *
+	 * @throws IOException Exception indicating the index could not be used.
+	 */
+	@Test
+	void uncleanCloseTest() throws IOException {
+		final Path file = this.directory.resolve("dates.idx");
+		final BPlusTree crashed = new BPlusTree(file, MAX_ID_LENGTH, POOL_PAGES);
+		crashed.insert(1, "a");
+		crashed.flush();
+		try (BPlusTree reopened = new BPlusTree(file, MAX_ID_LENGTH, POOL_PAGES)) {
+			assertFalse(reopened.wasClosedCleanly());
+			assertFalse(reopened.contains(1, "a"));
+		}
+	}
+
+	private static List<String> ids(final TreeSet<Map.Entry<Long, String>> keys, final long from, final long to) {
+		final List<String> ids = new ArrayList<>();
+		for (final Map.Entry<Long, String> key : keys) {
+			if (key.getKey() >= from && key.getKey() < to) {
+				ids.add(key.getValue());
+			}
+		}
+		return ids;
+	}
+
+}
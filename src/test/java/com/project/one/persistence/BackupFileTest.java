@@ -0,0 +1,155 @@
+package com.project.one.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class tests the functionality of the BackupFile class.
+ *
+ * @see BackupFile
+ * @author Ben
+ */
+public class BackupFileTest {
+
+	private final Object writeLock = new Object();
+	private final Map<String, String> map = new ConcurrentHashMap<>();
+	private int chunkBytes;
+
+	/**
+	 * Makes the chunks small so that a backup spans many of them.
+	 */
+	@BeforeEach
+	void setUp() {
+		this.chunkBytes = BackupFile.CHUNK_BYTES;
+		BackupFile.CHUNK_BYTES = 64;
+		for (int i = 0; i < 1000; i++) {
+			this.map.put("key" + i, "value" + i);
+		}
+	}
+
+	/**
+	 * Restores the default chunk size.
+	 */
+	@AfterEach
+	void tearDown() {
+		BackupFile.CHUNK_BYTES = this.chunkBytes;
+	}
+
+	/**
+	 * Asserts that a backup of many chunks is restored in parallel and that no
+	 * temporary file is left behind.
+	 *
+	 * @param directory A temporary directory for the backup file.
+	 * @throws IOException Exception indicating the backup could not be used.
+	 */
+	@Test
+	void parallelRestoreTest(@TempDir final Path directory) throws IOException {
+		final Path backup = directory.resolve("full.bak");
+		tracker().backup(backup, null);
+		assertFalse(BackupFile.readHeader(backup).isIncremental());
+		try (Stream<Path> files = Files.list(directory)) {
+			assertEquals(List.of(backup), files.collect(Collectors.toList()));
+		}
+
+		final Map<String, String> restored = new ConcurrentHashMap<>();
+		BackupFile.restore(List.of(backup), restored, StorageProvidersTest.CODEC, 4);
+		assertEquals(this.map, restored);
+	}
+
+	/**
+	 * Asserts that a damaged chunk fails the restore.
+	 *
+	 * @param directory A temporary directory for the backup file.
+	 * @throws IOException Exception indicating the backup could not be written.
+	 */
+	@Test
+	void damagedChunkTest(@TempDir final Path directory) throws IOException {
+		final Path backup = directory.resolve("full.bak");
+		tracker().backup(backup, null);
+		try (RandomAccessFile file = new RandomAccessFile(backup.toFile(), "rw")) {
+			final long middle = file.length() / 2;
+			file.seek(middle);
+			final int value = file.read();
+			file.seek(middle);
+			file.write(value ^ 0xFF);
+		}
+		assertThrows(IOException.class,
+				() -> BackupFile.restore(List.of(backup), new ConcurrentHashMap<>(), StorageProvidersTest.CODEC, 4));
+	}
+
+	/**
+	 * Asserts that a truncated backup fails the restore.
+	 *
+	 * @param directory A temporary directory for the backup file.
+	 * @throws IOException Exception indicating the backup could not be written.
+	 */
+	@Test
+	void truncatedBackupTest(@TempDir final Path directory) throws IOException {
+		final Path backup = directory.resolve("full.bak");
+		tracker().backup(backup, null);
+		try (RandomAccessFile file = new RandomAccessFile(backup.toFile(), "rw")) {
+			file.setLength(file.length() - 20);
+		}
+		assertThrows(IOException.class,
+				() -> BackupFile.restore(List.of(backup), new ConcurrentHashMap<>(), StorageProvidersTest.CODEC, 4));
+	}
+
+	/**
+	 * Asserts that backups out of order, or an incremental backup without its
+	 * full backup, are rejected.
+	 *
+	 * @param directory A temporary directory for the backup files.
+	 * @throws IOException Exception indicating a backup could not be written.
+	 */
+	@Test
+	void chainTest(@TempDir final Path directory) throws IOException {
+		final ChangeTracker<String> tracker = tracker();
+		final Path full = directory.resolve("full.bak");
+		final Path first = directory.resolve("first.bak");
+		final Path second = directory.resolve("second.bak");
+		tracker.backup(full, null);
+		change(tracker, "key1", "changed");
+		tracker.backup(first, full);
+		change(tracker, "key2", "changed");
+		tracker.backup(second, first);
+
+		final Map<String, String> restored = new ConcurrentHashMap<>();
+		BackupFile.restore(List.of(full, first, second), restored, StorageProvidersTest.CODEC, 2);
+		assertEquals(this.map, restored);
+		assertTrue(BackupFile.readHeader(second).isIncremental());
+		assertThrows(IOException.class, () -> BackupFile.restore(List.of(full, second), new ConcurrentHashMap<>(),
+				StorageProvidersTest.CODEC, 2));
+		assertThrows(IOException.class,
+				() -> BackupFile.restore(List.of(first), new ConcurrentHashMap<>(), StorageProvidersTest.CODEC, 2));
+	}
+
+	private ChangeTracker<String> tracker() {
+		return new ChangeTracker<>(this.map, StorageProvidersTest.CODEC, this.writeLock);
+	}
+
+	private void change(final ChangeTracker<String> tracker, final String key, final String value) {
+		synchronized (this.writeLock) {
+			tracker.beforeChange(key);
+			this.map.put(key, value);
+			tracker.changed(key);
+		}
+	}
+
+}
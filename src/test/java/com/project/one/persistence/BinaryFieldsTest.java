@@ -0,0 +1,69 @@
+package com.project.one.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the functionality of the BinaryFields class.
+ *
+ * @see BinaryFields
+ * @author Ben
+ */
+public class BinaryFieldsTest {
+
+	/**
+	 * Asserts that Latin-1 strings take one byte per character.
+	 *
+	 * @throws IOException Exception indicating the field could not be read.
+	 */
+	@Test
+	void latin1Test() throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(64);
+		assertFalse(BinaryFields.putString(buffer, "Caf\u00E9"));
+		assertEquals(5, buffer.position());
+		buffer.flip();
+		assertEquals("Caf\u00E9", BinaryFields.getString(buffer, false));
+		assertFalse(buffer.hasRemaining());
+	}
+
+	/**
+	 * Asserts that other strings, including surrogate pairs, are written as the
+	 * same bytes as String.getBytes and read back from a direct buffer.
+	 *
+	 * @throws IOException Exception indicating the field could not be read.
+	 */
+	@Test
+	void utf8Test() throws IOException {
+		final String value = "\u20AC \u0394 \uD83D\uDE00";
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+		assertTrue(BinaryFields.putString(buffer, value));
+		final byte[] expected = value.getBytes(StandardCharsets.UTF_8);
+		assertEquals(1 + expected.length, buffer.position());
+		buffer.flip();
+		assertEquals(expected.length, buffer.get(0));
+		assertEquals(value, BinaryFields.getString(buffer, true));
+	}
+
+	/**
+	 * Asserts that a field longer than the length byte allows and a truncated
+	 * field are rejected.
+	 */
+	@Test
+	void invalidFieldTest() {
+		final ByteBuffer buffer = ByteBuffer.allocate(1024);
+		assertThrows(IllegalArgumentException.class, () -> BinaryFields.putString(buffer, "\u20AC".repeat(100)));
+		assertEquals(0, buffer.position());
+		buffer.put((byte) 10).put((byte) 'a').flip();
+		assertThrows(IOException.class, () -> BinaryFields.getString(buffer, false));
+		assertThrows(IOException.class, () -> BinaryFields.checkVersion(ByteBuffer.wrap(new byte[] { 2 }), (byte) 1));
+	}
+
+}
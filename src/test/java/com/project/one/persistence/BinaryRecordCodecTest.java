@@ -0,0 +1,97 @@
+package com.project.one.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the functionality of the BinaryRecordCodec class.
+ *
+ * @see BinaryRecordCodec
+ * @author Ben
+ */
+public class BinaryRecordCodecTest {
+
+	private static final byte VERSION = 1;
+
+	// Stores "key:value" strings under the key before the colon.
+	private static final BinaryCodec<String> STRINGS = new BinaryCodec<>() {
+
+		@Override
+		public void encode(final String value, final ByteBuffer buffer) {
+			buffer.put(VERSION);
+			BinaryFields.putString(buffer, value);
+		}
+
+		@Override
+		public String decode(final ByteBuffer buffer) throws IOException {
+			BinaryFields.checkVersion(buffer, VERSION);
+			return BinaryFields.getString(buffer, false);
+		}
+
+		@Override
+		public int getMaxLength() {
+			return 1 + BinaryFields.maxLength(32);
+		}
+	};
+
+	private final BinaryRecordCodec<String> codec = new BinaryRecordCodec<>(STRINGS,
+			value -> value.substring(0, value.indexOf(':')));
+
+	/**
+	 * Asserts that a value is read back after the other records of a stream.
+	 *
+	 * @throws IOException Exception indicating a record could not be read.
+	 */
+	@Test
+	void roundTripTest() throws IOException {
+		final DataInputStream in = write("a:1", "b:2");
+		assertEquals("a:1", this.codec.decode("a", in));
+		assertEquals("b:2", this.codec.decode("b", in));
+		assertEquals(-1, in.read());
+	}
+
+	/**
+	 * Asserts that a record stored under another key, a record of another
+	 * format version and a record with an invalid length are rejected.
+	 *
+	 * @throws IOException Exception indicating a record could not be written.
+	 */
+	@Test
+	void invalidRecordTest() throws IOException {
+		assertThrows(IOException.class, () -> this.codec.decode("b", write("a:1")));
+
+		final byte[] record = toBytes("a:1");
+		record[Integer.BYTES] = VERSION + 1;
+		assertThrows(IOException.class,
+				() -> this.codec.decode("a", new DataInputStream(new ByteArrayInputStream(record))));
+
+		final byte[] tooLong = toBytes("a:1");
+		tooLong[0] = 1;
+		assertThrows(IOException.class,
+				() -> this.codec.decode("a", new DataInputStream(new ByteArrayInputStream(tooLong))));
+	}
+
+	private DataInputStream write(final String... values) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			for (final String value : values) {
+				this.codec.encode(value, out);
+			}
+		}
+		return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+	}
+
+	private byte[] toBytes(final String value) throws IOException {
+		return write(value).readAllBytes();
+	}
+
+}
@@ -0,0 +1,202 @@
+package com.project.one.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class tests the functionality of the ChangeTracker class.
+ *
+ * @see ChangeTracker
+ * @author Ben
+ */
+public class ChangeTrackerTest {
+
+	private final Object writeLock = new Object();
+
+	/**
+	 * Asserts that an incremental backup restores the puts and deletes made
+	 * after the full backup it follows.
+	 *
+	 * @param directory A temporary directory for the backup files.
+	 * @throws IOException Exception indicating a backup could not be written.
+	 */
+	@Test
+	void incrementalBackupTest(@TempDir final Path directory) throws IOException {
+		final Map<String, String> map = new ConcurrentHashMap<>();
+		final ChangeTracker<String> tracker = new ChangeTracker<>(map, StorageProvidersTest.CODEC, this.writeLock);
+		map.put("loaded", "0");
+		change(tracker, map, "a", "1");
+		change(tracker, map, "b", "2");
+		final Path full = directory.resolve("full.bak");
+		tracker.backup(full, null);
+
+		change(tracker, map, "a", "3");
+		erase(tracker, map, "b");
+		change(tracker, map, "c", "4");
+		final Path incremental = directory.resolve("incremental.bak");
+		tracker.backup(incremental, full);
+		assertTrue(BackupFile.readHeader(incremental).isIncremental());
+
+		final Map<String, String> fullOnly = new ConcurrentHashMap<>();
+		BackupFile.restore(List.of(full), fullOnly, StorageProvidersTest.CODEC, 2);
+		assertEquals(Map.of("loaded", "0", "a", "1", "b", "2"), fullOnly);
+		final Map<String, String> restored = new ConcurrentHashMap<>();
+		BackupFile.restore(List.of(full, incremental), restored, StorageProvidersTest.CODEC, 2);
+		assertEquals(map, restored);
+	}
+
+	/**
+	 * Asserts that no stamps are kept before the first full backup, that each
+	 * full backup drops the stamps of the changes it holds, deletes included,
+	 * and that an incremental backup cannot follow a backup taken before the
+	 * last full one.
+	 *
+	 * @param directory A temporary directory for the backup files.
+	 * @throws IOException Exception indicating a backup could not be written.
+	 */
+	@Test
+	void pruneTest(@TempDir final Path directory) throws IOException {
+		final Map<String, String> map = new ConcurrentHashMap<>();
+		final ChangeTracker<String> tracker = new ChangeTracker<>(map, StorageProvidersTest.CODEC, this.writeLock);
+		for (int i = 0; i < 100; i++) {
+			change(tracker, map, "k" + i, "v" + i);
+			erase(tracker, map, "k" + i);
+		}
+		assertEquals(0, tracker.getStampedKeyCount());
+		final Path first = directory.resolve("first.bak");
+		tracker.backup(first, null);
+
+		change(tracker, map, "a", "1");
+		erase(tracker, map, "a");
+		change(tracker, map, "b", "2");
+		assertEquals(2, tracker.getStampedKeyCount());
+		final Path incremental = directory.resolve("incremental.bak");
+		tracker.backup(incremental, first);
+		assertEquals(2, tracker.getStampedKeyCount());
+		change(tracker, map, "c", "3");
+		final Path second = directory.resolve("second.bak");
+		tracker.backup(second, null);
+		assertEquals(0, tracker.getStampedKeyCount());
+		assertThrows(IOException.class, () -> tracker.backup(directory.resolve("stale.bak"), incremental));
+
+		change(tracker, map, "b", "4");
+		final Path latest = directory.resolve("latest.bak");
+		tracker.backup(latest, second);
+		final Map<String, String> restored = new ConcurrentHashMap<>();
+		BackupFile.restore(List.of(first, incremental), restored, StorageProvidersTest.CODEC, 2);
+		assertEquals(Map.of("b", "2"), restored);
+		final Map<String, String> latestRestored = new ConcurrentHashMap<>();
+		BackupFile.restore(List.of(second, latest), latestRestored, StorageProvidersTest.CODEC, 2);
+		assertEquals(map, latestRestored);
+	}
+
+	/**
+	 * Asserts that changes made while a backup is walking the map do not appear
+	 * in it, including records deleted before the walk reached them.
+	 *
+	 * @param directory A temporary directory for the backup file.
+	 * @throws IOException Exception indicating the backup could not be written.
+	 */
+	@Test
+	void consistentBackupTest(@TempDir final Path directory) throws IOException {
+		final ConcurrentHashMap<String, String> backing = new ConcurrentHashMap<>();
+		final AtomicReference<ChangeTracker<String>> tracker = new AtomicReference<>();
+		// Changes the map as soon as the backup starts walking it, as a writer on
+		// another thread could.
+		final Map<String, String> map = new AbstractMap<>() {
+
+			@Override
+			public Set<Map.Entry<String, String>> entrySet() {
+				return backing.entrySet();
+			}
+
+			@Override
+			public String get(final Object key) {
+				return backing.get(key);
+			}
+
+			@Override
+			public Set<String> keySet() {
+				final Set<String> keys = backing.keySet();
+				return new AbstractSet<>() {
+
+					@Override
+					public Iterator<String> iterator() {
+						change(tracker.get(), backing, "k0", "changed");
+						change(tracker.get(), backing, "new", "added");
+						for (int i = 1; i < 10; i++) {
+							erase(tracker.get(), backing, "k" + i);
+						}
+						return keys.iterator();
+					}
+
+					@Override
+					public int size() {
+						return keys.size();
+					}
+				};
+			}
+		};
+		tracker.set(new ChangeTracker<>(map, StorageProvidersTest.CODEC, this.writeLock));
+		for (int i = 0; i < 10; i++) {
+			change(tracker.get(), backing, "k" + i, "v" + i);
+		}
+		final Map<String, String> before = Map.copyOf(backing);
+		final Path backup = directory.resolve("full.bak");
+		tracker.get().backup(backup, null);
+
+		final Map<String, String> restored = new ConcurrentHashMap<>();
+		BackupFile.restore(List.of(backup), restored, StorageProvidersTest.CODEC, 2);
+		assertEquals(before, restored);
+	}
+
+	/**
+	 * Asserts that an incremental backup cannot follow a backup taken by another
+	 * tracker.
+	 *
+	 * @param directory A temporary directory for the backup files.
+	 * @throws IOException Exception indicating the full backup could not be
+	 *                     written.
+	 */
+	@Test
+	void otherTrackerTest(@TempDir final Path directory) throws IOException {
+		final Map<String, String> map = new ConcurrentHashMap<>();
+		final Path full = directory.resolve("full.bak");
+		new ChangeTracker<>(map, StorageProvidersTest.CODEC, this.writeLock).backup(full, null);
+		final ChangeTracker<String> restarted = new ChangeTracker<>(map, StorageProvidersTest.CODEC, this.writeLock);
+		assertThrows(IOException.class, () -> restarted.backup(directory.resolve("incremental.bak"), full));
+	}
+
+	private void change(final ChangeTracker<String> tracker, final Map<String, String> map, final String key,
+			final String value) {
+		synchronized (this.writeLock) {
+			tracker.beforeChange(key);
+			map.put(key, value);
+			tracker.changed(key);
+		}
+	}
+
+	private void erase(final ChangeTracker<String> tracker, final Map<String, String> map, final String key) {
+		synchronized (this.writeLock) {
+			tracker.beforeChange(key);
+			map.remove(key);
+			tracker.changed(key);
+		}
+	}
+
+}
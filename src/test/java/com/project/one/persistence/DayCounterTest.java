@@ -0,0 +1,75 @@
+package com.project.one.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the functionality of the DayCounter class.
+ *
+ * @see DayCounter
+ * @author Ben
+ */
+public class DayCounterTest {
+
+	private static final long HOUR = 60L * 60 * 1000;
+	private static final long DAY = 24 * HOUR;
+
+	/**
+	 * Asserts that records are counted on the day of their timestamp in the
+	 * counter's time zone, and that move and remove follow them.
+	 */
+	@Test
+	void countsTest() {
+		// Days start at 22:00 UTC in a zone two hours ahead of UTC.
+		final DayCounter counter = new DayCounter(TimeZone.getTimeZone("GMT+02:00"));
+		counter.add(DAY + HOUR);
+		counter.add(DAY + 23 * HOUR);
+		counter.add(3 * DAY);
+		counter.add(-HOUR);
+		assertArrayEquals(new long[] { 1, 1, 1, 0 }, counter.counts(DAY, 4));
+		assertEquals(1, counter.count(-2 * HOUR));
+		assertEquals(0, counter.count(-2 * HOUR - 1));
+
+		counter.move(DAY + HOUR, 3 * DAY + HOUR);
+		counter.move(3 * DAY, 3 * DAY + 20 * HOUR);
+		counter.remove(-HOUR);
+		assertArrayEquals(new long[] { 0, 0, 1, 2 }, counter.counts(-HOUR, 4));
+		assertArrayEquals(new long[0], counter.counts(0, 0));
+		assertThrows(IllegalArgumentException.class, () -> counter.counts(0, -1));
+	}
+
+	/**
+	 * Asserts that concurrent writers counting on the same day lose no updates.
+	 *
+	 * @throws InterruptedException Exception indicating the test was interrupted.
+	 */
+	@Test
+	void concurrentCountsTest() throws InterruptedException {
+		final DayCounter counter = new DayCounter(TimeZone.getTimeZone("UTC"));
+		final List<Thread> writers = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			final long offset = i;
+			writers.add(new Thread(() -> {
+				for (int j = 0; j < 10000; j++) {
+					counter.add(offset * HOUR);
+					counter.move(offset * HOUR, DAY + offset);
+				}
+			}));
+		}
+		for (final Thread writer : writers) {
+			writer.start();
+		}
+		for (final Thread writer : writers) {
+			writer.join();
+		}
+		assertArrayEquals(new long[] { 0, 40000 }, counter.counts(0, 2));
+	}
+
+}
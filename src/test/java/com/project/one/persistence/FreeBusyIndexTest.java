@@ -0,0 +1,143 @@
+package com.project.one.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the functionality of the FreeBusyIndex class.
+ *
+ * @see FreeBusyIndex
+ * @author Ben
+ */
+public class FreeBusyIndexTest {
+
+	private static final long SLOT = FreeBusyIndex.SLOT_MILLIS;
+	private static final long PAGE = FreeBusyIndex.PAGE_SLOTS * SLOT;
+
+	/**
+	 * Asserts that a free time must be free in every calendar searched, that
+	 * calendars not searched are ignored, and that partly taken slots count as
+	 * taken.
+	 */
+	@Test
+	void findFreeTest() {
+		final FreeBusyIndex index = new FreeBusyIndex();
+		index.put("a1", "ann", 0, 6 * SLOT);
+		index.put("b1", "bob", 8 * SLOT, 10 * SLOT + 1);
+		index.put("c1", "cy", 0, 100 * SLOT);
+		assertEquals(0, index.findFree(Set.of("bob"), 0, PAGE, 6 * SLOT));
+		assertEquals(6 * SLOT, index.findFree(Set.of("ann"), 0, PAGE, 6 * SLOT));
+		assertEquals(11 * SLOT, index.findFree(Set.of("ann", "bob"), 0, PAGE, 3 * SLOT));
+		assertEquals(6 * SLOT, index.findFree(Set.of("ann", "bob"), 1, PAGE, 2 * SLOT));
+		assertEquals(6 * SLOT, index.findFree(Set.of("ann", "bob", "nobody"), 0, PAGE, 1));
+		assertEquals(Long.MIN_VALUE, index.findFree(Set.of("ann", "bob"), 0, 13 * SLOT, 3 * SLOT));
+		assertEquals(11 * SLOT, index.findFree(Set.of("ann", "bob"), 0, 14 * SLOT, 3 * SLOT));
+		assertEquals(100 * SLOT, index.findFree(Set.of("ann", "cy"), 0, PAGE, SLOT));
+		assertEquals(0, index.findFree(Set.of(), 0, PAGE, 30 * SLOT));
+		assertThrows(IllegalArgumentException.class,
+				() -> index.findFree(Set.of("ann"), 0, Long.MAX_VALUE, SLOT));
+	}
+
+	/**
+	 * Asserts that busy times crossing words and pages, and times before 1970,
+	 * are found, and that a free time may run from one page into the next.
+	 */
+	@Test
+	void pageBoundaryTest() {
+		final FreeBusyIndex index = new FreeBusyIndex();
+		index.put("a", "ann", 60 * SLOT, PAGE - 2 * SLOT);
+		index.put("b", "ann", PAGE + 3 * SLOT, 3 * PAGE);
+		index.put("c", "ann", -PAGE, -SLOT);
+		assertEquals(PAGE - 2 * SLOT, index.findFree(Set.of("ann"), 60 * SLOT, 4 * PAGE, 5 * SLOT));
+		assertEquals(3 * PAGE, index.findFree(Set.of("ann"), 60 * SLOT, 4 * PAGE, 6 * SLOT));
+		assertEquals(-SLOT, index.findFree(Set.of("ann"), -PAGE, PAGE, 61 * SLOT));
+		assertEquals(Long.MIN_VALUE, index.findFree(Set.of("ann"), -PAGE, 0, 2 * SLOT));
+	}
+
+	/**
+	 * Asserts that a slot stays busy until every record overlapping it is
+	 * removed, and that a record moved to another time or calendar frees its old
+	 * one.
+	 */
+	@Test
+	void putRemoveTest() {
+		final FreeBusyIndex index = new FreeBusyIndex();
+		index.put("a", "ann", 0, 4 * SLOT);
+		index.put("b", "ann", 2 * SLOT, 6 * SLOT);
+		index.remove("a");
+		assertEquals(0, index.findFree(Set.of("ann"), 0, PAGE, 2 * SLOT));
+		assertEquals(6 * SLOT, index.findFree(Set.of("ann"), 0, PAGE, 3 * SLOT));
+		index.put("b", "ann", 10 * SLOT, 12 * SLOT);
+		assertEquals(0, index.findFree(Set.of("ann"), 0, PAGE, 10 * SLOT));
+		index.put("b", "bob", 0, 2 * SLOT);
+		assertEquals(0, index.findFree(Set.of("ann"), 0, PAGE, 20 * SLOT));
+		assertEquals(2 * SLOT, index.findFree(Set.of("ann", "bob"), 0, PAGE, SLOT));
+		index.put("b", null, 0, 2 * SLOT);
+		index.remove("b");
+		assertEquals(0, index.size());
+		assertEquals(0, index.findFree(Set.of("ann", "bob"), 0, PAGE, SLOT));
+	}
+
+	/**
+	 * Asserts that the index agrees with a scan of the records after random puts
+	 * and removes across several calendars.
+	 */
+	@Test
+	void randomChangesTest() {
+		final Random random = new Random(5);
+		final FreeBusyIndex index = new FreeBusyIndex();
+		final Map<String, long[]> records = new HashMap<>();
+		final List<String> owners = List.of("ann", "bob", "cy", "dee");
+		for (int i = 0; i < 5000; i++) {
+			final String key = "k" + random.nextInt(400);
+			if (random.nextInt(5) == 0) {
+				index.remove(key);
+				records.remove(key);
+			} else {
+				final long start = random.nextInt(3 * (int) PAGE);
+				final long end = start + 1 + random.nextInt(10 * (int) SLOT);
+				final int owner = random.nextInt(owners.size());
+				index.put(key, owners.get(owner), start, end);
+				records.put(key, new long[] { owner, start, end });
+			}
+			if (i % 50 == 0) {
+				final List<String> searched = new ArrayList<>(owners.subList(0, 1 + random.nextInt(owners.size())));
+				final long from = random.nextInt(3 * (int) PAGE);
+				final long duration = random.nextInt(20 * (int) SLOT);
+				assertEquals(scan(records, searched, owners, from, 4 * PAGE, duration),
+						index.findFree(searched, from, 4 * PAGE, duration));
+			}
+		}
+	}
+
+	private static long scan(final Map<String, long[]> records, final List<String> searched,
+			final List<String> owners, final long from, final long to, final long duration) {
+		final long slots = Math.max(1, (duration + SLOT - 1) / SLOT);
+		for (long start = (from + SLOT - 1) / SLOT * SLOT; start + slots * SLOT <= to; start += SLOT) {
+			boolean free = true;
+			for (final long[] record : records.values()) {
+				final long recordStart = record[1] / SLOT * SLOT;
+				final long recordEnd = (record[2] + SLOT - 1) / SLOT * SLOT;
+				if (searched.contains(owners.get((int) record[0])) && recordStart < start + slots * SLOT
+						&& recordEnd > start) {
+					free = false;
+					break;
+				}
+			}
+			if (free) {
+				return start;
+			}
+		}
+		return Long.MIN_VALUE;
+	}
+
+}
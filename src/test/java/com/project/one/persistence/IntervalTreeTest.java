@@ -0,0 +1,105 @@
+package com.project.one.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the functionality of the IntervalTree class.
+ *
+ * @see IntervalTree
+ * @author Ben
+ */
+public class IntervalTreeTest {
+
+	/**
+	 * Asserts that lookups return the overlapping intervals ordered by start and
+	 * then key, and that touching intervals do not overlap.
+	 */
+	@Test
+	void findOverlappingTest() {
+		final IntervalTree tree = new IntervalTree();
+		tree.add(10, 20, "b");
+		tree.add(0, 100, "a");
+		tree.add(20, 30, "c");
+		tree.add(10, 11, "d");
+		assertEquals(List.of("a", "b", "d"), tree.findOverlapping(10, 20, 10));
+		assertEquals(List.of("a", "c"), tree.findOverlapping(20, 21, 10));
+		assertEquals(List.of("a"), tree.findOverlapping(0, 10, 10));
+		assertEquals(List.of("a", "b"), tree.findOverlapping(0, 50, 2));
+		assertEquals(List.of(), tree.findOverlapping(100, 200, 10));
+		assertEquals(List.of(), tree.findOverlapping(20, 20, 10));
+		assertTrue(tree.overlapsAny(99, 100));
+		assertFalse(tree.overlapsAny(-5, 0));
+	}
+
+	/**
+	 * Asserts that move and remove move and drop intervals, and that adding a key
+	 * again at the same start replaces its end.
+	 */
+	@Test
+	void moveRemoveTest() {
+		final IntervalTree tree = new IntervalTree();
+		tree.add(0, 10, "a");
+		tree.add(0, 5, "a");
+		assertEquals(1, tree.size());
+		assertFalse(tree.overlapsAny(5, 10));
+		tree.move(0, 50, 60, "a");
+		assertFalse(tree.overlapsAny(0, 50));
+		assertEquals(List.of("a"), tree.findOverlapping(55, 56, 10));
+		tree.remove(50, "a");
+		tree.remove(50, "a");
+		assertEquals(0, tree.size());
+		assertFalse(tree.overlapsAny(Long.MIN_VALUE, Long.MAX_VALUE));
+	}
+
+	/**
+	 * Asserts that the tree agrees with a scan of the intervals after random adds,
+	 * moves and removes that rebalance it many times.
+	 */
+	@Test
+	void randomChangesTest() {
+		final Random random = new Random(11);
+		final IntervalTree tree = new IntervalTree();
+		final Map<String, long[]> intervals = new HashMap<>();
+		for (int i = 0; i < 20000; i++) {
+			final String key = "k" + random.nextInt(2000);
+			final long start = random.nextInt(100_000);
+			final long end = start + 1 + random.nextInt(random.nextInt(10) == 0 ? 20_000 : 200);
+			final long[] previous = intervals.get(key);
+			if (previous == null) {
+				tree.add(start, end, key);
+				intervals.put(key, new long[] { start, end });
+			} else if (random.nextInt(3) == 0) {
+				tree.remove(previous[0], key);
+				intervals.remove(key);
+			} else {
+				tree.move(previous[0], start, end, key);
+				intervals.put(key, new long[] { start, end });
+			}
+		}
+		assertEquals(intervals.size(), tree.size());
+		for (int query = 0; query < 200; query++) {
+			final long from = random.nextInt(110_000) - 5_000;
+			final long to = from + 1 + random.nextInt(2_000);
+			final TreeMap<String, String> expected = new TreeMap<>();
+			for (final Map.Entry<String, long[]> interval : intervals.entrySet()) {
+				if (interval.getValue()[0] < to && interval.getValue()[1] > from) {
+					expected.put(String.format("%06d %s", interval.getValue()[0], interval.getKey()),
+							interval.getKey());
+				}
+			}
+			assertEquals(new ArrayList<>(expected.values()), tree.findOverlapping(from, to, Integer.MAX_VALUE));
+		}
+	}
+
+}
@@ -0,0 +1,108 @@
+package com.project.one.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the functionality of the InvertedIndex class.
+ *
+ * @see InvertedIndex
+ * @author Ben
+ */
+public class InvertedIndexTest {
+
+	/**
+	 * Asserts that queries ignore case and punctuation and rank rare and repeated
+	 * words higher.
+	 */
+	@Test
+	void findTest() {
+		final InvertedIndex index = new InvertedIndex();
+		index.add("a", "Red apple");
+		index.add("b", "green APPLE, green pear");
+		index.add("c", "red pear");
+		assertEquals(List.of("a", "c"), index.findAll("red", 10));
+		assertEquals(List.of("b"), index.findAll("pear green", 10));
+		assertEquals(List.of(), index.findAll("red kiwi", 10));
+		assertEquals(List.of("b", "a", "c"), index.findAny("green red kiwi", 10));
+		assertEquals(List.of("b"), index.findAny("green red", 1));
+		assertEquals(List.of(), index.findAny("", 10));
+		assertTrue(InvertedIndex.containsAll("Green apple!", "APPLE green"));
+		assertFalse(InvertedIndex.containsAny("Green apple!", "pear"));
+	}
+
+	/**
+	 * Asserts that replace and remove move and drop records, and that unused
+	 * words are dropped.
+	 */
+	@Test
+	void replaceRemoveTest() {
+		final InvertedIndex index = new InvertedIndex();
+		index.add("a", "red apple");
+		index.replace("a", "red apple", "red pear");
+		assertEquals(List.of(), index.findAny("apple", 10));
+		assertEquals(List.of("a"), index.findAll("red pear", 10));
+		assertEquals(2, index.wordCount());
+		index.remove("a", "red pear");
+		assertEquals(0, index.size());
+		assertEquals(0, index.wordCount());
+	}
+
+	/**
+	 * Asserts that the index agrees with a scan of the records after random adds,
+	 * replaces and removes that split and shrink many blocks.
+	 */
+	@Test
+	void randomChangesTest() {
+		final String[] vocabulary = { "alpha", "beta", "gamma", "delta", "omega" };
+		final Random random = new Random(7);
+		final InvertedIndex index = new InvertedIndex();
+		final Map<String, String> records = new HashMap<>();
+		for (int i = 0; i < 20000; i++) {
+			final String key = "k" + random.nextInt(3000);
+			final StringBuilder text = new StringBuilder();
+			for (int word = random.nextInt(3); word >= 0; word--) {
+				text.append(vocabulary[random.nextInt(vocabulary.length)]).append(' ');
+			}
+			final String previous = records.get(key);
+			if (previous == null) {
+				index.add(key, text.toString());
+				records.put(key, text.toString());
+			} else if (random.nextInt(4) == 0) {
+				index.remove(key, previous);
+				records.remove(key);
+			} else {
+				index.replace(key, previous, text.toString());
+				records.put(key, text.toString());
+			}
+		}
+		assertEquals(records.size(), index.size());
+		for (final String query : List.of("alpha", "beta gamma", "omega delta alpha")) {
+			final TreeSet<String> all = new TreeSet<>();
+			final TreeSet<String> any = new TreeSet<>();
+			for (final Map.Entry<String, String> record : records.entrySet()) {
+				if (InvertedIndex.containsAll(record.getValue(), query)) {
+					all.add(record.getKey());
+				}
+				if (InvertedIndex.containsAny(record.getValue(), query)) {
+					any.add(record.getKey());
+				}
+			}
+			assertEquals(all, new TreeSet<>(index.findAll(query, Integer.MAX_VALUE)));
+			assertEquals(any, new TreeSet<>(index.findAny(query, Integer.MAX_VALUE)));
+			assertEquals(new ArrayList<>(index.findAll(query, Integer.MAX_VALUE)).subList(0, 10),
+					index.findAll(query, 10));
+		}
+	}
+
+}
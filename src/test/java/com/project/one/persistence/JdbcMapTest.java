@@ -0,0 +1,96 @@
+package com.project.one.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the functionality of the JdbcMap class. It runs only when
+ * the project.one.jdbc.url system property names a database whose driver is on
+ * the class path.
+ *
+ * @see JdbcMap
+ * @author Ben
+ */
+public class JdbcMapTest {
+
+	private static final String TABLE = "jdbc_map_test";
+
+	/**
+	 * Skips the tests when no database is configured and empties the table.
+	 *
+	 * @throws IOException Exception indicating the table could not be opened.
+	 */
+	@BeforeEach
+	void setUp() throws IOException {
+		assumeTrue(System.getProperty(JdbcStorageProvider.URL_PROPERTY) != null, "No JDBC database is configured.");
+		final Map<String, String> map = open();
+		try {
+			map.clear();
+		} finally {
+			((Closeable) map).close();
+		}
+	}
+
+	/**
+	 * Asserts that put, get, remove and size behave like any other map.
+	 *
+	 * @throws IOException Exception indicating the table could not be opened.
+	 */
+	@Test
+	void putGetRemoveTest() throws IOException {
+		final Map<String, String> map = open();
+		try {
+			assertNull(map.put("a", "1"));
+			assertEquals("1", map.put("a", "2"));
+			assertEquals("2", map.get("a"));
+			assertTrue(map.containsKey("a"));
+			assertEquals(1, map.size());
+			assertEquals("2", map.remove("a"));
+			assertNull(map.get("a"));
+			assertEquals(0, map.size());
+		} finally {
+			((Closeable) map).close();
+		}
+	}
+
+	/**
+	 * Asserts that a putAll spanning several batches is stored and survives
+	 * reopening the table.
+	 *
+	 * @throws IOException Exception indicating the table could not be opened.
+	 */
+	@Test
+	void putAllReopenTest() throws IOException {
+		final Map<String, String> entries = new HashMap<>();
+		for (int i = 0; i < JdbcMap.BATCH_SIZE * 2 + 7; i++) {
+			entries.put("key" + i, "value" + i);
+		}
+		Map<String, String> map = open();
+		try {
+			map.putAll(entries);
+		} finally {
+			((Closeable) map).close();
+		}
+		map = open();
+		try {
+			assertEquals(entries, new HashMap<>(map));
+		} finally {
+			((Closeable) map).close();
+		}
+	}
+
+	private static Map<String, String> open() throws IOException {
+		return new JdbcStorageProvider().open(TABLE, StorageProvidersTest.CODEC);
+	}
+
+}
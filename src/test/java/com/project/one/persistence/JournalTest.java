@@ -0,0 +1,153 @@
+package com.project.one.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class tests the functionality of the Journal class.
+ *
+ * @see Journal
+ * @author Ben
+ */
+public class JournalTest {
+
+	private static RecordCodec<String> CODEC = new RecordCodec<>() {
+
+		@Override
+		public void encode(final String value, final DataOutput out) throws IOException {
+			out.writeUTF(value);
+		}
+
+		@Override
+		public String decode(final String key, final DataInput in) throws IOException {
+			return in.readUTF();
+		}
+	};
+
+	@TempDir
+	Path directory;
+
+	/**
+	 * Asserts that the map is restored from the log alone.
+	 *
+	 * @throws IOException Exception indicating the journal could not be used.
+	 */
+	@Test
+	void replayLogTest() throws IOException {
+		final Map<String, String> map = new ConcurrentHashMap<>();
+		try (Journal<String> journal = new Journal<>(this.directory, map, CODEC)) {
+			put(journal, map, "a", "1");
+			put(journal, map, "b", "2");
+			put(journal, map, "a", "3");
+			map.remove("b");
+			journal.sync(journal.logDelete("b"));
+		}
+		assertEquals(Map.of("a", "3"), reopen());
+	}
+
+	/**
+	 * Asserts that the map is restored from a snapshot plus the log written after
+	 * it, and that the files the snapshot replaces are deleted.
+	 *
+	 * @throws IOException Exception indicating the journal could not be used.
+	 */
+	@Test
+	void checkpointTest() throws IOException {
+		final Map<String, String> map = new ConcurrentHashMap<>();
+		try (Journal<String> journal = new Journal<>(this.directory, map, CODEC)) {
+			for (int i = 0; i < 100; i++) {
+				put(journal, map, "key" + i, "old");
+			}
+			assertTrue(journal.checkpoint());
+			assertFalse(journal.checkpoint());
+			put(journal, map, "key1", "new");
+			map.remove("key2");
+			journal.sync(journal.logDelete("key2"));
+			assertTrue(journal.checkpoint());
+			put(journal, map, "key3", "tail");
+		}
+		assertEquals(List.of("segment-00000000000000000002.log", "snapshot-00000000000000000002.snap"), files());
+
+		final Map<String, String> restored = reopen();
+		assertEquals(99, restored.size());
+		assertEquals("new", restored.get("key1"));
+		assertEquals("tail", restored.get("key3"));
+		assertEquals("old", restored.get("key4"));
+	}
+
+	/**
+	 * Asserts that a checkpoint taken while another thread keeps changing the map
+	 * still restores the final state of the map.
+	 *
+	 * @throws Exception Exception indicating the journal could not be used.
+	 */
+	@Test
+	void checkpointWhileWritingTest() throws Exception {
+		final Map<String, String> map = new ConcurrentHashMap<>();
+		final Map<String, String> expected;
+		try (Journal<String> journal = new Journal<>(this.directory, map, CODEC)) {
+			final AtomicBoolean running = new AtomicBoolean(true);
+			final Thread writer = new Thread(() -> {
+				int i = 0;
+				while (running.get()) {
+					final String key = "key" + (i % 500);
+					if (i % 7 == 0) {
+						map.remove(key);
+						journal.logDelete(key);
+					} else {
+						put(journal, map, key, "value" + i);
+					}
+					i++;
+				}
+			});
+			writer.start();
+			for (int i = 0; i < 20; i++) {
+				journal.checkpoint();
+			}
+			running.set(false);
+			writer.join();
+			expected = new HashMap<>(map);
+		}
+		assertEquals(expected, reopen());
+	}
+
+	private Map<String, String> reopen() throws IOException {
+		final Map<String, String> map = new HashMap<>();
+		new Journal<>(this.directory, map, CODEC).close();
+		return map;
+	}
+
+	private List<String> files() throws IOException {
+		try (Stream<Path> files = Files.list(this.directory)) {
+			return files.map(path -> path.getFileName().toString()).sorted().collect(Collectors.toList());
+		}
+	}
+
+	private static void put(final Journal<String> journal, final Map<String, String> map, final String key,
+			final String value) {
+		map.put(key, value);
+		try {
+			journal.sync(journal.logPut(key, value));
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+}
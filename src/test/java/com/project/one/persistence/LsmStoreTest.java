@@ -0,0 +1,122 @@
+package com.project.one.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class tests the functionality of the LsmStore class.
+ *
+ * @see LsmStore
+ * @author Ben
+ */
+public class LsmStoreTest {
+
+	private static RecordCodec<String> CODEC = new RecordCodec<>() {
+
+		@Override
+		public void encode(final String value, final DataOutput out) throws IOException {
+			out.writeUTF(value);
+		}
+
+		@Override
+		public String decode(final String key, final DataInput in) throws IOException {
+			return in.readUTF();
+		}
+	};
+
+	// Small enough that a few hundred writes flush and compact several times.
+	private static final int FLUSH_BYTES = 4096;
+
+	@TempDir
+	Path directory;
+
+	/**
+	 * Asserts that puts, overwrites and removes are visible from the memtable.
+	 *
+	 * @throws IOException Exception indicating the store could not be used.
+	 */
+	@Test
+	void putGetRemoveTest() throws IOException {
+		try (LsmStore<String> store = new LsmStore<>(this.directory, CODEC)) {
+			assertNull(store.put("a", "1"));
+			assertEquals("1", store.put("a", "2"));
+			store.put("b", "3");
+			assertEquals("2", store.get("a"));
+			assertTrue(store.containsKey("b"));
+			assertEquals("3", store.remove("b"));
+			assertNull(store.remove("b"));
+			assertFalse(store.containsKey("b"));
+			assertEquals(1, store.size());
+			assertEquals(Map.of("a", "2"), new HashMap<>(store));
+		}
+	}
+
+	/**
+	 * Asserts that the newest value and tombstones win across flushed tables and
+	 * compactions, and that everything survives a reopen.
+	 *
+	 * @throws IOException Exception indicating the store could not be used.
+	 */
+	@Test
+	void flushAndCompactTest() throws IOException {
+		final Map<String, String> expected = new HashMap<>();
+		final Random random = new Random(7);
+		try (LsmStore<String> store = new LsmStore<>(this.directory, CODEC, FLUSH_BYTES)) {
+			for (int i = 0; i < 3000; i++) {
+				final String key = "key" + random.nextInt(400);
+				if (random.nextInt(4) == 0) {
+					assertEquals(expected.remove(key), store.remove(key));
+				} else {
+					final String value = "value" + i;
+					assertEquals(expected.put(key, value), store.put(key, value));
+				}
+			}
+			store.awaitMaintenance();
+			assertTrue(store.getTableCount() > 0);
+			assertTrue(store.getTableCount() < LsmStore.COMPACTION_THRESHOLD * 3);
+			assertEquals(expected, new HashMap<>(store));
+		}
+		try (LsmStore<String> reopened = new LsmStore<>(this.directory, CODEC, FLUSH_BYTES)) {
+			assertEquals(expected, new HashMap<>(reopened));
+			for (int i = 0; i < 400; i++) {
+				assertEquals(expected.get("key" + i), reopened.get("key" + i));
+			}
+		}
+	}
+
+	/**
+	 * Asserts that a table file the MANIFEST does not list is deleted on open.
+	 *
+	 * @throws IOException Exception indicating the store could not be used.
+	 */
+	@Test
+	void orphanedTableTest() throws IOException {
+		try (LsmStore<String> store = new LsmStore<>(this.directory, CODEC)) {
+			store.put("a", "1");
+		}
+		final Path orphan = this.directory.resolve("table-00000000000000000099.sst");
+		Files.write(orphan, new byte[] { 1, 2, 3 });
+		try (LsmStore<String> reopened = new LsmStore<>(this.directory, CODEC)) {
+			assertEquals("1", reopened.get("a"));
+		}
+		try (Stream<Path> files = Files.list(this.directory)) {
+			assertFalse(files.anyMatch(orphan::equals));
+		}
+	}
+
+}
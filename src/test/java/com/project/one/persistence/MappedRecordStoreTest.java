@@ -0,0 +1,130 @@
+package com.project.one.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class tests the functionality of the MappedRecordStore class.
+ *
+ * @see MappedRecordStore
+ * @author Ben
+ */
+public class MappedRecordStoreTest {
+
+	private static int KEY_LENGTH = 10;
+	private static int RECORD_LENGTH = 4;
+	private static int SLOTS_PER_REGION = 4;
+
+	@TempDir
+	Path directory;
+
+	/**
+	 * Asserts that put, get and remove behave like a map.
+	 *
+	 * @throws IOException Exception indicating the store could not be used.
+	 */
+	@Test
+	void putGetRemoveTest() throws IOException {
+		try (MappedRecordStore store = open()) {
+			assertNull(store.put("a", new byte[] { 1, 2, 3, 4 }));
+			assertArrayEquals(new byte[] { 1, 2, 3, 4 }, store.put("a", new byte[] { 5 }));
+			assertArrayEquals(new byte[] { 5, 0, 0, 0 }, store.get("a"));
+			assertTrue(store.contains("a"));
+			assertEquals(1, store.size());
+			assertArrayEquals(new byte[] { 5, 0, 0, 0 }, store.remove("a"));
+			assertFalse(store.contains("a"));
+			assertNull(store.remove("a"));
+			assertNull(store.get("a"));
+		}
+	}
+
+	/**
+	 * Asserts that records stored across several regions are found after the
+	 * store is reopened.
+	 *
+	 * @throws IOException Exception indicating the store could not be used.
+	 */
+	@Test
+	void reopenTest() throws IOException {
+		try (MappedRecordStore store = open()) {
+			for (int i = 0; i < 10; i++) {
+				store.put("key" + i, new byte[] { (byte) i });
+			}
+			store.put("key3", new byte[] { 33 });
+			store.remove("key7");
+		}
+		try (MappedRecordStore store = open()) {
+			assertEquals(9, store.size());
+			assertArrayEquals(new byte[] { 33, 0, 0, 0 }, store.get("key3"));
+			assertArrayEquals(new byte[] { 9, 0, 0, 0 }, store.get("key9"));
+			assertNull(store.get("key7"));
+			assertEquals(Set.of("key0", "key1", "key2", "key3", "key4", "key5", "key6", "key8", "key9"),
+					store.keys());
+		}
+	}
+
+	/**
+	 * Asserts that slots freed by updates and removes are reused instead of
+	 * growing the file.
+	 *
+	 * @throws IOException Exception indicating the store could not be used.
+	 */
+	@Test
+	void freeSlotReuseTest() throws IOException {
+		final Path file = this.directory.resolve("test.store");
+		try (MappedRecordStore store = open()) {
+			store.put("a", new byte[] { 1 });
+			store.put("b", new byte[] { 2 });
+			final long length = Files.size(file);
+			for (int i = 0; i < 100; i++) {
+				store.put("a", new byte[] { (byte) i });
+				store.remove("b");
+				store.put("b", new byte[] { (byte) i });
+			}
+			assertEquals(length, Files.size(file));
+		}
+	}
+
+	/**
+	 * Asserts that keys and records that are too long are rejected.
+	 *
+	 * @throws IOException Exception indicating the store could not be used.
+	 */
+	@Test
+	void invalidLengthTest() throws IOException {
+		try (MappedRecordStore store = open()) {
+			assertThrows(IllegalArgumentException.class, () -> store.put("12345678910", new byte[1]));
+			assertThrows(IllegalArgumentException.class, () -> store.put("a", new byte[RECORD_LENGTH + 1]));
+		}
+	}
+
+	/**
+	 * Asserts that a file written with a different record layout is rejected.
+	 *
+	 * @throws IOException Exception indicating the store could not be used.
+	 */
+	@Test
+	void layoutMismatchTest() throws IOException {
+		open().close();
+		assertThrows(IOException.class, () -> new MappedRecordStore(this.directory.resolve("test.store"),
+				KEY_LENGTH, RECORD_LENGTH + 1, SLOTS_PER_REGION));
+	}
+
+	private MappedRecordStore open() throws IOException {
+		return new MappedRecordStore(this.directory.resolve("test.store"), KEY_LENGTH, RECORD_LENGTH,
+				SLOTS_PER_REGION);
+	}
+
+}
@@ -0,0 +1,89 @@
+package com.project.one.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the functionality of the PrefixIndex class.
+ *
+ * @see PrefixIndex
+ * @author Ben
+ */
+public class PrefixIndexTest {
+
+	/**
+	 * Asserts that prefix lookups ignore case and are ordered by value and then
+	 * key.
+	 */
+	@Test
+	void findTest() {
+		final PrefixIndex index = new PrefixIndex();
+		index.add("Smith", "2");
+		index.add("smith", "1");
+		index.add("Smithers", "3");
+		index.add("Smit", "4");
+		index.add("Jones", "5");
+		assertEquals(List.of("4", "1", "2", "3"), find(index, "SMIT"));
+		assertEquals(List.of("1", "2", "3"), find(index, "smith"));
+		assertEquals(List.of("5"), find(index, "j"));
+		assertEquals(List.of(), find(index, "x"));
+		assertEquals(5, find(index, "").size());
+	}
+
+	/**
+	 * Asserts that replace and remove move and drop entries.
+	 */
+	@Test
+	void replaceRemoveTest() {
+		final PrefixIndex index = new PrefixIndex();
+		index.add("Smith", "1");
+		index.replace("Smith", "Jones", "1");
+		assertEquals(List.of(), find(index, "sm"));
+		assertEquals(List.of("1"), find(index, "jo"));
+		index.replace("Jones", "JONES", "1");
+		assertEquals(1, index.size());
+		index.remove("jones", "1");
+		assertEquals(0, index.size());
+	}
+
+	/**
+	 * Asserts that entries can be read a few at a time by starting after the last
+	 * position read, and that positions follow the values of their records.
+	 */
+	@Test
+	void entriesTest() {
+		final PrefixIndex index = new PrefixIndex();
+		index.add("Smith", "3");
+		index.add("smith", "1");
+		index.add("Smithers", "2");
+		index.add("Jones", "4");
+		final Iterator<Map.Entry<String, String>> first = index.entriesStartingWith("smi", null);
+		assertEquals("1", first.next().getValue());
+		final String position = first.next().getKey();
+		final List<String> rest = new ArrayList<>();
+		index.entriesStartingWith("smi", position).forEachRemaining(entry -> rest.add(entry.getValue()));
+		assertEquals(List.of("2"), rest);
+		final List<String> equal = new ArrayList<>();
+		index.entriesEqualTo("SMITH", null).forEachRemaining(entry -> equal.add(entry.getValue()));
+		assertEquals(List.of("1", "3"), equal);
+		assertFalse(index.entriesEqualTo("smith", position).hasNext());
+		assertTrue(PrefixIndex.isAt(position, "SMITH"));
+		assertFalse(PrefixIndex.isAt(position, "Smithers"));
+		assertFalse(PrefixIndex.isAt(position, "Smit"));
+	}
+
+	private static List<String> find(final PrefixIndex index, final String prefix) {
+		final List<String> keys = new ArrayList<>();
+		index.find(prefix).forEachRemaining(keys::add);
+		return keys;
+	}
+
+}
@@ -0,0 +1,84 @@
+package com.project.one.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the functionality of the RecordSpliterator class.
+ *
+ * @see RecordSpliterator
+ * @author Ben
+ */
+public class RecordSpliteratorTest {
+
+	/**
+	 * Asserts that a Scannable map is split into halves that cover every value
+	 * once, and that keys removed after the snapshot are skipped.
+	 */
+	@Test
+	void splitTest() {
+		final KeyedMap map = new KeyedMap();
+		for (int i = 0; i < 5000; i++) {
+			map.put("k" + i, "v" + i);
+		}
+		final Spliterator<String> all = RecordSpliterator.over(map);
+		assertTrue(all.hasCharacteristics(Spliterator.CONCURRENT));
+		final Spliterator<String> prefix = all.trySplit();
+		assertNotNull(prefix);
+		assertEquals(2500, prefix.estimateSize());
+		map.remove("k0");
+		map.remove("k4999");
+		final List<String> values = new ArrayList<>();
+		prefix.forEachRemaining(values::add);
+		all.forEachRemaining(values::add);
+		assertEquals(4998, values.size());
+		assertEquals(4998, new TreeSet<>(values).size());
+		assertEquals(999, StreamSupport.stream(RecordSpliterator.over(map), true)
+				.filter(value -> value.endsWith("5") || value.endsWith("0")).count());
+	}
+
+	/**
+	 * Asserts that a ConcurrentMap is scanned with its own spliterator.
+	 */
+	@Test
+	void concurrentMapTest() {
+		final Map<String, String> map = new ConcurrentHashMap<>();
+		for (int i = 0; i < 100; i++) {
+			map.put("k" + i, "v" + i);
+		}
+		assertEquals(new TreeSet<>(map.values()), StreamSupport.stream(RecordSpliterator.over(map), true)
+				.collect(Collectors.toCollection(TreeSet::new)));
+	}
+
+	/**
+	 * A map read for scans through a snapshot of its keys.
+	 */
+	private static final class KeyedMap extends TreeMap<String, String> implements Scannable<String> {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public synchronized List<String> scanKeys() {
+			return new ArrayList<>(keySet());
+		}
+
+		@Override
+		public synchronized String scanValue(final String key) {
+			return get(key);
+		}
+	}
+
+}
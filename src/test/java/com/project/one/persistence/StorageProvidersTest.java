@@ -0,0 +1,80 @@
+package com.project.one.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the functionality of the StorageProviders class.
+ *
+ * @see StorageProviders
+ * @author Ben
+ */
+public class StorageProvidersTest {
+
+	static final RecordCodec<String> CODEC = new RecordCodec<>() {
+
+		@Override
+		public void encode(final String value, final DataOutput out) throws IOException {
+			out.writeUTF(value);
+		}
+
+		@Override
+		public String decode(final String key, final DataInput in) throws IOException {
+			return in.readUTF();
+		}
+	};
+
+	/**
+	 * Asserts that both bundled providers are found by ServiceLoader.
+	 */
+	@Test
+	void getNamesTest() {
+		assertTrue(StorageProviders.getNames().contains(MemoryStorageProvider.NAME));
+		assertTrue(StorageProviders.getNames().contains(JdbcStorageProvider.NAME));
+	}
+
+	/**
+	 * Asserts that an unknown provider name is rejected.
+	 */
+	@Test
+	void unknownProviderTest() {
+		assertThrows(IOException.class, () -> StorageProviders.get("missing"));
+	}
+
+	/**
+	 * Asserts that the memory provider opens a working map.
+	 *
+	 * @throws IOException Exception indicating the map could not be opened.
+	 */
+	@Test
+	void memoryProviderTest() throws IOException {
+		final Map<String, String> map = StorageProviders.get(MemoryStorageProvider.NAME).open("test", CODEC);
+		map.put("a", "1");
+		assertEquals("1", map.get("a"));
+		assertEquals(map.getClass(), StorageProviders.openDefault("test", CODEC).getClass());
+	}
+
+	/**
+	 * Asserts that the jdbc provider needs its URL property.
+	 */
+	@Test
+	void jdbcProviderWithoutUrlTest() {
+		final String url = System.clearProperty(JdbcStorageProvider.URL_PROPERTY);
+		try {
+			assertThrows(IOException.class, () -> StorageProviders.get(JdbcStorageProvider.NAME).open("test", CODEC));
+		} finally {
+			if (url != null) {
+				System.setProperty(JdbcStorageProvider.URL_PROPERTY, url);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,102 @@
+package com.project.one.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class tests the functionality of the TieredMap class.
+ *
+ * @see TieredMap
+ * @author Ben
+ */
+public class TieredMapTest {
+
+	// Only handles Latin-1 strings, which is all these tests store.
+	private static final BinaryCodec<String> CODEC = new BinaryCodec<>() {
+
+		@Override
+		public void encode(final String value, final ByteBuffer buffer) {
+			BinaryFields.putString(buffer, value);
+		}
+
+		@Override
+		public String decode(final ByteBuffer buffer) throws IOException {
+			return BinaryFields.getString(buffer, false);
+		}
+
+		@Override
+		public int getMaxLength() {
+			return BinaryFields.maxLength(20);
+		}
+	};
+
+	/**
+	 * Asserts that the least recently used values are spilled and that a get
+	 * loads them back.
+	 *
+	 * @param directory A temporary directory for the cold file.
+	 * @throws IOException Exception indicating the cold file could not be used.
+	 */
+	@Test
+	void spillAndLoadTest(@TempDir final Path directory) throws IOException {
+		try (TieredMap<String> map = new TieredMap<>(directory.resolve("cold"), CODEC, 10, 2)) {
+			map.put("a", "1");
+			map.put("b", "2");
+			assertEquals("1", map.get("a"));
+			map.put("c", "3");
+			assertEquals(1, map.getSpills());
+			assertEquals(2, map.getHotCount());
+			assertEquals(3, map.size());
+			assertTrue(map.containsKey("b"));
+			assertEquals(0, map.getMisses());
+
+			assertEquals("2", map.get("b"));
+			assertEquals(1, map.getMisses());
+			assertEquals(2, map.getSpills());
+			assertEquals(1, map.getHits());
+		}
+	}
+
+	/**
+	 * Asserts that put and remove return spilled values and that iteration sees
+	 * both tiers without moving values between them.
+	 *
+	 * @param directory A temporary directory for the cold file.
+	 * @throws IOException Exception indicating the cold file could not be used.
+	 */
+	@Test
+	void putRemoveIterateTest(@TempDir final Path directory) throws IOException {
+		try (TieredMap<String> map = new TieredMap<>(directory.resolve("cold"), CODEC, 10, 1)) {
+			final Map<String, String> expected = new HashMap<>();
+			for (int i = 0; i < 5; i++) {
+				map.put("k" + i, "v" + i);
+				expected.put("k" + i, "v" + i);
+			}
+			final long spills = map.getSpills();
+			assertEquals(expected, new HashMap<>(map));
+			assertEquals(spills, map.getSpills());
+			assertEquals(1, map.getHotCount());
+
+			assertEquals("v0", map.put("k0", "w0"));
+			assertEquals("w0", map.remove("k0"));
+			assertEquals("v1", map.remove("k1"));
+			assertNull(map.remove("k1"));
+			assertFalse(map.containsKey("k1"));
+			assertEquals(3, map.size());
+			map.clear();
+			assertEquals(0, map.size());
+		}
+	}
+
+}
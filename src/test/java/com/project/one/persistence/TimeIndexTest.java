@@ -0,0 +1,86 @@
+package com.project.one.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the functionality of the TimeIndex class.
+ *
+ * @see TimeIndex
+ * @author Ben
+ */
+public class TimeIndexTest {
+
+	/**
+	 * Asserts that lookups return the keys in a range ordered by timestamp and
+	 * then key, up to the limit.
+	 */
+	@Test
+	void findTest() {
+		final TimeIndex index = new TimeIndex();
+		index.add(20, "b");
+		index.add(10, "c");
+		index.add(20, "a");
+		index.add(30, "d");
+		assertEquals(List.of("c", "a", "b"), index.find(10, 30, 10));
+		assertEquals(List.of("a", "b", "d"), index.find(11, Long.MAX_VALUE, 10));
+		assertEquals(List.of("c", "a"), index.find(0, 100, 2));
+		assertEquals(List.of(), index.find(21, 30, 10));
+		assertEquals(List.of(), index.find(30, 10, 10));
+	}
+
+	/**
+	 * Asserts that move and remove move and drop entries.
+	 */
+	@Test
+	void moveRemoveTest() {
+		final TimeIndex index = new TimeIndex();
+		index.add(10, "a");
+		index.move(10, 20, "a");
+		assertEquals(List.of(), index.find(0, 20, 10));
+		assertEquals(List.of("a"), index.find(20, 21, 10));
+		index.move(20, 20, "a");
+		assertEquals(1, index.size());
+		index.remove(20, "a");
+		assertEquals(0, index.size());
+	}
+
+	/**
+	 * Asserts that a lookup running while a key is moved back and forth inside
+	 * its range always finds the key exactly once.
+	 *
+	 * @throws InterruptedException Exception indicating the test was interrupted.
+	 */
+	@Test
+	void concurrentMoveTest() throws InterruptedException {
+		final TimeIndex index = new TimeIndex();
+		for (int i = 0; i < 1000; i++) {
+			index.add(i * 10, "k" + i);
+		}
+		final AtomicReference<String> failure = new AtomicReference<>();
+		final Thread reader = new Thread(() -> {
+			for (int i = 0; i < 2000 && failure.get() == null; i++) {
+				final List<String> keys = index.find(0, 10000, Integer.MAX_VALUE);
+				if (keys.size() != 1000) {
+					failure.set("Found " + keys.size() + " keys.");
+				}
+			}
+		});
+		reader.start();
+		// Moves the last key to the front and back again, across the whole range.
+		long time = 9990;
+		while (reader.isAlive()) {
+			final long next = time == 9990 ? 1 : 9990;
+			index.move(time, next, "k999");
+			time = next;
+		}
+		reader.join();
+		assertNull(failure.get());
+	}
+
+}
@@ -0,0 +1,90 @@
+package com.project.one.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the functionality of the TrigramIndex class.
+ *
+ * @see TrigramIndex
+ * @author Ben
+ */
+public class TrigramIndexTest {
+
+	/**
+	 * Asserts that the bounded edit distance counts inserted, deleted and changed
+	 * characters and gives up past the bound.
+	 */
+	@Test
+	void distanceTest() {
+		assertEquals(0, TrigramIndex.distance("Smith", "SMITH", 2));
+		assertEquals(1, TrigramIndex.distance("Smith", "Smyth", 2));
+		assertEquals(2, TrigramIndex.distance("Smith", "Smiht", 2));
+		assertEquals(1, TrigramIndex.distance("Jon", "John", 2));
+		assertEquals(3, TrigramIndex.distance("Smith", "Schmidt", 2));
+		assertEquals(3, TrigramIndex.distance("a", "abcdef", 2));
+	}
+
+	/**
+	 * Asserts that matches are ordered by distance, value and key, and that
+	 * replace and remove move and drop entries.
+	 */
+	@Test
+	void findTest() {
+		final TrigramIndex index = new TrigramIndex(4);
+		index.add("Smith", "1");
+		index.add("Smyth", "2");
+		index.add("Smith", "3");
+		index.add("Jones", "4");
+		assertEquals(List.of("1", "3", "2"), index.find("smith", 1, 10));
+		assertEquals(List.of("1", "3"), index.find("smith", 1, 2));
+		assertEquals(List.of("4"), index.find("Jnoes", 2, 10));
+		index.replace("Smyth", "Jones", "2");
+		assertEquals(List.of("2", "4"), index.find("jones", 0, 10));
+		index.remove("Smith", "1");
+		assertEquals(List.of("3"), index.find("smith", 1, 10));
+		assertEquals(3, index.size());
+	}
+
+	/**
+	 * Asserts that the trigram filter never drops a match, comparing the index
+	 * with a scan of random names, enough of them to search the shards in
+	 * parallel.
+	 */
+	@Test
+	void filterAgreesWithScanTest() {
+		final Random random = new Random(3);
+		final TrigramIndex index = new TrigramIndex(4);
+		final List<String> names = new ArrayList<>();
+		for (int i = 0; i <= TrigramIndex.PARALLEL_ENTRIES; i++) {
+			final String name = randomName(random);
+			names.add(name);
+			index.add(name, Integer.toString(i));
+		}
+		for (int query = 0; query < 50; query++) {
+			final String name = randomName(random);
+			final int maxDistance = query % 3;
+			int expected = 0;
+			for (final String candidate : names) {
+				if (TrigramIndex.distance(name, candidate, maxDistance) <= maxDistance) {
+					expected++;
+				}
+			}
+			assertEquals(expected, index.find(name, maxDistance, Integer.MAX_VALUE).size());
+		}
+	}
+
+	private static String randomName(final Random random) {
+		final StringBuilder name = new StringBuilder();
+		for (int i = 3 + random.nextInt(4); i > 0; i--) {
+			name.append("abcde".charAt(random.nextInt(5)));
+		}
+		return name.toString();
+	}
+
+}
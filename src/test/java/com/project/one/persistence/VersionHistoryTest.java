@@ -0,0 +1,132 @@
+package com.project.one.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the functionality of the VersionHistory class.
+ *
+ * @see VersionHistory
+ * @see VersionClock
+ * @author Ben
+ */
+public class VersionHistoryTest {
+
+	private final Object writeLock = new Object();
+
+	/**
+	 * Asserts that a snapshot reads every key as it was when the snapshot was
+	 * opened, through puts, deletes and adds made after it, while a newer
+	 * snapshot reads the map as it is.
+	 */
+	@Test
+	void snapshotReadTest() {
+		final Map<String, String> map = new ConcurrentHashMap<>();
+		final VersionClock clock = new VersionClock();
+		final VersionHistory<String> history = new VersionHistory<>(map, clock);
+		map.put("loaded", "0");
+		change(history, map, "a", "1");
+		change(history, map, "b", "2");
+
+		final long snapshot = clock.openSnapshot();
+		change(history, map, "a", "3");
+		change(history, map, "a", "4");
+		change(history, map, "b", null);
+		change(history, map, "c", "5");
+		assertEquals("1", history.read("a", snapshot));
+		assertEquals("2", history.read("b", snapshot));
+		assertNull(history.read("c", snapshot));
+		assertEquals("0", history.read("loaded", snapshot));
+		assertEquals(List.of("0", "1", "2"), history.scan(snapshot).sorted().collect(Collectors.toList()));
+
+		final long later = clock.openSnapshot();
+		assertEquals("4", history.read("a", later));
+		assertNull(history.read("b", later));
+		assertEquals(List.of("0", "4", "5"), history.scan(later).sorted().collect(Collectors.toList()));
+		assertTrue(history.lastChanged("a") > snapshot);
+		clock.closeSnapshot(snapshot);
+		clock.closeSnapshot(later);
+	}
+
+	/**
+	 * Asserts that the changes collected in a batch are invisible to every
+	 * snapshot until the batch is published, and are then published with one
+	 * stamp.
+	 */
+	@Test
+	void batchTest() {
+		final Map<String, String> map = new ConcurrentHashMap<>();
+		final VersionClock clock = new VersionClock();
+		final VersionHistory<String> history = new VersionHistory<>(map, clock);
+		change(history, map, "a", "1");
+
+		final VersionClock.Batch batch = new VersionClock.Batch();
+		final long published;
+		synchronized (this.writeLock) {
+			history.beginBatch(batch);
+			change(history, map, "a", "2");
+			change(history, map, "b", "3");
+			history.endBatch();
+			final long during = clock.openSnapshot();
+			assertEquals("1", history.read("a", during));
+			assertNull(history.read("b", during));
+			clock.closeSnapshot(during);
+			clock.publish(batch);
+			published = clock.now();
+		}
+		assertEquals(published, history.lastChanged("a"));
+		assertEquals(published, history.lastChanged("b"));
+		final long after = clock.openSnapshot();
+		assertEquals("2", history.read("a", after));
+		assertEquals("3", history.read("b", after));
+		clock.closeSnapshot(after);
+	}
+
+	/**
+	 * Asserts that the versions of a key are dropped once no open snapshot
+	 * needs them, leaving the map to answer every snapshot.
+	 */
+	@Test
+	void pruneTest() {
+		final Map<String, String> map = new ConcurrentHashMap<>();
+		final VersionClock clock = new VersionClock();
+		final VersionHistory<String> history = new VersionHistory<>(map, clock);
+		change(history, map, "a", "1");
+		assertEquals(0, history.lastChanged("a"));
+
+		final long snapshot = clock.openSnapshot();
+		change(history, map, "a", "2");
+		assertTrue(history.lastChanged("a") > snapshot);
+		assertEquals(snapshot, clock.horizon());
+		clock.closeSnapshot(snapshot);
+		assertEquals(clock.now(), clock.horizon());
+
+		change(history, map, "a", "3");
+		assertEquals(0, history.lastChanged("a"));
+		final long later = clock.openSnapshot();
+		assertEquals("3", history.read("a", later));
+		clock.closeSnapshot(later);
+	}
+
+	private void change(final VersionHistory<String> history, final Map<String, String> map, final String key,
+			final String value) {
+		synchronized (this.writeLock) {
+			history.beforeChange(key);
+			if (value == null) {
+				map.remove(key);
+			} else {
+				map.put(key, value);
+			}
+			history.changed(key);
+		}
+	}
+
+}
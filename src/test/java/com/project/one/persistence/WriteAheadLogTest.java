@@ -0,0 +1,175 @@
+package com.project.one.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class tests the functionality of the WriteAheadLog class.
+ *
+ * @see WriteAheadLog
+ * @author Ben
+ */
+public class WriteAheadLogTest {
+
+	@TempDir
+	Path directory;
+
+	/**
+	 * Asserts that synced records are replayed in the order they were appended.
+	 *
+	 * @throws IOException Exception indicating the log could not be used.
+	 */
+	@Test
+	void replayInOrderTest() throws IOException {
+		final Path logDirectory = this.directory.resolve("log");
+		try (WriteAheadLog log = new WriteAheadLog(logDirectory, 0, payload -> {
+		})) {
+			log.write(bytes("one"));
+			log.append(bytes("two"));
+			log.sync(log.append(bytes("three")));
+		}
+		final List<String> replayed = new ArrayList<>();
+		new WriteAheadLog(logDirectory, 0, payload -> replayed.add(string(payload))).close();
+		assertEquals(List.of("one", "two", "three"), replayed);
+	}
+
+	/**
+	 * Asserts that a record with a corrupted checksum ends the replay and is
+	 * truncated so new records can follow the intact prefix.
+	 *
+	 * @throws IOException Exception indicating the log could not be used.
+	 */
+	@Test
+	void corruptRecordTruncatedTest() throws IOException {
+		final Path logDirectory = this.directory.resolve("log");
+		try (WriteAheadLog log = new WriteAheadLog(logDirectory, 0, payload -> {
+		})) {
+			log.write(bytes("intact"));
+			log.write(bytes("corrupt"));
+		}
+		try (RandomAccessFile file = new RandomAccessFile(segment(logDirectory, 0).toFile(), "rw")) {
+			file.seek(file.length() - 1);
+			file.write('X');
+		}
+		try (WriteAheadLog log = new WriteAheadLog(logDirectory, 0, payload -> {
+		})) {
+			log.write(bytes("after"));
+		}
+		final List<String> replayed = new ArrayList<>();
+		new WriteAheadLog(logDirectory, 0, payload -> replayed.add(string(payload))).close();
+		assertEquals(List.of("intact", "after"), replayed);
+	}
+
+	/**
+	 * Asserts that every record synced by concurrent writers is replayed exactly
+	 * once.
+	 *
+	 * @throws Exception Exception indicating the log could not be used.
+	 */
+	@Test
+	void concurrentWritersTest() throws Exception {
+		final Path logDirectory = this.directory.resolve("log");
+		final int writers = 8;
+		final int recordsPerWriter = 200;
+		final ExecutorService executor = Executors.newFixedThreadPool(writers);
+		try (WriteAheadLog log = new WriteAheadLog(logDirectory, 0, payload -> {
+		})) {
+			final List<Future<?>> futures = new ArrayList<>();
+			for (int writer = 0; writer < writers; writer++) {
+				final int id = writer;
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < recordsPerWriter; i++) {
+						log.write(bytes(id + ":" + i));
+					}
+					return null;
+				}));
+			}
+			for (final Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		final Set<String> replayed = new HashSet<>();
+		new WriteAheadLog(logDirectory, 0, payload -> replayed.add(string(payload))).close();
+		assertEquals(writers * recordsPerWriter, replayed.size());
+	}
+
+	/**
+	 * Asserts that a record larger than the maximum length is rejected.
+	 *
+	 * @throws IOException Exception indicating the log could not be used.
+	 */
+	@Test
+	void recordTooLargeTest() throws IOException {
+		try (WriteAheadLog log = new WriteAheadLog(this.directory, 0, payload -> {
+		})) {
+			assertThrows(IllegalArgumentException.class,
+					() -> log.append(new byte[WriteAheadLog.MAX_RECORD_LENGTH + 1]));
+		}
+	}
+
+	/**
+	 * Asserts that records appended after a roll go to the new segment, and that
+	 * only the segments from a given number on are replayed.
+	 *
+	 * @throws IOException Exception indicating the log could not be used.
+	 */
+	@Test
+	void rollTest() throws IOException {
+		final Path logDirectory = this.directory.resolve("log");
+		final long rolled;
+		try (WriteAheadLog log = new WriteAheadLog(logDirectory, 0, payload -> {
+		})) {
+			log.append(bytes("old"));
+			rolled = log.roll();
+			assertEquals(1, rolled);
+			assertEquals(rolled, log.getSegment());
+			log.write(bytes("new"));
+		}
+		final List<String> replayed = new ArrayList<>();
+		new WriteAheadLog(logDirectory, 0, payload -> replayed.add(string(payload))).close();
+		assertEquals(List.of("old", "new"), replayed);
+
+		replayed.clear();
+		try (WriteAheadLog log = new WriteAheadLog(logDirectory, rolled, payload -> replayed.add(string(payload)))) {
+			log.deleteSegmentsBefore(rolled);
+		}
+		assertEquals(List.of("new"), replayed);
+		assertFalse(Files.exists(segment(logDirectory, 0)));
+	}
+
+	private static Path segment(final Path logDirectory, final long number) throws IOException {
+		try (Stream<Path> files = Files.list(logDirectory)) {
+			return files.filter(path -> path.getFileName().toString().contains(String.format("%020d", number)))
+					.findFirst().orElse(logDirectory.resolve("missing"));
+		}
+	}
+
+	private static byte[] bytes(final String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String string(final byte[] payload) {
+		return new String(payload, StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,121 @@
+package com.project.one.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the functionality of the WriteBehindQueue class.
+ *
+ * @see WriteBehindQueue
+ * @author Ben
+ */
+public class WriteBehindQueueTest {
+
+	/**
+	 * Asserts that repeated changes to one key are written once and that flush
+	 * waits for them.
+	 *
+	 * @throws IOException Exception indicating a batch failed.
+	 */
+	@Test
+	void coalesceTest() throws IOException {
+		final List<String> written = Collections.synchronizedList(new ArrayList<>());
+		try (WriteBehindQueue queue = new WriteBehindQueue(written::addAll, 100, 60000)) {
+			for (int i = 0; i < 10; i++) {
+				queue.enqueue("a");
+				queue.enqueue("b");
+			}
+			assertEquals(2, queue.getPendingCount());
+			queue.flush();
+			assertEquals(List.of("a", "b"), written);
+			assertEquals(0, queue.getPendingCount());
+		}
+	}
+
+	/**
+	 * Asserts that a batch is written once the maximum lag has passed, without a
+	 * flush.
+	 *
+	 * @throws Exception Exception indicating the batch was not written.
+	 */
+	@Test
+	void maxLagTest() throws Exception {
+		final CountDownLatch written = new CountDownLatch(1);
+		try (WriteBehindQueue queue = new WriteBehindQueue(keys -> written.countDown(), 100, 10)) {
+			queue.enqueue("a");
+			assertTrue(written.await(10, TimeUnit.SECONDS));
+		}
+	}
+
+	/**
+	 * Asserts that a new key waits while the queue is full, that a queued key
+	 * does not, and that awaitDurable waits for the key's batch.
+	 *
+	 * @throws Exception Exception indicating the queue could not be used.
+	 */
+	@Test
+	void backpressureTest() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<String> written = Collections.synchronizedList(new ArrayList<>());
+		try (WriteBehindQueue queue = new WriteBehindQueue(keys -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				throw new IOException(e);
+			}
+			written.addAll(keys);
+		}, 2, 60000)) {
+			queue.enqueue("a");
+			queue.enqueue("b");
+			// The full queue is taken as a batch, which blocks in the writer.
+			queue.enqueue("c");
+			queue.enqueue("d");
+			queue.enqueue("c");
+			final AtomicBoolean enqueued = new AtomicBoolean();
+			final Thread blocked = new Thread(() -> {
+				try {
+					queue.enqueue("e");
+					enqueued.set(true);
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			});
+			blocked.start();
+			blocked.join(200);
+			assertTrue(blocked.isAlive());
+			release.countDown();
+			blocked.join();
+			assertTrue(enqueued.get());
+			queue.awaitDurable("e");
+			assertEquals(List.of("a", "b", "c", "d", "e"), written);
+		}
+	}
+
+	/**
+	 * Asserts that a failed batch is reported to every later call.
+	 *
+	 * @throws IOException Exception indicating the queue could not be used.
+	 */
+	@Test
+	void failureTest() throws IOException {
+		final WriteBehindQueue queue = new WriteBehindQueue(keys -> {
+			throw new IOException("disk full");
+		}, 10, 60000);
+		queue.enqueue("a");
+		assertThrows(IOException.class, () -> queue.awaitDurable("a"));
+		assertThrows(IOException.class, () -> queue.enqueue("b"));
+		assertThrows(IOException.class, queue::close);
+	}
+
+}
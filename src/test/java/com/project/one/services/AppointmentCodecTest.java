@@ -0,0 +1,87 @@
+package com.project.one.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+
+import com.project.one.exceptions.MaximumLengthExceededException;
+import com.project.one.exceptions.MinimumLengthNotMetException;
+import com.project.one.exceptions.NullFieldException;
+
+/**
+ * This class tests the functionality of the AppointmentCodec class.
+ *
+ * @see AppointmentCodec
+ * @author Ben
+ */
+public class AppointmentCodecTest {
+
+	/**
+	 * Asserts that an Appointment whose date has passed is decoded with the same
+	 * fields.
+	 *
+	 * @throws IOException                    Exception indicating the record
+	 *                                        could not be decoded.
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void roundTripTest()
+			throws IOException, NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		final AppointmentCodec codec = AppointmentCodec.getInstance();
+		final Appointment appointment = Appointment.restore("ID", new Date(1000), "Caf\u00E9 \u2615");
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(codec.getMaxLength());
+		codec.encode(appointment, buffer);
+		buffer.flip();
+		final Appointment decoded = codec.decode(buffer);
+		assertEquals(appointment.getAppointmentId(), decoded.getAppointmentId());
+		assertEquals(appointment.getAppointmentDate(), decoded.getAppointmentDate());
+		assertEquals(appointment.getDescription(), decoded.getDescription());
+	}
+
+	/**
+	 * Asserts that the duration, the owner and the version of an Appointment are
+	 * kept, that no owner stays none, and that a record of another format
+	 * version is rejected.
+	 *
+	 * @throws IOException                    Exception indicating the record
+	 *                                        could not be decoded.
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void fieldsTest()
+			throws IOException, NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		final AppointmentCodec codec = AppointmentCodec.getInstance();
+		final ByteBuffer buffer = ByteBuffer.allocate(codec.getMaxLength());
+		codec.encode(Appointment.restore("ID", new Date(1000), 90000, "J\u00F6rg", "Visit").copy(), buffer);
+		buffer.flip();
+		final Appointment decoded = codec.decode(buffer);
+		assertEquals(90000, decoded.getDuration());
+		assertEquals("J\u00F6rg", decoded.getOwner());
+		assertEquals("Visit", decoded.getDescription());
+		assertEquals(1, decoded.getVersion());
+
+		buffer.clear();
+		codec.encode(Appointment.restore("ID", new Date(1000), "Visit"), buffer);
+		buffer.flip();
+		assertNull(codec.decode(buffer).getOwner());
+
+		buffer.put(0, (byte) (AppointmentCodec.VERSION + 1));
+		buffer.rewind();
+		assertThrows(IOException.class, () -> codec.decode(buffer));
+	}
+
+}
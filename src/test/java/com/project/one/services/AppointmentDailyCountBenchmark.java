@@ -0,0 +1,107 @@
+package com.project.one.services;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.project.one.persistence.DayCounter;
+
+/**
+ * This class measures countAppointmentsPerDay for the next 90 days against a
+ * scan of every Appointment object counting the ones in each day, with the
+ * appointments spread over the next year. It is not run as part of the test
+ * suite; run its main method to print the results. The first argument
+ * overrides the number of appointments.
+ *
+ * @see AppointmentService
+ * @see DayCounter
+ * @author Ben
+ */
+public class AppointmentDailyCountBenchmark {
+
+	private static int APPOINTMENTS = 1_000_000;
+	private static int DAYS = 90;
+	private static int WARMUP_QUERIES = 20_000;
+	private static int QUERIES = 20_000;
+	private static int SCANS = 5;
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args The number of appointments, optionally.
+	 * @throws Exception Exception indicating the benchmark could not run.
+	 */
+	public static void main(final String[] args) throws Exception {
+		final int appointments = args.length > 0 ? Integer.parseInt(args[0]) : APPOINTMENTS;
+		final Random random = new Random(1);
+		final long now = System.currentTimeMillis();
+		final Map<String, Appointment> appointmentMap = new ConcurrentHashMap<>(appointments * 2);
+		for (int i = 0; i < appointments; i++) {
+			final String appointmentId = "A" + i;
+			final Date date = new Date(now + (long) (random.nextDouble() * 365 * 24 * 60 * 60 * 1000));
+			appointmentMap.put(appointmentId, Appointment.restore(appointmentId, date, "Description"));
+		}
+		final AppointmentService service = new AppointmentService(appointmentMap);
+		final Date today = new Date(now);
+		for (int i = 0; i < WARMUP_QUERIES; i++) {
+			service.countAppointmentsPerDay(today, DAYS);
+		}
+
+		final long counterStart = System.nanoTime();
+		long total = 0;
+		for (int i = 0; i < QUERIES; i++) {
+			total += service.countAppointmentsPerDay(today, DAYS)[i % DAYS];
+		}
+		final double counterMicros = (System.nanoTime() - counterStart) / 1e3 / QUERIES;
+
+		final long scanStart = System.nanoTime();
+		for (int i = 0; i < SCANS; i++) {
+			total += scan(service, today)[i % DAYS];
+		}
+		final double scanMicros = (System.nanoTime() - scanStart) / 1e3 / SCANS;
+		System.out.printf("%,d appointments, counts for the next %d days (checksum %d)%n", appointments, DAYS,
+				total);
+		System.out.printf("%14s %16s%n", "counters (us)", "full scan (us)");
+		System.out.printf("%14.2f %16.0f%n", counterMicros, scanMicros);
+	}
+
+	/**
+	 * Counts the Appointment objects on each day by reading all of them.
+	 *
+	 * @param service The service.
+	 * @param from    Any time on the first day.
+	 * @return Returns one count per day.
+	 */
+	private static long[] scan(final AppointmentService service, final Date from) {
+		final Calendar calendar = Calendar.getInstance();
+		calendar.setTime(from);
+		calendar.set(Calendar.HOUR_OF_DAY, 0);
+		calendar.set(Calendar.MINUTE, 0);
+		calendar.set(Calendar.SECOND, 0);
+		calendar.set(Calendar.MILLISECOND, 0);
+		final long[] starts = new long[DAYS + 1];
+		for (int day = 0; day <= DAYS; day++) {
+			starts[day] = calendar.getTimeInMillis();
+			calendar.add(Calendar.DAY_OF_MONTH, 1);
+		}
+		final long[] counts = new long[DAYS];
+		service.stream().forEach(appointment -> {
+			final long time = appointment.getAppointmentDate().getTime();
+			if (time >= starts[0] && time < starts[DAYS]) {
+				int day = (int) ((time - starts[0]) / (24L * 60 * 60 * 1000));
+				// A daylight saving change can shift a day boundary by an hour.
+				while (day > 0 && time < starts[day]) {
+					day--;
+				}
+				while (time >= starts[day + 1]) {
+					day++;
+				}
+				counts[day]++;
+			}
+		});
+		return counts;
+	}
+
+}
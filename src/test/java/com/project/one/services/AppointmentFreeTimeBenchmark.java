@@ -0,0 +1,153 @@
+package com.project.one.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import com.project.one.persistence.FreeBusyIndex;
+
+/**
+ * This class measures findFreeTime against a scan that collects, sorts and
+ * sweeps the Appointment objects of the owners, searching a 30 day window for
+ * 30 free minutes shared by groups of owners. Every owner has a busy working
+ * day of meetings from 15 minutes to 2 hours, so a time free for every owner of
+ * a large group usually falls outside working hours. It is not run as part of the test suite; run its main
+ * method to print the results. The first argument overrides the number of
+ * owners.
+ *
+ * @see AppointmentService
+ * @see FreeBusyIndex
+ * @author Ben
+ */
+public class AppointmentFreeTimeBenchmark {
+
+	private static int OWNERS = 100;
+	private static int DAYS = 30;
+	private static int MEETINGS_PER_DAY = 6;
+	private static int[] GROUP_SIZES = { 2, 10, 100 };
+	private static long MINUTE = 60_000;
+	private static long DAY = 24 * 60 * MINUTE;
+	private static int WARMUP_QUERIES = 20_000;
+	private static int QUERIES = 5_000;
+	private static int SCANS = 20;
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args The number of owners, optionally.
+	 * @throws Exception Exception indicating the benchmark could not run.
+	 */
+	public static void main(final String[] args) throws Exception {
+		final int owners = args.length > 0 ? Integer.parseInt(args[0]) : OWNERS;
+		final Random random = new Random(1);
+		// Midnight UTC on 1 January 2100.
+		final long first = 4_102_444_800_000L;
+		final Map<String, Appointment> appointmentMap = new ConcurrentHashMap<>();
+		for (int owner = 0; owner < owners; owner++) {
+			for (int day = 0; day < DAYS; day++) {
+				for (int meeting = 0; meeting < MEETINGS_PER_DAY; meeting++) {
+					final String appointmentId = "A" + appointmentMap.size();
+					// Meetings start on the quarter hour between 08:00 and 17:45.
+					final long start = first + day * DAY + 8 * 60 * MINUTE + random.nextInt(40) * 15 * MINUTE;
+					appointmentMap.put(appointmentId, Appointment.restore(appointmentId, new Date(start),
+							(15 + random.nextInt(106)) * MINUTE, "O" + owner, "Description"));
+				}
+			}
+		}
+		final long buildStart = System.nanoTime();
+		final AppointmentService service = new AppointmentService(appointmentMap);
+		System.out.printf("%,d owners, %,d appointments over %d days, indexes built in %d ms%n", owners,
+				appointmentMap.size(), DAYS, (System.nanoTime() - buildStart) / 1_000_000);
+
+		System.out.printf("%8s %14s %16s %16s%n", "owners", "found (%)", "index (us)", "full scan (us)");
+		for (final int groupSize : GROUP_SIZES) {
+			final int size = Math.min(groupSize, owners);
+			final List<List<String>> groups = new ArrayList<>();
+			final Date[] afters = new Date[QUERIES];
+			for (int i = 0; i < QUERIES; i++) {
+				groups.add(group(owners, size, random));
+				afters[i] = new Date(first + (long) (random.nextDouble() * DAY));
+			}
+			final Date before = new Date(first + DAYS * DAY);
+			for (int i = 0; i < WARMUP_QUERIES; i++) {
+				service.findFreeTime(groups.get(i % QUERIES), afters[i % QUERIES], 30 * MINUTE, before);
+			}
+
+			int found = 0;
+			final long indexStart = System.nanoTime();
+			for (int i = 0; i < QUERIES; i++) {
+				found += service.findFreeTime(groups.get(i), afters[i], 30 * MINUTE, before) == null ? 0 : 1;
+			}
+			final double indexMicros = (System.nanoTime() - indexStart) / 1e3 / QUERIES;
+
+			final long scanStart = System.nanoTime();
+			for (int i = 0; i < SCANS; i++) {
+				final Date scanned = scan(service, groups.get(i), afters[i], 30 * MINUTE, before);
+				if (!Objects.equals(scanned, service.findFreeTime(groups.get(i), afters[i], 30 * MINUTE, before))) {
+					throw new IllegalStateException("The index and the scan disagree.");
+				}
+			}
+			final double scanMicros = (System.nanoTime() - scanStart) / 1e3 / SCANS;
+			System.out.printf("%8d %14.1f %16.2f %16.0f%n", size, 100.0 * found / QUERIES, indexMicros, scanMicros);
+		}
+	}
+
+	/**
+	 * Picks a group of distinct owners.
+	 *
+	 * @param owners The number of owners.
+	 * @param size   The size of the group.
+	 * @param random The random number generator.
+	 * @return Returns the owners of the group.
+	 */
+	private static List<String> group(final int owners, final int size, final Random random) {
+		final List<String> all = new ArrayList<>();
+		for (int owner = 0; owner < owners; owner++) {
+			all.add("O" + owner);
+		}
+		Collections.shuffle(all, random);
+		return all.subList(0, size);
+	}
+
+	/**
+	 * Finds the earliest free slot-aligned time by reading every Appointment
+	 * object, keeping the busy times of the group in the window, and sweeping them
+	 * in order of start.
+	 *
+	 * @param service  The service.
+	 * @param group    The owners.
+	 * @param after    The earliest start.
+	 * @param duration The length of the time.
+	 * @param before   The latest end.
+	 * @return Returns the start of the free time, or null if there is none.
+	 */
+	private static Date scan(final AppointmentService service, final List<String> group, final Date after,
+			final long duration, final Date before) {
+		final long slot = FreeBusyIndex.SLOT_MILLIS;
+		final Set<String> owners = new HashSet<>(group);
+		final List<long[]> busy = service.stream().filter(appointment -> owners.contains(appointment.getOwner()))
+				.map(appointment -> new long[] { appointment.getAppointmentDate().getTime() / slot * slot,
+						(appointment.getAppointmentDate().getTime() + Math.max(1, appointment.getDuration()) + slot
+								- 1) / slot * slot })
+				.filter(times -> times[1] > after.getTime() && times[0] < before.getTime())
+				.sorted(Comparator.comparingLong(times -> times[0])).collect(Collectors.toList());
+		long start = (after.getTime() + slot - 1) / slot * slot;
+		for (final long[] times : busy) {
+			if (times[0] >= start + duration) {
+				break;
+			}
+			start = Math.max(start, times[1]);
+		}
+		return start + duration <= before.getTime() ? new Date(start) : null;
+	}
+
+}
@@ -0,0 +1,91 @@
+package com.project.one.services;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.project.one.persistence.IntervalTree;
+
+/**
+ * This class measures isTimeFree and getOverlappingAppointments against a scan
+ * of every Appointment object, with appointments of 15 minutes to 2 hours spread
+ * over the next year. It is not run as part of the test suite; run its main
+ * method to print the results. The first argument overrides the number of
+ * appointments.
+ *
+ * @see AppointmentService
+ * @see IntervalTree
+ * @author Ben
+ */
+public class AppointmentOverlapBenchmark {
+
+	private static int APPOINTMENTS = 1_000_000;
+	private static long MINUTE = 60_000;
+	private static int WARMUP_QUERIES = 50_000;
+	private static int QUERIES = 50_000;
+	private static int SCANS = 5;
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args The number of appointments, optionally.
+	 * @throws Exception Exception indicating the benchmark could not run.
+	 */
+	public static void main(final String[] args) throws Exception {
+		final int appointments = args.length > 0 ? Integer.parseInt(args[0]) : APPOINTMENTS;
+		final Random random = new Random(1);
+		final long now = System.currentTimeMillis();
+		final long year = 365 * 24 * 60 * MINUTE;
+		final Map<String, Appointment> appointmentMap = new ConcurrentHashMap<>(appointments * 2);
+		for (int i = 0; i < appointments; i++) {
+			final String appointmentId = "A" + i;
+			final Date date = new Date(now + (long) (random.nextDouble() * year));
+			appointmentMap.put(appointmentId,
+					Appointment.restore(appointmentId, date, (15 + random.nextInt(106)) * MINUTE, "Description"));
+		}
+		final long buildStart = System.nanoTime();
+		final AppointmentService service = new AppointmentService(appointmentMap);
+		System.out.printf("%,d appointments, indexes built in %d ms%n", appointments,
+				(System.nanoTime() - buildStart) / 1_000_000);
+
+		final Date[] starts = new Date[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			starts[i] = new Date(now + (long) (random.nextDouble() * year));
+		}
+		for (int i = 0; i < WARMUP_QUERIES; i++) {
+			service.getOverlappingAppointments(starts[i % QUERIES], 30 * MINUTE);
+			service.isTimeFree(starts[i % QUERIES], 30 * MINUTE);
+		}
+
+		long overlaps = 0;
+		final long queryStart = System.nanoTime();
+		for (final Date start : starts) {
+			overlaps += service.getOverlappingAppointments(start, 30 * MINUTE).size();
+		}
+		final double queryMicros = (System.nanoTime() - queryStart) / 1e3 / QUERIES;
+		final long freeStart = System.nanoTime();
+		int free = 0;
+		for (final Date start : starts) {
+			free += service.isTimeFree(start, 30 * MINUTE) ? 1 : 0;
+		}
+		final double freeMicros = (System.nanoTime() - freeStart) / 1e3 / QUERIES;
+
+		final long scanStart = System.nanoTime();
+		for (int i = 0; i < SCANS; i++) {
+			final long from = starts[i].getTime();
+			final long to = from + 30 * MINUTE;
+			final long found = service.stream().filter(appointment -> appointment.getAppointmentDate().getTime() < to
+					&& appointment.getAppointmentDate().getTime() + appointment.getDuration() > from).count();
+			if (found != service.getOverlappingAppointments(starts[i], 30 * MINUTE).size()) {
+				throw new IllegalStateException("The index and the scan disagree.");
+			}
+		}
+		final double scanMicros = (System.nanoTime() - scanStart) / 1e3 / SCANS;
+		System.out.printf("%.1f overlaps per 30 minute query, %d of %d times free%n", (double) overlaps / QUERIES,
+				free, QUERIES);
+		System.out.printf("%14s %14s %16s%n", "overlaps (us)", "free (us)", "full scan (us)");
+		System.out.printf("%14.2f %14.2f %16.0f%n", queryMicros, freeMicros, scanMicros);
+	}
+
+}
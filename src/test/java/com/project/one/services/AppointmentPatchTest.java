@@ -0,0 +1,79 @@
+package com.project.one.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+
+import com.project.one.exceptions.MaximumLengthExceededException;
+import com.project.one.exceptions.MinimumLengthNotMetException;
+import com.project.one.exceptions.NullFieldException;
+import com.project.one.exceptions.PastDateException;
+
+/**
+ * This class tests the functionality of the AppointmentPatch class.
+ *
+ * @see AppointmentPatch
+ * @author Ben
+ */
+public class AppointmentPatchTest {
+
+	// Midnight UTC on 1 January 2100.
+	private static final Date FUTURE_DATE = new Date(4_102_444_800_000L);
+
+	/**
+	 * Asserts that a patch sets only the fields it changes, that NULL removes
+	 * the owner, and that neither extending the patch nor changing the Date it
+	 * was given changes it.
+	 *
+	 * @see NullFieldException
+	 * @see MinimumLengthNotMetException
+	 * @see MaximumLengthExceededException
+	 * @see PastDateException
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 * @throws PastDateException              Exception indicating a date field is
+	 *                                        in the past.
+	 */
+	@Test
+	void applyToTest()
+			throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException, PastDateException {
+		final Appointment appointment = Appointment.restore("1", FUTURE_DATE, 0, "alice", "Checkup");
+		final Date laterDate = new Date(FUTURE_DATE.getTime() + 60000);
+		final AppointmentPatch moved = AppointmentPatch.none().appointmentDate(laterDate).duration(60000);
+		laterDate.setTime(0);
+		moved.owner(null).applyTo(appointment);
+		assertEquals(new Date(FUTURE_DATE.getTime() + 60000), appointment.getAppointmentDate());
+		assertEquals(60000, appointment.getDuration());
+		assertNull(appointment.getOwner());
+		assertEquals("Checkup", appointment.getDescription());
+		assertNull(moved.getDescription());
+		assertTrue(moved.changesBooking());
+		assertFalse(AppointmentPatch.none().description("Checkup").changesBusy());
+		assertTrue(AppointmentPatch.none().owner(null).changesBusy());
+		assertTrue(AppointmentPatch.none().isEmpty());
+	}
+
+	/**
+	 * Asserts that validate rejects a field an Appointment could not hold, and
+	 * that a NULL value is rejected when it is set, except for the owner.
+	 */
+	@Test
+	void validateTest() {
+		assertThrows(PastDateException.class,
+				() -> AppointmentPatch.none().description("Checkup").appointmentDate(new Date(0)).validate());
+		assertThrows(MinimumLengthNotMetException.class, () -> AppointmentPatch.none().duration(-1).validate());
+		assertThrows(MinimumLengthNotMetException.class, () -> AppointmentPatch.none().owner("").validate());
+		assertThrows(IllegalArgumentException.class, () -> AppointmentPatch.none().appointmentDate(null));
+		assertThrows(IllegalArgumentException.class, () -> AppointmentPatch.none().description(null));
+	}
+
+}
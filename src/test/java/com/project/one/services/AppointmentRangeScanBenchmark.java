@@ -0,0 +1,96 @@
+package com.project.one.services;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.project.one.persistence.BPlusTree;
+import com.project.one.persistence.TimeIndex;
+
+/**
+ * This class compares getAppointmentsBetween through the on-disk date index
+ * and through the in-memory TimeIndex with a full scan of the appointment map,
+ * for ranges of an hour, a day and a week over a year of appointments. It is not run as part of the test suite;
+ * run its main method to print the results. The first argument overrides the
+ * number of appointments; 10 million needs a heap of about 4 GB.
+ *
+ * @see AppointmentService
+ * @see BPlusTree
+ * @see TimeIndex
+ * @author Ben
+ */
+public class AppointmentRangeScanBenchmark {
+
+	private static int APPOINTMENTS = 10_000_000;
+	private static int QUERIES = 20;
+	private static long HOUR_MILLIS = 60L * 60 * 1000;
+	private static long[] RANGE_MILLIS = { HOUR_MILLIS, 24 * HOUR_MILLIS, 7 * 24 * HOUR_MILLIS };
+	private static long YEAR_MILLIS = 365 * 24 * HOUR_MILLIS;
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args The number of appointments, optionally.
+	 * @throws Exception Exception indicating the benchmark could not run.
+	 */
+	public static void main(final String[] args) throws Exception {
+		final int appointments = args.length > 0 ? Integer.parseInt(args[0]) : APPOINTMENTS;
+		final long start = System.currentTimeMillis() + HOUR_MILLIS;
+		final Random random = new Random(1);
+		final Map<String, Appointment> appointmentMap = new ConcurrentHashMap<>(appointments * 2);
+		for (int i = 0; i < appointments; i++) {
+			final String appointmentId = "A" + i;
+			appointmentMap.put(appointmentId, Appointment.restore(appointmentId,
+					new Date(start + (long) (random.nextDouble() * YEAR_MILLIS)), "Description"));
+		}
+		final Path directory = Files.createTempDirectory("range-scan-benchmark");
+		final AppointmentService inMemory = new AppointmentService(appointmentMap);
+		final AppointmentService indexed = new AppointmentService(appointmentMap);
+		final long buildStart = System.nanoTime();
+		indexed.openDateIndex(directory.resolve("dates.idx"));
+		System.out.printf("%,d appointments, index built in %d ms%n", appointments,
+				(System.nanoTime() - buildStart) / 1_000_000);
+
+		System.out.printf("%10s %10s %16s %16s %16s %14s%n", "range (h)", "matches", "full scan (ms)",
+				"memory (ms)", "disk index (ms)", "pages read");
+		for (final long range : RANGE_MILLIS) {
+			long scanNanos = 0;
+			long memoryNanos = 0;
+			long indexNanos = 0;
+			long matches = 0;
+			final long pagesBefore = indexed.getDateIndexPageReads();
+			for (int query = 0; query < QUERIES; query++) {
+				final Date from = new Date(start + (long) (random.nextDouble() * (YEAR_MILLIS - range)));
+				final Date to = new Date(from.getTime() + range);
+				long queryStart = System.nanoTime();
+				int scanMatches = 0;
+				for (final Appointment appointment : appointmentMap.values()) {
+					final long millis = appointment.getAppointmentDate().getTime();
+					if (millis >= from.getTime() && millis < to.getTime()) {
+						scanMatches++;
+					}
+				}
+				scanNanos += System.nanoTime() - queryStart;
+				queryStart = System.nanoTime();
+				final int memoryMatches = inMemory.getAppointmentsBetween(from, to).size();
+				memoryNanos += System.nanoTime() - queryStart;
+				queryStart = System.nanoTime();
+				final int indexMatches = indexed.getAppointmentsBetween(from, to).size();
+				indexNanos += System.nanoTime() - queryStart;
+				if (scanMatches != indexMatches || scanMatches != memoryMatches) {
+					throw new IllegalStateException("The index and the scan disagree.");
+				}
+				matches += indexMatches;
+			}
+			System.out.printf("%10d %10d %16.2f %16.2f %16.2f %14d%n", range / HOUR_MILLIS, matches / QUERIES,
+					scanNanos / 1e6 / QUERIES, memoryNanos / 1e6 / QUERIES, indexNanos / 1e6 / QUERIES,
+					(indexed.getDateIndexPageReads() - pagesBefore) / QUERIES);
+		}
+		indexed.close();
+		ServiceRecoveryBenchmark.deleteDirectory(directory);
+	}
+
+}
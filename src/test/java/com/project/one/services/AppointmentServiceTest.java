@@ -1,14 +1,26 @@
 package com.project.one.services;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import com.project.one.exceptions.MaximumLengthExceededException;
 import com.project.one.exceptions.MinimumLengthNotMetException;
@@ -248,5 +260,709 @@ public class AppointmentServiceTest {
 		this.appointmentService.addAppointment(this.appointment);
 		assertFalse(this.appointmentService.updateAppointmentDescription(VALID_APPOINTMENT_ID, INVALID_MAX_51));
 	}
-}
 
+	// Testing stored copies
+	/**
+	 * Asserts that the AppointmentService stores a copy of an added Appointment
+	 * object, so changing the added one does not change the stored one, and that
+	 * a stored Appointment object cannot be changed in place.
+	 *
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 * @throws PastDateException              Exception indicating a date field is
+	 *                                        in the past.
+	 */
+	@Test
+	void storedCopyTest() throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException,
+			PastDateException {
+		this.appointmentService.addAppointment(this.appointment);
+		this.appointment.setDescription(VALID_INPUT);
+		assertEquals(VALID_DESCRIPTION, this.appointmentService.getAppointment(VALID_APPOINTMENT_ID).getDescription());
+		assertEquals(List.of(VALID_APPOINTMENT_ID),
+				appointmentIds(this.appointmentService.findAppointmentsMatchingAll(VALID_DESCRIPTION, 10)));
+
+		final Appointment stored = this.appointmentService.getAppointment(VALID_APPOINTMENT_ID);
+		assertThrows(UnsupportedOperationException.class, () -> stored.setAppointmentDate(new Date()));
+		assertThrows(UnsupportedOperationException.class, () -> stored.setOwner(VALID_INPUT));
+		assertNull(this.appointmentService.getAppointment(VALID_APPOINTMENT_ID).getOwner());
+		assertTrue(this.appointmentService.updateAppointmentDescription(VALID_APPOINTMENT_ID, VALID_INPUT));
+		assertEquals(VALID_INPUT, this.appointmentService.getAppointment(VALID_APPOINTMENT_ID).getDescription());
+	}
+
+	// Testing versions and conditional updates
+	/**
+	 * Asserts that each update raises the version of the Appointment object, that
+	 * a conditional update or delete with a stale version fails without changing
+	 * it, and that one with the current version succeeds and moves it in the
+	 * schedule.
+	 */
+	@Test
+	void versionTest() {
+		final Date laterDate = new Date(this.futureDate.getTime() + 60000);
+		assertEquals(-1, this.appointmentService.getAppointmentVersion(VALID_APPOINTMENT_ID));
+		this.appointmentService.addAppointment(this.appointment);
+		// Starts above the versions of the Appointment objects deleted by other tests.
+		final long version = this.appointmentService.getAppointmentVersion(VALID_APPOINTMENT_ID);
+		assertTrue(version >= 0);
+		assertTrue(this.appointmentService.updateAppointmentDuration(VALID_APPOINTMENT_ID, version, 60000));
+		assertTrue(this.appointmentService.updateAppointmentOwner(VALID_APPOINTMENT_ID, version + 1, VALID_INPUT));
+		assertEquals(version + 2, this.appointmentService.getAppointmentVersion(VALID_APPOINTMENT_ID));
+
+		assertFalse(this.appointmentService.updateAppointmentDate(VALID_APPOINTMENT_ID, version + 1, laterDate));
+		assertFalse(this.appointmentService.updateAppointmentDescription(VALID_APPOINTMENT_ID, version, VALID_INPUT));
+		assertFalse(this.appointmentService.updateAppointmentDate(VALID_APPOINTMENT_ID, version + 2, this.pastDate));
+		assertEquals(this.futureDate, this.appointmentService.getAppointment(VALID_APPOINTMENT_ID).getAppointmentDate());
+		assertTrue(this.appointmentService.updateAppointmentDate(VALID_APPOINTMENT_ID, version + 2, laterDate));
+		assertEquals(List.of(VALID_APPOINTMENT_ID),
+				appointmentIds(this.appointmentService.getAppointmentsBetween(laterDate,
+						new Date(laterDate.getTime() + 1))));
+
+		assertFalse(this.appointmentService.deleteAppointment(VALID_APPOINTMENT_ID, version + 2));
+		assertTrue(this.appointmentService.deleteAppointment(VALID_APPOINTMENT_ID, version + 3));
+		assertNull(this.appointmentService.getAppointment(VALID_APPOINTMENT_ID));
+	}
+
+	/**
+	 * Asserts that an Appointment object deleted and added again continues above
+	 * its old version, so a version read before the delete never matches, and
+	 * that negative versions never match.
+	 */
+	@Test
+	void readdVersionTest() {
+		final AppointmentService service = new AppointmentService(new ConcurrentHashMap<>());
+		assertTrue(service.addAppointment(this.appointment));
+		assertTrue(service.updateAppointmentDuration(VALID_APPOINTMENT_ID, 0, 60000));
+		assertTrue(service.deleteAppointment(VALID_APPOINTMENT_ID));
+		assertTrue(service.addAppointment(this.appointment));
+		assertEquals(2, service.getAppointmentVersion(VALID_APPOINTMENT_ID));
+		assertFalse(service.updateAppointmentDuration(VALID_APPOINTMENT_ID, 0, 60000));
+		assertEquals(0, service.getAppointment(VALID_APPOINTMENT_ID).getDuration());
+
+		assertFalse(service.updateAppointmentOwner(VALID_APPOINTMENT_ID, Long.MIN_VALUE, VALID_INPUT));
+		assertFalse(service.updateAppointment(VALID_APPOINTMENT_ID, -1, AppointmentPatch.none().owner(VALID_INPUT)));
+		assertFalse(service.deleteAppointment(VALID_APPOINTMENT_ID, Long.MIN_VALUE));
+		assertEquals(2, service.getAppointmentVersion(VALID_APPOINTMENT_ID));
+	}
+
+	// Testing updateAppointment(final String appointmentId, final AppointmentPatch patch)
+	/**
+	 * Asserts that a patch changes every field it sets in one update, raising
+	 * the version once and moving the Appointment object in the schedule and
+	 * the bookings and the calendar of its owner, and that a patch with any
+	 * field not valid, an empty patch or a stale version changes nothing.
+	 *
+	 * @see NullFieldException
+	 * @see MinimumLengthNotMetException
+	 * @see MaximumLengthExceededException
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void patchTest() throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		final Date laterDate = new Date(this.futureDate.getTime() + 60000);
+		this.appointmentService.addAppointment(this.appointment);
+		final long version = this.appointmentService.getAppointmentVersion(VALID_APPOINTMENT_ID);
+		assertFalse(this.appointmentService.updateAppointment(VALID_APPOINTMENT_ID, AppointmentPatch.none()));
+		assertFalse(this.appointmentService.updateAppointment(VALID_APPOINTMENT_ID,
+				AppointmentPatch.none().appointmentDate(laterDate).duration(-1)));
+		assertFalse(this.appointmentService.updateAppointment(VALID_APPOINTMENT_ID,
+				AppointmentPatch.none().appointmentDate(this.pastDate).description(VALID_INPUT)));
+		assertEquals(VALID_DESCRIPTION, this.appointmentService.getAppointment(VALID_APPOINTMENT_ID).getDescription());
+
+		assertTrue(this.appointmentService.updateAppointment(VALID_APPOINTMENT_ID, AppointmentPatch.none()
+				.appointmentDate(laterDate).duration(60000).owner(VALID_INPUT).description(VALID_INPUT)));
+		final Appointment patched = this.appointmentService.getAppointment(VALID_APPOINTMENT_ID);
+		assertEquals(laterDate, patched.getAppointmentDate());
+		assertEquals(60000, patched.getDuration());
+		assertEquals(VALID_INPUT, patched.getOwner());
+		assertEquals(VALID_INPUT, patched.getDescription());
+		assertEquals(version + 1, patched.getVersion());
+		assertEquals(List.of(VALID_APPOINTMENT_ID), appointmentIds(
+				this.appointmentService.getAppointmentsBetween(laterDate, new Date(laterDate.getTime() + 1))));
+		assertTrue(this.appointmentService.getAppointmentsBetween(this.futureDate, laterDate).isEmpty());
+		assertEquals(List.of(VALID_APPOINTMENT_ID),
+				appointmentIds(this.appointmentService.findAppointmentsMatchingAll(VALID_INPUT, 10)));
+		final Appointment overlapping = Appointment.restore("Overlap", laterDate, 60000, VALID_INPUT,
+				VALID_DESCRIPTION);
+		assertFalse(this.appointmentService.addAppointmentIfFree(overlapping));
+
+		assertFalse(this.appointmentService.updateAppointment(VALID_APPOINTMENT_ID, version,
+				AppointmentPatch.none().owner(null)));
+		assertTrue(this.appointmentService.updateAppointment(VALID_APPOINTMENT_ID, version + 1,
+				AppointmentPatch.none().owner(null).duration(0)));
+		assertNull(this.appointmentService.getAppointment(VALID_APPOINTMENT_ID).getOwner());
+		assertEquals(0, this.appointmentService.getAppointment(VALID_APPOINTMENT_ID).getDuration());
+		assertTrue(this.appointmentService.addAppointmentIfFree(overlapping));
+		assertTrue(this.appointmentService.deleteAppointment("Overlap"));
+	}
+
+	// Testing the journal
+	/**
+	 * Asserts that adds, updates and deletes recorded in the journal, before and
+	 * after a checkpoint, are restored by a new AppointmentService reading the
+	 * same journal directory.
+	 *
+	 * @param directory A temporary directory for the journal.
+	 * @throws IOException Exception indicating the journal could not be used.
+	 */
+	@Test
+	void journalReplayTest(@TempDir final Path directory) throws IOException {
+		final Date laterDate = new Date(this.futureDate.getTime() + 60000);
+		final AppointmentService durable = new AppointmentService(directory);
+		assertTrue(durable.addAppointment(this.appointment));
+		durable.checkpoint();
+		assertTrue(durable.updateAppointmentDate(VALID_APPOINTMENT_ID, laterDate));
+		assertTrue(durable.updateAppointmentDescription(VALID_APPOINTMENT_ID, VALID_INPUT));
+		durable.close();
+
+		final AppointmentService restarted = new AppointmentService(directory);
+		assertEquals(laterDate, restarted.getAppointment(VALID_APPOINTMENT_ID).getAppointmentDate());
+		assertEquals(VALID_INPUT, restarted.getAppointment(VALID_APPOINTMENT_ID).getDescription());
+		assertEquals(2, restarted.getAppointmentVersion(VALID_APPOINTMENT_ID));
+		assertTrue(restarted.deleteAppointment(VALID_APPOINTMENT_ID));
+		restarted.close();
+
+		final AppointmentService deleted = new AppointmentService(directory);
+		assertNull(deleted.getAppointment(VALID_APPOINTMENT_ID));
+		deleted.close();
+	}
+
+	/**
+	 * Asserts that an appointment whose date has passed since it was stored is
+	 * still restored from the journal.
+	 *
+	 * @see NullFieldException
+	 * @see MinimumLengthNotMetException
+	 * @see MaximumLengthExceededException
+	 * @param directory A temporary directory for the journal.
+	 * @throws IOException                    Exception indicating the journal
+	 *                                        could not be used.
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void journalReplayPastAppointmentTest(@TempDir final Path directory) throws IOException, NullFieldException,
+			MinimumLengthNotMetException, MaximumLengthExceededException {
+		final AppointmentService durable = new AppointmentService(directory);
+		durable.addAppointment(Appointment.restore(VALID_APPOINTMENT_ID, this.pastDate, VALID_DESCRIPTION));
+		durable.close();
+
+		final AppointmentService restarted = new AppointmentService(directory);
+		assertEquals(this.pastDate, restarted.getAppointment(VALID_APPOINTMENT_ID).getAppointmentDate());
+		restarted.close();
+	}
+
+	/**
+	 * Asserts that durations survive a journal replay next to Appointment objects
+	 * without one.
+	 *
+	 * @param directory A temporary directory for the journal.
+	 * @throws IOException                    Exception indicating the journal
+	 *                                        could not be used.
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 * @throws PastDateException              Exception indicating a date field is
+	 *                                        in the past.
+	 */
+	@Test
+	void journalReplayDurationTest(@TempDir final Path directory) throws IOException, NullFieldException,
+			MinimumLengthNotMetException, MaximumLengthExceededException, PastDateException {
+		final AppointmentService durable = new AppointmentService(directory);
+		assertTrue(durable.addAppointment(new Appointment("Long", this.futureDate, 3_600_000, VALID_DESCRIPTION)));
+		assertTrue(durable.addAppointment(new Appointment("Point", this.futureDate, VALID_DESCRIPTION)));
+		assertTrue(durable.addAppointment(Appointment.restore("Past", this.pastDate, VALID_DESCRIPTION)));
+		assertTrue(durable.updateAppointmentDuration("Point", 60_000));
+		assertTrue(durable.updateAppointmentDuration("Long", 0));
+		durable.close();
+
+		final AppointmentService restarted = new AppointmentService(directory);
+		assertEquals(0, restarted.getAppointment("Long").getDuration());
+		assertEquals(60_000, restarted.getAppointment("Point").getDuration());
+		assertEquals(this.pastDate, restarted.getAppointment("Past").getAppointmentDate());
+		assertEquals(List.of("Long", "Point"),
+				appointmentIds(restarted.getOverlappingAppointments(this.futureDate, 0)));
+		restarted.close();
+	}
+
+	/**
+	 * Asserts that range queries see adds, date updates and deletes through the
+	 * date index, and that the index is rebuilt when it was not closed cleanly.
+	 *
+	 * @param directory A temporary directory for the journal and the index.
+	 * @throws IOException Exception indicating the index could not be used.
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 * @throws PastDateException              Exception indicating a date field is
+	 *                                        in the past.
+	 */
+	@Test
+	void dateIndexTest(@TempDir final Path directory) throws IOException, NullFieldException,
+			MinimumLengthNotMetException, MaximumLengthExceededException, PastDateException {
+		final Path indexFile = directory.resolve("dates.idx");
+		final Date later = new Date(this.futureDate.getTime() + 60000);
+		final AppointmentService indexed = new AppointmentService(directory.resolve("journal"));
+		assertTrue(indexed.addAppointment(this.appointment));
+		indexed.openDateIndex(indexFile);
+		assertTrue(indexed.addAppointment(new Appointment("Other", later, VALID_DESCRIPTION)));
+		final Date to = new Date(later.getTime() + 1);
+		assertEquals(2, indexed.getAppointmentsBetween(this.futureDate, to).size());
+		assertTrue(indexed.updateAppointmentDate(VALID_APPOINTMENT_ID, to));
+		assertEquals("Other", indexed.getAppointmentsBetween(this.futureDate, to).get(0).getAppointmentId());
+		assertEquals(1, indexed.getAppointmentsBetween(this.futureDate, to).size());
+		assertTrue(indexed.deleteAppointment("Other"));
+		assertTrue(indexed.getAppointmentsBetween(this.futureDate, to).isEmpty());
+		indexed.close();
+
+		final AppointmentService reopened = new AppointmentService(directory.resolve("journal"));
+		reopened.openDateIndex(indexFile);
+		assertEquals(VALID_APPOINTMENT_ID,
+				reopened.getAppointmentsBetween(to, new Date(to.getTime() + 1)).get(0).getAppointmentId());
+		reopened.close();
+	}
+
+	/**
+	 * Asserts that a range query through the date index, running while an
+	 * Appointment object is moved back and forth inside the range, always finds
+	 * it exactly once.
+	 *
+	 * @param directory A temporary directory for the index.
+	 * @throws IOException          Exception indicating the index could not be
+	 *                              used.
+	 * @throws InterruptedException Exception indicating the test was
+	 *                              interrupted.
+	 */
+	@Test
+	void dateIndexMoveTest(@TempDir final Path directory) throws IOException, InterruptedException {
+		final Date later = new Date(this.futureDate.getTime() + 60000);
+		final Date to = new Date(later.getTime() + 1);
+		final AppointmentService indexed = new AppointmentService(new ConcurrentHashMap<>());
+		indexed.openDateIndex(directory.resolve("dates.idx"));
+		assertTrue(indexed.addAppointment(this.appointment));
+		final AtomicReference<String> failure = new AtomicReference<>();
+		final Thread reader = new Thread(() -> {
+			for (int i = 0; i < 20000 && failure.get() == null; i++) {
+				final int found = indexed.getAppointmentsBetween(this.futureDate, to).size();
+				if (found != 1) {
+					failure.set("Found " + found + " appointments.");
+				}
+			}
+		});
+		reader.start();
+		boolean moved = false;
+		while (reader.isAlive()) {
+			moved = !moved;
+			assertTrue(indexed.updateAppointmentDate(VALID_APPOINTMENT_ID, moved ? later : this.futureDate));
+		}
+		reader.join();
+		assertNull(failure.get());
+		indexed.close();
+	}
+
+	/**
+	 * Asserts that the in-memory index answers range, day and next-appointment
+	 * queries in date order and follows date changes and deletes.
+	 *
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 * @throws PastDateException              Exception indicating a date field is
+	 *                                        in the past.
+	 */
+	@Test
+	void scheduleQueryTest() throws NullFieldException, MinimumLengthNotMetException,
+			MaximumLengthExceededException, PastDateException {
+		final Map<String, Appointment> appointmentMap = new ConcurrentHashMap<>();
+		appointmentMap.put("Past", Appointment.restore("Past", this.pastDate, VALID_DESCRIPTION));
+		final AppointmentService scheduled = new AppointmentService(appointmentMap);
+		final Date later = new Date(this.futureDate.getTime() + 1);
+		assertTrue(scheduled.addAppointment(new Appointment("Later", later, VALID_DESCRIPTION)));
+		assertTrue(scheduled.addAppointment(this.appointment));
+
+		assertEquals(List.of("Past", VALID_APPOINTMENT_ID, "Later"),
+				appointmentIds(scheduled.getAppointmentsBetween(this.pastDate, new Date(later.getTime() + 1))));
+		assertEquals(List.of("Past"), appointmentIds(scheduled.getAppointmentsOn(this.pastDate)));
+		assertEquals(List.of(VALID_APPOINTMENT_ID), appointmentIds(scheduled.getNextAppointments(1)));
+		assertEquals(List.of(VALID_APPOINTMENT_ID, "Later"), appointmentIds(scheduled.getNextAppointments(5)));
+
+		final Date last = new Date(later.getTime() + 1);
+		assertTrue(scheduled.updateAppointmentDate(VALID_APPOINTMENT_ID, last));
+		assertEquals(List.of("Later", VALID_APPOINTMENT_ID), appointmentIds(scheduled.getNextAppointments(5)));
+		assertTrue(scheduled.deleteAppointment("Later"));
+		assertEquals(List.of(VALID_APPOINTMENT_ID), appointmentIds(scheduled.getAppointmentsOn(last)));
+	}
+
+	/**
+	 * Asserts that changing the Date an Appointment object was added with, or
+	 * one read from it, leaves the indexes in step with the stored date.
+	 *
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 * @throws PastDateException              Exception indicating a date field is
+	 *                                        in the past.
+	 */
+	@Test
+	void changedDateTest() throws NullFieldException, MinimumLengthNotMetException,
+			MaximumLengthExceededException, PastDateException {
+		final AppointmentService scheduled = new AppointmentService(new ConcurrentHashMap<>());
+		final Date date = new Date(this.futureDate.getTime());
+		final Date end = new Date(date.getTime() + 1);
+		assertTrue(scheduled.addAppointment(new Appointment(VALID_APPOINTMENT_ID, date, 60_000, VALID_DESCRIPTION)));
+		date.setTime(date.getTime() + 86_400_000L);
+		scheduled.getAppointment(VALID_APPOINTMENT_ID).getAppointmentDate().setTime(0);
+
+		assertEquals(List.of(VALID_APPOINTMENT_ID),
+				appointmentIds(scheduled.getAppointmentsBetween(this.futureDate, end)));
+		assertEquals(1, scheduled.countAppointmentsPerDay(this.futureDate, 1)[0]);
+		assertFalse(scheduled.isTimeFree(this.futureDate, 1));
+		assertTrue(scheduled.deleteAppointment(VALID_APPOINTMENT_ID));
+		assertEquals(0, scheduled.countAppointmentsPerDay(this.futureDate, 1)[0]);
+		assertTrue(scheduled.isTimeFree(this.futureDate, 1));
+	}
+
+	/**
+	 * Asserts that description searches match every or any word of a query and
+	 * follow description updates.
+	 *
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 * @throws PastDateException              Exception indicating a date field is
+	 *                                        in the past.
+	 */
+	@Test
+	void descriptionSearchTest() throws NullFieldException, MinimumLengthNotMetException,
+			MaximumLengthExceededException, PastDateException {
+		final AppointmentService searched = new AppointmentService(new ConcurrentHashMap<>());
+		assertTrue(searched.addAppointment(new Appointment("1", this.futureDate, "Dentist check-up")));
+		assertTrue(searched.addAppointment(new Appointment("2", this.futureDate, "Eye check-up")));
+
+		assertEquals(List.of("1"), appointmentIds(searched.findAppointmentsMatchingAll("dentist CHECK", 10)));
+		assertEquals(List.of("1", "2"), appointmentIds(searched.findAppointmentsMatchingAny("dentist eye", 10)));
+		assertTrue(searched.updateAppointmentDescription("1", "Dentist cleaning"));
+		assertEquals(List.of("2"), appointmentIds(searched.findAppointmentsMatchingAll("check up", 10)));
+		assertTrue(searched.deleteAppointment("2"));
+		assertTrue(searched.findAppointmentsMatchingAny("eye", 10).isEmpty());
+	}
+
+	/**
+	 * Asserts that changes made in write-behind mode are coalesced, written by
+	 * flush and awaitDurable, and replayed after a restart.
+	 *
+	 * @param directory A temporary directory for the journal.
+	 * @throws IOException                    Exception indicating the journal
+	 *                                        could not be used.
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void writeBehindReplayTest(@TempDir final Path directory) throws IOException, NullFieldException,
+			MinimumLengthNotMetException, MaximumLengthExceededException {
+		final AppointmentService behind = new AppointmentService(directory, 100, 60000);
+		assertTrue(behind.addAppointment(this.appointment));
+		assertTrue(behind.updateAppointmentDescription(VALID_APPOINTMENT_ID, VALID_INPUT));
+		assertFalse(behind.updateAppointmentDescription(VALID_APPOINTMENT_ID, INVALID_MAX_51));
+		behind.awaitDurable(VALID_APPOINTMENT_ID);
+		assertTrue(behind.addAppointment(Appointment.restore("Other", this.futureDate, VALID_DESCRIPTION)));
+		assertTrue(behind.deleteAppointment("Other"));
+		behind.flush();
+		behind.close();
+
+		final AppointmentService restarted = new AppointmentService(directory);
+		assertEquals(VALID_INPUT, restarted.getAppointment(VALID_APPOINTMENT_ID).getDescription());
+		assertNull(restarted.getAppointment("Other"));
+		restarted.close();
+	}
+
+	/**
+	 * Asserts that the per-day counts follow adds, date changes and deletes.
+	 *
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 * @throws PastDateException              Exception indicating a date field is
+	 *                                        in the past.
+	 */
+	@Test
+	void dailyCountTest() throws NullFieldException, MinimumLengthNotMetException,
+			MaximumLengthExceededException, PastDateException {
+		final Map<String, Appointment> appointmentMap = new ConcurrentHashMap<>();
+		appointmentMap.put("Past", Appointment.restore("Past", this.pastDate, VALID_DESCRIPTION));
+		final AppointmentService counted = new AppointmentService(appointmentMap);
+		final Calendar calendar = Calendar.getInstance();
+		calendar.setTime(this.futureDate);
+		calendar.add(Calendar.DAY_OF_MONTH, 2);
+		final Date twoDaysLater = calendar.getTime();
+		assertTrue(counted.addAppointment(this.appointment));
+		assertTrue(counted.addAppointment(new Appointment("Same", this.futureDate, VALID_DESCRIPTION)));
+		assertTrue(counted.addAppointment(new Appointment("Later", twoDaysLater, VALID_DESCRIPTION)));
+		assertFalse(counted.addAppointment(new Appointment("Later", this.futureDate, VALID_DESCRIPTION)));
+
+		assertArrayEquals(new long[] { 2, 0, 1 }, counted.countAppointmentsPerDay(this.futureDate, 3));
+		assertArrayEquals(new long[] { 1 }, counted.countAppointmentsPerDay(this.pastDate, 1));
+		assertTrue(counted.updateAppointmentDate("Same", twoDaysLater));
+		assertTrue(counted.deleteAppointment("Later"));
+		assertArrayEquals(new long[] { 1, 0, 1 }, counted.countAppointmentsPerDay(this.futureDate, 3));
+	}
+
+	/**
+	 * Asserts that overlap queries follow durations, date changes and deletes,
+	 * and that addAppointmentIfFree refuses taken times.
+	 *
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 * @throws PastDateException              Exception indicating a date field is
+	 *                                        in the past.
+	 */
+	@Test
+	void bookingTest() throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException,
+			PastDateException {
+		final AppointmentService booked = new AppointmentService(new ConcurrentHashMap<>());
+		final long hour = 3_600_000;
+		final long start = this.futureDate.getTime();
+		assertTrue(booked.addAppointmentIfFree(new Appointment("Nine", new Date(start), hour, VALID_DESCRIPTION)));
+		assertTrue(booked.addAppointmentIfFree(new Appointment("Ten", new Date(start + hour), hour,
+				VALID_DESCRIPTION)));
+		assertTrue(booked.addAppointmentIfFree(new Appointment("Noon", new Date(start + 3 * hour),
+				VALID_DESCRIPTION)));
+		assertFalse(booked.addAppointmentIfFree(new Appointment("Half", new Date(start + hour / 2), hour,
+				VALID_DESCRIPTION)));
+		assertFalse(booked.addAppointmentIfFree(new Appointment("Noon2", new Date(start + 3 * hour),
+				VALID_DESCRIPTION)));
+		assertTrue(booked.addAppointment(new Appointment("Half", new Date(start + hour / 2), hour,
+				VALID_DESCRIPTION)));
+
+		assertEquals(List.of("Nine", "Half", "Ten"),
+				appointmentIds(booked.getOverlappingAppointments(new Date(start + hour / 2), hour)));
+		assertEquals(List.of("Noon"), appointmentIds(booked.getOverlappingAppointments(new Date(start + 2 * hour),
+				2 * hour)));
+		assertTrue(booked.isTimeFree(new Date(start + 2 * hour), hour));
+		assertFalse(booked.isTimeFree(new Date(start + 3 * hour), 0));
+
+		assertTrue(booked.updateAppointmentDuration("Ten", 2 * hour));
+		assertFalse(booked.isTimeFree(new Date(start + 2 * hour), hour));
+		assertFalse(booked.updateAppointmentDuration("Ten", -1));
+		assertTrue(booked.updateAppointmentDate("Noon", new Date(start + 5 * hour)));
+		assertTrue(booked.deleteAppointment("Half"));
+		assertEquals(List.of("Nine", "Ten"), appointmentIds(booked.getOverlappingAppointments(new Date(start),
+				4 * hour)));
+	}
+
+	/**
+	 * Asserts that of many threads booking overlapping times at once, the ones
+	 * that succeed never overlap.
+	 *
+	 * @throws InterruptedException Exception indicating the test was interrupted.
+	 */
+	@Test
+	void concurrentBookingTest() throws InterruptedException {
+		final AppointmentService booked = new AppointmentService(new ConcurrentHashMap<>());
+		final long start = this.futureDate.getTime();
+		final List<Thread> bookers = new ArrayList<>();
+		for (int thread = 0; thread < 4; thread++) {
+			final int offset = thread;
+			bookers.add(new Thread(() -> {
+				for (int i = 0; i < 500; i++) {
+					try {
+						// Every other booking starts halfway into one of another thread.
+						booked.addAppointmentIfFree(new Appointment("A" + offset + "-" + i,
+								new Date(start + i * 1000L + offset * 250L), 1000, VALID_DESCRIPTION));
+					} catch (NullFieldException | MinimumLengthNotMetException | MaximumLengthExceededException
+							| PastDateException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+			}));
+		}
+		for (final Thread booker : bookers) {
+			booker.start();
+		}
+		for (final Thread booker : bookers) {
+			booker.join();
+		}
+		final List<Appointment> appointments = booked.getOverlappingAppointments(new Date(start), 1_000_000);
+		assertFalse(appointments.isEmpty());
+		for (int i = 1; i < appointments.size(); i++) {
+			final Appointment previous = appointments.get(i - 1);
+			assertTrue(previous.getAppointmentDate().getTime() + previous.getDuration() <= appointments.get(i)
+					.getAppointmentDate().getTime());
+		}
+	}
+
+	/**
+	 * Asserts that sequential and parallel streams see every Appointment object
+	 * once.
+	 *
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 * @throws PastDateException              Exception indicating a date field is
+	 *                                        in the past.
+	 */
+	@Test
+	void streamTest() throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException,
+			PastDateException {
+		final AppointmentService service = new AppointmentService(new ConcurrentHashMap<>());
+		for (int i = 0; i < 500; i++) {
+			assertTrue(service.addAppointment(new Appointment("A" + i, this.futureDate, VALID_DESCRIPTION)));
+		}
+		assertEquals(500, service.stream().count());
+		assertEquals(500, service.parallelStream().map(Appointment::getAppointmentId).distinct().count());
+	}
+
+	/**
+	 * Asserts that findFreeTime finds the earliest time free for every one of a
+	 * set of owners, ignores other owners and Appointment objects without one,
+	 * and follows owner, date, duration and delete changes.
+	 *
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void freeTimeTest() throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		final AppointmentService service = new AppointmentService(new ConcurrentHashMap<>());
+		final long hour = 3_600_000;
+		// Midnight UTC on 1 January 2100, on a slot boundary.
+		final long start = 4_102_444_800_000L;
+		final Date end = new Date(start + 24 * hour);
+		assertTrue(service.addAppointment(Appointment.restore("A9", new Date(start), hour, "ann", VALID_DESCRIPTION)));
+		assertTrue(service.addAppointment(Appointment.restore("B10", new Date(start + hour), hour / 2, "bob",
+				VALID_DESCRIPTION)));
+		assertTrue(service.addAppointment(Appointment.restore("C9", new Date(start), 8 * hour, "cy",
+				VALID_DESCRIPTION)));
+		assertTrue(service.addAppointment(Appointment.restore("None", new Date(start + 2 * hour), hour,
+				VALID_DESCRIPTION)));
+
+		assertEquals(new Date(start + hour), service.findFreeTime(List.of("ann"), new Date(start), hour, end));
+		assertEquals(new Date(start + 3 * hour / 2),
+				service.findFreeTime(List.of("ann", "bob"), new Date(start), hour / 2, end));
+		assertEquals(new Date(start + 8 * hour),
+				service.findFreeTime(List.of("ann", "bob", "cy"), new Date(start), hour, end));
+		assertEquals(null, service.findFreeTime(List.of("cy"), new Date(start), hour, new Date(start + 8 * hour)));
+
+		assertTrue(service.updateAppointmentOwner("C9", null));
+		assertEquals(new Date(start + 3 * hour / 2),
+				service.findFreeTime(List.of("ann", "bob", "cy"), new Date(start), hour, end));
+		assertFalse(service.updateAppointmentOwner("C9", INVALID_MIN));
+		assertTrue(service.updateAppointmentDuration("B10", 2 * hour));
+		assertEquals(new Date(start + 3 * hour), service.findFreeTime(List.of("ann", "bob"), new Date(start), hour,
+				end));
+		assertTrue(service.updateAppointmentOwner("None", "bob"));
+		assertTrue(service.deleteAppointment("B10"));
+		assertEquals(new Date(start + hour), service.findFreeTime(List.of("ann", "bob"), new Date(start), hour,
+				end));
+		assertEquals(new Date(start + 3 * hour), service.findFreeTime(List.of("ann", "bob"), new Date(start),
+				2 * hour, end));
+	}
+
+	/**
+	 * Asserts that addAppointmentIfFree only refuses a time taken by the same
+	 * owner, so a time findFreeTime finds for one owner can be booked while
+	 * another owner is busy.
+	 *
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void ownerBookingTest() throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		final AppointmentService service = new AppointmentService(new ConcurrentHashMap<>());
+		final long hour = 3_600_000;
+		// Midnight UTC on 1 January 2100, on a slot boundary.
+		final long start = 4_102_444_800_000L;
+		assertTrue(service.addAppointmentIfFree(Appointment.restore("Bob", new Date(start), hour, "bob",
+				VALID_DESCRIPTION)));
+		final Date free = service.findFreeTime(List.of("alice"), new Date(start), hour, new Date(start + 2 * hour));
+		assertEquals(new Date(start), free);
+		assertTrue(service.addAppointmentIfFree(Appointment.restore("Alice", free, hour, "alice",
+				VALID_DESCRIPTION)));
+		assertFalse(service.addAppointmentIfFree(Appointment.restore("Alice2", new Date(start + hour / 2), hour,
+				"alice", VALID_DESCRIPTION)));
+		assertTrue(service.addAppointmentIfFree(Appointment.restore("None", new Date(start), hour,
+				VALID_DESCRIPTION)));
+		assertFalse(service.addAppointmentIfFree(Appointment.restore("None2", new Date(start), hour,
+				VALID_DESCRIPTION)));
+		assertFalse(service.isTimeFree(new Date(start), hour));
+	}
+
+	/**
+	 * Asserts that owners are kept by the journal and that the free time index is
+	 * rebuilt from it.
+	 *
+	 * @param directory A temporary directory for the journal.
+	 * @throws IOException                    Exception indicating the journal
+	 *                                        could not be used.
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void journalReplayOwnerTest(@TempDir final Path directory) throws IOException, NullFieldException,
+			MinimumLengthNotMetException, MaximumLengthExceededException {
+		final long hour = 3_600_000;
+		final long start = 4_102_444_800_000L;
+		final AppointmentService durable = new AppointmentService(directory);
+		assertTrue(durable.addAppointment(Appointment.restore("Owned", new Date(start), hour, "ann",
+				VALID_DESCRIPTION)));
+		assertTrue(durable.addAppointment(Appointment.restore("Point", new Date(start), 0, "bob",
+				VALID_DESCRIPTION)));
+		assertTrue(durable.addAppointment(Appointment.restore("Plain", new Date(start), VALID_DESCRIPTION)));
+		durable.close();
+
+		final AppointmentService restarted = new AppointmentService(directory);
+		assertEquals("ann", restarted.getAppointment("Owned").getOwner());
+		assertEquals(0, restarted.getAppointment("Point").getDuration());
+		assertEquals("bob", restarted.getAppointment("Point").getOwner());
+		assertNull(restarted.getAppointment("Plain").getOwner());
+		assertEquals(new Date(start + hour),
+				restarted.findFreeTime(List.of("ann"), new Date(start), hour, new Date(start + 24 * hour)));
+		restarted.close();
+	}
+
+	private static List<String> appointmentIds(final List<Appointment> appointments) {
+		final List<String> appointmentIds = new ArrayList<>();
+		for (final Appointment appointment : appointments) {
+			appointmentIds.add(appointment.getAppointmentId());
+		}
+		return appointmentIds;
+	}
+
+}
@@ -211,6 +211,20 @@ public class AppointmentTest {
 		assertTrue(maxFails);
 	}
 
+	/**
+	 * Asserts that changing the Date given to or returned by an Appointment
+	 * object leaves its appointmentDate as it was, copies included.
+	 */
+	@Test
+	void appointmentDateCopyTest() {
+		final long time = this.futureDate.getTime();
+		this.futureDate.setTime(time + 1);
+		assertEquals(time, this.appointment.getAppointmentDate().getTime());
+		this.appointment.getAppointmentDate().setTime(time + 2);
+		assertEquals(time, this.appointment.getAppointmentDate().getTime());
+		assertEquals(time, this.appointment.copy().getAppointmentDate().getTime());
+	}
+
 	// Setter Tests
 	/**
 	 * Asserts a valid setAppointmentDate call on an Appointment object returns true.
@@ -320,6 +334,87 @@ public class AppointmentTest {
 		assertTrue(maxFails);
 	}
 
+	/**
+	 * Asserts a valid setDuration call on an Appointment object, including a
+	 * duration of 0, returns true.
+	 */
+	@Test
+	void setterDurationValid() {
+		boolean valid = true;
+		try {
+			this.appointment.setDuration(30 * 60 * 1000);
+			this.appointment.setDuration(0);
+		} catch (MinimumLengthNotMetException e) {
+			valid = false;
+		}
+		assertTrue(valid);
+	}
+
+	/**
+	 * An invalid setDuration call on an Appointment object with a negative
+	 * duration throws a MinimumLengthNotMetException.
+	 */
+	@Test
+	void setterDurationNegative() {
+		boolean minFails = false;
+		try {
+			this.appointment.setDuration(-1);
+		} catch (MinimumLengthNotMetException e) {
+			minFails = true;
+		}
+		assertTrue(minFails);
+	}
+
+	/**
+	 * Asserts a valid setOwner call on an Appointment object, including a null
+	 * owner, returns true.
+	 */
+	@Test
+	void setterOwnerValid() {
+		boolean valid = true;
+		try {
+			this.appointment.setOwner("Owner");
+			assertEquals("Owner", this.appointment.getOwner());
+			this.appointment.setOwner(null);
+		} catch (MinimumLengthNotMetException | MaximumLengthExceededException e) {
+			valid = false;
+		}
+		assertTrue(valid);
+		assertEquals(null, this.appointment.getOwner());
+	}
+
+	/**
+	 * An invalid setOwner call on an Appointment object with the owner set to an
+	 * invalid minimum value throws a MinimumLengthNotMetException.
+	 */
+	@Test
+	void setterOwnerMinNotMet() {
+		boolean minFails = false;
+		try {
+			this.appointment.setOwner(INVALID_MIN);
+		} catch (MinimumLengthNotMetException | MaximumLengthExceededException e) {
+			assertEquals(e.getClass(), MinimumLengthNotMetException.class);
+			minFails = true;
+		}
+		assertTrue(minFails);
+	}
+
+	/**
+	 * An invalid setOwner call on an Appointment object with the owner set to an
+	 * invalid maximum value throws a MaximumLengthExceededException.
+	 */
+	@Test
+	void setterOwnerMaxExceeded() {
+		boolean maxFails = false;
+		try {
+			this.appointment.setOwner(INVALID_MAX_11);
+		} catch (MinimumLengthNotMetException | MaximumLengthExceededException e) {
+			assertEquals(e.getClass(), MaximumLengthExceededException.class);
+			maxFails = true;
+		}
+		assertTrue(maxFails);
+	}
+
 	// Getter Tests
 	/**
 	 * Asserts the return of a getAppointmentId call to an Appointment object
@@ -340,6 +435,26 @@ public class AppointmentTest {
 		assertEquals(this.futureDate, this.appointment.getAppointmentDate());
 	}
 
+	/**
+	 * Asserts the return of a getDuration call to an Appointment object created
+	 * without a duration is 0, and with one is that duration.
+	 *
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 * @throws PastDateException              Exception indicating a date field is
+	 *                                        in the past.
+	 */
+	@Test
+	void getterDuration()
+			throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException, PastDateException {
+		assertEquals(0, this.appointment.getDuration());
+		assertEquals(60000, new Appointment(VALID_APPOINTMENT_ID, this.futureDate, 60000, VALID_DESCRIPTION)
+				.getDuration());
+	}
+
 	/**
 	 * Asserts the return of a getDescription call to an Appointment object
 	 * containing a description equal to "Description" is in fact equal to
@@ -0,0 +1,95 @@
+package com.project.one.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import com.project.one.exceptions.MaximumLengthExceededException;
+import com.project.one.exceptions.MinimumLengthNotMetException;
+import com.project.one.exceptions.NullFieldException;
+
+/**
+ * This class tests the functionality of the ContactCodec class.
+ *
+ * @see ContactCodec
+ * @author Ben
+ */
+public class ContactCodecTest {
+
+	/**
+	 * Asserts that a Contact is decoded with the same fields, including non
+	 * Latin-1 ones, and that the encoding fits in getMaxLength.
+	 *
+	 * @throws IOException                    Exception indicating the record
+	 *                                        could not be decoded.
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void roundTripTest()
+			throws IOException, NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		final ContactCodec codec = ContactCodec.getInstance();
+		final Contact contact = new Contact("ID", "J\u00FCrgen", "\u0141\u00F3d\u017A", "5555555555",
+				"\u20AC".repeat(Contact.ADDRESS_MAX_CHAR_LENGTH));
+		final ByteBuffer buffer = ByteBuffer.allocate(codec.getMaxLength());
+		codec.encode(contact, buffer);
+		assertTrue(buffer.position() <= codec.getMaxLength());
+		buffer.flip();
+		final Contact decoded = codec.decode(buffer);
+		assertEquals(contact.getContactId(), decoded.getContactId());
+		assertEquals(contact.getFirstName(), decoded.getFirstName());
+		assertEquals(contact.getLastName(), decoded.getLastName());
+		assertEquals(contact.getPhoneNumber(), decoded.getPhoneNumber());
+		assertEquals(contact.getAddress(), decoded.getAddress());
+	}
+
+	/**
+	 * Asserts that the version of a Contact is kept, and that a record of
+	 * another format version is rejected.
+	 *
+	 * @throws IOException                    Exception indicating the record
+	 *                                        could not be decoded.
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void versionTest()
+			throws IOException, NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		final ContactCodec codec = ContactCodec.getInstance();
+		final Contact contact = new Contact("ID", "First", "Last", "5555555555", "Address").copy().copy();
+		final ByteBuffer buffer = ByteBuffer.allocate(codec.getMaxLength());
+		codec.encode(contact, buffer);
+		buffer.flip();
+		assertEquals(2, codec.decode(buffer).getVersion());
+
+		buffer.put(0, (byte) (ContactCodec.VERSION + 1));
+		buffer.rewind();
+		assertThrows(IOException.class, () -> codec.decode(buffer));
+	}
+
+	/**
+	 * Asserts that a record holding an invalid Contact is rejected.
+	 */
+	@Test
+	void invalidContactTest() {
+		final ByteBuffer buffer = ByteBuffer.allocate(64);
+		buffer.put(ContactCodec.VERSION).put((byte) 0);
+		for (int field = 0; field < 5; field++) {
+			buffer.put((byte) 0);
+		}
+		buffer.flip();
+		assertThrows(IOException.class, () -> ContactCodec.getInstance().decode(buffer));
+	}
+
+}
@@ -0,0 +1,123 @@
+package com.project.one.services;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.project.one.persistence.TrigramIndex;
+
+/**
+ * This class measures findContactsByFuzzyName against a scan computing the
+ * edit distance to every name, for names with one typing mistake searched
+ * with up to one and up to two mistakes. The names are made of common
+ * syllables, so many of them look alike. It is not run as part of the test
+ * suite; run its main method to print the results. The first argument
+ * overrides the number of contacts; 1 million needs a heap of about 3 GB.
+ *
+ * @see ContactService
+ * @see TrigramIndex
+ * @author Ben
+ */
+public class ContactFuzzySearchBenchmark {
+
+	private static int CONTACTS = 1_000_000;
+	private static int LIMIT = 10;
+	private static int WARMUP_QUERIES = 2_000;
+	private static int QUERIES = 2_000;
+	private static int SCANS = 3;
+	private static String[] SYLLABLES = { "an", "ber", "car", "da", "el", "fin", "gar", "ha", "is", "jo", "ka",
+			"li", "mar", "ne", "ol", "per", "ri", "san", "ta", "vi", "wil", "son", "ton", "ley" };
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args The number of contacts, optionally.
+	 * @throws Exception Exception indicating the benchmark could not run.
+	 */
+	public static void main(final String[] args) throws Exception {
+		final int contacts = args.length > 0 ? Integer.parseInt(args[0]) : CONTACTS;
+		final Random random = new Random(1);
+		final Map<String, Contact> contactMap = new ConcurrentHashMap<>(contacts * 2);
+		for (int i = 0; i < contacts; i++) {
+			final String contactId = "C" + i;
+			contactMap.put(contactId, new Contact(contactId, name(random), name(random), "5555555555", "Address"));
+		}
+		final long buildStart = System.nanoTime();
+		final ContactService service = new ContactService(contactMap);
+		System.out.printf("%,d contacts, name indexes built in %d ms%n", contacts,
+				(System.nanoTime() - buildStart) / 1_000_000);
+
+		final String[] queries = new String[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			queries[i] = misspell(name(random), random);
+		}
+		// Lets the JIT compiler finish with the lookup path before anything is timed.
+		for (int i = 0; i < WARMUP_QUERIES; i++) {
+			service.findContactsByFuzzyName(queries[i % QUERIES], 1 + i % 2, LIMIT);
+		}
+
+		System.out.printf("%10s %12s %16s %16s%n", "mistakes", "matches", "index (ms)", "full scan (ms)");
+		for (int maxDistance = 1; maxDistance <= 2; maxDistance++) {
+			long matches = 0;
+			final long indexStart = System.nanoTime();
+			for (final String query : queries) {
+				matches += service.findContactsByFuzzyName(query, maxDistance, LIMIT).size();
+			}
+			final double indexMillis = (System.nanoTime() - indexStart) / 1e6 / QUERIES;
+
+			final long scanStart = System.nanoTime();
+			for (int i = 0; i < SCANS; i++) {
+				int found = 0;
+				for (final Contact contact : contactMap.values()) {
+					if (TrigramIndex.distance(queries[i], contact.getLastName(), maxDistance) <= maxDistance
+							|| TrigramIndex.distance(queries[i], contact.getFirstName(), maxDistance) <= maxDistance) {
+						found++;
+					}
+				}
+				if (found < 0) {
+					throw new IllegalStateException();
+				}
+			}
+			final double scanMillis = (System.nanoTime() - scanStart) / 1e6 / SCANS;
+			System.out.printf("%10d %12d %16.3f %16.2f%n", maxDistance, matches / QUERIES, indexMillis, scanMillis);
+		}
+	}
+
+	/**
+	 * Makes a name of two to four syllables with a capital first letter.
+	 *
+	 * @param random The random number generator.
+	 * @return Returns the name, at most ten letters long.
+	 */
+	private static String name(final Random random) {
+		final StringBuilder name = new StringBuilder();
+		for (int i = 2 + random.nextInt(3); i > 0; i--) {
+			final String syllable = SYLLABLES[random.nextInt(SYLLABLES.length)];
+			if (name.length() + syllable.length() <= 10) {
+				name.append(syllable);
+			}
+		}
+		return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+	}
+
+	/**
+	 * Changes, drops or inserts one letter of a name.
+	 *
+	 * @param name   The name.
+	 * @param random The random number generator.
+	 * @return Returns the misspelled name.
+	 */
+	private static String misspell(final String name, final Random random) {
+		final int position = random.nextInt(name.length());
+		final char letter = (char) ('a' + random.nextInt(26));
+		switch (random.nextInt(3)) {
+		case 0:
+			return name.substring(0, position) + letter + name.substring(position + 1);
+		case 1:
+			return name.substring(0, position) + name.substring(position + 1);
+		default:
+			return name.substring(0, position) + letter + name.substring(position);
+		}
+	}
+
+}
@@ -0,0 +1,84 @@
+package com.project.one.services;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class measures edits of all four fields of a Contact object, made once
+ * as four single-field updates and once as one updateContact call with a
+ * ContactPatch, on a ContactService kept in memory and on one backed by a
+ * write-ahead log. Every edit changes the names and the phone number, so the
+ * indexes are updated each time. It is not run as part of the test suite; run
+ * its main method to print the results.
+ *
+ * @see ContactService
+ * @see ContactPatch
+ * @author Ben
+ */
+public class ContactPatchBenchmark {
+
+	private static int CONTACTS = 10_000;
+	private static int WARMUP_EDITS = 100_000;
+	private static long MEASURE_MILLIS = 5_000;
+	private static String[][] VALUES = { { "Jane", "Smith", "2125550100", "10 Main Street" },
+			{ "John", "Jones", "3125550199", "22 Elm Street" } };
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args Unused.
+	 * @throws Exception Exception indicating the benchmark could not run.
+	 */
+	public static void main(final String[] args) throws Exception {
+		System.out.printf("%,d contacts%n", CONTACTS);
+		System.out.printf("%10s %14s %16s %10s%n", "storage", "edit", "edits/s", "speedup");
+		for (final boolean journaled : new boolean[] { false, true }) {
+			final Path directory = journaled ? Files.createTempDirectory("contact-patch-benchmark") : null;
+			final ContactService service = journaled ? new ContactService(directory)
+					: new ContactService(new ConcurrentHashMap<>());
+			for (int i = 0; i < CONTACTS; i++) {
+				service.addContact(new Contact("C" + i, VALUES[0][0], VALUES[0][1], VALUES[0][2], VALUES[0][3]));
+			}
+			edit(service, false, WARMUP_EDITS, 0);
+			edit(service, true, WARMUP_EDITS, 0);
+			final double fields = edit(service, false, Integer.MAX_VALUE, MEASURE_MILLIS) / (MEASURE_MILLIS / 1e3);
+			final double patch = edit(service, true, Integer.MAX_VALUE, MEASURE_MILLIS) / (MEASURE_MILLIS / 1e3);
+			final String storage = journaled ? "journal" : "memory";
+			System.out.printf("%10s %14s %,16.0f %10s%n", storage, "four updates", fields, "");
+			System.out.printf("%10s %14s %,16.0f %9.2fx%n", storage, "one patch", patch, patch / fields);
+			if (journaled) {
+				service.close();
+				ServiceRecoveryBenchmark.deleteDirectory(directory);
+			}
+		}
+	}
+
+	/**
+	 * Edits Contact objects in turn until a number of edits is made or a time
+	 * has passed, switching every field between the two sets of values.
+	 *
+	 * @return Returns the number of edits made.
+	 */
+	private static long edit(final ContactService service, final boolean patched, final int edits,
+			final long millis) {
+		final long deadline = millis == 0 ? Long.MAX_VALUE : System.nanoTime() + millis * 1_000_000L;
+		long made = 0;
+		while (made < edits && System.nanoTime() < deadline) {
+			final String contactId = "C" + made % CONTACTS;
+			final String[] values = VALUES[made / CONTACTS % 2 == 0 ? 1 : 0];
+			if (patched) {
+				service.updateContact(contactId, ContactPatch.none().firstName(values[0]).lastName(values[1])
+						.phoneNumber(values[2]).address(values[3]));
+			} else {
+				service.updateContactFirstName(contactId, values[0]);
+				service.updateContactLastName(contactId, values[1]);
+				service.updateContactPhoneNumber(contactId, values[2]);
+				service.updateContactAddress(contactId, values[3]);
+			}
+			made++;
+		}
+		return made;
+	}
+
+}
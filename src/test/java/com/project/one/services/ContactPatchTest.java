@@ -0,0 +1,61 @@
+package com.project.one.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.project.one.exceptions.MaximumLengthExceededException;
+import com.project.one.exceptions.MinimumLengthNotMetException;
+import com.project.one.exceptions.NullFieldException;
+
+/**
+ * This class tests the functionality of the ContactPatch class.
+ *
+ * @see ContactPatch
+ * @author Ben
+ */
+public class ContactPatchTest {
+
+	/**
+	 * Asserts that a patch sets only the fields it changes, and that extending a
+	 * patch leaves the original unchanged.
+	 *
+	 * @see NullFieldException
+	 * @see MinimumLengthNotMetException
+	 * @see MaximumLengthExceededException
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void applyToTest() throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		final Contact contact = new Contact("1", "Jane", "Smith", "2125550100", "10 Main Street");
+		final ContactPatch renamed = ContactPatch.none().lastName("Jones");
+		renamed.address("1 Elm Street").applyTo(contact);
+		assertEquals("Jones", contact.getLastName());
+		assertEquals("1 Elm Street", contact.getAddress());
+		assertEquals("Jane", contact.getFirstName());
+		assertNull(renamed.getFirstName());
+		assertFalse(renamed.isEmpty());
+		assertTrue(ContactPatch.none().isEmpty());
+	}
+
+	/**
+	 * Asserts that validate rejects a field a Contact could not hold, and that a
+	 * NULL value is rejected when it is set.
+	 */
+	@Test
+	void validateTest() {
+		assertThrows(MaximumLengthExceededException.class,
+				() -> ContactPatch.none().firstName("Jane").phoneNumber("21255501000").validate());
+		assertThrows(MinimumLengthNotMetException.class, () -> ContactPatch.none().address("").validate());
+		assertThrows(IllegalArgumentException.class, () -> ContactPatch.none().lastName(null));
+	}
+
+}
@@ -0,0 +1,102 @@
+package com.project.one.services;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.project.one.persistence.PrefixIndex;
+
+/**
+ * This class measures findContactsByLastNamePrefix against a scan of every
+ * Contact object, for prefixes of one to four letters. It is not run as part
+ * of the test suite; run its main method to print the results. The first
+ * argument overrides the number of contacts; 5 million needs a heap of about
+ * 3 GB.
+ *
+ * @see ContactService
+ * @see PrefixIndex
+ * @author Ben
+ */
+public class ContactPrefixSearchBenchmark {
+
+	private static int CONTACTS = 5_000_000;
+	private static int LIMIT = 20;
+	private static int WARMUP_QUERIES = 50_000;
+	private static int QUERIES = 100_000;
+	private static int SCANS = 3;
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args The number of contacts, optionally.
+	 * @throws Exception Exception indicating the benchmark could not run.
+	 */
+	public static void main(final String[] args) throws Exception {
+		final int contacts = args.length > 0 ? Integer.parseInt(args[0]) : CONTACTS;
+		final Random random = new Random(1);
+		final Map<String, Contact> contactMap = new ConcurrentHashMap<>(contacts * 2);
+		for (int i = 0; i < contacts; i++) {
+			final String contactId = "C" + i;
+			contactMap.put(contactId, new Contact(contactId, name(random), name(random), "5555555555", "Address"));
+		}
+		final long buildStart = System.nanoTime();
+		final ContactService service = new ContactService(contactMap);
+		System.out.printf("%,d contacts, name indexes built in %d ms%n", contacts,
+				(System.nanoTime() - buildStart) / 1_000_000);
+
+		final String[][] prefixes = new String[4][QUERIES];
+		for (int length = 1; length <= prefixes.length; length++) {
+			for (int i = 0; i < QUERIES; i++) {
+				prefixes[length - 1][i] = name(random).substring(0, length);
+			}
+		}
+		// Lets the JIT compiler finish with the lookup path before anything is timed.
+		for (int i = 0; i < WARMUP_QUERIES; i++) {
+			for (final String[] lengthPrefixes : prefixes) {
+				service.findContactsByLastNamePrefix(lengthPrefixes[i], LIMIT);
+			}
+		}
+
+		System.out.printf("%8s %12s %16s %16s%n", "prefix", "matches", "index (us)", "full scan (ms)");
+		for (int length = 1; length <= prefixes.length; length++) {
+			long matches = 0;
+			final long indexStart = System.nanoTime();
+			for (final String prefix : prefixes[length - 1]) {
+				matches += service.findContactsByLastNamePrefix(prefix, LIMIT).size();
+			}
+			final double indexMicros = (System.nanoTime() - indexStart) / 1e3 / QUERIES;
+
+			final long scanStart = System.nanoTime();
+			for (int i = 0; i < SCANS; i++) {
+				final String prefix = PrefixIndex.normalize(prefixes[length - 1][i]);
+				int found = 0;
+				for (final Contact contact : contactMap.values()) {
+					if (PrefixIndex.normalize(contact.getLastName()).startsWith(prefix)) {
+						found++;
+					}
+				}
+				if (found < 0) {
+					throw new IllegalStateException();
+				}
+			}
+			final double scanMillis = (System.nanoTime() - scanStart) / 1e6 / SCANS;
+			System.out.printf("%8d %12d %16.2f %16.2f%n", length, matches / QUERIES, indexMicros, scanMillis);
+		}
+	}
+
+	/**
+	 * Makes a random name of four to ten letters with a capital first letter.
+	 *
+	 * @param random The random number generator.
+	 * @return Returns the name.
+	 */
+	private static String name(final Random random) {
+		final char[] name = new char[4 + random.nextInt(7)];
+		name[0] = (char) ('A' + random.nextInt(26));
+		for (int i = 1; i < name.length; i++) {
+			name[i] = (char) ('a' + random.nextInt(26));
+		}
+		return new String(name);
+	}
+
+}
@@ -0,0 +1,63 @@
+package com.project.one.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.project.one.exceptions.MaximumLengthExceededException;
+import com.project.one.exceptions.MinimumLengthNotMetException;
+import com.project.one.exceptions.NullFieldException;
+
+/**
+ * This class tests the functionality of the ContactQuery class.
+ *
+ * @see ContactQuery
+ * @author Ben
+ */
+public class ContactQueryTest {
+
+	/**
+	 * Asserts that a Contact object must meet every condition, with names and
+	 * addresses compared ignoring case and phone numbers by their digits.
+	 *
+	 * @see NullFieldException
+	 * @see MinimumLengthNotMetException
+	 * @see MaximumLengthExceededException
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void matchesTest() throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		final Contact contact = new Contact("1", "Jane", "Smith", "2125550100", "10 Main Street");
+		assertTrue(ContactQuery.all().matches(contact));
+		assertTrue(ContactQuery.all().lastNameEquals("SMITH").firstNameStartsWith("ja").matches(contact));
+		assertFalse(ContactQuery.all().lastNameEquals("Smit").matches(contact));
+		assertTrue(ContactQuery.all().phoneNumberEquals("(212) 555-0100").matches(contact));
+		assertTrue(ContactQuery.all().phoneNumberStartsWith("212").matches(contact));
+		assertFalse(ContactQuery.all().phoneNumberEquals("212555").matches(contact));
+		assertTrue(ContactQuery.all().addressContains("MAIN st").matches(contact));
+		assertFalse(ContactQuery.all().addressContains("Main").firstNameEquals("John").matches(contact));
+	}
+
+	/**
+	 * Asserts that narrowing a query leaves the original unchanged, and that a
+	 * NULL value is rejected.
+	 */
+	@Test
+	void narrowTest() {
+		final ContactQuery smiths = ContactQuery.all().lastNameEquals("Smith");
+		smiths.phoneNumberStartsWith("212");
+		assertEquals("Smith", smiths.find(ContactQuery.Field.LAST_NAME, ContactQuery.Operator.EQUALS));
+		assertNull(smiths.find(ContactQuery.Field.PHONE_NUMBER, ContactQuery.Operator.STARTS_WITH));
+		assertNull(ContactQuery.all().find(ContactQuery.Field.LAST_NAME, ContactQuery.Operator.EQUALS));
+		assertThrows(IllegalArgumentException.class, () -> ContactQuery.all().addressContains(null));
+	}
+
+}
@@ -1,15 +1,34 @@
 package com.project.one.services;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import com.project.one.exceptions.MaximumLengthExceededException;
 import com.project.one.exceptions.MinimumLengthNotMetException;
 import com.project.one.exceptions.NullFieldException;
+import com.project.one.persistence.TieredMap;
 
 /**
  * This class tests the functionality of the ContactService class.
@@ -412,4 +431,607 @@ public class ContactServiceTest {
 		assertFalse(this.contactService.updateContactAddress(VALID_CONTACT_ID, INVALID_MAX_31));
 	}
 
+	// Testing copy-on-write updates
+	/**
+	 * Asserts that a Contact object held before an update does not change, and
+	 * that the ContactService returns the changed copy afterwards.
+	 */
+	@Test
+	void updateCopyOnWriteTest() {
+		this.contactService.addContact(this.contact);
+		final Contact held = this.contactService.getContact(VALID_CONTACT_ID);
+		assertTrue(this.contactService.updateContactAddress(VALID_CONTACT_ID, VALID_INPUT));
+		assertEquals(VALID_ADDRESS, held.getAddress());
+		assertEquals(VALID_INPUT, this.contactService.getContact(VALID_CONTACT_ID).getAddress());
+		assertEquals(VALID_FIRST_NAME, this.contactService.getContact(VALID_CONTACT_ID).getFirstName());
+	}
+
+	/**
+	 * Asserts that the ContactService stores a copy of an added Contact object,
+	 * so changing the added one changes neither the stored one nor the name
+	 * searches, and that a stored Contact object cannot be changed in place.
+	 *
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void storedCopyTest() throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		this.contactService.addContact(this.contact);
+		this.contact.setLastName(VALID_INPUT);
+		assertEquals(VALID_LAST_NAME, this.contactService.getContact(VALID_CONTACT_ID).getLastName());
+		assertEquals(List.of(VALID_CONTACT_ID),
+				contactIds(this.contactService.findContactsByLastNamePrefix(VALID_LAST_NAME, 10)));
+		assertEquals(List.of(VALID_CONTACT_ID),
+				contactIds(this.contactService.findContactsByFuzzyName(VALID_LAST_NAME, 0, 10)));
+
+		final Contact stored = this.contactService.getContact(VALID_CONTACT_ID);
+		assertThrows(UnsupportedOperationException.class, () -> stored.setLastName(VALID_INPUT));
+		assertThrows(UnsupportedOperationException.class, () -> this.contactService
+				.findContactsByLastNamePrefix(VALID_LAST_NAME, 10).get(0).setAddress(VALID_INPUT));
+		assertEquals(VALID_LAST_NAME, this.contactService.getContact(VALID_CONTACT_ID).getLastName());
+		assertTrue(this.contactService.updateContactLastName(VALID_CONTACT_ID, VALID_INPUT));
+		assertEquals(VALID_INPUT, this.contactService.getContact(VALID_CONTACT_ID).getLastName());
+	}
+
+	// Testing versions and conditional updates
+	/**
+	 * Asserts that each update raises the version of the Contact object, that a
+	 * conditional update or delete with a stale version fails without changing
+	 * it, and that one with the current version succeeds and keeps the indexes
+	 * up to date.
+	 */
+	@Test
+	void versionTest() {
+		assertEquals(-1, this.contactService.getContactVersion(VALID_CONTACT_ID));
+		this.contactService.addContact(this.contact);
+		// Starts above the versions of the Contact objects deleted by other tests.
+		final long version = this.contactService.getContactVersion(VALID_CONTACT_ID);
+		assertTrue(version >= 0);
+		assertTrue(this.contactService.updateContactAddress(VALID_CONTACT_ID, VALID_INPUT));
+		assertTrue(this.contactService.updateContactFirstName(VALID_CONTACT_ID, version + 1, VALID_INPUT));
+		assertEquals(version + 2, this.contactService.getContactVersion(VALID_CONTACT_ID));
+
+		assertFalse(this.contactService.updateContactLastName(VALID_CONTACT_ID, version + 1, VALID_INPUT));
+		assertFalse(this.contactService.updateContactPhoneNumber(VALID_CONTACT_ID, version, VALID_INPUT));
+		assertFalse(this.contactService.updateContactAddress(VALID_CONTACT_ID, version + 2, INVALID_MAX_31));
+		assertEquals(VALID_LAST_NAME, this.contactService.getContact(VALID_CONTACT_ID).getLastName());
+		assertEquals(version + 2, this.contactService.getContactVersion(VALID_CONTACT_ID));
+		assertTrue(this.contactService.updateContactLastName(VALID_CONTACT_ID, version + 2, VALID_INPUT));
+		assertEquals(1, this.contactService.findContactsByLastNamePrefix(VALID_INPUT, 10).size());
+
+		assertFalse(this.contactService.deleteContact(VALID_CONTACT_ID, version + 2));
+		assertTrue(this.contactService.deleteContact(VALID_CONTACT_ID, version + 3));
+		assertNull(this.contactService.getContact(VALID_CONTACT_ID));
+		assertTrue(this.contactService.findContactsByLastNamePrefix(VALID_INPUT, 10).isEmpty());
+	}
+
+	/**
+	 * Asserts that a Contact object deleted and added again continues above its
+	 * old version, so a version read before the delete never matches, and that
+	 * negative versions never match.
+	 *
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void readdVersionTest() throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		final ContactService service = new ContactService(new ConcurrentHashMap<>());
+		assertTrue(service.addContact(this.contact));
+		assertEquals(0, service.getContactVersion(VALID_CONTACT_ID));
+		assertTrue(service.updateContactAddress(VALID_CONTACT_ID, 0, VALID_INPUT));
+		assertTrue(service.deleteContact(VALID_CONTACT_ID));
+		assertTrue(service.addContact(this.contact));
+		assertEquals(2, service.getContactVersion(VALID_CONTACT_ID));
+		assertFalse(service.updateContactAddress(VALID_CONTACT_ID, 0, VALID_INPUT));
+		assertFalse(service.deleteContact(VALID_CONTACT_ID, 1));
+		assertEquals(VALID_ADDRESS, service.getContact(VALID_CONTACT_ID).getAddress());
+
+		assertFalse(service.updateContactAddress(VALID_CONTACT_ID, -1, VALID_INPUT));
+		assertFalse(service.updateContact(VALID_CONTACT_ID, Long.MIN_VALUE, ContactPatch.none().address(VALID_INPUT)));
+		assertFalse(service.deleteContact(VALID_CONTACT_ID, Long.MIN_VALUE));
+		assertEquals(2, service.getContactVersion(VALID_CONTACT_ID));
+		assertTrue(service.updateContactAddress(VALID_CONTACT_ID, 2, VALID_INPUT));
+	}
+
+	// Testing updateContact(final String contactId, final ContactPatch patch)
+	/**
+	 * Asserts that a patch changes every field it sets in one update, raising
+	 * the version once and keeping the indexes up to date, and that a patch with
+	 * any field not valid, an empty patch or a stale version changes nothing.
+	 */
+	@Test
+	void patchTest() {
+		assertFalse(this.contactService.updateContact(VALID_CONTACT_ID, ContactPatch.none().address(VALID_INPUT)));
+		this.contactService.addContact(this.contact);
+		assertFalse(this.contactService.updateContact(VALID_CONTACT_ID, ContactPatch.none()));
+		assertFalse(this.contactService.updateContact(VALID_CONTACT_ID,
+				ContactPatch.none().firstName(VALID_INPUT).lastName(INVALID_MAX_11).address(VALID_INPUT)));
+		assertEquals(VALID_FIRST_NAME, this.contactService.getContact(VALID_CONTACT_ID).getFirstName());
+		final long version = this.contactService.getContactVersion(VALID_CONTACT_ID);
+
+		assertTrue(this.contactService.updateContact(VALID_CONTACT_ID,
+				ContactPatch.none().firstName(VALID_INPUT).lastName(VALID_INPUT).address(VALID_INPUT)));
+		final Contact patched = this.contactService.getContact(VALID_CONTACT_ID);
+		assertEquals(VALID_INPUT, patched.getFirstName());
+		assertEquals(VALID_INPUT, patched.getLastName());
+		assertEquals(VALID_PHONE, patched.getPhoneNumber());
+		assertEquals(VALID_INPUT, patched.getAddress());
+		assertEquals(version + 1, patched.getVersion());
+		assertEquals(1, this.contactService.findContactsByLastNamePrefix(VALID_INPUT, 10).size());
+		assertEquals(1, this.contactService.findContactsByFirstNamePrefix(VALID_INPUT, 10).size());
+		assertTrue(this.contactService.findContactsByLastNamePrefix(VALID_LAST_NAME, 10).isEmpty());
+
+		assertFalse(this.contactService.updateContact(VALID_CONTACT_ID, version,
+				ContactPatch.none().address(VALID_ADDRESS)));
+		assertTrue(this.contactService.updateContact(VALID_CONTACT_ID, version + 1,
+				ContactPatch.none().address(VALID_ADDRESS)));
+		assertEquals(VALID_ADDRESS, this.contactService.getContact(VALID_CONTACT_ID).getAddress());
+	}
+
+	// Testing the write-ahead log
+	/**
+	 * Asserts that adds, updates and deletes recorded in the write-ahead log are
+	 * restored by a new ContactService reading the same log.
+	 *
+	 * @see NullFieldException
+	 * @see MinimumLengthNotMetException
+	 * @see MaximumLengthExceededException
+	 * @param directory A temporary directory for the journal.
+	 * @throws IOException                    Exception indicating the journal
+	 *                                        could not be used.
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void writeAheadLogReplayTest(@TempDir final Path directory) throws IOException, NullFieldException,
+			MinimumLengthNotMetException, MaximumLengthExceededException {
+		final ContactService durable = new ContactService(directory);
+		assertTrue(durable.addContact(this.contact));
+		assertTrue(durable.updateContactAddress(VALID_CONTACT_ID, VALID_INPUT));
+		assertTrue(durable.addContact(new Contact("Other", VALID_FIRST_NAME, VALID_LAST_NAME, VALID_PHONE,
+				VALID_ADDRESS)));
+		assertTrue(durable.deleteContact("Other"));
+		durable.close();
+
+		final ContactService restarted = new ContactService(directory);
+		assertEquals(VALID_INPUT, restarted.getContact(VALID_CONTACT_ID).getAddress());
+		assertEquals(VALID_FIRST_NAME, restarted.getContact(VALID_CONTACT_ID).getFirstName());
+		assertNull(restarted.getContact("Other"));
+		assertFalse(restarted.addContact(this.contact));
+		restarted.close();
+	}
+
+	/**
+	 * Asserts that a failed update is not recorded in the write-ahead log.
+	 *
+	 * @param directory A temporary directory for the journal.
+	 * @throws IOException Exception indicating the journal could not be used.
+	 */
+	@Test
+	void writeAheadLogInvalidUpdateTest(@TempDir final Path directory) throws IOException {
+		final ContactService durable = new ContactService(directory);
+		durable.addContact(this.contact);
+		assertFalse(durable.updateContactFirstName(VALID_CONTACT_ID, INVALID_MAX_11));
+		durable.close();
+
+		final ContactService restarted = new ContactService(directory);
+		assertEquals(VALID_FIRST_NAME, restarted.getContact(VALID_CONTACT_ID).getFirstName());
+		restarted.close();
+	}
+
+	/**
+	 * Asserts that a torn record at the end of the write-ahead log is discarded and
+	 * the intact records before it are restored.
+	 *
+	 * @param directory A temporary directory for the journal.
+	 * @throws IOException Exception indicating the journal could not be used.
+	 */
+	@Test
+	void writeAheadLogTornRecordTest(@TempDir final Path directory) throws IOException {
+		final ContactService durable = new ContactService(directory);
+		durable.addContact(this.contact);
+		durable.updateContactLastName(VALID_CONTACT_ID, VALID_INPUT);
+		durable.close();
+		final Path logFile = directory.resolve("segment-00000000000000000000.log");
+		try (RandomAccessFile file = new RandomAccessFile(logFile.toFile(), "rw")) {
+			file.setLength(file.length() - 3);
+		}
+
+		final ContactService restarted = new ContactService(directory);
+		assertEquals(VALID_LAST_NAME, restarted.getContact(VALID_CONTACT_ID).getLastName());
+		assertTrue(restarted.updateContactLastName(VALID_CONTACT_ID, VALID_INPUT));
+		restarted.close();
+
+		final ContactService recovered = new ContactService(directory);
+		assertEquals(VALID_INPUT, recovered.getContact(VALID_CONTACT_ID).getLastName());
+		recovered.close();
+	}
+
+	/**
+	 * Asserts that a checkpoint followed by more changes is restored by a new
+	 * ContactService reading the same journal directory.
+	 *
+	 * @param directory A temporary directory for the journal.
+	 * @throws IOException Exception indicating the journal could not be used.
+	 */
+	@Test
+	void checkpointReplayTest(@TempDir final Path directory) throws IOException {
+		final ContactService durable = new ContactService(directory);
+		durable.addContact(this.contact);
+		durable.checkpoint();
+		durable.updateContactFirstName(VALID_CONTACT_ID, VALID_INPUT);
+		durable.close();
+
+		final ContactService restarted = new ContactService(directory);
+		assertEquals(VALID_INPUT, restarted.getContact(VALID_CONTACT_ID).getFirstName());
+		assertEquals(VALID_ADDRESS, restarted.getContact(VALID_CONTACT_ID).getAddress());
+		restarted.close();
+	}
+
+	// Testing the memory-mapped store
+	/**
+	 * Asserts that adds, updates and deletes made to a ContactService backed by a
+	 * memory-mapped store are visible after the store file is reopened.
+	 *
+	 * @see NullFieldException
+	 * @see MinimumLengthNotMetException
+	 * @see MaximumLengthExceededException
+	 * @param directory A temporary directory for the store file.
+	 * @throws IOException                    Exception indicating the store could
+	 *                                        not be used.
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void mappedStoreReopenTest(@TempDir final Path directory) throws IOException, NullFieldException,
+			MinimumLengthNotMetException, MaximumLengthExceededException {
+		final Path storeFile = directory.resolve("contacts.store");
+		final ContactService mapped = new ContactService(new MappedContactMap(storeFile));
+		assertTrue(mapped.addContact(this.contact));
+		assertFalse(mapped.addContact(this.contact));
+		assertTrue(mapped.updateContactPhoneNumber(VALID_CONTACT_ID, VALID_INPUT));
+		assertFalse(mapped.updateContactAddress(VALID_CONTACT_ID, INVALID_MAX_31));
+		assertTrue(mapped.addContact(new Contact("Other", VALID_FIRST_NAME, VALID_LAST_NAME, VALID_PHONE,
+				VALID_ADDRESS)));
+		assertTrue(mapped.deleteContact("Other"));
+		mapped.close();
+
+		final ContactService reopened = new ContactService(new MappedContactMap(storeFile));
+		final Contact stored = reopened.getContact(VALID_CONTACT_ID);
+		assertEquals(VALID_INPUT, stored.getPhoneNumber());
+		assertEquals(VALID_ADDRESS, stored.getAddress());
+		assertEquals(1, stored.getVersion());
+		assertNull(reopened.getContact("Other"));
+		assertTrue(reopened.deleteContact(VALID_CONTACT_ID));
+		reopened.close();
+	}
+
+	/**
+	 * Asserts that a ContactService opened over stored Contact objects does not
+	 * read them until the first search, and that the indexes that search builds
+	 * include the changes made before it.
+	 *
+	 * @see NullFieldException
+	 * @see MinimumLengthNotMetException
+	 * @see MaximumLengthExceededException
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void lazyIndexTest() throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		final AtomicInteger scans = new AtomicInteger();
+		final Map<String, Contact> contactMap = new ConcurrentHashMap<>() {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public Collection<Contact> values() {
+				scans.incrementAndGet();
+				return super.values();
+			}
+		};
+		contactMap.put("1", new Contact("1", "Jane", "Smith", "2125550100", "10 Main Street"));
+		final ContactService service = new ContactService(contactMap);
+		assertTrue(service.updateContactLastName("1", "Jones"));
+		assertTrue(service.addContact(new Contact("2", "John", "Jonas", "3125550199", "22 Elm Street")));
+		assertEquals(0, scans.get());
+
+		assertEquals(2, service.findContactsByLastNamePrefix("jon", 10).size());
+		assertTrue(service.findContactsByLastNamePrefix("smith", 10).isEmpty());
+		assertEquals(1, service.findContactsByPhoneNumber("2125550100").size());
+		assertTrue(service.updateContactFirstName("2", "Johan"));
+		assertEquals(List.of("2"), contactIds(service.findContactsByFirstNamePrefix("joh", 10)));
+		assertEquals(1, scans.get());
+	}
+
+	// Testing hot/cold tiering
+	/**
+	 * Asserts that a ContactService with a hot tier of one Contact object spills
+	 * to the cold file and loads the spilled Contact objects back on update.
+	 *
+	 * @see NullFieldException
+	 * @see MinimumLengthNotMetException
+	 * @see MaximumLengthExceededException
+	 * @param directory A temporary directory for the cold file.
+	 * @throws IOException                    Exception indicating the cold file
+	 *                                        could not be used.
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void tieringTest(@TempDir final Path directory) throws IOException, NullFieldException,
+			MinimumLengthNotMetException, MaximumLengthExceededException {
+		final ContactService tiered = new ContactService(new TieredMap<>(directory.resolve("contacts.cold"),
+				ContactCodec.getInstance(), Contact.CONTACT_ID_MAX_CHAR_LENGTH, 1));
+		assertTrue(tiered.addContact(this.contact));
+		assertTrue(tiered.addContact(new Contact("Other", VALID_FIRST_NAME, VALID_LAST_NAME, VALID_PHONE,
+				VALID_ADDRESS)));
+		assertEquals(1, tiered.getHotTierSpills());
+		assertFalse(tiered.addContact(this.contact));
+		assertTrue(tiered.updateContactPhoneNumber(VALID_CONTACT_ID, VALID_INPUT));
+		assertEquals(1, tiered.getHotTierMisses());
+		assertEquals(2, tiered.getHotTierSpills());
+		assertEquals(VALID_INPUT, tiered.getContact(VALID_CONTACT_ID).getPhoneNumber());
+		assertEquals(1, tiered.getHotTierHits());
+		assertTrue(tiered.deleteContact("Other"));
+		assertNull(tiered.getContact("Other"));
+		tiered.close();
+		assertFalse(Files.exists(directory.resolve("contacts.cold")));
+	}
+
+	// Testing backups
+	/**
+	 * Asserts that a full backup and an incremental backup restore the
+	 * ContactService, including an update and a delete made between them.
+	 *
+	 * @see NullFieldException
+	 * @see MinimumLengthNotMetException
+	 * @see MaximumLengthExceededException
+	 * @param directory A temporary directory for the backup files.
+	 * @throws IOException                    Exception indicating a backup could
+	 *                                        not be used.
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void backupRestoreTest(@TempDir final Path directory) throws IOException, NullFieldException,
+			MinimumLengthNotMetException, MaximumLengthExceededException {
+		final ContactService service = ContactService.getInstance();
+		assertTrue(service.addContact(this.contact));
+		assertTrue(service.addContact(new Contact("Other", VALID_FIRST_NAME, VALID_LAST_NAME, VALID_PHONE,
+				VALID_ADDRESS)));
+		final Path full = directory.resolve("full.bak");
+		final Path incremental = directory.resolve("incremental.bak");
+		service.backup(full);
+		assertTrue(service.updateContactPhoneNumber(VALID_CONTACT_ID, VALID_INPUT));
+		assertTrue(service.deleteContact("Other"));
+		service.backupChangesSince(incremental, full);
+
+		ContactService.restoreBackup(List.of(full, incremental));
+		final ContactService restored = ContactService.getInstance();
+		assertEquals(VALID_INPUT, restored.getContact(VALID_CONTACT_ID).getPhoneNumber());
+		assertNull(restored.getContact("Other"));
+		assertTrue(restored.deleteContact(VALID_CONTACT_ID));
+	}
+
+	// Testing the name indexes
+	/**
+	 * Asserts that prefix searches on the last and first names ignore case and
+	 * follow adds, updates and deletes.
+	 *
+	 * @see NullFieldException
+	 * @see MinimumLengthNotMetException
+	 * @see MaximumLengthExceededException
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void namePrefixSearchTest() throws NullFieldException, MinimumLengthNotMetException,
+			MaximumLengthExceededException {
+		final ContactService service = new ContactService(new ConcurrentHashMap<>());
+		assertTrue(service.addContact(new Contact("1", "Ada", "Lovelace", VALID_PHONE, VALID_ADDRESS)));
+		assertTrue(service.addContact(new Contact("2", "Alan", "Turing", VALID_PHONE, VALID_ADDRESS)));
+		assertTrue(service.addContact(new Contact("3", "Grace", "Hopper", VALID_PHONE, VALID_ADDRESS)));
+		assertEquals(List.of("1"), contactIds(service.findContactsByLastNamePrefix("LOVE", 10)));
+		assertEquals(List.of("1", "2"), contactIds(service.findContactsByFirstNamePrefix("a", 10)));
+		assertEquals(List.of("1"), contactIds(service.findContactsByFirstNamePrefix("a", 1)));
+
+		assertTrue(service.updateContactLastName("2", "Hamming"));
+		assertEquals(List.of("2", "3"), contactIds(service.findContactsByLastNamePrefix("h", 10)));
+		assertEquals(List.of(), contactIds(service.findContactsByLastNamePrefix("tur", 10)));
+		assertTrue(service.updateContactFirstName("3", "Ada"));
+		assertEquals(List.of("1", "3"), contactIds(service.findContactsByFirstNamePrefix("ada", 10)));
+
+		assertTrue(service.deleteContact("1"));
+		assertEquals(List.of("3"), contactIds(service.findContactsByFirstNamePrefix("ada", 10)));
+		assertEquals(List.of(), contactIds(service.findContactsByLastNamePrefix("lovelace", 10)));
+		assertEquals(List.of(), contactIds(service.findContactsByFirstNamePrefix(null, 10)));
+	}
+
+	// Testing the trigram indexes
+	/**
+	 * Asserts that fuzzy name searches find misspelled first and last names,
+	 * closest first, and follow updates and deletes.
+	 *
+	 * @see NullFieldException
+	 * @see MinimumLengthNotMetException
+	 * @see MaximumLengthExceededException
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void fuzzyNameSearchTest() throws NullFieldException, MinimumLengthNotMetException,
+			MaximumLengthExceededException {
+		final ContactService service = new ContactService(new ConcurrentHashMap<>());
+		assertTrue(service.addContact(new Contact("1", "Jon", "Smith", VALID_PHONE, VALID_ADDRESS)));
+		assertTrue(service.addContact(new Contact("2", "John", "Smyth", VALID_PHONE, VALID_ADDRESS)));
+		assertTrue(service.addContact(new Contact("3", "Joan", "Schmidt", VALID_PHONE, VALID_ADDRESS)));
+		assertEquals(List.of("2", "1"), contactIds(service.findContactsByFuzzyName("SMYTH", 1, 10)));
+		assertEquals(List.of("2", "3", "1"), contactIds(service.findContactsByFuzzyName("john", 1, 10)));
+		assertEquals(List.of("2"), contactIds(service.findContactsByFuzzyName("john", 1, 1)));
+		assertEquals(List.of(), contactIds(service.findContactsByFuzzyName("smiht", 0, 10)));
+		assertEquals(List.of("1"), contactIds(service.findContactsByFuzzyName("smiht", 2, 10)));
+
+		assertTrue(service.updateContactLastName("3", "Smithe"));
+		assertEquals(List.of("1", "3", "2"), contactIds(service.findContactsByFuzzyName("smith", 1, 10)));
+		assertTrue(service.deleteContact("1"));
+		assertEquals(List.of("3", "2"), contactIds(service.findContactsByFuzzyName("smith", 1, 10)));
+		assertEquals(List.of(), contactIds(service.findContactsByFuzzyName(null, 1, 10)));
+	}
+
+	// Testing the phone index
+	/**
+	 * Asserts that reverse phone lookups and area code searches follow adds,
+	 * updates and deletes.
+	 *
+	 * @see NullFieldException
+	 * @see MinimumLengthNotMetException
+	 * @see MaximumLengthExceededException
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void phoneLookupTest() throws NullFieldException, MinimumLengthNotMetException,
+			MaximumLengthExceededException {
+		final ContactService service = new ContactService(new ConcurrentHashMap<>());
+		assertTrue(service.addContact(new Contact("1", VALID_FIRST_NAME, VALID_LAST_NAME, "2125550100",
+				VALID_ADDRESS)));
+		assertTrue(service.addContact(new Contact("2", VALID_FIRST_NAME, VALID_LAST_NAME, "212-555-01",
+				VALID_ADDRESS)));
+		assertTrue(service.addContact(new Contact("3", VALID_FIRST_NAME, VALID_LAST_NAME, "3105550100",
+				VALID_ADDRESS)));
+		assertEquals(List.of("1"), contactIds(service.findContactsByPhoneNumber("(212) 555-0100")));
+		assertEquals(List.of("2", "1"), contactIds(service.findContactsByAreaCode("212", 10)));
+
+		assertTrue(service.updateContactPhoneNumber("1", "3105550199"));
+		assertEquals(List.of(), contactIds(service.findContactsByPhoneNumber("2125550100")));
+		assertEquals(List.of("3", "1"), contactIds(service.findContactsByAreaCode("310", 10)));
+		assertTrue(service.deleteContact("3"));
+		assertEquals(List.of("1"), contactIds(service.findContactsByAreaCode("310", 10)));
+		assertEquals(List.of(), contactIds(service.findContactsByPhoneNumber(null)));
+		assertEquals(List.of(), contactIds(service.findContactsByAreaCode(null, 10)));
+	}
+
+	// Testing queries
+	/**
+	 * Asserts that queries page through their matches in index order, and that
+	 * a cursor still works after Contact objects around it change.
+	 *
+	 * @see NullFieldException
+	 * @see MinimumLengthNotMetException
+	 * @see MaximumLengthExceededException
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void queryPaginationTest() throws NullFieldException, MinimumLengthNotMetException,
+			MaximumLengthExceededException {
+		final ContactService service = new ContactService(new ConcurrentHashMap<>());
+		assertTrue(service.addContact(new Contact("1", "Jane", "Smith", "2125550100", "1 Main Street")));
+		assertTrue(service.addContact(new Contact("2", "John", "Smith", "2125550199", "2 Oak Street")));
+		assertTrue(service.addContact(new Contact("3", "Jane", "Adams", "3105550100", "3 Main Street")));
+		assertTrue(service.addContact(new Contact("4", "Jim", "Brown", "2125550100", "4 Main Street")));
+
+		final ContactPage first = service.findContacts(ContactQuery.all(), null, 2);
+		assertEquals(List.of("3", "4"), contactIds(first.getContacts()));
+		assertTrue(first.hasNextPage());
+		final ContactPage second = service.findContacts(ContactQuery.all(), first.getNextCursor(), 2);
+		assertEquals(List.of("1", "2"), contactIds(second.getContacts()));
+		assertFalse(second.hasNextPage());
+
+		assertEquals(List.of("1", "2"), contactIds(service.findContacts(
+				ContactQuery.all().lastNameEquals("smith"), null, 10).getContacts()));
+		assertEquals(List.of("1", "4"), contactIds(service.findContacts(
+				ContactQuery.all().phoneNumberEquals("(212) 555-0100"), null, 10).getContacts()));
+		assertEquals(List.of("1", "4"), contactIds(service.findContacts(
+				ContactQuery.all().phoneNumberStartsWith("212").addressContains("main"), null, 10).getContacts()));
+		assertEquals(List.of("1", "3"), contactIds(service.findContacts(
+				ContactQuery.all().firstNameEquals("JANE"), null, 10).getContacts()));
+
+		final ContactPage byPhone = service.findContacts(ContactQuery.all().phoneNumberStartsWith("212"), null, 1);
+		assertEquals(List.of("1"), contactIds(byPhone.getContacts()));
+		assertTrue(service.updateContactPhoneNumber("4", "2125550150"));
+		assertTrue(service.deleteContact("2"));
+		assertEquals(List.of("4"), contactIds(service.findContacts(ContactQuery.all().phoneNumberStartsWith("212"),
+				byPhone.getNextCursor(), 10).getContacts()));
+
+		final List<String> streamed = new ArrayList<>();
+		service.streamContacts(ContactQuery.all().addressContains("street"), 1)
+				.forEach(contact -> streamed.add(contact.getContactId()));
+		assertEquals(List.of("3", "4", "1"), streamed);
+	}
+
+	/**
+	 * Asserts that sequential and parallel streams see every Contact object
+	 * once, including while Contact objects are being added.
+	 *
+	 * @see NullFieldException
+	 * @see MinimumLengthNotMetException
+	 * @see MaximumLengthExceededException
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void streamTest() throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		final ContactService service = new ContactService(new ConcurrentHashMap<>());
+		for (int i = 0; i < 2000; i++) {
+			assertTrue(service.addContact(new Contact("C" + i, VALID_FIRST_NAME, i % 2 == 0 ? "Even" : "Odd",
+					VALID_PHONE, VALID_ADDRESS)));
+		}
+		assertEquals(2000, service.stream().count());
+		assertEquals(1000, service.parallelStream().filter(contact -> contact.getLastName().equals("Odd")).count());
+
+		final Iterator<Contact> scan = service.stream().iterator();
+		scan.next();
+		assertTrue(service.addContact(new Contact("New", VALID_FIRST_NAME, VALID_LAST_NAME, VALID_PHONE,
+				VALID_ADDRESS)));
+		final Set<String> seen = new HashSet<>();
+		scan.forEachRemaining(contact -> assertTrue(seen.add(contact.getContactId())));
+		assertTrue(seen.size() >= 1999);
+	}
+
+	private static List<String> contactIds(final List<Contact> contacts) {
+		final List<String> contactIds = new ArrayList<>();
+		for (final Contact contact : contacts) {
+			contactIds.add(contact.getContactId());
+		}
+		return contactIds;
+	}
+
 }
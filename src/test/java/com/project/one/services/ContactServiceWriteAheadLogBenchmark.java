@@ -0,0 +1,59 @@
+package com.project.one.services;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class measures addContact throughput of a ContactService backed by a
+ * write-ahead log with 1, 8 and 64 concurrent writers. It is not run as part of
+ * the test suite; run its main method to print the results.
+ *
+ * @see ContactService
+ * @author Ben
+ */
+public class ContactServiceWriteAheadLogBenchmark {
+
+	private static int[] WRITER_COUNTS = { 1, 8, 64 };
+	private static int DURATION_MILLIS = 5000;
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args Unused.
+	 * @throws Exception Exception indicating the benchmark could not run.
+	 */
+	public static void main(final String[] args) throws Exception {
+		for (final int writers : WRITER_COUNTS) {
+			final Path directory = Files.createTempDirectory("contact-wal-benchmark");
+			final ContactService service = new ContactService(directory);
+			final ExecutorService executor = Executors.newFixedThreadPool(writers);
+			final long deadline = System.nanoTime() + DURATION_MILLIS * 1_000_000L;
+			final List<Future<Integer>> futures = new ArrayList<>();
+			for (int writer = 0; writer < writers; writer++) {
+				final int id = writer;
+				futures.add(executor.submit(() -> {
+					int count = 0;
+					while (System.nanoTime() < deadline) {
+						service.addContact(new Contact(id + "-" + count, "First", "Last", "5555555555", "Address"));
+						count++;
+					}
+					return count;
+				}));
+			}
+			long total = 0;
+			for (final Future<Integer> future : futures) {
+				total += future.get();
+			}
+			executor.shutdown();
+			service.close();
+			System.out.printf("%2d writers: %,10d writes/s%n", writers, total * 1000 / DURATION_MILLIS);
+			ServiceRecoveryBenchmark.deleteDirectory(directory);
+		}
+	}
+
+}
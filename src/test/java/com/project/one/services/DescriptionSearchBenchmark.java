@@ -0,0 +1,116 @@
+package com.project.one.services;
+
+import java.util.Random;
+
+import com.project.one.persistence.InvertedIndex;
+
+/**
+ * This class measures description searches through an InvertedIndex against a
+ * scan of every description, at 1 million and 10 million descriptions of four
+ * to seven words drawn from a vocabulary with a few common words and many rare
+ * ones. It is not run as part of the test suite; run its main method to print
+ * the results. The arguments override the numbers of descriptions; 10 million
+ * needs a heap of about 4 GB.
+ *
+ * @see InvertedIndex
+ * @see TaskService
+ * @see AppointmentService
+ * @author Ben
+ */
+public class DescriptionSearchBenchmark {
+
+	private static int[] DOCUMENTS = { 1_000_000, 10_000_000 };
+	private static int VOCABULARY = 20_000;
+	private static int QUERIES = 50;
+	private static int SCANS = 3;
+	private static int TOP = 10;
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args The numbers of descriptions, optionally.
+	 */
+	public static void main(final String[] args) {
+		int[] documents = DOCUMENTS;
+		if (args.length > 0) {
+			documents = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				documents[i] = Integer.parseInt(args[i]);
+			}
+		}
+		for (final int count : documents) {
+			run(count);
+		}
+	}
+
+	private static void run(final int count) {
+		final Random random = new Random(1);
+		final String[] descriptions = new String[count];
+		final InvertedIndex index = new InvertedIndex();
+		final long buildStart = System.nanoTime();
+		for (int i = 0; i < count; i++) {
+			final StringBuilder description = new StringBuilder();
+			for (int word = 4 + random.nextInt(4); word > 0; word--) {
+				description.append(word(random)).append(' ');
+			}
+			descriptions[i] = description.toString();
+			index.add("T" + i, descriptions[i]);
+		}
+		System.out.printf("%,d descriptions, %,d words, index built in %d ms%n", count, index.wordCount(),
+				(System.nanoTime() - buildStart) / 1_000_000);
+
+		// A common word with a rarer one, two mid-range words, and one rare word.
+		final String[][] queries = new String[QUERIES][];
+		for (int i = 0; i < QUERIES; i++) {
+			queries[i] = new String[] { "w" + random.nextInt(10) + " w" + (100 + random.nextInt(900)),
+					"w" + (10 + random.nextInt(90)) + " w" + (10 + random.nextInt(90)),
+					"w" + (1000 + random.nextInt(VOCABULARY - 1000)) };
+		}
+		// Warms up both query paths before timing them.
+		for (final String[] query : queries) {
+			index.findAll(query[0], TOP);
+			index.findAny(query[1], TOP);
+		}
+		System.out.printf("%28s %14s%n", "query", "latency (ms)");
+		final String[] names = { "AND common + rare", "OR two mid-range", "AND one rare word" };
+		for (int kind = 0; kind < names.length; kind++) {
+			long nanos = 0;
+			for (final String[] query : queries) {
+				final long start = System.nanoTime();
+				if (kind == 1) {
+					index.findAny(query[kind], TOP);
+				} else {
+					index.findAll(query[kind], TOP);
+				}
+				nanos += System.nanoTime() - start;
+			}
+			System.out.printf("%28s %14.3f%n", names[kind], nanos / 1e6 / QUERIES);
+		}
+		long scanNanos = 0;
+		for (int i = 0; i < SCANS; i++) {
+			final long start = System.nanoTime();
+			int matches = 0;
+			for (final String description : descriptions) {
+				if (InvertedIndex.containsAll(description, queries[i][0])) {
+					matches++;
+				}
+			}
+			scanNanos += System.nanoTime() - start;
+			if (matches != index.findAll(queries[i][0], Integer.MAX_VALUE).size()) {
+				throw new IllegalStateException("The index and the scan disagree.");
+			}
+		}
+		System.out.printf("%28s %14.3f%n", "scan, AND common + rare", scanNanos / 1e6 / SCANS);
+	}
+
+	/**
+	 * Picks a word, the lower numbered words being far more common.
+	 *
+	 * @param random The random source.
+	 * @return Returns the word.
+	 */
+	private static String word(final Random random) {
+		return "w" + (int) Math.pow(VOCABULARY, random.nextDouble());
+	}
+
+}
@@ -0,0 +1,181 @@
+package com.project.one.services;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+/**
+ * This class compares the BinaryCodec implementations with Java serialization
+ * for encode and decode time per record and bytes per record. The entities are
+ * not Serializable, so Java serialization is measured on a Serializable class
+ * with the same fields, converted to and from the entity. It is not run as part
+ * of the test suite; run its main method to print the results.
+ *
+ * @see ContactCodec
+ * @see TaskCodec
+ * @see AppointmentCodec
+ * @author Ben
+ */
+public class EntityCodecBenchmark {
+
+	private static int WARMUP_OPERATIONS = 500_000;
+	private static int MEASURED_OPERATIONS = 2_000_000;
+	private static volatile int sink;
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args Unused.
+	 * @throws Exception Exception indicating the benchmark could not run.
+	 */
+	public static void main(final String[] args) throws Exception {
+		final Contact contact = new Contact("C123456789", "Firstname", "Lastname", "5555555555",
+				"123 Some Street, Some Town");
+		final Task task = new Task("T123456789", "Write the report", "Write the quarterly report for the team");
+		final Appointment appointment = new Appointment("A123456789", new Date(System.currentTimeMillis() + 86400000L),
+				"Quarterly review with the team");
+
+		System.out.printf("%-12s %-13s %12s %12s %8s%n", "entity", "format", "encode (ns)", "decode (ns)", "bytes");
+		final ContactCodec contactCodec = ContactCodec.getInstance();
+		run("Contact", contact, contactCodec.getMaxLength(), contactCodec::encode, contactCodec::decode,
+				value -> new ContactFields(value), fields -> ((ContactFields) fields).toContact());
+		final TaskCodec taskCodec = TaskCodec.getInstance();
+		run("Task", task, taskCodec.getMaxLength(), taskCodec::encode, taskCodec::decode,
+				value -> new TaskFields(value), fields -> ((TaskFields) fields).toTask());
+		final AppointmentCodec appointmentCodec = AppointmentCodec.getInstance();
+		run("Appointment", appointment, appointmentCodec.getMaxLength(), appointmentCodec::encode,
+				appointmentCodec::decode, value -> new AppointmentFields(value),
+				fields -> ((AppointmentFields) fields).toAppointment());
+	}
+
+	private static <V> void run(final String entity, final V value, final int maxLength, final Encoder<V> encoder,
+			final Decoder<V> decoder, final Converter<V, Serializable> toFields,
+			final Converter<Object, V> fromFields) throws Exception {
+		final ByteBuffer buffer = ByteBuffer.allocate(maxLength);
+		encoder.encode(value, buffer);
+		final int binaryLength = buffer.position();
+		final ByteBuffer encoded = ByteBuffer.wrap(buffer.array(), 0, binaryLength).slice();
+		final double binaryEncode = nanosPerOperation(() -> {
+			buffer.clear();
+			encoder.encode(value, buffer);
+			return buffer.position();
+		});
+		final double binaryDecode = nanosPerOperation(() -> {
+			encoded.rewind();
+			return decoder.decode(encoded).hashCode();
+		});
+		System.out.printf("%-12s %-13s %12.1f %12.1f %8d%n", entity, "binary", binaryEncode, binaryDecode,
+				binaryLength);
+
+		final byte[] serialized = serialize(toFields.convert(value));
+		final double javaEncode = nanosPerOperation(() -> serialize(toFields.convert(value)).length);
+		final double javaDecode = nanosPerOperation(() -> {
+			try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+				return fromFields.convert(in.readObject()).hashCode();
+			}
+		});
+		System.out.printf("%-12s %-13s %12.1f %12.1f %8d%n", entity, "serialization", javaEncode, javaDecode,
+				serialized.length);
+	}
+
+	private static byte[] serialize(final Serializable fields) throws Exception {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(fields);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static double nanosPerOperation(final Operation operation) throws Exception {
+		int result = 0;
+		for (int i = 0; i < WARMUP_OPERATIONS; i++) {
+			result += operation.run();
+		}
+		final long start = System.nanoTime();
+		for (int i = 0; i < MEASURED_OPERATIONS; i++) {
+			result += operation.run();
+		}
+		final long elapsed = System.nanoTime() - start;
+		sink = result;
+		return (double) elapsed / MEASURED_OPERATIONS;
+	}
+
+	private interface Operation {
+		int run() throws Exception;
+	}
+
+	private interface Encoder<V> {
+		void encode(V value, ByteBuffer buffer);
+	}
+
+	private interface Decoder<V> {
+		V decode(ByteBuffer buffer) throws Exception;
+	}
+
+	private interface Converter<F, T> {
+		T convert(F from) throws Exception;
+	}
+
+	private static class ContactFields implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+		private final String contactId;
+		private final String firstName;
+		private final String lastName;
+		private final String phoneNumber;
+		private final String address;
+
+		private ContactFields(final Contact contact) {
+			this.contactId = contact.getContactId();
+			this.firstName = contact.getFirstName();
+			this.lastName = contact.getLastName();
+			this.phoneNumber = contact.getPhoneNumber();
+			this.address = contact.getAddress();
+		}
+
+		private Contact toContact() throws Exception {
+			return new Contact(this.contactId, this.firstName, this.lastName, this.phoneNumber, this.address);
+		}
+	}
+
+	private static class TaskFields implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+		private final String taskId;
+		private final String name;
+		private final String description;
+
+		private TaskFields(final Task task) {
+			this.taskId = task.getTaskId();
+			this.name = task.getName();
+			this.description = task.getDescription();
+		}
+
+		private Task toTask() throws Exception {
+			return new Task(this.taskId, this.name, this.description);
+		}
+	}
+
+	private static class AppointmentFields implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+		private final String appointmentId;
+		private final Date appointmentDate;
+		private final String description;
+
+		private AppointmentFields(final Appointment appointment) {
+			this.appointmentId = appointment.getAppointmentId();
+			this.appointmentDate = appointment.getAppointmentDate();
+			this.description = appointment.getDescription();
+		}
+
+		private Appointment toAppointment() throws Exception {
+			return Appointment.restore(this.appointmentId, this.appointmentDate, this.description);
+		}
+	}
+
+}
@@ -0,0 +1,100 @@
+package com.project.one.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the functionality of the PhoneIndex class.
+ *
+ * @see PhoneIndex
+ * @author Ben
+ */
+public class PhoneIndexTest {
+
+	/**
+	 * Asserts that only digits are packed and that leading zeros are kept.
+	 */
+	@Test
+	void packTest() {
+		assertEquals(15550100L, PhoneIndex.pack("(555) 0100"));
+		assertEquals(1012L, PhoneIndex.pack("012"));
+		assertEquals(112L, PhoneIndex.pack("12"));
+		assertEquals(-1L, PhoneIndex.pack("Phone"));
+		assertEquals(-1L, PhoneIndex.pack("1234567890123456789"));
+		assertEquals(-1L, PhoneIndex.pack(null));
+		assertTrue(PhoneIndex.startsWith("555-0100", "555"));
+		assertFalse(PhoneIndex.startsWith("5550100", "0555"));
+	}
+
+	/**
+	 * Asserts that exact lookups find every owner of a number, including shared
+	 * numbers.
+	 */
+	@Test
+	void findTest() {
+		final PhoneIndex index = new PhoneIndex();
+		index.add("5550100", "1");
+		index.add("555-0100", "2");
+		index.add("5550199", "3");
+		assertEquals(List.of("1", "2"), index.find("(555) 0100"));
+		index.remove("5550100", "1");
+		assertEquals(List.of("2"), index.find("5550100"));
+		index.replace("5550100", "5550111", "2");
+		assertEquals(List.of(), index.find("5550100"));
+		assertEquals(List.of("2"), index.find("5550111"));
+		index.replace("5550111", "555 0111", "2");
+		assertEquals(List.of("2"), index.find("5550111"));
+	}
+
+	/**
+	 * Asserts that prefix lookups find numbers of every length that start with
+	 * the prefix, shortest first, and honour the limit.
+	 */
+	@Test
+	void findByPrefixTest() {
+		final PhoneIndex index = new PhoneIndex();
+		index.add("2125550100", "1");
+		index.add("2125550199", "2");
+		index.add("212", "3");
+		index.add("2135550100", "4");
+		index.add("0212555", "5");
+		assertEquals(List.of("3", "1", "2"), index.findByPrefix("212", 10));
+		assertEquals(List.of("3", "1"), index.findByPrefix("(212)", 2));
+		assertEquals(List.of("5"), index.findByPrefix("0", 10));
+		assertEquals(List.of(), index.findByPrefix("", 10));
+	}
+
+	/**
+	 * Asserts that owners can be read a few at a time by starting after the last
+	 * position read, in number and then contactId order.
+	 */
+	@Test
+	void entriesTest() {
+		final PhoneIndex index = new PhoneIndex();
+		index.add("2125550100", "2");
+		index.add("2125550100", "1");
+		index.add("212-555-01", "3");
+		index.add("3105550100", "4");
+		final Iterator<Map.Entry<String, String>> first = index.entries("212", false, null);
+		assertEquals("3", first.next().getValue());
+		final String position = first.next().getKey();
+		final List<String> rest = new ArrayList<>();
+		index.entries("212", false, position).forEachRemaining(entry -> rest.add(entry.getValue()));
+		assertEquals(List.of("2"), rest);
+		final List<String> exact = new ArrayList<>();
+		index.entries("(212) 555-0100", true, null).forEachRemaining(entry -> exact.add(entry.getValue()));
+		assertEquals(List.of("1", "2"), exact);
+		assertFalse(index.entries("2125550", true, null).hasNext());
+		assertTrue(PhoneIndex.isAt(position, "212 555 0100"));
+		assertFalse(PhoneIndex.isAt(position, "3105550100"));
+	}
+
+}
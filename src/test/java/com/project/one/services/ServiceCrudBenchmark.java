@@ -0,0 +1,199 @@
+package com.project.one.services;
+
+import java.util.AbstractMap;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+
+/**
+ * This class measures the add, update and delete methods of the three
+ * services: the number of map operations each call makes, counted through a
+ * map that counts every keyed call, and the time each call takes on a
+ * ConcurrentHashMap. A duplicate add and a delete of a missing record are
+ * measured as well. It is not run as part of the test suite; run its main
+ * method to print the results. The first argument overrides the number of
+ * records.
+ *
+ * @see ContactService
+ * @see TaskService
+ * @see AppointmentService
+ * @author Ben
+ */
+public class ServiceCrudBenchmark {
+
+	private static int RECORDS = 200_000;
+	private static int WARMUP_ROUNDS = 3;
+	private static int ROUNDS = 5;
+	private static String[] OPERATIONS = { "add", "add again", "update", "delete", "delete again" };
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args The number of records, optionally.
+	 * @throws Exception Exception indicating the benchmark could not run.
+	 */
+	public static void main(final String[] args) throws Exception {
+		final int records = args.length > 0 ? Integer.parseInt(args[0]) : RECORDS;
+		final String[] ids = new String[records];
+		final Contact[] contacts = new Contact[records];
+		final Task[] tasks = new Task[records];
+		final Appointment[] appointments = new Appointment[records];
+		for (int i = 0; i < records; i++) {
+			ids[i] = "R" + i;
+		}
+		System.out.printf("%,d records%n", records);
+		System.out.printf("%12s %14s %12s %12s%n", "service", "operation", "map calls", "ns per call");
+		run("contact", records, (final Map<String, Contact> map) -> {
+			final ContactService service = new ContactService(map);
+			return new IntPredicate[] { i -> service.addContact(contacts[i]),
+					i -> service.addContact(contacts[i]),
+					i -> service.updateContactAddress(ids[i], "Other Address"),
+					i -> service.deleteContact(ids[i]), i -> service.deleteContact(ids[i]) };
+		}, i -> contacts[i] = new Contact(ids[i], "First", "Last", "5555555555", "Address"));
+		run("task", records, (final Map<String, Task> map) -> {
+			final TaskService service = new TaskService(map);
+			return new IntPredicate[] { i -> service.addTask(tasks[i]), i -> service.addTask(tasks[i]),
+					i -> service.updateTaskName(ids[i], "Other"), i -> service.deleteTask(ids[i]),
+					i -> service.deleteTask(ids[i]) };
+		}, i -> tasks[i] = new Task(ids[i], "Name", "Description"));
+		run("appointment", records, (final Map<String, Appointment> map) -> {
+			final AppointmentService service = new AppointmentService(map);
+			return new IntPredicate[] { i -> service.addAppointment(appointments[i]),
+					i -> service.addAppointment(appointments[i]),
+					i -> service.updateAppointmentDuration(ids[i], 60_000),
+					i -> service.deleteAppointment(ids[i]), i -> service.deleteAppointment(ids[i]) };
+		}, i -> appointments[i] = Appointment.restore(ids[i], new Date(4_102_444_800_000L + i * 60_000L),
+				"Description"));
+	}
+
+	/**
+	 * Measures one service.
+	 *
+	 * @param <V>        The type of the stored values.
+	 * @param name       The name of the service.
+	 * @param records    The number of records.
+	 * @param operations Makes a service over a map and returns its operations in
+	 *                   the order of OPERATIONS.
+	 * @param create     Creates the record of an index, fresh for every round.
+	 * @throws Exception Exception indicating a record could not be created.
+	 */
+	private static <V> void run(final String name, final int records,
+			final Function<Map<String, V>, IntPredicate[]> operations, final Creator create) throws Exception {
+		final CountingMap<V> counting = new CountingMap<>();
+		final IntPredicate[] counted = operations.apply(counting);
+		final long[] calls = new long[OPERATIONS.length];
+		for (int i = 0; i < 1000; i++) {
+			create.create(i);
+			for (int operation = 0; operation < OPERATIONS.length; operation++) {
+				final long before = counting.calls;
+				counted[operation].test(i);
+				calls[operation] += counting.calls - before;
+			}
+		}
+		final double[] nanos = new double[OPERATIONS.length];
+		for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+			for (int i = 0; i < records; i++) {
+				create.create(i);
+			}
+			final IntPredicate[] timed = operations.apply(new ConcurrentHashMap<>(records * 2));
+			for (int operation = 0; operation < OPERATIONS.length; operation++) {
+				final long start = System.nanoTime();
+				for (int i = 0; i < records; i++) {
+					timed[operation].test(i);
+				}
+				if (round >= WARMUP_ROUNDS) {
+					nanos[operation] += (double) (System.nanoTime() - start) / records / ROUNDS;
+				}
+			}
+		}
+		for (int operation = 0; operation < OPERATIONS.length; operation++) {
+			System.out.printf("%12s %14s %12.1f %12.0f%n", name, OPERATIONS[operation], calls[operation] / 1000.0,
+					nanos[operation]);
+		}
+	}
+
+	/**
+	 * Creates the record of an index.
+	 */
+	private interface Creator {
+
+		void create(int index) throws Exception;
+	}
+
+	/**
+	 * A map that counts its keyed calls. Every keyed method is forwarded to a
+	 * ConcurrentHashMap in one call, so a compound method counts once.
+	 *
+	 * @param <V> The type of the stored values.
+	 */
+	private static final class CountingMap<V> extends AbstractMap<String, V> {
+
+		private final Map<String, V> map = new ConcurrentHashMap<>();
+		private long calls;
+
+		@Override
+		public V get(final Object key) {
+			this.calls++;
+			return this.map.get(key);
+		}
+
+		@Override
+		public boolean containsKey(final Object key) {
+			this.calls++;
+			return this.map.containsKey(key);
+		}
+
+		@Override
+		public V put(final String key, final V value) {
+			this.calls++;
+			return this.map.put(key, value);
+		}
+
+		@Override
+		public V remove(final Object key) {
+			this.calls++;
+			return this.map.remove(key);
+		}
+
+		@Override
+		public V putIfAbsent(final String key, final V value) {
+			this.calls++;
+			return this.map.putIfAbsent(key, value);
+		}
+
+		@Override
+		public boolean remove(final Object key, final Object value) {
+			this.calls++;
+			return this.map.remove(key, value);
+		}
+
+		@Override
+		public boolean replace(final String key, final V oldValue, final V newValue) {
+			this.calls++;
+			return this.map.replace(key, oldValue, newValue);
+		}
+
+		@Override
+		public V computeIfPresent(final String key,
+				final BiFunction<? super String, ? super V, ? extends V> remappingFunction) {
+			this.calls++;
+			return this.map.computeIfPresent(key, remappingFunction);
+		}
+
+		@Override
+		public V compute(final String key, final BiFunction<? super String, ? super V, ? extends V> remappingFunction) {
+			this.calls++;
+			return this.map.compute(key, remappingFunction);
+		}
+
+		@Override
+		public Set<Map.Entry<String, V>> entrySet() {
+			return this.map.entrySet();
+		}
+	}
+
+}
@@ -0,0 +1,119 @@
+package com.project.one.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class measures lookups of Contact objects by many reader threads while
+ * one writer keeps updating the addresses of the same Contact objects. Each
+ * reader reads the address of the Contact object it looked up, reads the
+ * other fields, and reads the address again, every YIELD_EVERY lookups
+ * yielding the processor in between; a Contact object whose address changed
+ * between the two reads was changed while the reader held it. The
+ * readers run once without the writer and once with it. It is not run as part
+ * of the test suite; run its main method to print the results. The first
+ * argument overrides the number of reader threads.
+ *
+ * @see ContactService
+ * @author Ben
+ */
+public class ServiceReadBenchmark {
+
+	private static int CONTACTS = 1_000;
+	private static int READERS = 32;
+	private static long WARMUP_MILLIS = 2_000;
+	private static long MEASURE_MILLIS = 5_000;
+	private static int YIELD_EVERY = 64;
+	private static String[] ADDRESSES = { "1 First Street", "2 Second Avenue" };
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args The number of reader threads, optionally.
+	 * @throws Exception Exception indicating the benchmark could not run.
+	 */
+	public static void main(final String[] args) throws Exception {
+		final int readers = args.length > 0 ? Integer.parseInt(args[0]) : READERS;
+		final Map<String, Contact> contactMap = new ConcurrentHashMap<>(CONTACTS * 2);
+		final String[] contactIds = new String[CONTACTS];
+		for (int i = 0; i < CONTACTS; i++) {
+			contactIds[i] = "C" + i;
+			contactMap.put(contactIds[i], new Contact(contactIds[i], "First", "Last", "5555555555", ADDRESSES[0]));
+		}
+		final ContactService service = new ContactService(contactMap);
+		System.out.printf("%,d contacts, %d readers, %d processors%n", CONTACTS, readers,
+				Runtime.getRuntime().availableProcessors());
+		System.out.printf("%10s %16s %14s %18s%n", "writer", "reads (M/s)", "writes (k/s)", "changed while read");
+		run(service, contactIds, readers, false, WARMUP_MILLIS);
+		for (final boolean writing : new boolean[] { false, true }) {
+			final long[] counts = run(service, contactIds, readers, writing, MEASURE_MILLIS);
+			System.out.printf("%10s %16.2f %14.1f %18d%n", writing ? "on" : "off",
+					counts[0] / 1e3 / MEASURE_MILLIS, counts[1] / (double) MEASURE_MILLIS, counts[2]);
+		}
+	}
+
+	/**
+	 * Runs the readers, and the writer if asked, for a time.
+	 *
+	 * @return Returns the number of reads, writes and Contact objects changed
+	 *         while read.
+	 */
+	private static long[] run(final ContactService service, final String[] contactIds, final int readers,
+			final boolean writing, final long millis) throws InterruptedException {
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final LongAdder reads = new LongAdder();
+		final LongAdder writes = new LongAdder();
+		final LongAdder changed = new LongAdder();
+		final List<Thread> threads = new ArrayList<>();
+		for (int reader = 0; reader < readers; reader++) {
+			threads.add(new Thread(() -> {
+				final ThreadLocalRandom random = ThreadLocalRandom.current();
+				long read = 0;
+				long torn = 0;
+				int length = 0;
+				while (running.get()) {
+					final Contact contact = service.getContact(contactIds[random.nextInt(contactIds.length)]);
+					final String address = contact.getAddress();
+					length += contact.getFirstName().length() + contact.getLastName().length()
+							+ contact.getPhoneNumber().length();
+					if (read % YIELD_EVERY == 0) {
+						Thread.yield();
+					}
+					if (!address.equals(contact.getAddress())) {
+						torn++;
+					}
+					read++;
+				}
+				reads.add(read + (length == 42 ? 1 : 0));
+				changed.add(torn);
+			}));
+		}
+		if (writing) {
+			threads.add(new Thread(() -> {
+				final ThreadLocalRandom random = ThreadLocalRandom.current();
+				long written = 0;
+				while (running.get()) {
+					service.updateContactAddress(contactIds[random.nextInt(contactIds.length)],
+							ADDRESSES[(int) (written & 1)]);
+					written++;
+				}
+				writes.add(written);
+			}));
+		}
+		for (final Thread thread : threads) {
+			thread.start();
+		}
+		Thread.sleep(millis);
+		running.set(false);
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+		return new long[] { reads.sum(), writes.sum(), changed.sum() };
+	}
+
+}
@@ -0,0 +1,77 @@
+package com.project.one.services;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * This class measures how long a journaled ContactService takes to start for a
+ * growing number of Contact records, once by replaying the whole log and once
+ * from a snapshot plus a short log tail. It is not run as part of the test
+ * suite; run its main method to print the results.
+ *
+ * @see ContactService
+ * @author Ben
+ */
+public class ServiceRecoveryBenchmark {
+
+	private static int[] RECORD_COUNTS = { 10_000, 100_000, 1_000_000 };
+	private static int TAIL_LENGTH = 1000;
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args Unused.
+	 * @throws Exception Exception indicating the benchmark could not run.
+	 */
+	public static void main(final String[] args) throws Exception {
+		System.out.printf("%10s %16s %20s%n", "records", "log replay (ms)", "snapshot+tail (ms)");
+		for (final int records : RECORD_COUNTS) {
+			final Path directory = Files.createTempDirectory("recovery-benchmark");
+			final ContactService writer = new ContactService(directory);
+			for (int i = 0; i < records; i++) {
+				final String contactId = Integer.toString(i);
+				writer.addContact(new Contact(contactId, "First", "Last", "5555555555", "Address"));
+				writer.updateContactAddress(contactId, "New Address");
+			}
+			writer.close();
+			final long logReplay = timeRecovery(directory);
+
+			final ContactService checkpointed = new ContactService(directory);
+			checkpointed.checkpoint();
+			for (int i = 0; i < TAIL_LENGTH; i++) {
+				checkpointed.updateContactPhoneNumber(Integer.toString(i), "5550000000");
+			}
+			checkpointed.close();
+			final long snapshotReplay = timeRecovery(directory);
+
+			System.out.printf("%,10d %16d %20d%n", records, logReplay, snapshotReplay);
+			deleteDirectory(directory);
+		}
+	}
+
+	private static long timeRecovery(final Path directory) throws IOException {
+		final long start = System.nanoTime();
+		final ContactService service = new ContactService(directory);
+		final long elapsed = (System.nanoTime() - start) / 1_000_000;
+		service.close();
+		return elapsed;
+	}
+
+	/**
+	 * Deletes a benchmark directory and everything in it.
+	 *
+	 * @param directory The directory to delete.
+	 * @throws IOException Exception indicating a file could not be deleted.
+	 */
+	static void deleteDirectory(final Path directory) throws IOException {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			for (final Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+
+}
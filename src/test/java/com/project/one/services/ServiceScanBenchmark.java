@@ -0,0 +1,82 @@
+package com.project.one.services;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import com.project.one.persistence.RecordSpliterator;
+
+/**
+ * This class measures full scans of ContactService through stream and
+ * parallelStream, with the Contact objects on the heap and in a memory-mapped
+ * store where every Contact object is decoded as it is read. It is not run as
+ * part of the test suite; run its main method to print the results. The first
+ * argument overrides the number of contacts.
+ *
+ * @see ContactService
+ * @see RecordSpliterator
+ * @author Ben
+ */
+public class ServiceScanBenchmark {
+
+	private static int CONTACTS = 1_000_000;
+	private static int WARMUP_SCANS = 5;
+	private static int SCANS = 10;
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args The number of contacts, optionally.
+	 * @throws Exception Exception indicating the benchmark could not run.
+	 */
+	public static void main(final String[] args) throws Exception {
+		final int contacts = args.length > 0 ? Integer.parseInt(args[0]) : CONTACTS;
+		final Path storeFile = Files.createTempFile("scan", ".store");
+		final Map<String, Contact> heapMap = new ConcurrentHashMap<>(contacts * 2);
+		final MappedContactMap mappedMap = new MappedContactMap(storeFile);
+		for (int i = 0; i < contacts; i++) {
+			final Contact contact = new Contact("C" + i, "First", i % 10 == 0 ? "Smith" : "Jones", "5555555555",
+					"Address " + i);
+			heapMap.put(contact.getContactId(), contact);
+			mappedMap.put(contact.getContactId(), contact);
+		}
+		System.out.printf("%,d contacts, %d threads in the common pool%n", contacts,
+				ForkJoinPool.getCommonPoolParallelism());
+		System.out.printf("%10s %18s %18s%n", "storage", "sequential (ms)", "parallel (ms)");
+		run("heap", new ContactService(heapMap));
+		final ContactService mapped = new ContactService(mappedMap);
+		run("mapped", mapped);
+		mapped.close();
+		Files.deleteIfExists(storeFile);
+	}
+
+	private static void run(final String storage, final ContactService service) {
+		for (int i = 0; i < WARMUP_SCANS; i++) {
+			scan(service.stream());
+			scan(service.parallelStream());
+		}
+		final long sequentialStart = System.nanoTime();
+		for (int i = 0; i < SCANS; i++) {
+			scan(service.stream());
+		}
+		final double sequentialMillis = (System.nanoTime() - sequentialStart) / 1e6 / SCANS;
+		final long parallelStart = System.nanoTime();
+		for (int i = 0; i < SCANS; i++) {
+			scan(service.parallelStream());
+		}
+		final double parallelMillis = (System.nanoTime() - parallelStart) / 1e6 / SCANS;
+		System.out.printf("%10s %18.2f %18.2f%n", storage, sequentialMillis, parallelMillis);
+	}
+
+	private static long scan(final Stream<Contact> contacts) {
+		final long smiths = contacts.filter(contact -> contact.getLastName().equals("Smith")).count();
+		if (smiths < 0) {
+			throw new IllegalStateException();
+		}
+		return smiths;
+	}
+
+}
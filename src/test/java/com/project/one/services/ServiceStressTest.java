@@ -0,0 +1,192 @@
+package com.project.one.services;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class stress tests the add, delete and update methods of the services
+ * for linearizability. Each test names a few actors, calls on one service made
+ * at the same moment from their own threads, and runs them many times against
+ * a fresh service. Every run must end with results and a service state that
+ * some sequential order of the same calls also produces; the allowed outcomes
+ * are found by running every order one call at a time.
+ *
+ * @see ContactService
+ * @see TaskService
+ * @see AppointmentService
+ * @author Ben
+ */
+public class ServiceStressTest {
+
+	private static int ROUNDS = 2000;
+	// Midnight UTC on 1 January 2100.
+	private static long START = 4_102_444_800_000L;
+	private static long HOUR = 3_600_000;
+
+	/**
+	 * Asserts that racing adds of one taskId, a delete and an update end as if
+	 * they ran one at a time: at most one add wins while the Task exists, and the
+	 * update changes the Task the winning add put there.
+	 *
+	 * @throws Exception Exception indicating an actor failed.
+	 */
+	@Test
+	void taskTest() throws Exception {
+		stress(() -> new TaskService(new ConcurrentHashMap<>()), List.of(
+				service -> service.addTask(new Task("T", "First", "Description one")),
+				service -> service.addTask(new Task("T", "Second", "Description two")),
+				service -> service.deleteTask("T"),
+				service -> service.updateTaskName("T", "Renamed")),
+				service -> {
+					final Task task = service.getTask("T");
+					return task == null ? "none"
+							: task.getName() + "/" + task.getDescription() + "/"
+									+ service.findTasksMatchingAll("description", 10).size() + "/"
+									+ service.findTasksMatchingAll("two", 10).size();
+				});
+	}
+
+	/**
+	 * Asserts that racing adds, a delete and a last name update of one contactId
+	 * end as if they ran one at a time, and that the name index agrees with the
+	 * Contact object that is left.
+	 *
+	 * @throws Exception Exception indicating an actor failed.
+	 */
+	@Test
+	void contactTest() throws Exception {
+		stress(() -> new ContactService(new ConcurrentHashMap<>()), List.of(
+				service -> service.addContact(new Contact("C", "Ann", "Smith", "5555555555", "Address")),
+				service -> service.addContact(new Contact("C", "Bob", "Jones", "5555555556", "Address")),
+				service -> service.deleteContact("C"),
+				service -> service.updateContactLastName("C", "Brown")),
+				service -> {
+					final Contact contact = service.getContact("C");
+					return (contact == null ? "none" : contact.getFirstName() + " " + contact.getLastName()) + "/"
+							+ service.findContactsByLastNamePrefix("Smith", 10).size()
+							+ service.findContactsByLastNamePrefix("Jones", 10).size()
+							+ service.findContactsByLastNamePrefix("Brown", 10).size() + "/"
+							+ service.findContactsByPhoneNumber("5555555556").size();
+				});
+	}
+
+	/**
+	 * Asserts that racing bookings of overlapping times, a move and a delete end
+	 * as if they ran one at a time, and that the time index agrees with the
+	 * Appointment objects that are left.
+	 *
+	 * @throws Exception Exception indicating an actor failed.
+	 */
+	@Test
+	void appointmentTest() throws Exception {
+		stress(() -> new AppointmentService(new ConcurrentHashMap<>()), List.of(
+				service -> service.addAppointmentIfFree(
+						Appointment.restore("A", new Date(START), HOUR, "Description")),
+				service -> service.addAppointmentIfFree(
+						Appointment.restore("B", new Date(START + HOUR / 2), HOUR, "Description")),
+				service -> service.updateAppointmentDate("A", new Date(START + 2 * HOUR)),
+				service -> service.deleteAppointment("B")),
+				service -> {
+					final StringBuilder state = new StringBuilder();
+					for (final Appointment appointment : service.getOverlappingAppointments(new Date(START),
+							3 * HOUR)) {
+						state.append(appointment.getAppointmentId()).append('@')
+								.append(appointment.getAppointmentDate().getTime() - START).append(' ');
+					}
+					return state.append('/').append(service.stream().count()).toString();
+				});
+	}
+
+	/**
+	 * Runs actors at the same moment against fresh services and checks that every
+	 * outcome is one a sequential order of the actors produces.
+	 *
+	 * @param <S>     The type of the service.
+	 * @param service Makes a fresh service.
+	 * @param actors  The calls to race, each returning its result.
+	 * @param state   Describes the state of a service once the actors are done.
+	 * @throws Exception Exception indicating an actor failed.
+	 */
+	private static <S> void stress(final Callable<S> service, final List<Actor<S>> actors, final Actor<S> state)
+			throws Exception {
+		final Set<String> allowed = new HashSet<>();
+		permute(new ArrayList<>(), actors, service, state, allowed);
+		final ExecutorService threads = Executors.newFixedThreadPool(actors.size());
+		try {
+			for (int round = 0; round < ROUNDS; round++) {
+				final S tested = service.call();
+				final CountDownLatch ready = new CountDownLatch(actors.size());
+				final List<Future<Object>> results = new ArrayList<>();
+				for (final Actor<S> actor : actors) {
+					results.add(threads.submit(() -> {
+						ready.countDown();
+						ready.await();
+						return actor.act(tested);
+					}));
+				}
+				final StringBuilder outcome = new StringBuilder();
+				for (final Future<Object> result : results) {
+					outcome.append(result.get()).append(' ');
+				}
+				outcome.append(state.act(tested));
+				assertTrue(allowed.contains(outcome.toString()),
+						"Outcome " + outcome + " is not one of " + allowed);
+			}
+		} finally {
+			threads.shutdownNow();
+		}
+	}
+
+	/**
+	 * Runs every order of the actors one at a time, each against a fresh
+	 * service, and collects the outcomes, with each result listed in the order
+	 * of the actors.
+	 */
+	private static <S> void permute(final List<Integer> order, final List<Actor<S>> actors,
+			final Callable<S> service, final Actor<S> state, final Set<String> allowed) throws Exception {
+		if (order.size() == actors.size()) {
+			final S tested = service.call();
+			final Object[] results = new Object[actors.size()];
+			for (final int actor : order) {
+				results[actor] = actors.get(actor).act(tested);
+			}
+			final StringBuilder outcome = new StringBuilder();
+			for (final Object result : results) {
+				outcome.append(result).append(' ');
+			}
+			allowed.add(outcome.append(state.act(tested)).toString());
+			return;
+		}
+		for (int actor = 0; actor < actors.size(); actor++) {
+			if (!order.contains(actor)) {
+				order.add(actor);
+				permute(order, actors, service, state, allowed);
+				order.remove(order.size() - 1);
+			}
+		}
+	}
+
+	/**
+	 * One call made on a service.
+	 *
+	 * @param <S> The type of the service.
+	 */
+	private interface Actor<S> {
+
+		Object act(S service) throws Exception;
+	}
+
+}
@@ -0,0 +1,80 @@
+package com.project.one.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import com.project.one.exceptions.MaximumLengthExceededException;
+import com.project.one.exceptions.MinimumLengthNotMetException;
+import com.project.one.exceptions.NullFieldException;
+
+/**
+ * This class tests the functionality of the TaskCodec class.
+ *
+ * @see TaskCodec
+ * @author Ben
+ */
+public class TaskCodecTest {
+
+	/**
+	 * Asserts that consecutive Task records in one buffer are decoded with the
+	 * same fields.
+	 *
+	 * @throws IOException                    Exception indicating the record
+	 *                                        could not be decoded.
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void roundTripTest()
+			throws IOException, NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		final TaskCodec codec = TaskCodec.getInstance();
+		final Task first = new Task("1", "Name", "Description");
+		final Task second = new Task("2", "\u540D\u524D", "x".repeat(Task.DESCRIPTION_MAX_CHAR_LENGTH));
+		final ByteBuffer buffer = ByteBuffer.allocate(codec.getMaxLength() * 2);
+		codec.encode(first, buffer);
+		codec.encode(second, buffer);
+		buffer.flip();
+		for (final Task task : new Task[] { first, second }) {
+			final Task decoded = codec.decode(buffer);
+			assertEquals(task.getTaskId(), decoded.getTaskId());
+			assertEquals(task.getName(), decoded.getName());
+			assertEquals(task.getDescription(), decoded.getDescription());
+		}
+		assertEquals(0, buffer.remaining());
+	}
+
+	/**
+	 * Asserts that the version of a Task is kept, and that a record of another
+	 * format version is rejected.
+	 *
+	 * @throws IOException                    Exception indicating the record
+	 *                                        could not be decoded.
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void versionTest()
+			throws IOException, NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		final TaskCodec codec = TaskCodec.getInstance();
+		final ByteBuffer buffer = ByteBuffer.allocate(codec.getMaxLength());
+		codec.encode(new Task("1", "Name", "Description").copy(), buffer);
+		buffer.flip();
+		assertEquals(1, codec.decode(buffer).getVersion());
+
+		buffer.put(0, (byte) (TaskCodec.VERSION + 1));
+		buffer.rewind();
+		assertThrows(IOException.class, () -> codec.decode(buffer));
+	}
+
+}
@@ -0,0 +1,60 @@
+package com.project.one.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.project.one.exceptions.MaximumLengthExceededException;
+import com.project.one.exceptions.MinimumLengthNotMetException;
+import com.project.one.exceptions.NullFieldException;
+
+/**
+ * This class tests the functionality of the TaskPatch class.
+ *
+ * @see TaskPatch
+ * @author Ben
+ */
+public class TaskPatchTest {
+
+	/**
+	 * Asserts that a patch sets only the fields it changes, and that extending a
+	 * patch leaves the original unchanged.
+	 *
+	 * @see NullFieldException
+	 * @see MinimumLengthNotMetException
+	 * @see MaximumLengthExceededException
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void applyToTest() throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		final Task task = new Task("1", "Follow up", "Call Jane");
+		final TaskPatch renamed = TaskPatch.none().name("Call back");
+		renamed.description("Call Jane again").applyTo(task);
+		assertEquals("Call back", task.getName());
+		assertEquals("Call Jane again", task.getDescription());
+		assertNull(renamed.getDescription());
+		assertFalse(renamed.isEmpty());
+		assertTrue(TaskPatch.none().isEmpty());
+	}
+
+	/**
+	 * Asserts that validate rejects a field a Task could not hold, and that a
+	 * NULL value is rejected when it is set.
+	 */
+	@Test
+	void validateTest() {
+		assertThrows(MaximumLengthExceededException.class,
+				() -> TaskPatch.none().description("Call Jane").name("A name that is far too long").validate());
+		assertThrows(MinimumLengthNotMetException.class, () -> TaskPatch.none().description("").validate());
+		assertThrows(IllegalArgumentException.class, () -> TaskPatch.none().name(null));
+	}
+
+}
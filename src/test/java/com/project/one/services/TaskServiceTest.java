@@ -1,15 +1,26 @@
 package com.project.one.services;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import com.project.one.exceptions.MaximumLengthExceededException;
 import com.project.one.exceptions.MinimumLengthNotMetException;
 import com.project.one.exceptions.NullFieldException;
+import com.project.one.persistence.LsmStore;
 
 /**
  * This class tests the functionality of the TaskService class.
@@ -253,4 +264,248 @@ public class TaskServiceTest {
 		this.taskService.addTask(this.task);
 		assertFalse(this.taskService.updateTaskDescription(VALID_TASK_ID, INVALID_MAX_51));
 	}
+
+	// Testing stored copies
+	/**
+	 * Asserts that the TaskService stores a copy of an added Task object, so
+	 * changing the added one does not change the stored one, and that a stored
+	 * Task object cannot be changed in place.
+	 *
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void storedCopyTest() throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		this.taskService.addTask(this.task);
+		this.task.setName(VALID_INPUT);
+		assertEquals(VALID_NAME, this.taskService.getTask(VALID_TASK_ID).getName());
+
+		final Task stored = this.taskService.getTask(VALID_TASK_ID);
+		assertThrows(UnsupportedOperationException.class, () -> stored.setDescription(VALID_INPUT));
+		assertEquals(VALID_DESCRIPTION, this.taskService.getTask(VALID_TASK_ID).getDescription());
+		assertTrue(this.taskService.updateTaskName(VALID_TASK_ID, VALID_INPUT));
+		assertEquals(VALID_INPUT, this.taskService.getTask(VALID_TASK_ID).getName());
+	}
+
+	// Testing versions and conditional updates
+	/**
+	 * Asserts that each update raises the version of the Task object, that a
+	 * conditional update or delete with a stale version fails without changing
+	 * it, and that one with the current version succeeds.
+	 */
+	@Test
+	void versionTest() {
+		assertEquals(-1, this.taskService.getTaskVersion(VALID_TASK_ID));
+		assertFalse(this.taskService.updateTaskName(VALID_TASK_ID, -1, VALID_INPUT));
+		this.taskService.addTask(this.task);
+		// Starts above the versions of the Task objects deleted by other tests.
+		final long version = this.taskService.getTaskVersion(VALID_TASK_ID);
+		assertTrue(version >= 0);
+		assertTrue(this.taskService.updateTaskName(VALID_TASK_ID, VALID_INPUT));
+		assertEquals(version + 1, this.taskService.getTaskVersion(VALID_TASK_ID));
+		assertEquals(0, this.task.getVersion());
+
+		assertFalse(this.taskService.updateTaskDescription(VALID_TASK_ID, version, VALID_INPUT));
+		assertEquals(VALID_DESCRIPTION, this.taskService.getTask(VALID_TASK_ID).getDescription());
+		assertFalse(this.taskService.updateTaskDescription(VALID_TASK_ID, version + 1, INVALID_MAX_51));
+		assertEquals(version + 1, this.taskService.getTaskVersion(VALID_TASK_ID));
+		assertTrue(this.taskService.updateTaskDescription(VALID_TASK_ID, version + 1, VALID_INPUT));
+		assertEquals(version + 2, this.taskService.getTask(VALID_TASK_ID).getVersion());
+
+		assertFalse(this.taskService.deleteTask(VALID_TASK_ID, version + 1));
+		assertEquals(VALID_INPUT, this.taskService.getTask(VALID_TASK_ID).getDescription());
+		assertTrue(this.taskService.deleteTask(VALID_TASK_ID, version + 2));
+		assertNull(this.taskService.getTask(VALID_TASK_ID));
+	}
+
+	/**
+	 * Asserts that a Task object deleted and added again continues above its old
+	 * version, so a version read before the delete never matches, and that
+	 * negative versions never match.
+	 *
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void readdVersionTest() throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		final TaskService service = new TaskService(new ConcurrentHashMap<>());
+		assertTrue(service.addTask(this.task));
+		assertTrue(service.updateTaskName(VALID_TASK_ID, 0, VALID_INPUT));
+		assertTrue(service.deleteTask(VALID_TASK_ID, 1));
+		assertTrue(service.addTask(this.task));
+		assertEquals(2, service.getTaskVersion(VALID_TASK_ID));
+		assertFalse(service.updateTaskName(VALID_TASK_ID, 0, VALID_INPUT));
+		assertEquals(VALID_NAME, service.getTask(VALID_TASK_ID).getName());
+
+		assertFalse(service.updateTaskDescription(VALID_TASK_ID, Long.MIN_VALUE, VALID_INPUT));
+		assertFalse(service.updateTask(VALID_TASK_ID, -2, TaskPatch.none().name(VALID_INPUT)));
+		assertFalse(service.deleteTask(VALID_TASK_ID, Long.MIN_VALUE));
+		assertEquals(2, service.getTaskVersion(VALID_TASK_ID));
+	}
+
+	// Testing updateTask(final String taskId, final TaskPatch patch)
+	/**
+	 * Asserts that a patch changes every field it sets in one update, raising
+	 * the version once and keeping the description index up to date, and that a
+	 * patch with any field not valid, an empty patch or a stale version changes
+	 * nothing.
+	 */
+	@Test
+	void patchTest() {
+		this.taskService.addTask(this.task);
+		final long version = this.taskService.getTaskVersion(VALID_TASK_ID);
+		assertFalse(this.taskService.updateTask(VALID_TASK_ID, TaskPatch.none()));
+		assertFalse(this.taskService.updateTask(VALID_TASK_ID,
+				TaskPatch.none().name(VALID_INPUT).description(INVALID_MAX_51)));
+		assertEquals(VALID_NAME, this.taskService.getTask(VALID_TASK_ID).getName());
+
+		assertTrue(this.taskService.updateTask(VALID_TASK_ID,
+				TaskPatch.none().name(VALID_INPUT).description(VALID_INPUT)));
+		assertEquals(VALID_INPUT, this.taskService.getTask(VALID_TASK_ID).getName());
+		assertEquals(VALID_INPUT, this.taskService.getTask(VALID_TASK_ID).getDescription());
+		assertEquals(version + 1, this.taskService.getTaskVersion(VALID_TASK_ID));
+		assertEquals(1, this.taskService.findTasksMatchingAll(VALID_INPUT, 10).size());
+		assertTrue(this.taskService.findTasksMatchingAll(VALID_DESCRIPTION, 10).isEmpty());
+
+		assertFalse(this.taskService.updateTask(VALID_TASK_ID, version, TaskPatch.none().name(VALID_NAME)));
+		assertTrue(this.taskService.updateTask(VALID_TASK_ID, version + 1, TaskPatch.none().name(VALID_NAME)));
+		assertEquals(VALID_NAME, this.taskService.getTask(VALID_TASK_ID).getName());
+		assertEquals(VALID_INPUT, this.taskService.getTask(VALID_TASK_ID).getDescription());
+	}
+
+	// Testing the journal
+	/**
+	 * Asserts that adds, updates and deletes recorded in the journal, before and
+	 * after a checkpoint, are restored by a new TaskService reading the same
+	 * journal directory.
+	 *
+	 * @param directory A temporary directory for the journal.
+	 * @throws IOException Exception indicating the journal could not be used.
+	 */
+	@Test
+	void journalReplayTest(@TempDir final Path directory) throws IOException {
+		final TaskService durable = new TaskService(directory);
+		assertTrue(durable.addTask(this.task));
+		assertTrue(durable.updateTaskName(VALID_TASK_ID, VALID_INPUT));
+		durable.checkpoint();
+		assertTrue(durable.updateTaskDescription(VALID_TASK_ID, VALID_INPUT));
+		assertFalse(durable.updateTaskDescription(VALID_TASK_ID, INVALID_MAX_51));
+		durable.close();
+
+		final TaskService restarted = new TaskService(directory);
+		assertEquals(VALID_INPUT, restarted.getTask(VALID_TASK_ID).getName());
+		assertEquals(VALID_INPUT, restarted.getTask(VALID_TASK_ID).getDescription());
+		assertEquals(2, restarted.getTaskVersion(VALID_TASK_ID));
+		assertTrue(restarted.deleteTask(VALID_TASK_ID));
+		restarted.close();
+
+		final TaskService deleted = new TaskService(directory);
+		assertNull(deleted.getTask(VALID_TASK_ID));
+		deleted.close();
+	}
+
+	/**
+	 * Asserts that changes made in LSM store mode are read back after the store
+	 * is reopened.
+	 *
+	 * @param directory A temporary directory for the store.
+	 * @throws IOException Exception indicating the store could not be used.
+	 */
+	@Test
+	void lsmStoreReopenTest(@TempDir final Path directory) throws IOException {
+		final TaskService stored = new TaskService(new LsmStore<>(directory, TaskService.CODEC));
+		assertTrue(stored.addTask(this.task));
+		assertFalse(stored.addTask(this.task));
+		assertTrue(stored.updateTaskName(VALID_TASK_ID, VALID_INPUT));
+		assertFalse(stored.updateTaskDescription(VALID_TASK_ID, INVALID_MAX_51));
+		stored.close();
+
+		final TaskService reopened = new TaskService(new LsmStore<>(directory, TaskService.CODEC));
+		assertEquals(VALID_INPUT, reopened.getTask(VALID_TASK_ID).getName());
+		assertEquals(VALID_DESCRIPTION, reopened.getTask(VALID_TASK_ID).getDescription());
+		assertEquals(1, reopened.getTaskVersion(VALID_TASK_ID));
+		assertTrue(reopened.deleteTask(VALID_TASK_ID));
+		assertNull(reopened.getTask(VALID_TASK_ID));
+		reopened.close();
+	}
+
+	/**
+	 * Asserts that description searches match words ignoring case, rank the
+	 * rarer words first and follow description updates and deletes.
+	 *
+	 * @param directory A temporary directory for the journal.
+	 * @throws IOException                    Exception indicating the journal
+	 *                                        could not be used.
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void descriptionSearchTest(@TempDir final Path directory) throws IOException, NullFieldException,
+			MinimumLengthNotMetException, MaximumLengthExceededException {
+		final TaskService searched = new TaskService(directory);
+		assertTrue(searched.addTask(new Task("1", VALID_NAME, "Call the plumber")));
+		assertTrue(searched.addTask(new Task("2", VALID_NAME, "Call mom")));
+		assertTrue(searched.addTask(new Task("3", VALID_NAME, "Fix the sink, call back")));
+
+		assertEquals(List.of("1", "3"), taskIds(searched.findTasksMatchingAll("THE call", 10)));
+		assertEquals(List.of("2", "1", "3"), taskIds(searched.findTasksMatchingAny("mom call", 10)));
+		assertEquals(List.of("2"), taskIds(searched.findTasksMatchingAny("mom call", 1)));
+		assertTrue(searched.findTasksMatchingAll("call dentist", 10).isEmpty());
+
+		assertTrue(searched.updateTaskDescription("2", "Email mom"));
+		assertEquals(List.of("1", "3"), taskIds(searched.findTasksMatchingAll("call", 10)));
+		assertEquals(List.of("2"), taskIds(searched.findTasksMatchingAll("email", 10)));
+		assertTrue(searched.deleteTask("1"));
+		assertEquals(List.of("3"), taskIds(searched.findTasksMatchingAll("call", 10)));
+		searched.close();
+
+		final TaskService replayed = new TaskService(directory);
+		assertEquals(List.of("2"), taskIds(replayed.findTasksMatchingAny("MOM", 10)));
+		replayed.close();
+	}
+
+	/**
+	 * Asserts that sequential and parallel streams over an LsmStore see every
+	 * Task object once.
+	 *
+	 * @param directory A temporary directory for the store.
+	 * @throws IOException                    Exception indicating the store could
+	 *                                        not be used.
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void streamTest(@TempDir final Path directory) throws IOException, NullFieldException,
+			MinimumLengthNotMetException, MaximumLengthExceededException {
+		final TaskService stored = new TaskService(new LsmStore<>(directory, TaskService.CODEC));
+		for (int i = 0; i < 3000; i++) {
+			assertTrue(stored.addTask(new Task("T" + i, VALID_NAME, i % 3 == 0 ? "Call back" : "Email")));
+		}
+		assertTrue(stored.deleteTask("T0"));
+		assertEquals(2999, stored.stream().count());
+		assertEquals(999, stored.parallelStream().filter(task -> task.getDescription().startsWith("Call")).count());
+		assertEquals(2999, stored.parallelStream().map(Task::getTaskId).distinct().count());
+		stored.close();
+	}
+
+	private static List<String> taskIds(final List<Task> tasks) {
+		final List<String> taskIds = new ArrayList<>();
+		for (final Task task : tasks) {
+			taskIds.add(task.getTaskId());
+		}
+		return taskIds;
+	}
+
 }
@@ -0,0 +1,135 @@
+package com.project.one.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class measures one writer updating the addresses of Contact objects
+ * while analytics readers repeatedly scan every Contact object. The readers
+ * scan either in read-only transactions, or while holding the write lock, the
+ * only way to read every Contact object at one point in time without
+ * snapshots. The writer also runs alone, with and without the versions kept
+ * for transactions. It is not run as part of the test suite; run its main
+ * method to print the results. The first argument overrides the number of
+ * reader threads.
+ *
+ * @see Transaction
+ * @see TransactionManager
+ * @author Ben
+ */
+public class TransactionBenchmark {
+
+	private static int CONTACTS = 10_000;
+	private static int READERS = 2;
+	private static long WARMUP_MILLIS = 2_000;
+	private static long MEASURE_MILLIS = 5_000;
+	private static String[] ADDRESSES = { "1 First Street", "2 Second Avenue" };
+
+	/**
+	 * The ways the readers run.
+	 */
+	private enum Mode {
+		NONE, VERSIONS, SNAPSHOT, LOCKED
+	}
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args The number of reader threads, optionally.
+	 * @throws Exception Exception indicating the benchmark could not run.
+	 */
+	public static void main(final String[] args) throws Exception {
+		final int readers = args.length > 0 ? Integer.parseInt(args[0]) : READERS;
+		System.out.printf("%,d contacts, %d readers, %d processors%n", CONTACTS, readers,
+				Runtime.getRuntime().availableProcessors());
+		System.out.printf("%16s %14s %10s%n", "readers", "writes (k/s)", "scans/s");
+		for (final Mode mode : Mode.values()) {
+			final Map<String, Contact> contactMap = new ConcurrentHashMap<>(CONTACTS * 2);
+			final String[] contactIds = new String[CONTACTS];
+			for (int i = 0; i < CONTACTS; i++) {
+				contactIds[i] = "C" + i;
+				contactMap.put(contactIds[i], new Contact(contactIds[i], "First", "Last", "5555555555", ADDRESSES[0]));
+			}
+			final ContactService service = new ContactService(contactMap);
+			final TransactionManager manager = mode == Mode.NONE ? null
+					: new TransactionManager(service, new TaskService(new ConcurrentHashMap<>()),
+							new AppointmentService(new ConcurrentHashMap<>()));
+			final int threads = mode == Mode.SNAPSHOT || mode == Mode.LOCKED ? readers : 0;
+			run(service, manager, contactIds, mode, threads, WARMUP_MILLIS);
+			final long[] counts = run(service, manager, contactIds, mode, threads, MEASURE_MILLIS);
+			System.out.printf("%16s %14.1f %10.1f%n", label(mode), counts[0] / (double) MEASURE_MILLIS,
+					counts[1] * 1e3 / MEASURE_MILLIS);
+		}
+	}
+
+	private static String label(final Mode mode) {
+		switch (mode) {
+		case NONE:
+			return "none";
+		case VERSIONS:
+			return "none (versions)";
+		case SNAPSHOT:
+			return "read-only tx";
+		default:
+			return "write lock";
+		}
+	}
+
+	/**
+	 * Runs the writer and the readers for a time.
+	 *
+	 * @return Returns the number of writes and scans.
+	 */
+	private static long[] run(final ContactService service, final TransactionManager manager,
+			final String[] contactIds, final Mode mode, final int readers, final long millis)
+			throws InterruptedException {
+		final AtomicBoolean running = new AtomicBoolean(true);
+		final LongAdder writes = new LongAdder();
+		final LongAdder scans = new LongAdder();
+		final List<Thread> threads = new ArrayList<>();
+		threads.add(new Thread(() -> {
+			final ThreadLocalRandom random = ThreadLocalRandom.current();
+			long written = 0;
+			while (running.get()) {
+				service.updateContactAddress(contactIds[random.nextInt(contactIds.length)],
+						ADDRESSES[(int) (written & 1)]);
+				written++;
+			}
+			writes.add(written);
+		}));
+		for (int reader = 0; reader < readers; reader++) {
+			threads.add(new Thread(() -> {
+				long scanned = 0;
+				long length = 0;
+				while (running.get()) {
+					if (mode == Mode.SNAPSHOT) {
+						try (Transaction transaction = manager.beginReadOnly()) {
+							length += transaction.contacts().mapToInt(contact -> contact.getAddress().length()).sum();
+						}
+					} else {
+						synchronized (service.getWriteLock()) {
+							length += service.stream().mapToInt(contact -> contact.getAddress().length()).sum();
+						}
+					}
+					scanned++;
+				}
+				scans.add(scanned + (length == 42 ? 1 : 0));
+			}));
+		}
+		for (final Thread thread : threads) {
+			thread.start();
+		}
+		Thread.sleep(millis);
+		running.set(false);
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+		return new long[] { writes.sum(), scans.sum() };
+	}
+
+}
@@ -0,0 +1,411 @@
+package com.project.one.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.project.one.exceptions.MaximumLengthExceededException;
+import com.project.one.exceptions.MinimumLengthNotMetException;
+import com.project.one.exceptions.NullFieldException;
+import com.project.one.exceptions.PastDateException;
+import com.project.one.exceptions.PersistenceException;
+
+/**
+ * This class tests the functionality of the Transaction and TransactionManager
+ * classes.
+ *
+ * @see Transaction
+ * @see TransactionManager
+ * @author Ben
+ */
+public class TransactionTest {
+
+	private static int ROUNDS = 500;
+
+	private ContactService contactService;
+	private TaskService taskService;
+	private AppointmentService appointmentService;
+	private TransactionManager manager;
+	private Date futureDate;
+
+	/**
+	 * Creates empty services and a TransactionManager over them before every
+	 * test, with one Contact object.
+	 *
+	 * @see NullFieldException
+	 * @see MinimumLengthNotMetException
+	 * @see MaximumLengthExceededException
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@BeforeEach
+	void init() throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		this.contactService = new ContactService(new ConcurrentHashMap<>());
+		this.taskService = new TaskService(new ConcurrentHashMap<>());
+		this.appointmentService = new AppointmentService(new ConcurrentHashMap<>());
+		this.contactService.addContact(new Contact("C1", "Jane", "Smith", "2125550100", "10 Main Street"));
+		this.manager = new TransactionManager(this.contactService, this.taskService, this.appointmentService);
+		final Calendar calendar = Calendar.getInstance();
+		calendar.add(Calendar.YEAR, 1);
+		this.futureDate = calendar.getTime();
+	}
+
+	/**
+	 * Asserts that the changes of a transaction across the three services are
+	 * only seen by the transaction until it commits, and then all at once.
+	 *
+	 * @see NullFieldException
+	 * @see MinimumLengthNotMetException
+	 * @see MaximumLengthExceededException
+	 * @see PastDateException
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 * @throws PastDateException              Exception indicating a date field is
+	 *                                        in the past.
+	 */
+	@Test
+	void commitTest()
+			throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException, PastDateException {
+		try (Transaction transaction = this.manager.begin()) {
+			assertTrue(transaction.addAppointment(new Appointment("A1", this.futureDate, "Checkup for C1")));
+			assertTrue(transaction.addTask(new Task("T1", "Follow up", "Call C1 after the checkup")));
+			assertTrue(transaction.updateContact("C1", ContactPatch.none().address("22 Elm Street")));
+			assertFalse(transaction.addTask(new Task("T1", "Again", "Added twice")));
+			assertFalse(transaction.updateContact("C1", ContactPatch.none().phoneNumber("21255501000")));
+			assertEquals("22 Elm Street", transaction.getContact("C1").getAddress());
+			assertEquals("Follow up", transaction.getTask("T1").getName());
+			assertNull(this.taskService.getTask("T1"));
+			assertEquals("10 Main Street", this.contactService.getContact("C1").getAddress());
+
+			try (Transaction reader = this.manager.beginReadOnly()) {
+				assertTrue(transaction.commit());
+				assertNull(reader.getTask("T1"));
+				assertNull(reader.getAppointment("A1"));
+				assertEquals("10 Main Street", reader.getContact("C1").getAddress());
+			}
+		}
+		assertEquals("22 Elm Street", this.contactService.getContact("C1").getAddress());
+		assertEquals(1, this.contactService.getContactVersion("C1"));
+		assertEquals("Follow up", this.taskService.getTask("T1").getName());
+		assertEquals("Checkup for C1", this.appointmentService.getAppointment("A1").getDescription());
+		try (Transaction reader = this.manager.beginReadOnly()) {
+			assertEquals(1, reader.tasks().count());
+			assertEquals(1, reader.appointments().count());
+		}
+	}
+
+	/**
+	 * Asserts that a transaction changing a record another writer changed since
+	 * it started commits nothing, while one changing other records commits.
+	 *
+	 * @see NullFieldException
+	 * @see MinimumLengthNotMetException
+	 * @see MaximumLengthExceededException
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void conflictTest() throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		final Transaction first = this.manager.begin();
+		final Transaction second = this.manager.begin();
+		assertTrue(first.updateContact("C1", ContactPatch.none().lastName("Jones")));
+		assertTrue(first.addTask(new Task("T1", "Follow up", "Call Jane")));
+		assertTrue(second.updateContact("C1", ContactPatch.none().firstName("Janet")));
+		assertTrue(second.commit());
+
+		assertFalse(first.commit());
+		assertEquals("Janet", this.contactService.getContact("C1").getFirstName());
+		assertEquals("Smith", this.contactService.getContact("C1").getLastName());
+		assertNull(this.taskService.getTask("T1"));
+
+		final Transaction third = this.manager.begin();
+		assertTrue(third.addTask(new Task("T1", "Follow up", "Call Janet")));
+		assertTrue(this.contactService.updateContactAddress("C1", "22 Elm Street"));
+		assertTrue(third.commit());
+		assertEquals("Call Janet", this.taskService.getTask("T1").getDescription());
+
+		final Transaction fourth = this.manager.begin();
+		assertTrue(fourth.deleteContact("C1"));
+		assertTrue(this.contactService.updateContactAddress("C1", "10 Main Street"));
+		assertFalse(fourth.commit());
+		assertEquals("10 Main Street", this.contactService.getContact("C1").getAddress());
+	}
+
+	/**
+	 * Asserts that a transaction patching the indexed fields of a Task and an
+	 * Appointment object moves them in the indexes of the services when it
+	 * commits, and that a stale patch commits nothing.
+	 *
+	 * @see NullFieldException
+	 * @see MinimumLengthNotMetException
+	 * @see MaximumLengthExceededException
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void patchTest() throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		final Date laterDate = new Date(this.futureDate.getTime() + 60000);
+		this.taskService.addTask(new Task("T1", "Follow up", "Call Jane"));
+		this.appointmentService.addAppointment(Appointment.restore("A1", this.futureDate, 60000, "alice", "Checkup"));
+		try (Transaction transaction = this.manager.begin()) {
+			assertTrue(transaction.updateTask("T1", TaskPatch.none().name("Call back").description("Call Janet")));
+			assertTrue(transaction.updateAppointment("A1",
+					AppointmentPatch.none().appointmentDate(laterDate).owner("bob")));
+			assertFalse(transaction.updateAppointment("A1", AppointmentPatch.none().duration(-1)));
+			assertEquals(laterDate, transaction.getAppointment("A1").getAppointmentDate());
+			assertEquals(this.futureDate, this.appointmentService.getAppointment("A1").getAppointmentDate());
+			assertTrue(transaction.commit());
+		}
+		assertEquals("Call back", this.taskService.getTask("T1").getName());
+		assertEquals(1, this.taskService.findTasksMatchingAll("janet", 10).size());
+		assertTrue(this.taskService.findTasksMatchingAll("jane", 10).isEmpty());
+		assertEquals(1, this.appointmentService.getAppointmentsBetween(laterDate, new Date(laterDate.getTime() + 1))
+				.size());
+		assertTrue(this.appointmentService.getAppointmentsBetween(this.futureDate, laterDate).isEmpty());
+		assertFalse(this.appointmentService.addAppointmentIfFree(
+				Appointment.restore("A2", laterDate, 60000, "bob", "Checkup")));
+		assertTrue(this.appointmentService.addAppointmentIfFree(
+				Appointment.restore("A3", laterDate, 60000, "alice", "Checkup")));
+
+		final Transaction stale = this.manager.begin();
+		assertTrue(stale.updateTask("T1", TaskPatch.none().description("Call Jane again")));
+		assertTrue(stale.updateAppointment("A1", AppointmentPatch.none().owner("carol")));
+		assertTrue(this.appointmentService.updateAppointmentDate("A1", this.futureDate));
+		assertFalse(stale.commit());
+		assertEquals("Call Janet", this.taskService.getTask("T1").getDescription());
+		assertEquals("bob", this.appointmentService.getAppointment("A1").getOwner());
+		assertEquals(this.futureDate, this.appointmentService.getAppointment("A1").getAppointmentDate());
+	}
+
+	/**
+	 * Asserts that read-only transactions see both records of a pair renamed
+	 * together by every transaction of concurrent writers with the same name,
+	 * never one renamed without the other.
+	 *
+	 * @throws Exception Exception indicating a reader or a writer failed.
+	 */
+	@Test
+	void concurrentReadOnlyTest() throws Exception {
+		this.taskService.addTask(new Task("T1", "Round 0", "First of the pair"));
+		this.taskService.addTask(new Task("T2", "Round 0", "Second of the pair"));
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			final List<Future<?>> futures = new ArrayList<>();
+			for (int writer = 0; writer < 2; writer++) {
+				final String prefix = "Writer " + writer + " round ";
+				futures.add(executor.submit(() -> {
+					for (int round = 1; round <= ROUNDS; round++) {
+						try (Transaction transaction = this.manager.begin()) {
+							final TaskPatch renamed = TaskPatch.none().name(prefix + round);
+							assertTrue(transaction.updateTask("T1", renamed));
+							assertTrue(transaction.updateTask("T2", renamed));
+							transaction.commit();
+						}
+					}
+					return null;
+				}));
+			}
+			for (int reader = 0; reader < 2; reader++) {
+				futures.add(executor.submit(() -> {
+					for (int round = 0; round < ROUNDS; round++) {
+						try (Transaction transaction = this.manager.beginReadOnly()) {
+							final String name = transaction.getTask("T1").getName();
+							assertEquals(name, transaction.getTask("T2").getName());
+							assertEquals(2, transaction.tasks().filter(task -> task.getName().equals(name)).count());
+						}
+					}
+					return null;
+				}));
+			}
+			for (final Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(this.taskService.getTask("T1").getName(), this.taskService.getTask("T2").getName());
+	}
+
+	/**
+	 * Asserts that lookups through the indexes, running while transactions
+	 * rename a Contact object back and forth, always find it by the fields the
+	 * transactions leave unchanged and by one of its two first names.
+	 *
+	 * @throws InterruptedException Exception indicating the test was
+	 *                              interrupted.
+	 */
+	@Test
+	void concurrentIndexTest() throws InterruptedException {
+		final AtomicReference<String> failure = new AtomicReference<>();
+		final Thread reader = new Thread(() -> {
+			for (int i = 0; i < 20000 && failure.get() == null; i++) {
+				final int lastNames = this.contactService.findContactsByLastNamePrefix("Smith", 10).size();
+				final int phoneNumbers = this.contactService.findContactsByPhoneNumber("2125550100").size();
+				final int firstNames = this.contactService.findContactsByFirstNamePrefix("Jane", 10).size();
+				if (lastNames != 1 || phoneNumbers != 1 || firstNames != 1) {
+					failure.set("Found " + lastNames + ", " + phoneNumbers + " and " + firstNames + " contacts.");
+				}
+			}
+		});
+		reader.start();
+		boolean renamed = false;
+		while (reader.isAlive()) {
+			renamed = !renamed;
+			try (Transaction transaction = this.manager.begin()) {
+				assertTrue(transaction.updateContact("C1", ContactPatch.none().firstName(renamed ? "Janet" : "Jane")));
+				assertTrue(transaction.commit());
+			}
+		}
+		reader.join();
+		assertNull(failure.get());
+	}
+
+	/**
+	 * Asserts that a read-only transaction keeps reading its snapshot, records
+	 * included, while writers carry on, and that it cannot change records.
+	 *
+	 * @see NullFieldException
+	 * @see MinimumLengthNotMetException
+	 * @see MaximumLengthExceededException
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void readOnlyTest() throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		this.contactService.addContact(new Contact("C2", "John", "Jones", "3125550199", "22 Elm Street"));
+		final Transaction reader = this.manager.beginReadOnly();
+		assertTrue(this.contactService.deleteContact("C2"));
+		assertTrue(this.contactService.updateContactLastName("C1", "Brown"));
+		assertTrue(this.contactService.addContact(new Contact("C3", "Ann", "Lee", "4155550123", "5 Oak Road")));
+
+		assertEquals(List.of("Jones", "Smith"),
+				reader.contacts().map(Contact::getLastName).sorted().collect(Collectors.toList()));
+		assertEquals("Smith", reader.getContact("C1").getLastName());
+		assertEquals("John", reader.getContact("C2").getFirstName());
+		assertNull(reader.getContact("C3"));
+		assertThrows(IllegalStateException.class, () -> reader.deleteContact("C1"));
+		assertTrue(reader.commit());
+		assertThrows(IllegalStateException.class, () -> reader.getContact("C1"));
+		assertEquals("Brown", this.contactService.getContact("C1").getLastName());
+	}
+
+	/**
+	 * Asserts that a transaction adding more Appointment objects than the queue
+	 * of a write-behind AppointmentService holds commits, and that its changes
+	 * are replayed after a restart.
+	 *
+	 * @param directory A temporary directory for the journal.
+	 * @throws IOException Exception indicating the journal could not be used.
+	 */
+	@Test
+	void writeBehindTest(@TempDir final Path directory) throws IOException {
+		final AppointmentService behind = new AppointmentService(directory, 1, 10_000);
+		final TransactionManager writeBehind = new TransactionManager(new ContactService(new ConcurrentHashMap<>()),
+				new TaskService(new ConcurrentHashMap<>()), behind);
+		assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+			try (Transaction transaction = writeBehind.begin()) {
+				for (int i = 1; i <= 3; i++) {
+					assertTrue(transaction.addAppointment(new Appointment("A" + i, this.futureDate, "Checkup " + i)));
+				}
+				assertTrue(transaction.commit());
+			}
+		});
+		behind.flush();
+		behind.close();
+
+		final AppointmentService restarted = new AppointmentService(directory);
+		assertEquals("Checkup 3", restarted.getAppointment("A3").getDescription());
+		restarted.close();
+	}
+
+	/**
+	 * Asserts that a transaction whose change cannot be stored puts back the
+	 * records it already changed, indexes included, and publishes none of them.
+	 *
+	 * @see NullFieldException
+	 * @see MinimumLengthNotMetException
+	 * @see MaximumLengthExceededException
+	 * @throws NullFieldException             Exception indicating a field is null.
+	 * @throws MinimumLengthNotMetException   Exception indicating a field does not
+	 *                                        meet the minimum length.
+	 * @throws MaximumLengthExceededException Exception indicating a field does not
+	 *                                        meet the maximum length.
+	 */
+	@Test
+	void failedWriteTest() throws NullFieldException, MinimumLengthNotMetException, MaximumLengthExceededException {
+		final Map<String, Contact> contactMap = new ConcurrentHashMap<>() {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public Contact put(final String key, final Contact value) {
+				if ("C3".equals(key)) {
+					throw new PersistenceException("The store is full.");
+				}
+				return super.put(key, value);
+			}
+		};
+		final ContactService failing = new ContactService(contactMap);
+		failing.addContact(new Contact("C1", "Jane", "Smith", "2125550100", "10 Main Street"));
+		final TransactionManager failingManager = new TransactionManager(failing,
+				new TaskService(new ConcurrentHashMap<>()), new AppointmentService(new ConcurrentHashMap<>()));
+
+		final Transaction transaction = failingManager.begin();
+		assertTrue(transaction.updateContact("C1", ContactPatch.none().lastName("Jones")));
+		assertTrue(transaction.addContact(new Contact("C2", "John", "Jones", "3125550199", "22 Elm Street")));
+		assertTrue(transaction.addContact(new Contact("C3", "Ann", "Lee", "4155550123", "5 Oak Road")));
+		assertThrows(PersistenceException.class, transaction::commit);
+		assertEquals("Smith", failing.getContact("C1").getLastName());
+		assertNull(failing.getContact("C2"));
+		assertEquals(List.of(), failing.findContactsByLastNamePrefix("Jones", 10));
+		assertEquals(1, failing.findContactsByLastNamePrefix("Smith", 10).size());
+		try (Transaction reader = failingManager.beginReadOnly()) {
+			assertEquals("Smith", reader.getContact("C1").getLastName());
+			assertEquals(1, reader.contacts().count());
+		}
+
+		try (Transaction retry = failingManager.begin()) {
+			assertTrue(retry.updateContact("C1", ContactPatch.none().lastName("Jones")));
+			assertTrue(retry.commit());
+		}
+		assertEquals("Jones", failing.getContact("C1").getLastName());
+	}
+
+}